@@ -0,0 +1,57 @@
+package com.skypro.simplebanking.benchmark;
+
+import com.skypro.simplebanking.dto.AccountDTO;
+import com.skypro.simplebanking.dto.UserDTO;
+import com.skypro.simplebanking.service.AccountService;
+import com.skypro.simplebanking.service.UserService;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class AccountServiceBenchmark {
+  private ConfigurableApplicationContext context;
+  private AccountService accountService;
+  private long userId;
+  private long accountId;
+
+  @Setup
+  public void setUp() {
+    context = BenchmarkContext.start();
+    accountService = context.getBean(AccountService.class);
+    UserDTO user = context.getBean(UserService.class).createUser("account-benchmark", "password");
+    userId = user.getId();
+    accountId = user.getAccounts().get(0).getId();
+    accountService.depositToAccount(userId, accountId, Long.MAX_VALUE / 2);
+  }
+
+  @TearDown
+  public void tearDown() {
+    context.close();
+  }
+
+  @Benchmark
+  public AccountDTO deposit() {
+    return accountService.depositToAccount(userId, accountId, 1);
+  }
+
+  @Benchmark
+  public AccountDTO withdraw() {
+    return accountService.withdrawFromAccount(userId, accountId, 1);
+  }
+}
@@ -0,0 +1,28 @@
+package com.skypro.simplebanking.benchmark;
+
+import com.skypro.simplebanking.SimpleBankingApplication;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.util.UUID;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+final class BenchmarkContext {
+  private BenchmarkContext() {}
+
+  static ConfigurableApplicationContext start() {
+    try {
+      return new SpringApplicationBuilder(SimpleBankingApplication.class)
+          .run(
+              "--server.port=0",
+              "--spring.datasource.url=jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1",
+              "--spring.datasource.username=sa",
+              "--spring.datasource.password=",
+              "--app.journal.directory=" + Files.createTempDirectory("benchmark-journal"),
+              "--logging.level.root=WARN");
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+}
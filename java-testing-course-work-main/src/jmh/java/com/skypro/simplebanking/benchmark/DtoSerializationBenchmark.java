@@ -0,0 +1,62 @@
+package com.skypro.simplebanking.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.skypro.simplebanking.dto.AccountDTO;
+import com.skypro.simplebanking.dto.UserDTO;
+import com.skypro.simplebanking.entity.Account;
+import com.skypro.simplebanking.entity.AccountCurrency;
+import com.skypro.simplebanking.entity.User;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class DtoSerializationBenchmark {
+  private ObjectMapper objectMapper;
+  private User user;
+  private Account account;
+
+  @Setup
+  public void setUp() {
+    objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    user = new User();
+    user.setId(1L);
+    user.setUsername("serialization-benchmark");
+    user.setAccounts(new ArrayList<>());
+    for (AccountCurrency currency : AccountCurrency.values()) {
+      Account userAccount = new Account();
+      userAccount.setId((long) currency.ordinal() + 1);
+      userAccount.setUser(user);
+      userAccount.setAccountCurrency(currency);
+      userAccount.setAmount(1_000_000L);
+      user.getAccounts().add(userAccount);
+    }
+    account = user.getAccounts().iterator().next();
+  }
+
+  @Benchmark
+  public byte[] userDto() throws JsonProcessingException {
+    return objectMapper.writeValueAsBytes(UserDTO.from(user));
+  }
+
+  @Benchmark
+  public byte[] accountDto() throws JsonProcessingException {
+    return objectMapper.writeValueAsBytes(AccountDTO.from(account));
+  }
+}
@@ -0,0 +1,63 @@
+package com.skypro.simplebanking.benchmark;
+
+import com.skypro.simplebanking.dto.TransferRequest;
+import com.skypro.simplebanking.dto.UserDTO;
+import com.skypro.simplebanking.service.AccountService;
+import com.skypro.simplebanking.service.TransferService;
+import com.skypro.simplebanking.service.UserService;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class TransferServiceBenchmark {
+  private ConfigurableApplicationContext context;
+  private TransferService transferService;
+  private long sourceUserId;
+  private TransferRequest transferRequest;
+
+  @Setup
+  public void setUp() {
+    context = BenchmarkContext.start();
+    transferService = context.getBean(TransferService.class);
+    UserService userService = context.getBean(UserService.class);
+    UserDTO source = userService.createUser("transfer-source", "password");
+    UserDTO destination = userService.createUser("transfer-destination", "password");
+    sourceUserId = source.getId();
+    long sourceAccountId = source.getAccounts().get(0).getId();
+    context
+        .getBean(AccountService.class)
+        .depositToAccount(sourceUserId, sourceAccountId, Long.MAX_VALUE / 2);
+
+    transferRequest = new TransferRequest();
+    transferRequest.setFromAccountId(sourceAccountId);
+    transferRequest.setToUserId(destination.getId());
+    transferRequest.setToAccountId(destination.getAccounts().get(0).getId());
+    transferRequest.setAmount(1);
+  }
+
+  @TearDown
+  public void tearDown() {
+    context.close();
+  }
+
+  @Benchmark
+  public void transfer() {
+    transferService.transfer(sourceUserId, transferRequest);
+  }
+}
@@ -0,0 +1,55 @@
+package com.skypro.simplebanking.benchmark;
+
+import com.skypro.simplebanking.dto.UserDTO;
+import com.skypro.simplebanking.service.UserService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class UserServiceBenchmark {
+  private final AtomicLong usernames = new AtomicLong();
+  private ConfigurableApplicationContext context;
+  private UserService userService;
+  private PasswordEncoder passwordEncoder;
+
+  @Setup
+  public void setUp() {
+    context = BenchmarkContext.start();
+    userService = context.getBean(UserService.class);
+    passwordEncoder = context.getBean(PasswordEncoder.class);
+  }
+
+  @TearDown
+  public void tearDown() {
+    context.close();
+  }
+
+  @Benchmark
+  public UserDTO createUser() {
+    return userService.createUser("user-" + usernames.incrementAndGet(), "password");
+  }
+
+  // The BCrypt share of createUser, measured on its own.
+  @Benchmark
+  public String encodePassword() {
+    return passwordEncoder.encode("password");
+  }
+}
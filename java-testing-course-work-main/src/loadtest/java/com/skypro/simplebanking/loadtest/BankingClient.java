@@ -0,0 +1,159 @@
+package com.skypro.simplebanking.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/** Thin client over the public REST API, used both for seeding and for the measured requests. */
+final class BankingClient {
+  static final long SEED_BALANCE = 1_000_000_000L;
+
+  private final HttpClient httpClient;
+  private final ObjectMapper objectMapper = new ObjectMapper();
+  private final String baseUrl;
+  private final String adminKey;
+
+  BankingClient(String baseUrl, String adminKey) {
+    this.httpClient =
+        HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+    this.baseUrl = baseUrl;
+    this.adminKey = adminKey;
+  }
+
+  // Usernames carry a run prefix so the tool can be pointed at the same database repeatedly.
+  List<LoadUser> seedUsers(int count, boolean tokenAuth)
+      throws IOException, InterruptedException {
+    String prefix = "load-" + Long.toString(System.currentTimeMillis(), 36) + "-";
+    List<LoadUser> users = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      String username = prefix + i;
+      String password = "password-" + i;
+      HttpResponse<String> created =
+          send(
+              HttpRequest.newBuilder(URI.create(baseUrl + "/user/"))
+                  .header("X-SECURITY-ADMIN-KEY", adminKey)
+                  .header("Content-Type", "application/json")
+                  .POST(json(Map.of("username", username, "password", password)))
+                  .build());
+      expectOk(created, "create user " + username);
+      LoadUser user = new LoadUser(username, password);
+      JsonNode me = objectMapper.readTree(expectOk(send(get(user, "/user/me")), "load user"));
+      user.id = me.get("id").asLong();
+      for (JsonNode account : me.get("accounts")) {
+        long accountId = account.get("id").asLong();
+        user.currencies.add(account.get("currency").asText());
+        user.accounts.put(account.get("currency").asText(), accountId);
+        expectOk(
+            send(post(user, "/account/deposit/" + accountId, Map.of("amount", SEED_BALANCE))),
+            "seed account " + accountId);
+      }
+      if (tokenAuth) {
+        HttpRequest login =
+            HttpRequest.newBuilder(URI.create(baseUrl + "/auth/token"))
+                .header("Authorization", user.authorization)
+                .POST(HttpRequest.BodyPublishers.noBody())
+                .build();
+        JsonNode token = objectMapper.readTree(expectOk(send(login), "issue token"));
+        user.authorization = "Bearer " + token.get("token").asText();
+      }
+      users.add(user);
+    }
+    return users;
+  }
+
+  /** Sends one request of the given kind and returns its HTTP status. */
+  int execute(Operation operation, List<LoadUser> users) throws IOException, InterruptedException {
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    LoadUser user = users.get(random.nextInt(users.size()));
+    String currency = user.currencies.get(random.nextInt(user.currencies.size()));
+    long accountId = user.accounts.get(currency);
+    HttpRequest request;
+    switch (operation) {
+      case TRANSFER:
+        LoadUser recipient = users.get(random.nextInt(users.size() - 1));
+        if (recipient == user) {
+          recipient = users.get(users.size() - 1);
+        }
+        request =
+            post(
+                user,
+                "/transfer",
+                Map.of(
+                    "fromAccountId", accountId,
+                    "toUserId", recipient.id,
+                    "toAccountId", recipient.accounts.get(currency),
+                    "amount", 1L));
+        break;
+      case DEPOSIT:
+        request = post(user, "/account/deposit/" + accountId, Map.of("amount", 1L));
+        break;
+      case WITHDRAW:
+        request = post(user, "/account/withdraw/" + accountId, Map.of("amount", 1L));
+        break;
+      default:
+        request = get(user, "/user/me");
+    }
+    return send(request).statusCode();
+  }
+
+  private HttpRequest get(LoadUser user, String path) {
+    return HttpRequest.newBuilder(URI.create(baseUrl + path))
+        .header("Authorization", user.authorization)
+        .GET()
+        .build();
+  }
+
+  private HttpRequest post(LoadUser user, String path, Map<String, Object> body)
+      throws IOException {
+    return HttpRequest.newBuilder(URI.create(baseUrl + path))
+        .header("Authorization", user.authorization)
+        .header("Content-Type", "application/json")
+        .POST(json(body))
+        .build();
+  }
+
+  private HttpRequest.BodyPublisher json(Map<String, Object> body) throws IOException {
+    return HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(body));
+  }
+
+  private HttpResponse<String> send(HttpRequest request) throws IOException, InterruptedException {
+    return httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+  }
+
+  private static String expectOk(HttpResponse<String> response, String action) {
+    if (response.statusCode() != 200) {
+      throw new IllegalStateException(
+          "Could not " + action + ": HTTP " + response.statusCode() + " " + response.body());
+    }
+    return response.body();
+  }
+
+  static final class LoadUser {
+    private String authorization;
+    private final List<String> currencies = new ArrayList<>();
+    private final Map<String, Long> accounts = new HashMap<>();
+    private long id;
+
+    private LoadUser(String username, String password) {
+      this.authorization =
+          "Basic "
+              + Base64.getEncoder()
+                  .encodeToString((username + ":" + password).getBytes(StandardCharsets.UTF_8));
+    }
+  }
+}
@@ -0,0 +1,243 @@
+package com.skypro.simplebanking.loadtest;
+
+import com.skypro.simplebanking.loadtest.BankingClient.LoadUser;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import org.HdrHistogram.Histogram;
+
+/**
+ * Drives a running application over HTTP with a weighted mix of operations and reports latency
+ * percentiles per operation.
+ *
+ * <p>With a target rate every request has an intended start time on a fixed schedule, and
+ * response time is measured from that intended start rather than from when the request was
+ * actually sent. A stalled server therefore shows up as latency for every request that should
+ * have been sent during the stall, instead of silently lowering the request rate (coordinated
+ * omission). Service time, measured from the actual send, is reported next to it.
+ */
+public final class LoadGenerator {
+  private static final long HIGHEST_TRACKABLE_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+  private final LoadOptions options;
+  private final BankingClient client;
+  private final Operation[] weightedOperations;
+
+  private LoadGenerator(LoadOptions options) {
+    this.options = options;
+    this.client = new BankingClient(options.baseUrl, options.adminKey);
+    List<Operation> operations = new ArrayList<>();
+    options.mix.forEach(
+        (operation, weight) -> {
+          for (int i = 0; i < weight; i++) {
+            operations.add(operation);
+          }
+        });
+    this.weightedOperations = operations.toArray(new Operation[0]);
+  }
+
+  public static void main(String[] args) throws Exception {
+    LoadOptions options = LoadOptions.parse(args);
+    boolean withinLimit = new LoadGenerator(options).run(System.out);
+    System.exit(withinLimit ? 0 : 1);
+  }
+
+  private boolean run(PrintStream out) throws Exception {
+    out.printf("Seeding %d users against %s%n", options.users, options.baseUrl);
+    List<LoadUser> users = client.seedUsers(options.users, options.tokenAuth);
+    out.printf(
+        "Running %s with %s auth for %ds after %ds of warmup: %d threads, %s%n",
+        options.mix,
+        options.tokenAuth ? "token" : "basic",
+        options.duration.toSeconds(),
+        options.warmup.toSeconds(),
+        options.threads,
+        options.rate > 0 ? options.rate + " requests/s" : "unbounded rate");
+
+    long start = System.nanoTime();
+    long measureFrom = start + options.warmup.toNanos();
+    long end = measureFrom + options.duration.toNanos();
+    List<Worker> workers = new ArrayList<>(options.threads);
+    List<Thread> threads = new ArrayList<>(options.threads);
+    for (int i = 0; i < options.threads; i++) {
+      Worker worker = new Worker(i, users, start, measureFrom, end);
+      Thread thread = new Thread(worker, "load-" + i);
+      workers.add(worker);
+      threads.add(thread);
+      thread.start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    return report(workers, end - measureFrom, out);
+  }
+
+  private boolean report(List<Worker> workers, long measuredNanos, PrintStream out)
+      throws IOException {
+    Map<Operation, Histogram> responseTimes = new EnumMap<>(Operation.class);
+    Map<Operation, Histogram> serviceTimes = new EnumMap<>(Operation.class);
+    Map<Operation, Long> errors = new EnumMap<>(Operation.class);
+    Histogram allResponseTimes = newHistogram();
+    for (Worker worker : workers) {
+      worker.responseTimes.forEach((op, h) -> responseTimes.merge(op, h, LoadGenerator::sum));
+      worker.serviceTimes.forEach((op, h) -> serviceTimes.merge(op, h, LoadGenerator::sum));
+      worker.errors.forEach((op, count) -> errors.merge(op, count, Long::sum));
+      worker.responseTimes.values().forEach(allResponseTimes::add);
+    }
+    double seconds = measuredNanos / 1e9;
+    out.printf(
+        "%n%-10s %9s %7s %9s %9s %9s %9s %9s %11s%n",
+        "operation", "requests", "errors", "req/s", "p50 ms", "p99 ms", "p99.9 ms", "max ms",
+        "svc p99 ms");
+    for (Operation operation : responseTimes.keySet()) {
+      printRow(
+          out,
+          operation.optionName(),
+          responseTimes.get(operation),
+          serviceTimes.get(operation),
+          errors.getOrDefault(operation, 0L),
+          seconds);
+    }
+    Histogram allServiceTimes = newHistogram();
+    serviceTimes.values().forEach(allServiceTimes::add);
+    long totalErrors = errors.values().stream().mapToLong(Long::longValue).sum();
+    printRow(out, "total", allResponseTimes, allServiceTimes, totalErrors, seconds);
+    if (options.rate > 0 && allResponseTimes.getTotalCount() < 0.9 * options.rate * seconds) {
+      out.printf(
+          "%nTarget rate of %d requests/s was not reached; latencies include queueing behind"
+              + " the schedule%n",
+          options.rate);
+    }
+    if (options.histogramDirectory != null) {
+      writeHistograms(responseTimes);
+    }
+    double p99 = millis(allResponseTimes.getValueAtPercentile(99));
+    if (options.maxP99Millis > 0 && p99 > options.maxP99Millis) {
+      out.printf("%nFAILED: p99 of %.2f ms is above %.2f ms%n", p99, options.maxP99Millis);
+      return false;
+    }
+    return true;
+  }
+
+  private static void printRow(
+      PrintStream out,
+      String name,
+      Histogram responseTimes,
+      Histogram serviceTimes,
+      long errors,
+      double seconds) {
+    out.printf(
+        "%-10s %9d %7d %9.1f %9.2f %9.2f %9.2f %9.2f %11.2f%n",
+        name,
+        responseTimes.getTotalCount(),
+        errors,
+        responseTimes.getTotalCount() / seconds,
+        millis(responseTimes.getValueAtPercentile(50)),
+        millis(responseTimes.getValueAtPercentile(99)),
+        millis(responseTimes.getValueAtPercentile(99.9)),
+        millis(responseTimes.getMaxValue()),
+        millis(serviceTimes.getValueAtPercentile(99)));
+  }
+
+  // Percentile distributions in the .hgrm format understood by the HdrHistogram plotter.
+  private void writeHistograms(Map<Operation, Histogram> responseTimes) throws IOException {
+    Path directory = Paths.get(options.histogramDirectory);
+    Files.createDirectories(directory);
+    for (Map.Entry<Operation, Histogram> entry : responseTimes.entrySet()) {
+      Path file = directory.resolve(entry.getKey().optionName() + ".hgrm");
+      try (PrintStream out = new PrintStream(Files.newOutputStream(file))) {
+        entry.getValue().outputPercentileDistribution(out, 1e6);
+      }
+    }
+  }
+
+  private static Histogram sum(Histogram left, Histogram right) {
+    Histogram sum = newHistogram();
+    sum.add(left);
+    sum.add(right);
+    return sum;
+  }
+
+  private static Histogram newHistogram() {
+    return new Histogram(HIGHEST_TRACKABLE_NANOS, 3);
+  }
+
+  private static double millis(long nanos) {
+    return nanos / 1e6;
+  }
+
+  private final class Worker implements Runnable {
+    private final int index;
+    private final List<LoadUser> users;
+    private final long start;
+    private final long measureFrom;
+    private final long end;
+    private final Map<Operation, Histogram> responseTimes = new EnumMap<>(Operation.class);
+    private final Map<Operation, Histogram> serviceTimes = new EnumMap<>(Operation.class);
+    private final Map<Operation, Long> errors = new EnumMap<>(Operation.class);
+
+    private Worker(int index, List<LoadUser> users, long start, long measureFrom, long end) {
+      this.index = index;
+      this.users = users;
+      this.start = start;
+      this.measureFrom = measureFrom;
+      this.end = end;
+    }
+
+    @Override
+    public void run() {
+      // Workers share the target rate and are offset from each other so requests are spread
+      // evenly over each interval.
+      long interval =
+          options.rate > 0 ? TimeUnit.SECONDS.toNanos(options.threads) / options.rate : 0;
+      long intendedStart = start + interval * index / options.threads;
+      while (true) {
+        long now = System.nanoTime();
+        if (interval == 0) {
+          intendedStart = now;
+        } else if (intendedStart > now) {
+          LockSupport.parkNanos(intendedStart - now);
+        }
+        if (intendedStart >= end || System.nanoTime() >= end) {
+          return;
+        }
+        Operation operation =
+            weightedOperations[ThreadLocalRandom.current().nextInt(weightedOperations.length)];
+        long sentAt = System.nanoTime();
+        boolean failed;
+        try {
+          failed = client.execute(operation, users) != 200;
+        } catch (IOException e) {
+          failed = true;
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          return;
+        }
+        long completedAt = System.nanoTime();
+        if (sentAt >= measureFrom) {
+          record(responseTimes, operation, completedAt - intendedStart);
+          record(serviceTimes, operation, completedAt - sentAt);
+          if (failed) {
+            errors.merge(operation, 1L, Long::sum);
+          }
+        }
+        intendedStart += interval;
+      }
+    }
+
+    private void record(Map<Operation, Histogram> histograms, Operation operation, long nanos) {
+      histograms
+          .computeIfAbsent(operation, op -> newHistogram())
+          .recordValue(Math.min(nanos, HIGHEST_TRACKABLE_NANOS));
+    }
+  }
+}
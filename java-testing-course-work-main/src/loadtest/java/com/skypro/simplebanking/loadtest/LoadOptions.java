@@ -0,0 +1,93 @@
+package com.skypro.simplebanking.loadtest;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+
+final class LoadOptions {
+  String baseUrl = "http://localhost:8080";
+  String adminKey = "SUPER_SECRET_KEY_FROM_ADMIN";
+  boolean tokenAuth;
+  int users = 20;
+  int threads = 16;
+  int rate = 200;
+  Duration warmup = Duration.ofSeconds(10);
+  Duration duration = Duration.ofSeconds(60);
+  Map<Operation, Integer> mix = parseMix("transfer=40,deposit=20,withdraw=15,me=25");
+  String histogramDirectory;
+  double maxP99Millis;
+
+  static LoadOptions parse(String[] args) {
+    LoadOptions options = new LoadOptions();
+    for (String arg : args) {
+      if (!arg.startsWith("--") || !arg.contains("=")) {
+        throw new IllegalArgumentException("Expected --name=value but got " + arg);
+      }
+      String name = arg.substring(2, arg.indexOf('='));
+      String value = arg.substring(arg.indexOf('=') + 1);
+      switch (name) {
+        case "base-url":
+          options.baseUrl = value.endsWith("/") ? value.substring(0, value.length() - 1) : value;
+          break;
+        case "admin-key":
+          options.adminKey = value;
+          break;
+        case "auth":
+          if (!value.equals("basic") && !value.equals("token")) {
+            throw new IllegalArgumentException("--auth should be basic or token");
+          }
+          options.tokenAuth = value.equals("token");
+          break;
+        case "users":
+          options.users = Integer.parseInt(value);
+          break;
+        case "threads":
+          options.threads = Integer.parseInt(value);
+          break;
+        case "rate":
+          options.rate = Integer.parseInt(value);
+          break;
+        case "warmup":
+          options.warmup = Duration.ofSeconds(Long.parseLong(value));
+          break;
+        case "duration":
+          options.duration = Duration.ofSeconds(Long.parseLong(value));
+          break;
+        case "mix":
+          options.mix = parseMix(value);
+          break;
+        case "histogram-dir":
+          options.histogramDirectory = value;
+          break;
+        case "max-p99-ms":
+          options.maxP99Millis = Double.parseDouble(value);
+          break;
+        default:
+          throw new IllegalArgumentException("Unknown option --" + name);
+      }
+    }
+    if (options.users < 2) {
+      throw new IllegalArgumentException("--users should be at least 2");
+    }
+    if (options.threads < 1 || options.rate < 0) {
+      throw new IllegalArgumentException("--threads should be positive and --rate non-negative");
+    }
+    return options;
+  }
+
+  // "transfer=40,me=60" -> weights per operation; operations left out are not run.
+  private static Map<Operation, Integer> parseMix(String value) {
+    Map<Operation, Integer> mix = new EnumMap<>(Operation.class);
+    for (String part : value.split(",")) {
+      String[] weight = part.trim().split("=");
+      if (weight.length != 2) {
+        throw new IllegalArgumentException("Expected operation=weight but got " + part);
+      }
+      mix.put(Operation.byName(weight[0].trim()), Integer.parseInt(weight[1].trim()));
+    }
+    if (mix.values().stream().mapToInt(Integer::intValue).sum() <= 0) {
+      throw new IllegalArgumentException("--mix should have a positive total weight");
+    }
+    return mix;
+  }
+}
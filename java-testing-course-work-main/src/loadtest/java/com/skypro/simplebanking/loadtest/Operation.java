@@ -0,0 +1,27 @@
+package com.skypro.simplebanking.loadtest;
+
+import java.util.Arrays;
+
+enum Operation {
+  TRANSFER("transfer"),
+  DEPOSIT("deposit"),
+  WITHDRAW("withdraw"),
+  ME("me");
+
+  private final String optionName;
+
+  Operation(String optionName) {
+    this.optionName = optionName;
+  }
+
+  String optionName() {
+    return optionName;
+  }
+
+  static Operation byName(String name) {
+    return Arrays.stream(values())
+        .filter(operation -> operation.optionName.equals(name))
+        .findFirst()
+        .orElseThrow(() -> new IllegalArgumentException("Unknown operation " + name));
+  }
+}
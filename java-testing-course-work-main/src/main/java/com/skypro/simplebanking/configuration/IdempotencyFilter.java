@@ -0,0 +1,213 @@
+package com.skypro.simplebanking.configuration;
+
+import com.skypro.simplebanking.dto.BankingUserDetails;
+import com.skypro.simplebanking.entity.IdempotencyRecord;
+import com.skypro.simplebanking.exception.IdempotencyKeyInUseException;
+import com.skypro.simplebanking.service.IdempotencyService;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import javax.servlet.FilterChain;
+import javax.servlet.ReadListener;
+import javax.servlet.ServletException;
+import javax.servlet.ServletInputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import javax.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.lang.NonNull;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StreamUtils;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+/**
+ * Answers repeated balance-changing requests that carry the same {@code Idempotency-Key} header
+ * with the stored outcome of the first one, without running them again. Keys are scoped to the
+ * authenticated user; reusing a key for a different request is rejected.
+ */
+@Component
+public class IdempotencyFilter extends OncePerRequestFilter {
+  public static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+  public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+  private static final int MAX_KEY_LENGTH = 255;
+
+  private final IdempotencyService idempotencyService;
+
+  public IdempotencyFilter(IdempotencyService idempotencyService) {
+    this.idempotencyService = idempotencyService;
+  }
+
+  @Override
+  protected boolean shouldNotFilter(@NonNull HttpServletRequest request) {
+    String path = request.getServletPath();
+    return !HttpMethod.POST.matches(request.getMethod())
+        || request.getHeader(IDEMPOTENCY_KEY_HEADER) == null
+        || !(path.startsWith("/transfer")
+            || path.startsWith("/account/deposit/")
+            || path.startsWith("/account/withdraw/"));
+  }
+
+  @Override
+  protected void doFilterInternal(
+      @NonNull HttpServletRequest request,
+      @NonNull HttpServletResponse response,
+      @NonNull FilterChain filterChain)
+      throws ServletException, IOException {
+    Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+    if (authentication == null
+        || !(authentication.getPrincipal() instanceof BankingUserDetails)) {
+      filterChain.doFilter(request, response);
+      return;
+    }
+    String key = request.getHeader(IDEMPOTENCY_KEY_HEADER);
+    if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+      reject(response, HttpStatus.BAD_REQUEST, "Idempotency-Key should be 1 to 255 characters");
+      return;
+    }
+    long userId = ((BankingUserDetails) authentication.getPrincipal()).getId();
+    byte[] body = StreamUtils.copyToByteArray(request.getInputStream());
+    String fingerprint = fingerprint(request, body);
+
+    IdempotencyRecord stored;
+    try {
+      stored = idempotencyService.claim(userId, key, fingerprint);
+    } catch (IdempotencyKeyInUseException e) {
+      reject(response, HttpStatus.CONFLICT, "A request with this Idempotency-Key is in progress");
+      return;
+    }
+    if (stored != null) {
+      replay(stored, fingerprint, response);
+      return;
+    }
+
+    ContentCachingResponseWrapper cachingResponse = new ContentCachingResponseWrapper(response);
+    IdempotencyRecord outcome = null;
+    try {
+      filterChain.doFilter(new CachedBodyRequest(request, body), cachingResponse);
+      if (isFinal(cachingResponse.getStatus())) {
+        outcome = new IdempotencyRecord();
+        outcome.setFingerprint(fingerprint);
+        outcome.setStatus(cachingResponse.getStatus());
+        outcome.setContentType(cachingResponse.getContentType());
+        outcome.setBody(
+            new String(cachingResponse.getContentAsByteArray(), StandardCharsets.UTF_8));
+      }
+    } finally {
+      idempotencyService.complete(userId, key, outcome);
+    }
+    cachingResponse.copyBodyToResponse();
+  }
+
+  // Conflicts and server errors are transient, so a retry with the same key should run again.
+  private static boolean isFinal(int status) {
+    return status < 500
+        && status != HttpStatus.CONFLICT.value()
+        && status != HttpStatus.TOO_MANY_REQUESTS.value();
+  }
+
+  private static void replay(
+      IdempotencyRecord stored, String fingerprint, HttpServletResponse response)
+      throws IOException {
+    if (!stored.getFingerprint().equals(fingerprint)) {
+      reject(
+          response,
+          HttpStatus.UNPROCESSABLE_ENTITY,
+          "Idempotency-Key was already used for a different request");
+      return;
+    }
+    response.setHeader(REPLAYED_HEADER, "true");
+    // The change was applied, but the instance that applied it stopped before storing the response.
+    if (!stored.hasResponse()) {
+      response.setStatus(HttpStatus.OK.value());
+      return;
+    }
+    response.setStatus(stored.getStatus());
+    if (stored.getContentType() != null) {
+      response.setContentType(stored.getContentType());
+    }
+    if (stored.getBody() != null) {
+      response.getOutputStream().write(stored.getBody().getBytes(StandardCharsets.UTF_8));
+    }
+  }
+
+  private static void reject(HttpServletResponse response, HttpStatus status, String message)
+      throws IOException {
+    response.setStatus(status.value());
+    response.setContentType("text/plain;charset=UTF-8");
+    response.getOutputStream().write(message.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static String fingerprint(HttpServletRequest request, byte[] body) {
+    try {
+      MessageDigest digest = MessageDigest.getInstance("SHA-256");
+      digest.update(request.getRequestURI().getBytes(StandardCharsets.UTF_8));
+      digest.update((byte) 0);
+      String query = request.getQueryString();
+      if (query != null) {
+        digest.update(query.getBytes(StandardCharsets.UTF_8));
+      }
+      digest.update((byte) 0);
+      digest.update(body);
+      return Base64.getEncoder().encodeToString(digest.digest());
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static final class CachedBodyRequest extends HttpServletRequestWrapper {
+    private final byte[] body;
+
+    private CachedBodyRequest(HttpServletRequest request, byte[] body) {
+      super(request);
+      this.body = body;
+    }
+
+    @Override
+    public ServletInputStream getInputStream() {
+      ByteArrayInputStream input = new ByteArrayInputStream(body);
+      return new ServletInputStream() {
+        @Override
+        public boolean isFinished() {
+          return input.available() == 0;
+        }
+
+        @Override
+        public boolean isReady() {
+          return true;
+        }
+
+        // The whole body is in memory, so it can be read at once.
+        @Override
+        public void setReadListener(ReadListener readListener) {
+          try {
+            if (!isFinished()) {
+              readListener.onDataAvailable();
+            }
+            if (isFinished()) {
+              readListener.onAllDataRead();
+            }
+          } catch (IOException e) {
+            readListener.onError(e);
+          }
+        }
+
+        @Override
+        public int read() {
+          return input.read();
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) {
+          return input.read(buffer, offset, length);
+        }
+      };
+    }
+  }
+}
@@ -0,0 +1,230 @@
+package com.skypro.simplebanking.configuration;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.skypro.simplebanking.dto.BankingUserDetails;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.lang.NonNull;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+/**
+ * Limits how fast each user may call each group of endpoints, and how many requests run at once.
+ *
+ * <p>Every user has a token bucket per endpoint group, configured by {@code
+ * app.rate-limit.<group>.capacity} and {@code refill-per-second}. A bucket is a single atomically
+ * updated timestamp (the generic cell rate algorithm), so checking it never locks, and the
+ * buckets of all users live in a bounded cache that evicts idle users. A request that finds its
+ * bucket empty is answered with 429.
+ *
+ * <p>Requests that pass then need one of {@code app.admission.max-concurrent} slots; a request
+ * that cannot get one within {@code app.admission.wait-ms} is shed with 503, so overload is turned
+ * away here instead of queueing for database connections.
+ */
+@Component
+public class RateLimitFilter extends OncePerRequestFilter {
+  private final Map<EndpointGroup, Limit> limits = new EnumMap<>(EndpointGroup.class);
+  private final Map<EndpointGroup, Counter> userLimitRejections =
+      new EnumMap<>(EndpointGroup.class);
+  private final Map<EndpointGroup, Counter> overloadRejections = new EnumMap<>(EndpointGroup.class);
+  private final Cache<Long, AtomicLongArray> buckets;
+  private final Semaphore admission;
+  private final long admissionWaitNanos;
+
+  public RateLimitFilter(
+      Environment environment,
+      MeterRegistry meterRegistry,
+      @Value("${app.rate-limit.max-users:100000}") long maxUsers,
+      @Value("${app.rate-limit.idle-minutes:10}") long idleMinutes,
+      @Value("${app.admission.max-concurrent:32}") int maxConcurrent,
+      @Value("${app.admission.wait-ms:100}") long admissionWaitMs) {
+    for (EndpointGroup group : EndpointGroup.values()) {
+      String prefix = "app.rate-limit." + group.key + ".";
+      limits.put(
+          group,
+          new Limit(
+              environment.getProperty(prefix + "capacity", Long.class, group.capacity),
+              environment.getProperty(
+                  prefix + "refill-per-second", Double.class, group.refillPerSecond)));
+      userLimitRejections.put(group, rejections(meterRegistry, group, "user_limit"));
+      overloadRejections.put(group, rejections(meterRegistry, group, "overloaded"));
+    }
+    this.buckets =
+        Caffeine.newBuilder()
+            .maximumSize(maxUsers)
+            .expireAfterAccess(Duration.ofMinutes(idleMinutes))
+            .build();
+    this.admission = maxConcurrent > 0 ? new Semaphore(maxConcurrent) : null;
+    this.admissionWaitNanos = TimeUnit.MILLISECONDS.toNanos(admissionWaitMs);
+    Gauge.builder("banking.ratelimit.users", buckets, Cache::estimatedSize)
+        .register(meterRegistry);
+    if (admission != null) {
+      Gauge.builder(
+              "banking.admission.in-flight",
+              admission,
+              semaphore -> maxConcurrent - semaphore.availablePermits())
+          .register(meterRegistry);
+    }
+  }
+
+  private static Counter rejections(
+      MeterRegistry meterRegistry, EndpointGroup group, String reason) {
+    return Counter.builder("banking.ratelimit.rejections")
+        .tag("group", group.key)
+        .tag("reason", reason)
+        .register(meterRegistry);
+  }
+
+  @Override
+  protected void doFilterInternal(
+      @NonNull HttpServletRequest request,
+      @NonNull HttpServletResponse response,
+      @NonNull FilterChain filterChain)
+      throws ServletException, IOException {
+    EndpointGroup group = EndpointGroup.of(request);
+    Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+    if (authentication != null && authentication.getPrincipal() instanceof BankingUserDetails) {
+      BankingUserDetails user = (BankingUserDetails) authentication.getPrincipal();
+      long waitNanos = user.isAdmin() ? 0 : tryTake(user.getId(), group);
+      if (waitNanos > 0) {
+        userLimitRejections.get(group).increment();
+        response.setHeader(
+            HttpHeaders.RETRY_AFTER,
+            Long.toString(Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos) + 1)));
+        reject(response, HttpStatus.TOO_MANY_REQUESTS, "Too many requests, retry later");
+        return;
+      }
+    }
+    if (admission == null) {
+      filterChain.doFilter(request, response);
+      return;
+    }
+    boolean admitted;
+    try {
+      admitted = admission.tryAcquire(admissionWaitNanos, TimeUnit.NANOSECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      admitted = false;
+    }
+    if (!admitted) {
+      overloadRejections.get(group).increment();
+      response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+      reject(response, HttpStatus.SERVICE_UNAVAILABLE, "Server is busy, retry later");
+      return;
+    }
+    try {
+      filterChain.doFilter(request, response);
+    } finally {
+      admission.release();
+    }
+  }
+
+  // Returns 0 when a token was taken, otherwise how long until the next one is available.
+  private long tryTake(long userId, EndpointGroup group) {
+    Limit limit = limits.get(group);
+    if (limit.unlimited()) {
+      return 0;
+    }
+    AtomicLongArray theoreticalArrivals = buckets.get(userId, id -> newBuckets());
+    int index = group.ordinal();
+    long now = System.nanoTime();
+    while (true) {
+      long arrival = theoreticalArrivals.get(index);
+      long nextArrival = Math.max(arrival, now) + limit.intervalNanos;
+      long waitNanos = nextArrival - now - limit.burstNanos;
+      if (waitNanos > 0) {
+        return waitNanos;
+      }
+      if (theoreticalArrivals.compareAndSet(index, arrival, nextArrival)) {
+        return 0;
+      }
+    }
+  }
+
+  private static AtomicLongArray newBuckets() {
+    AtomicLongArray theoreticalArrivals = new AtomicLongArray(EndpointGroup.values().length);
+    for (int i = 0; i < theoreticalArrivals.length(); i++) {
+      theoreticalArrivals.set(i, Long.MIN_VALUE);
+    }
+    return theoreticalArrivals;
+  }
+
+  private static void reject(HttpServletResponse response, HttpStatus status, String message)
+      throws IOException {
+    response.setStatus(status.value());
+    response.setContentType("text/plain;charset=UTF-8");
+    response.getOutputStream().write(message.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private enum EndpointGroup {
+    TRANSFER("transfer", 20, 10),
+    WITHDRAW("withdraw", 20, 10),
+    DEPOSIT("deposit", 20, 10),
+    DEFAULT("default", 100, 50);
+
+    private final String key;
+    private final long capacity;
+    private final double refillPerSecond;
+
+    EndpointGroup(String key, long capacity, double refillPerSecond) {
+      this.key = key;
+      this.capacity = capacity;
+      this.refillPerSecond = refillPerSecond;
+    }
+
+    private static EndpointGroup of(HttpServletRequest request) {
+      if (!HttpMethod.POST.matches(request.getMethod())) {
+        return DEFAULT;
+      }
+      String path = request.getServletPath();
+      if (path.equals("/transfer") || path.startsWith("/transfer/")) {
+        return TRANSFER;
+      }
+      if (path.startsWith("/account/withdraw/")) {
+        return WITHDRAW;
+      }
+      if (path.startsWith("/account/deposit/")) {
+        return DEPOSIT;
+      }
+      return DEFAULT;
+    }
+  }
+
+  // A bucket refills one token every intervalNanos and holds at most capacity tokens, which is
+  // the same as allowing arrivals up to burstNanos ahead of the steady rate.
+  private static final class Limit {
+    private final long intervalNanos;
+    private final long burstNanos;
+
+    private Limit(long capacity, double refillPerSecond) {
+      this.intervalNanos =
+          refillPerSecond > 0 ? (long) (TimeUnit.SECONDS.toNanos(1) / refillPerSecond) : 0;
+      this.burstNanos = capacity > 0 ? capacity * intervalNanos : 0;
+    }
+
+    private boolean unlimited() {
+      return intervalNanos == 0 || burstNanos == 0;
+    }
+  }
+}
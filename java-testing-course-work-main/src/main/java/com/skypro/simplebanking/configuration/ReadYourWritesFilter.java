@@ -0,0 +1,78 @@
+package com.skypro.simplebanking.configuration;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.skypro.simplebanking.dto.BankingUserDetails;
+import com.skypro.simplebanking.repository.PrimaryReads;
+import java.io.IOException;
+import java.time.Duration;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpMethod;
+import org.springframework.lang.NonNull;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+/**
+ * Keeps a user's reads on the primary for {@code app.replicas.sticky-window-ms} after each of
+ * their writes, so they never read a replica that has not caught up with them yet. The window
+ * starts when the write request arrives, so it covers any read sent after the write's response.
+ * At most {@code app.replicas.sticky-max-users} recent writers are remembered.
+ */
+@Component
+@ConditionalOnProperty(name = "app.replicas.enabled", havingValue = "true")
+public class ReadYourWritesFilter extends OncePerRequestFilter {
+  private final PrimaryReads primaryReads;
+  private final Cache<Long, Boolean> recentWriters;
+
+  public ReadYourWritesFilter(
+      PrimaryReads primaryReads,
+      @Value("${app.replicas.sticky-window-ms:2000}") long stickyWindowMs,
+      @Value("${app.replicas.sticky-max-users:100000}") long maxUsers) {
+    this.primaryReads = primaryReads;
+    this.recentWriters =
+        Caffeine.newBuilder()
+            .maximumSize(maxUsers)
+            .expireAfterWrite(Duration.ofMillis(stickyWindowMs))
+            .build();
+  }
+
+  @Override
+  protected void doFilterInternal(
+      @NonNull HttpServletRequest request,
+      @NonNull HttpServletResponse response,
+      @NonNull FilterChain filterChain)
+      throws ServletException, IOException {
+    Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+    if (authentication == null || !(authentication.getPrincipal() instanceof BankingUserDetails)) {
+      filterChain.doFilter(request, response);
+      return;
+    }
+    long userId = ((BankingUserDetails) authentication.getPrincipal()).getId();
+    if (isWrite(request)) {
+      recentWriters.put(userId, Boolean.TRUE);
+    }
+    if (recentWriters.getIfPresent(userId) == null) {
+      filterChain.doFilter(request, response);
+      return;
+    }
+    primaryReads.pin();
+    try {
+      filterChain.doFilter(request, response);
+    } finally {
+      primaryReads.unpin();
+    }
+  }
+
+  private static boolean isWrite(HttpServletRequest request) {
+    return !HttpMethod.GET.matches(request.getMethod())
+        && !HttpMethod.HEAD.matches(request.getMethod())
+        && !HttpMethod.OPTIONS.matches(request.getMethod());
+  }
+}
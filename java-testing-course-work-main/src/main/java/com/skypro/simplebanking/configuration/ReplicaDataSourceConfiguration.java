@@ -0,0 +1,81 @@
+package com.skypro.simplebanking.configuration;
+
+import com.skypro.simplebanking.repository.PrimaryReads;
+import com.zaxxer.hikari.HikariDataSource;
+import java.util.ArrayList;
+import java.util.List;
+import javax.sql.DataSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+/**
+ * Replaces the auto-configured data source with one that routes read-only transactions to the
+ * replicas listed in {@code app.replicas.urls}. The primary pool is still configured by {@code
+ * spring.datasource.*}; every replica gets a read-only pool of {@code app.replicas.pool-size}.
+ */
+@Configuration
+@ConditionalOnProperty(name = "app.replicas.enabled", havingValue = "true")
+public class ReplicaDataSourceConfiguration {
+  private static final String PRIMARY_LAG_QUERY =
+      "select case when pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() then 0"
+          + " else extract(epoch from now() - pg_last_xact_replay_timestamp()) end";
+
+  @Bean
+  public ReplicaRoutingDataSource replicaRoutingDataSource(
+      DataSourceProperties properties,
+      Environment environment,
+      PrimaryReads primaryReads,
+      @Value("${app.replicas.urls}") List<String> urls,
+      @Value("${app.replicas.username:${spring.datasource.username:}}") String username,
+      @Value("${app.replicas.password:${spring.datasource.password:}}") String password,
+      @Value("${app.replicas.pool-size:10}") int poolSize,
+      @Value("${app.replicas.balancing:round-robin}") String balancing,
+      @Value("${app.replicas.lag-query:}") String lagQuery,
+      @Value("${app.replicas.max-lag-ms:1000}") long maxLagMs,
+      @Value("${app.replicas.lag-check-interval-ms:1000}") long lagCheckIntervalMs) {
+    if (!balancing.equals("round-robin") && !balancing.equals("least-connections")) {
+      throw new IllegalArgumentException(
+          "app.replicas.balancing should be round-robin or least-connections");
+    }
+    if (urls.isEmpty()) {
+      throw new IllegalArgumentException("app.replicas.urls should list at least one replica");
+    }
+    HikariDataSource primary =
+        properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(primary));
+    primary.setPoolName("primary");
+    List<HikariDataSource> replicas = new ArrayList<>(urls.size());
+    for (int i = 0; i < urls.size(); i++) {
+      HikariDataSource replica = new HikariDataSource();
+      replica.setPoolName("replica-" + (i + 1));
+      replica.setJdbcUrl(urls.get(i).trim());
+      replica.setUsername(username);
+      replica.setPassword(password);
+      replica.setMaximumPoolSize(poolSize);
+      replica.setReadOnly(true);
+      replicas.add(replica);
+    }
+    return new ReplicaRoutingDataSource(
+        primary,
+        replicas,
+        primaryReads,
+        balancing.equals("least-connections"),
+        lagQuery.isBlank() ? PRIMARY_LAG_QUERY : lagQuery,
+        maxLagMs,
+        lagCheckIntervalMs);
+  }
+
+  @Bean
+  @Primary
+  public DataSource dataSource(ReplicaRoutingDataSource replicaRoutingDataSource) {
+    return new LazyConnectionDataSourceProxy(replicaRoutingDataSource);
+  }
+}
@@ -0,0 +1,212 @@
+package com.skypro.simplebanking.configuration;
+
+import com.skypro.simplebanking.repository.PrimaryReads;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.lang.NonNull;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Sends read-only transactions to a replica and everything else to the primary. It has to sit
+ * behind a LazyConnectionDataSourceProxy, so that the connection is only fetched once the
+ * transaction has been marked read-only.
+ *
+ * <p>A replica is skipped while its replication lag, checked periodically, exceeds the limit or
+ * cannot be read; with no usable replica, reads go to the primary. So do the reads of threads
+ * pinned with {@link PrimaryReads}, such as requests whose user has just written, see {@link
+ * ReadYourWritesFilter}.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource
+    implements MeterBinder, SmartInitializingSingleton, DisposableBean {
+  private static final String PRIMARY = "primary";
+  private static final Logger log = LoggerFactory.getLogger(ReplicaRoutingDataSource.class);
+
+  private final HikariDataSource primary;
+  private final List<Replica> replicas;
+  private final PrimaryReads primaryReads;
+  private final boolean leastConnections;
+  private final String lagQuery;
+  private final long maxLagMillis;
+  private final long lagCheckIntervalMs;
+  private final AtomicInteger next = new AtomicInteger();
+  private final LongAdder primaryRoutes = new LongAdder();
+  private final ScheduledExecutorService lagChecker;
+
+  public ReplicaRoutingDataSource(
+      HikariDataSource primary,
+      List<HikariDataSource> replicas,
+      PrimaryReads primaryReads,
+      boolean leastConnections,
+      String lagQuery,
+      long maxLagMillis,
+      long lagCheckIntervalMs) {
+    this.primary = primary;
+    this.replicas =
+        replicas.stream()
+            .map(Replica::new)
+            .collect(Collectors.toList());
+    this.primaryReads = primaryReads;
+    this.leastConnections = leastConnections;
+    this.lagQuery = lagQuery;
+    this.maxLagMillis = maxLagMillis;
+    this.lagCheckIntervalMs = lagCheckIntervalMs;
+    Map<Object, Object> targets = new HashMap<>();
+    targets.put(PRIMARY, primary);
+    this.replicas.forEach(replica -> targets.put(replica.name(), replica.dataSource));
+    setTargetDataSources(targets);
+    setDefaultTargetDataSource(primary);
+    this.lagChecker =
+        Executors.newSingleThreadScheduledExecutor(r -> new Thread(r, "replica-lag-check"));
+  }
+
+  @Override
+  public void bindTo(@NonNull MeterRegistry registry) {
+    bindRoutes(registry, PRIMARY, primaryRoutes);
+    bindPoolMetrics(primary, registry);
+    for (Replica replica : replicas) {
+      bindRoutes(registry, replica.name(), replica.routes);
+      Gauge.builder("banking.replica.lag.seconds", replica, r -> r.lagMillis / 1000.0)
+          .tag("replica", replica.name())
+          .register(registry);
+      bindPoolMetrics(replica.dataSource, registry);
+    }
+  }
+
+  private static void bindRoutes(MeterRegistry registry, String target, LongAdder routes) {
+    FunctionCounter.builder("banking.datasource.routes", routes, LongAdder::sum)
+        .tag("target", target)
+        .register(registry);
+  }
+
+  // HikariCP only accepts a registry before its pool has started.
+  private static void bindPoolMetrics(HikariDataSource dataSource, MeterRegistry registry) {
+    if (dataSource.getMetricRegistry() == null && dataSource.getHikariPoolMXBean() == null) {
+      try {
+        dataSource.setMetricRegistry(registry);
+      } catch (IllegalStateException e) {
+        log.debug("Pool {} started before metrics were bound", dataSource.getPoolName());
+      }
+    }
+  }
+
+  @Override
+  protected Object determineCurrentLookupKey() {
+    if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()
+        || primaryReads.isPinned()) {
+      primaryRoutes.increment();
+      return PRIMARY;
+    }
+    Replica replica = leastConnections ? leastBusyReplica() : nextReplica();
+    if (replica == null) {
+      primaryRoutes.increment();
+      return PRIMARY;
+    }
+    replica.routes.increment();
+    return replica.name();
+  }
+
+  private Replica nextReplica() {
+    int start = Math.floorMod(next.getAndIncrement(), replicas.size());
+    for (int i = 0; i < replicas.size(); i++) {
+      Replica replica = replicas.get((start + i) % replicas.size());
+      if (replica.healthy) {
+        return replica;
+      }
+    }
+    return null;
+  }
+
+  private Replica leastBusyReplica() {
+    Replica best = null;
+    int bestActive = Integer.MAX_VALUE;
+    for (Replica replica : replicas) {
+      int active = replica.activeConnections();
+      if (replica.healthy && active < bestActive) {
+        best = replica;
+        bestActive = active;
+      }
+    }
+    return best;
+  }
+
+  @Override
+  public void afterSingletonsInstantiated() {
+    lagChecker.scheduleWithFixedDelay(
+        this::checkLag, 0, lagCheckIntervalMs, TimeUnit.MILLISECONDS);
+  }
+
+  private void checkLag() {
+    for (Replica replica : replicas) {
+      try (Connection connection = replica.dataSource.getConnection();
+          Statement statement = connection.createStatement();
+          ResultSet rs = statement.executeQuery(lagQuery)) {
+        rs.next();
+        replica.lagMillis = (long) (rs.getDouble(1) * 1000);
+        replica.setHealthy(replica.lagMillis <= maxLagMillis);
+      } catch (SQLException | RuntimeException e) {
+        replica.lagMillis = -1;
+        replica.setHealthy(false);
+        log.debug("Could not read the lag of replica {}", replica.name(), e);
+      }
+    }
+  }
+
+  @Override
+  public void destroy() throws InterruptedException {
+    lagChecker.shutdown();
+    lagChecker.awaitTermination(10, TimeUnit.SECONDS);
+    replicas.forEach(replica -> replica.dataSource.close());
+    primary.close();
+  }
+
+  private static final class Replica {
+    private final HikariDataSource dataSource;
+    private final LongAdder routes = new LongAdder();
+    // Unusable until its lag has been read once.
+    private volatile boolean healthy;
+    private volatile long lagMillis = -1;
+
+    private Replica(HikariDataSource dataSource) {
+      this.dataSource = dataSource;
+    }
+
+    private String name() {
+      return dataSource.getPoolName();
+    }
+
+    private int activeConnections() {
+      HikariPoolMXBean pool = dataSource.getHikariPoolMXBean();
+      return pool == null ? 0 : pool.getActiveConnections();
+    }
+
+    private void setHealthy(boolean healthy) {
+      if (this.healthy != healthy) {
+        log.info(
+            "Replica {} is {}", name(), healthy ? "in use" : "skipped, lag " + lagMillis + " ms");
+      }
+      this.healthy = healthy;
+    }
+  }
+}
@@ -1,5 +1,6 @@
 package com.skypro.simplebanking.configuration;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpMethod;
@@ -9,19 +10,25 @@ import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.access.intercept.AuthorizationFilter;
 import org.springframework.security.web.authentication.AnonymousAuthenticationFilter;
 
 @Configuration
 @EnableWebSecurity
 public class SecurityConfiguration {
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder passwordEncoder(MeterRegistry meterRegistry) {
+        return new TimedPasswordEncoder(new BCryptPasswordEncoder(), meterRegistry);
     }
 
     @Bean
     public SecurityFilterChain httpSecurity(
-            HttpSecurity httpSecurity, AdminSecurityFilter adminSecurityFilter) throws Exception {
+            HttpSecurity httpSecurity,
+            AdminSecurityFilter adminSecurityFilter,
+            TokenAuthenticationFilter tokenAuthenticationFilter,
+            RateLimitFilter rateLimitFilter,
+            IdempotencyFilter idempotencyFilter)
+            throws Exception {
         return httpSecurity
                 .csrf()
                 .disable()
@@ -39,7 +46,7 @@ public class SecurityConfiguration {
                 .sessionCreationPolicy(SessionCreationPolicy.STATELESS)
                 .and()
                 .authorizeHttpRequests()
-                .antMatchers(HttpMethod.POST, "/user/")
+                .antMatchers(HttpMethod.POST, "/user/", "/user/bulk")
                 .hasRole("ADMIN")
                 .antMatchers("/user/*")
                 .hasRole("USER")
@@ -47,10 +54,17 @@ public class SecurityConfiguration {
                 .hasRole("USER")
                 .antMatchers("/transfer/**")
                 .hasRole("USER")
+                .antMatchers("/auth/revoke/**")
+                .hasRole("ADMIN")
+                .antMatchers("/admin/**")
+                .hasRole("ADMIN")
                 .anyRequest()
                 .authenticated()
                 .and()
                 .addFilterBefore(adminSecurityFilter, AnonymousAuthenticationFilter.class)
+                .addFilterBefore(tokenAuthenticationFilter, AnonymousAuthenticationFilter.class)
+                .addFilterAfter(rateLimitFilter, AuthorizationFilter.class)
+                .addFilterAfter(idempotencyFilter, RateLimitFilter.class)
                 .build();
     }
 }
@@ -0,0 +1,44 @@
+package com.skypro.simplebanking.configuration;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.concurrent.TimeUnit;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+/** Records how long hashing takes, which dominates the cost of every basic-auth request. */
+public class TimedPasswordEncoder implements PasswordEncoder {
+  private final PasswordEncoder delegate;
+  private final Timer encode;
+  private final Timer matches;
+
+  public TimedPasswordEncoder(PasswordEncoder delegate, MeterRegistry meterRegistry) {
+    this.delegate = delegate;
+    this.encode = meterRegistry.timer("banking.password.encode");
+    this.matches = meterRegistry.timer("banking.password.matches");
+  }
+
+  @Override
+  public String encode(CharSequence rawPassword) {
+    long start = System.nanoTime();
+    try {
+      return delegate.encode(rawPassword);
+    } finally {
+      encode.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+  }
+
+  @Override
+  public boolean matches(CharSequence rawPassword, String encodedPassword) {
+    long start = System.nanoTime();
+    try {
+      return delegate.matches(rawPassword, encodedPassword);
+    } finally {
+      matches.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+  }
+
+  @Override
+  public boolean upgradeEncoding(String encodedPassword) {
+    return delegate.upgradeEncoding(encodedPassword);
+  }
+}
@@ -0,0 +1,67 @@
+package com.skypro.simplebanking.configuration;
+
+import com.skypro.simplebanking.dto.BankingUserDetails;
+import com.skypro.simplebanking.service.TokenService;
+import java.io.IOException;
+import java.util.Optional;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.lang.NonNull;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+@Component
+public class TokenAuthenticationFilter extends OncePerRequestFilter {
+  private static final String BEARER_PREFIX = "Bearer ";
+
+  private final TokenService tokenService;
+
+  public TokenAuthenticationFilter(TokenService tokenService) {
+    this.tokenService = tokenService;
+  }
+
+  @Override
+  protected void doFilterInternal(
+      @NonNull HttpServletRequest request,
+      @NonNull HttpServletResponse response,
+      @NonNull FilterChain filterChain)
+      throws ServletException, IOException {
+    Optional<UsernamePasswordAuthenticationToken> authenticatedUserDetails =
+        authenticateByToken(request);
+    authenticatedUserDetails.ifPresent(
+        details -> {
+          SecurityContext context = SecurityContextHolder.createEmptyContext();
+          context.setAuthentication(details);
+          SecurityContextHolder.setContext(context);
+        });
+    filterChain.doFilter(request, response);
+  }
+
+  private Optional<UsernamePasswordAuthenticationToken> authenticateByToken(
+      HttpServletRequest request) {
+    return bearerToken(request.getHeader(HttpHeaders.AUTHORIZATION))
+        .flatMap(tokenService::verify)
+        .map(BearerTokenAuthentication::new);
+  }
+
+  public static Optional<String> bearerToken(String authorization) {
+    return Optional.ofNullable(authorization)
+        .filter(header -> header.startsWith(BEARER_PREFIX))
+        .map(header -> header.substring(BEARER_PREFIX.length()).trim())
+        .filter(StringUtils::hasText);
+  }
+
+  /** An authentication that came from a bearer token rather than a password. */
+  public static final class BearerTokenAuthentication extends UsernamePasswordAuthenticationToken {
+    private BearerTokenAuthentication(BankingUserDetails userDetails) {
+      super(userDetails, null, userDetails.getAuthorities());
+    }
+  }
+}
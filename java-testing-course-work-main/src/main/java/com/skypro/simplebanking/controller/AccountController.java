@@ -1,19 +1,37 @@
 package com.skypro.simplebanking.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.skypro.simplebanking.dto.AccountDTO;
+import com.skypro.simplebanking.dto.AccountTransactionDTO;
 import com.skypro.simplebanking.dto.BalanceChangeRequest;
 import com.skypro.simplebanking.dto.BankingUserDetails;
+import com.skypro.simplebanking.dto.StatementDTO;
 import com.skypro.simplebanking.service.AccountService;
+import com.skypro.simplebanking.service.AccountStatementService;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @RestController
 @RequestMapping("/account")
 public class AccountController {
   private final AccountService accountService;
+  private final AccountStatementService accountStatementService;
+  private final ObjectMapper objectMapper;
 
-  public AccountController(AccountService accountService) {
+  public AccountController(
+      AccountService accountService,
+      AccountStatementService accountStatementService,
+      ObjectMapper objectMapper) {
     this.accountService = accountService;
+    this.accountStatementService = accountStatementService;
+    this.objectMapper = objectMapper;
   }
 
   @GetMapping("/{id}")
@@ -37,4 +55,47 @@ public class AccountController {
     BankingUserDetails bankingUserDetails = (BankingUserDetails) authentication.getPrincipal();
     return accountService.withdrawFromAccount(bankingUserDetails.getId(),accountId, balanceChangeRequest.getAmount());
   }
+
+  @GetMapping("/{id}/statement")
+  public StatementDTO getStatement(
+      Authentication authentication,
+      @PathVariable("id") Long accountId,
+      @RequestParam(required = false) Instant from,
+      @RequestParam(required = false) Instant to,
+      @RequestParam(required = false) String cursor,
+      @RequestParam(defaultValue = "100") int limit) {
+    BankingUserDetails bankingUserDetails = (BankingUserDetails) authentication.getPrincipal();
+    return accountStatementService.getStatement(
+        bankingUserDetails.getId(), accountId, from, to, cursor, limit);
+  }
+
+  @GetMapping(value = "/{id}/statement", params = "stream=true")
+  public ResponseEntity<StreamingResponseBody> streamStatement(
+      Authentication authentication,
+      @PathVariable("id") Long accountId,
+      @RequestParam(required = false) Instant from,
+      @RequestParam(required = false) Instant to) {
+    long userId = ((BankingUserDetails) authentication.getPrincipal()).getId();
+    accountStatementService.checkStatementRequest(userId, accountId, from, to);
+    StreamingResponseBody body =
+        outputStream -> {
+          try (JsonGenerator generator = objectMapper.createGenerator(outputStream)) {
+            generator.writeStartArray();
+            accountStatementService.streamStatement(
+                userId, accountId, from, to, transaction -> write(generator, transaction));
+            generator.writeEndArray();
+          } catch (UncheckedIOException e) {
+            throw e.getCause();
+          }
+        };
+    return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+  }
+
+  private static void write(JsonGenerator generator, AccountTransactionDTO transaction) {
+    try {
+      generator.writeObject(transaction);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
 }
@@ -0,0 +1,114 @@
+package com.skypro.simplebanking.controller;
+
+import com.skypro.simplebanking.dto.CurrencyTotalDTO;
+import com.skypro.simplebanking.dto.CurrencyTotalsVerificationDTO;
+import com.skypro.simplebanking.dto.ExchangeRatesDTO;
+import com.skypro.simplebanking.dto.ReconciliationDTO;
+import com.skypro.simplebanking.dto.SnapshotDTO;
+import com.skypro.simplebanking.service.CurrencyTotalsService;
+import com.skypro.simplebanking.service.ExchangeRateService;
+import com.skypro.simplebanking.service.ReconciliationService;
+import com.skypro.simplebanking.service.SnapshotService;
+import com.skypro.simplebanking.service.SplitBalanceService;
+import java.util.List;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/admin")
+public class AdminController {
+  private final CurrencyTotalsService currencyTotalsService;
+  private final ExchangeRateService exchangeRateService;
+  private final SplitBalanceService splitBalanceService;
+  private final ReconciliationService reconciliationService;
+  private final SnapshotService snapshotService;
+
+  public AdminController(
+      CurrencyTotalsService currencyTotalsService,
+      ExchangeRateService exchangeRateService,
+      SplitBalanceService splitBalanceService,
+      ReconciliationService reconciliationService,
+      SnapshotService snapshotService) {
+    this.currencyTotalsService = currencyTotalsService;
+    this.exchangeRateService = exchangeRateService;
+    this.splitBalanceService = splitBalanceService;
+    this.reconciliationService = reconciliationService;
+    this.snapshotService = snapshotService;
+  }
+
+  @GetMapping("/currency-totals")
+  public List<CurrencyTotalDTO> getCurrencyTotals() {
+    return currencyTotalsService.getTotals();
+  }
+
+  @PostMapping("/currency-totals/verify")
+  public CurrencyTotalsVerificationDTO verifyCurrencyTotals() {
+    return currencyTotalsService.verify();
+  }
+
+  @GetMapping("/exchange-rates")
+  public ExchangeRatesDTO getExchangeRates() {
+    return exchangeRateService.getCurrent();
+  }
+
+  @GetMapping("/exchange-rates/{version}")
+  public ExchangeRatesDTO getExchangeRates(@PathVariable("version") long version) {
+    return exchangeRateService.getVersion(version);
+  }
+
+  @PutMapping("/exchange-rates")
+  public ExchangeRatesDTO publishExchangeRates(@RequestBody ExchangeRatesDTO exchangeRates) {
+    return exchangeRateService.publish(exchangeRates);
+  }
+
+  @PostMapping("/exchange-rates/reload")
+  public ExchangeRatesDTO reloadExchangeRates() {
+    return exchangeRateService.reloadFromFile();
+  }
+
+  @GetMapping("/split-accounts")
+  public List<Long> getSplitAccounts() {
+    return splitBalanceService.getSplitAccountIds();
+  }
+
+  @PutMapping("/split-accounts/{id}")
+  public void enableSplitBalance(@PathVariable("id") long accountId) {
+    splitBalanceService.enable(accountId);
+  }
+
+  @DeleteMapping("/split-accounts/{id}")
+  public void disableSplitBalance(@PathVariable("id") long accountId) {
+    splitBalanceService.disable(accountId);
+  }
+
+  @GetMapping("/reconciliation")
+  public ReconciliationDTO getReconciliation() {
+    return reconciliationService.getStatus();
+  }
+
+  @PostMapping("/reconciliation")
+  public ReconciliationDTO startReconciliation() {
+    return reconciliationService.start();
+  }
+
+  @PostMapping("/reconciliation/resume")
+  public ReconciliationDTO resumeReconciliation() {
+    return reconciliationService.resume();
+  }
+
+  @PostMapping("/snapshots")
+  public SnapshotDTO exportSnapshot() {
+    return snapshotService.export();
+  }
+
+  @PostMapping("/snapshots/{name}/import")
+  public SnapshotDTO importSnapshot(@PathVariable("name") String name) {
+    return snapshotService.importSnapshot(name);
+  }
+}
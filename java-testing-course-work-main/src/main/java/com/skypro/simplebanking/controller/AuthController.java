@@ -0,0 +1,45 @@
+package com.skypro.simplebanking.controller;
+
+import com.skypro.simplebanking.configuration.TokenAuthenticationFilter;
+import com.skypro.simplebanking.dto.BankingUserDetails;
+import com.skypro.simplebanking.dto.TokenDTO;
+import com.skypro.simplebanking.service.TokenService;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+@RestController
+@RequestMapping("/auth")
+public class AuthController {
+  private final TokenService tokenService;
+
+  public AuthController(TokenService tokenService) {
+    this.tokenService = tokenService;
+  }
+
+  // Only a password can mint a token, so a stolen token cannot be renewed forever.
+  @PostMapping("/token")
+  public TokenDTO issueToken(Authentication authentication) {
+    if (authentication instanceof TokenAuthenticationFilter.BearerTokenAuthentication) {
+      throw new ResponseStatusException(
+          HttpStatus.FORBIDDEN, "Tokens can only be issued with a password");
+    }
+    return tokenService.issue((BankingUserDetails) authentication.getPrincipal());
+  }
+
+  @PostMapping("/logout")
+  public void logout(@RequestHeader(HttpHeaders.AUTHORIZATION) String authorization) {
+    TokenAuthenticationFilter.bearerToken(authorization).ifPresent(tokenService::revoke);
+  }
+
+  @PostMapping("/revoke/{userId}")
+  public void revokeAll(@PathVariable("userId") long userId) {
+    tokenService.revokeAll(userId);
+  }
+}
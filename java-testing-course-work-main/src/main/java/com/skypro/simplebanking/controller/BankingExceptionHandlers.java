@@ -1,6 +1,8 @@
 package com.skypro.simplebanking.controller;
 
 import com.skypro.simplebanking.exception.*;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
@@ -12,6 +14,11 @@ public class BankingExceptionHandlers {
     return ResponseEntity.notFound().build();
   }
 
+  @ExceptionHandler(value = {UserNotFoundException.class})
+  public ResponseEntity<?> handleUserNotFound() {
+    return ResponseEntity.notFound().build();
+  }
+
   @ExceptionHandler(value = {InsufficientFundsException.class})
   public ResponseEntity<?> handleInsufficientFunds(InsufficientFundsException exception) {
     return ResponseEntity.badRequest().body(exception.getMessage());
@@ -31,4 +38,36 @@ public class BankingExceptionHandlers {
   public ResponseEntity<?> handleWrongCurrency() {
     return ResponseEntity.badRequest().body("Account currencies should be same");
   }
+
+  @ExceptionHandler(value = {InvalidStatementRequestException.class})
+  public ResponseEntity<?> handleInvalidStatementRequest(
+      InvalidStatementRequestException exception) {
+    return ResponseEntity.badRequest().body(exception.getMessage());
+  }
+
+  @ExceptionHandler(value = {InvalidExchangeRatesException.class})
+  public ResponseEntity<?> handleInvalidExchangeRates(InvalidExchangeRatesException exception) {
+    return ResponseEntity.badRequest().body(exception.getMessage());
+  }
+
+  @ExceptionHandler(value = {InvalidSnapshotException.class})
+  public ResponseEntity<?> handleInvalidSnapshot(InvalidSnapshotException exception) {
+    return ResponseEntity.badRequest().body(exception.getMessage());
+  }
+
+  @ExceptionHandler(value = {VelocityLimitExceededException.class})
+  public ResponseEntity<?> handleVelocityLimitExceeded(VelocityLimitExceededException exception) {
+    return ResponseEntity.status(HttpStatus.FORBIDDEN).body(exception.getMessage());
+  }
+
+  @ExceptionHandler(value = {IdempotencyKeyInUseException.class})
+  public ResponseEntity<?> handleIdempotencyKeyInUse() {
+    return ResponseEntity.status(HttpStatus.CONFLICT)
+        .body("A request with this Idempotency-Key is in progress");
+  }
+
+  @ExceptionHandler(value = {ConcurrencyFailureException.class})
+  public ResponseEntity<?> handleConcurrencyFailure() {
+    return ResponseEntity.status(HttpStatus.CONFLICT).body("Account is busy, retry later");
+  }
 }
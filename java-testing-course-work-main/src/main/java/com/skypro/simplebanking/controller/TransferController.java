@@ -1,12 +1,15 @@
 package com.skypro.simplebanking.controller;
 
 import com.skypro.simplebanking.dto.BankingUserDetails;
+import com.skypro.simplebanking.dto.BatchTransferDTO;
 import com.skypro.simplebanking.dto.TransferRequest;
 import com.skypro.simplebanking.service.TransferService;
+import java.util.List;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 @RestController
@@ -24,4 +27,14 @@ public class TransferController {
     BankingUserDetails bankingUserDetails = (BankingUserDetails) authentication.getPrincipal();
     transferService.transfer(bankingUserDetails.getId(), transferRequest);
   }
+
+  @PostMapping("/batch")
+  public BatchTransferDTO transferBatch(
+      Authentication authentication,
+      @RequestBody List<TransferRequest> transferRequests,
+      @RequestParam(defaultValue = "false") boolean allOrNothing) {
+    BankingUserDetails bankingUserDetails = (BankingUserDetails) authentication.getPrincipal();
+    return transferService.transferBatch(
+        bankingUserDetails.getId(), transferRequests, allOrNothing);
+  }
 }
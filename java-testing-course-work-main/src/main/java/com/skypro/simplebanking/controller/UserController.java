@@ -1,33 +1,82 @@
 package com.skypro.simplebanking.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.skypro.simplebanking.dto.BankingUserDetails;
+import com.skypro.simplebanking.dto.BulkCreateUserDTO;
 import com.skypro.simplebanking.dto.CreateUserRequest;
 import com.skypro.simplebanking.dto.ListUserDTO;
 import com.skypro.simplebanking.dto.UserDTO;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import javax.validation.Valid;
 
+import com.skypro.simplebanking.service.BulkUserService;
 import com.skypro.simplebanking.service.UserService;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
 
 @RestController
 @RequestMapping("/user")
 public class UserController {
+  private static final int DEFAULT_LIST_LIMIT = 100;
+
   private final UserService userService;
+  private final BulkUserService bulkUserService;
+  private final ObjectMapper objectMapper;
 
-  public UserController(UserService userService) {
+  public UserController(
+      UserService userService, BulkUserService bulkUserService, ObjectMapper objectMapper) {
     this.userService = userService;
+    this.bulkUserService = bulkUserService;
+    this.objectMapper = objectMapper;
   }
 
   @PostMapping
   public UserDTO createUser(@RequestBody @Valid CreateUserRequest userRequest) {
     return userService.createUser(userRequest.getUsername(), userRequest.getPassword());
   }
+
+  @PostMapping("/bulk")
+  public BulkCreateUserDTO createUsers(@RequestBody List<CreateUserRequest> userRequests) {
+    return bulkUserService.createUsers(userRequests);
+  }
+
+  // One page at a time; every user at once is only available with stream=true.
   @GetMapping("/list")
-  public List<ListUserDTO> getAllUsers(){
-    return userService.listUsers();
+  public List<ListUserDTO> getAllUsers(
+      @RequestParam(defaultValue = "0") long afterId,
+      @RequestParam(required = false) Integer limit) {
+    return userService.listUsers(afterId, limit == null ? DEFAULT_LIST_LIMIT : limit);
+  }
+
+  @GetMapping(value = "/list", params = "stream=true")
+  public ResponseEntity<StreamingResponseBody> streamAllUsers(
+      @RequestParam(defaultValue = "0") long afterId) {
+    StreamingResponseBody body =
+        outputStream -> {
+          try (JsonGenerator generator = objectMapper.createGenerator(outputStream)) {
+            generator.writeStartArray();
+            userService.streamUsers(afterId, user -> write(generator, user));
+            generator.writeEndArray();
+          } catch (UncheckedIOException e) {
+            throw e.getCause();
+          }
+        };
+    return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+  }
+
+  private static void write(JsonGenerator generator, ListUserDTO user) {
+    try {
+      generator.writeObject(user);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
   }
   @GetMapping("/me")
   public UserDTO getMyProfile(Authentication authentication){
@@ -0,0 +1,60 @@
+package com.skypro.simplebanking.dto;
+
+import com.skypro.simplebanking.event.BalanceOperation;
+import java.time.Instant;
+
+public class AccountTransactionDTO {
+  private final long id;
+  private final BalanceOperation operation;
+  private final long amount;
+  private final long balance;
+  private final Long transferId;
+  private final Long rateVersion;
+  private final Instant createdAt;
+
+  public AccountTransactionDTO(
+      long id,
+      BalanceOperation operation,
+      long amount,
+      long balance,
+      Long transferId,
+      Long rateVersion,
+      Instant createdAt) {
+    this.id = id;
+    this.operation = operation;
+    this.amount = amount;
+    this.balance = balance;
+    this.transferId = transferId;
+    this.rateVersion = rateVersion;
+    this.createdAt = createdAt;
+  }
+
+  public long getId() {
+    return id;
+  }
+
+  public BalanceOperation getOperation() {
+    return operation;
+  }
+
+  public long getAmount() {
+    return amount;
+  }
+
+  public long getBalance() {
+    return balance;
+  }
+
+  public Long getTransferId() {
+    return transferId;
+  }
+
+  /** Version of the exchange rates a cross-currency transfer was converted with. */
+  public Long getRateVersion() {
+    return rateVersion;
+  }
+
+  public Instant getCreatedAt() {
+    return createdAt;
+  }
+}
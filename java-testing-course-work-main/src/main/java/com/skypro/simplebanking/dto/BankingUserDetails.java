@@ -63,6 +63,10 @@ public class BankingUserDetails implements UserDetails {
     return id;
   }
 
+  public boolean isAdmin() {
+    return isAdmin;
+  }
+
   public static BankingUserDetails from(User user) {
     return new BankingUserDetails(user.getId(), user.getUsername(), user.getPassword(), false);
   }
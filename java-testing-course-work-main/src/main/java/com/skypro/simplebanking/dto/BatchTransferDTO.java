@@ -0,0 +1,21 @@
+package com.skypro.simplebanking.dto;
+
+import java.util.List;
+
+public class BatchTransferDTO {
+  private final int appliedCount;
+  private final List<TransferResultDTO> results;
+
+  public BatchTransferDTO(int appliedCount, List<TransferResultDTO> results) {
+    this.appliedCount = appliedCount;
+    this.results = results;
+  }
+
+  public int getAppliedCount() {
+    return appliedCount;
+  }
+
+  public List<TransferResultDTO> getResults() {
+    return results;
+  }
+}
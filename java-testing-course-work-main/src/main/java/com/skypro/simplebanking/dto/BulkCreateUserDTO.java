@@ -0,0 +1,21 @@
+package com.skypro.simplebanking.dto;
+
+import java.util.List;
+
+public class BulkCreateUserDTO {
+  private final int createdCount;
+  private final List<CreateUserResultDTO> results;
+
+  public BulkCreateUserDTO(int createdCount, List<CreateUserResultDTO> results) {
+    this.createdCount = createdCount;
+    this.results = results;
+  }
+
+  public int getCreatedCount() {
+    return createdCount;
+  }
+
+  public List<CreateUserResultDTO> getResults() {
+    return results;
+  }
+}
@@ -0,0 +1,32 @@
+package com.skypro.simplebanking.dto;
+
+public class CreateUserResultDTO {
+  private final int index;
+  private final String username;
+  private final Long id;
+  private final String error;
+
+  public CreateUserResultDTO(int index, String username, Long id, String error) {
+    this.index = index;
+    this.username = username;
+    this.id = id;
+    this.error = error;
+  }
+
+  public int getIndex() {
+    return index;
+  }
+
+  public String getUsername() {
+    return username;
+  }
+
+  /** Null when the user was not created. */
+  public Long getId() {
+    return id;
+  }
+
+  public String getError() {
+    return error;
+  }
+}
@@ -0,0 +1,75 @@
+package com.skypro.simplebanking.dto;
+
+import com.skypro.simplebanking.entity.AccountCurrency;
+
+public class CurrencyReconciliationDTO {
+  private final AccountCurrency currency;
+  private final long accounts;
+  private final long balance;
+  private final long recorded;
+  private final long transferred;
+  private final long unbalancedTransfers;
+  private final long convertedOut;
+  private final long convertedIn;
+
+  public CurrencyReconciliationDTO(
+      AccountCurrency currency,
+      long accounts,
+      long balance,
+      long recorded,
+      long transferred,
+      long unbalancedTransfers,
+      long convertedOut,
+      long convertedIn) {
+    this.currency = currency;
+    this.accounts = accounts;
+    this.balance = balance;
+    this.recorded = recorded;
+    this.transferred = transferred;
+    this.unbalancedTransfers = unbalancedTransfers;
+    this.convertedOut = convertedOut;
+    this.convertedIn = convertedIn;
+  }
+
+  public AccountCurrency getCurrency() {
+    return currency;
+  }
+
+  public long getAccounts() {
+    return accounts;
+  }
+
+  public long getBalance() {
+    return balance;
+  }
+
+  /** The sum of all recorded movements of the accounts. */
+  public long getRecorded() {
+    return recorded;
+  }
+
+  /** The amount moved by transfers between accounts of this currency. */
+  public long getTransferred() {
+    return transferred;
+  }
+
+  /** Transfers of this currency that do not credit exactly what they debit. */
+  public long getUnbalancedTransfers() {
+    return unbalancedTransfers;
+  }
+
+  /** The amount debited by transfers converted into another currency. */
+  public long getConvertedOut() {
+    return convertedOut;
+  }
+
+  /** The amount credited by transfers converted from another currency. */
+  public long getConvertedIn() {
+    return convertedIn;
+  }
+
+  /** True when the balances match the movements and transfers neither create nor destroy money. */
+  public boolean isConserved() {
+    return balance == recorded && unbalancedTransfers == 0;
+  }
+}
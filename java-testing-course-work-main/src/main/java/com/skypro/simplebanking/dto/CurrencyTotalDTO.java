@@ -0,0 +1,27 @@
+package com.skypro.simplebanking.dto;
+
+import com.skypro.simplebanking.entity.AccountCurrency;
+
+public class CurrencyTotalDTO {
+  private final AccountCurrency currency;
+  private final long amount;
+  private final long accounts;
+
+  public CurrencyTotalDTO(AccountCurrency currency, long amount, long accounts) {
+    this.currency = currency;
+    this.amount = amount;
+    this.accounts = accounts;
+  }
+
+  public AccountCurrency getCurrency() {
+    return currency;
+  }
+
+  public long getAmount() {
+    return amount;
+  }
+
+  public long getAccounts() {
+    return accounts;
+  }
+}
@@ -0,0 +1,31 @@
+package com.skypro.simplebanking.dto;
+
+import java.time.Instant;
+import java.util.List;
+
+public class CurrencyTotalsVerificationDTO {
+  private final Instant verifiedAt;
+  private final boolean conclusive;
+  private final List<CurrencyTotalDTO> drift;
+
+  public CurrencyTotalsVerificationDTO(
+      Instant verifiedAt, boolean conclusive, List<CurrencyTotalDTO> drift) {
+    this.verifiedAt = verifiedAt;
+    this.conclusive = conclusive;
+    this.drift = drift;
+  }
+
+  public Instant getVerifiedAt() {
+    return verifiedAt;
+  }
+
+  /** False when the totals changed while the accounts were being scanned. */
+  public boolean isConclusive() {
+    return conclusive;
+  }
+
+  /** Recomputed minus maintained totals, only for currencies that differ. */
+  public List<CurrencyTotalDTO> getDrift() {
+    return drift;
+  }
+}
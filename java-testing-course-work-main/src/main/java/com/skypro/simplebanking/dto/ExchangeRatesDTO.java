@@ -0,0 +1,34 @@
+package com.skypro.simplebanking.dto;
+
+import com.skypro.simplebanking.entity.AccountCurrency;
+import java.math.BigDecimal;
+import java.util.Map;
+
+public class ExchangeRatesDTO {
+  private long version;
+  private Map<AccountCurrency, Map<AccountCurrency, BigDecimal>> rates;
+
+  public ExchangeRatesDTO() {}
+
+  public ExchangeRatesDTO(
+      long version, Map<AccountCurrency, Map<AccountCurrency, BigDecimal>> rates) {
+    this.version = version;
+    this.rates = rates;
+  }
+
+  public long getVersion() {
+    return version;
+  }
+
+  public void setVersion(long version) {
+    this.version = version;
+  }
+
+  public Map<AccountCurrency, Map<AccountCurrency, BigDecimal>> getRates() {
+    return rates;
+  }
+
+  public void setRates(Map<AccountCurrency, Map<AccountCurrency, BigDecimal>> rates) {
+    this.rates = rates;
+  }
+}
@@ -0,0 +1,81 @@
+package com.skypro.simplebanking.dto;
+
+import com.skypro.simplebanking.entity.AccountCurrency;
+import com.skypro.simplebanking.event.BalanceOperation;
+import java.time.Instant;
+
+public class OutboxEventDTO {
+  private final long id;
+  private final long accountId;
+  private final long userId;
+  private final AccountCurrency currency;
+  private final BalanceOperation operation;
+  private final long amount;
+  private final long balance;
+  private final Long transferId;
+  private final Long rateVersion;
+  private final Instant createdAt;
+
+  public OutboxEventDTO(
+      long id,
+      long accountId,
+      long userId,
+      AccountCurrency currency,
+      BalanceOperation operation,
+      long amount,
+      long balance,
+      Long transferId,
+      Long rateVersion,
+      Instant createdAt) {
+    this.id = id;
+    this.accountId = accountId;
+    this.userId = userId;
+    this.currency = currency;
+    this.operation = operation;
+    this.amount = amount;
+    this.balance = balance;
+    this.transferId = transferId;
+    this.rateVersion = rateVersion;
+    this.createdAt = createdAt;
+  }
+
+  public long getId() {
+    return id;
+  }
+
+  public long getAccountId() {
+    return accountId;
+  }
+
+  public long getUserId() {
+    return userId;
+  }
+
+  public AccountCurrency getCurrency() {
+    return currency;
+  }
+
+  public BalanceOperation getOperation() {
+    return operation;
+  }
+
+  public long getAmount() {
+    return amount;
+  }
+
+  public long getBalance() {
+    return balance;
+  }
+
+  public Long getTransferId() {
+    return transferId;
+  }
+
+  public Long getRateVersion() {
+    return rateVersion;
+  }
+
+  public Instant getCreatedAt() {
+    return createdAt;
+  }
+}
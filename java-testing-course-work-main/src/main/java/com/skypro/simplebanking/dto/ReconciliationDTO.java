@@ -0,0 +1,84 @@
+package com.skypro.simplebanking.dto;
+
+import java.time.Instant;
+import java.util.List;
+
+public class ReconciliationDTO {
+  private final String status;
+  private final Instant startedAt;
+  private final Instant finishedAt;
+  private final String report;
+  private final long chunks;
+  private final long chunksDone;
+  private final long accountsChecked;
+  private final long balanceMismatches;
+  private final long transferMismatches;
+  private final List<CurrencyReconciliationDTO> currencies;
+
+  public ReconciliationDTO(
+      String status,
+      Instant startedAt,
+      Instant finishedAt,
+      String report,
+      long chunks,
+      long chunksDone,
+      long accountsChecked,
+      long balanceMismatches,
+      long transferMismatches,
+      List<CurrencyReconciliationDTO> currencies) {
+    this.status = status;
+    this.startedAt = startedAt;
+    this.finishedAt = finishedAt;
+    this.report = report;
+    this.chunks = chunks;
+    this.chunksDone = chunksDone;
+    this.accountsChecked = accountsChecked;
+    this.balanceMismatches = balanceMismatches;
+    this.transferMismatches = transferMismatches;
+    this.currencies = currencies;
+  }
+
+  /** One of running, completed, failed or stopped. */
+  public String getStatus() {
+    return status;
+  }
+
+  public Instant getStartedAt() {
+    return startedAt;
+  }
+
+  public Instant getFinishedAt() {
+    return finishedAt;
+  }
+
+  /** The file the mismatches are written to, one JSON object per line. */
+  public String getReport() {
+    return report;
+  }
+
+  /** Account and transfer chunks, in total and reconciled so far. */
+  public long getChunks() {
+    return chunks;
+  }
+
+  public long getChunksDone() {
+    return chunksDone;
+  }
+
+  public long getAccountsChecked() {
+    return accountsChecked;
+  }
+
+  public long getBalanceMismatches() {
+    return balanceMismatches;
+  }
+
+  public long getTransferMismatches() {
+    return transferMismatches;
+  }
+
+  /** Totals per currency; only final once the reconciliation has completed. */
+  public List<CurrencyReconciliationDTO> getCurrencies() {
+    return currencies;
+  }
+}
@@ -0,0 +1,80 @@
+package com.skypro.simplebanking.dto;
+
+import com.skypro.simplebanking.entity.AccountCurrency;
+
+/** One line of a reconciliation report. */
+public class ReconciliationMismatchDTO {
+  private final String type;
+  private final Long accountId;
+  private final Long transferId;
+  private final AccountCurrency currency;
+  private final long expected;
+  private final long actual;
+  private final String detail;
+
+  public ReconciliationMismatchDTO(
+      String type,
+      Long accountId,
+      Long transferId,
+      AccountCurrency currency,
+      long expected,
+      long actual,
+      String detail) {
+    this.type = type;
+    this.accountId = accountId;
+    this.transferId = transferId;
+    this.currency = currency;
+    this.expected = expected;
+    this.actual = actual;
+    this.detail = detail;
+  }
+
+  public static ReconciliationMismatchDTO balance(
+      long accountId, AccountCurrency currency, long recorded, long balance) {
+    return new ReconciliationMismatchDTO(
+        "balance",
+        accountId,
+        null,
+        currency,
+        recorded,
+        balance,
+        "Balance differs from the sum of recorded movements");
+  }
+
+  public static ReconciliationMismatchDTO transfer(
+      long transferId, AccountCurrency currency, long debited, long credited, String detail) {
+    return new ReconciliationMismatchDTO(
+        "transfer", null, transferId, currency, debited, credited, detail);
+  }
+
+  /** Either balance or transfer. */
+  public String getType() {
+    return type;
+  }
+
+  public Long getAccountId() {
+    return accountId;
+  }
+
+  public Long getTransferId() {
+    return transferId;
+  }
+
+  public AccountCurrency getCurrency() {
+    return currency;
+  }
+
+  /** The recorded movements of an account, or the amount debited by a transfer. */
+  public long getExpected() {
+    return expected;
+  }
+
+  /** The balance of an account, or the amount credited by a transfer. */
+  public long getActual() {
+    return actual;
+  }
+
+  public String getDetail() {
+    return detail;
+  }
+}
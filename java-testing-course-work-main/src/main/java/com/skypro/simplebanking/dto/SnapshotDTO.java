@@ -0,0 +1,39 @@
+package com.skypro.simplebanking.dto;
+
+public class SnapshotDTO {
+  private final String file;
+  private final long bytes;
+  private final long users;
+  private final long accounts;
+  private final long skippedUsers;
+
+  public SnapshotDTO(String file, long bytes, long users, long accounts, long skippedUsers) {
+    this.file = file;
+    this.bytes = bytes;
+    this.users = users;
+    this.accounts = accounts;
+    this.skippedUsers = skippedUsers;
+  }
+
+  public String getFile() {
+    return file;
+  }
+
+  public long getBytes() {
+    return bytes;
+  }
+
+  /** Users exported, or imported. */
+  public long getUsers() {
+    return users;
+  }
+
+  public long getAccounts() {
+    return accounts;
+  }
+
+  /** Users not imported because their username is already taken. */
+  public long getSkippedUsers() {
+    return skippedUsers;
+  }
+}
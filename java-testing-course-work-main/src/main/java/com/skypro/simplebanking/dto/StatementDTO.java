@@ -0,0 +1,38 @@
+package com.skypro.simplebanking.dto;
+
+import com.skypro.simplebanking.entity.AccountCurrency;
+import java.util.List;
+
+public class StatementDTO {
+  private final long accountId;
+  private final AccountCurrency currency;
+  private final List<AccountTransactionDTO> transactions;
+  private final String nextCursor;
+
+  public StatementDTO(
+      long accountId,
+      AccountCurrency currency,
+      List<AccountTransactionDTO> transactions,
+      String nextCursor) {
+    this.accountId = accountId;
+    this.currency = currency;
+    this.transactions = transactions;
+    this.nextCursor = nextCursor;
+  }
+
+  public long getAccountId() {
+    return accountId;
+  }
+
+  public AccountCurrency getCurrency() {
+    return currency;
+  }
+
+  public List<AccountTransactionDTO> getTransactions() {
+    return transactions;
+  }
+
+  public String getNextCursor() {
+    return nextCursor;
+  }
+}
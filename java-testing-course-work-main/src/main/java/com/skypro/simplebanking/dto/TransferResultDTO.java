@@ -0,0 +1,25 @@
+package com.skypro.simplebanking.dto;
+
+public class TransferResultDTO {
+  private final int index;
+  private final boolean applied;
+  private final String error;
+
+  public TransferResultDTO(int index, boolean applied, String error) {
+    this.index = index;
+    this.applied = applied;
+    this.error = error;
+  }
+
+  public int getIndex() {
+    return index;
+  }
+
+  public boolean isApplied() {
+    return applied;
+  }
+
+  public String getError() {
+    return error;
+  }
+}
@@ -0,0 +1,40 @@
+package com.skypro.simplebanking.dto;
+
+import com.skypro.simplebanking.entity.AccountCurrency;
+
+public class UserAccountRow {
+  private final long userId;
+  private final String username;
+  private final Long accountId;
+  private final Long amount;
+  private final AccountCurrency currency;
+
+  public UserAccountRow(
+      long userId, String username, Long accountId, Long amount, AccountCurrency currency) {
+    this.userId = userId;
+    this.username = username;
+    this.accountId = accountId;
+    this.amount = amount;
+    this.currency = currency;
+  }
+
+  public long getUserId() {
+    return userId;
+  }
+
+  public String getUsername() {
+    return username;
+  }
+
+  public Long getAccountId() {
+    return accountId;
+  }
+
+  public Long getAmount() {
+    return amount;
+  }
+
+  public AccountCurrency getCurrency() {
+    return currency;
+  }
+}
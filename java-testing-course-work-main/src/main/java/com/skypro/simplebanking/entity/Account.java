@@ -17,6 +17,9 @@ public class Account {
   @JoinColumn(nullable = false, updatable = false, name = "user_id")
   private User user;
 
+  @Version
+  private Long version;
+
   public Long getId() {
     return id;
   }
@@ -48,4 +51,12 @@ public class Account {
   public void setUser(User user) {
     this.user = user;
   }
+
+  public Long getVersion() {
+    return version;
+  }
+
+  public void setVersion(Long version) {
+    this.version = version;
+  }
 }
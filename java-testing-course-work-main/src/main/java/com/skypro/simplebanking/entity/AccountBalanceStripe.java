@@ -0,0 +1,55 @@
+package com.skypro.simplebanking.entity;
+
+import javax.persistence.*;
+
+@Entity
+@Table(
+    name = "account_balance_stripes",
+    uniqueConstraints = @UniqueConstraint(columnNames = {"account_id", "stripe"}))
+public class AccountBalanceStripe {
+  @Id
+  @GeneratedValue(
+      strategy = GenerationType.SEQUENCE,
+      generator = "account-balance-stripe-sequence")
+  @SequenceGenerator(
+      name = "account-balance-stripe-sequence",
+      sequenceName = "account_balance_stripe_sequence",
+      allocationSize = 1)
+  private Long id;
+  @Column(name = "account_id", nullable = false)
+  private long accountId;
+  private int stripe;
+  private long amount;
+
+  public Long getId() {
+    return id;
+  }
+
+  public void setId(Long id) {
+    this.id = id;
+  }
+
+  public long getAccountId() {
+    return accountId;
+  }
+
+  public void setAccountId(long accountId) {
+    this.accountId = accountId;
+  }
+
+  public int getStripe() {
+    return stripe;
+  }
+
+  public void setStripe(int stripe) {
+    this.stripe = stripe;
+  }
+
+  public long getAmount() {
+    return amount;
+  }
+
+  public void setAmount(long amount) {
+    this.amount = amount;
+  }
+}
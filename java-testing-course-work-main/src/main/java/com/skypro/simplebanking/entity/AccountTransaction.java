@@ -0,0 +1,133 @@
+package com.skypro.simplebanking.entity;
+
+import com.skypro.simplebanking.event.BalanceOperation;
+import java.io.Serializable;
+import java.time.Instant;
+import java.util.Objects;
+import javax.persistence.*;
+
+// The key includes created_at, so the table can be range-partitioned by it on PostgreSQL, which
+// requires the partition column in every unique constraint.
+@Entity
+@IdClass(AccountTransaction.Key.class)
+@Table(
+    name = "account_transactions",
+    indexes = {
+      @Index(columnList = "account_id, created_at, id"),
+      @Index(columnList = "transfer_id")
+    })
+public class AccountTransaction {
+  @Id
+  @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "account-transaction-sequence")
+  @SequenceGenerator(
+      name = "account-transaction-sequence",
+      sequenceName = "account_transaction_sequence",
+      allocationSize = 1)
+  private Long id;
+  @Column(name = "account_id", nullable = false)
+  private long accountId;
+  @Column(nullable = false)
+  private BalanceOperation operation;
+  private long delta;
+  private long balance;
+  @Column(name = "transfer_id")
+  private Long transferId;
+  @Column(name = "rate_version")
+  private Long rateVersion;
+  @Id
+  @Column(name = "created_at", nullable = false)
+  private Instant createdAt;
+
+  public Long getId() {
+    return id;
+  }
+
+  public void setId(Long id) {
+    this.id = id;
+  }
+
+  public long getAccountId() {
+    return accountId;
+  }
+
+  public void setAccountId(long accountId) {
+    this.accountId = accountId;
+  }
+
+  public BalanceOperation getOperation() {
+    return operation;
+  }
+
+  public void setOperation(BalanceOperation operation) {
+    this.operation = operation;
+  }
+
+  public long getDelta() {
+    return delta;
+  }
+
+  public void setDelta(long delta) {
+    this.delta = delta;
+  }
+
+  public long getBalance() {
+    return balance;
+  }
+
+  public void setBalance(long balance) {
+    this.balance = balance;
+  }
+
+  public Long getTransferId() {
+    return transferId;
+  }
+
+  public void setTransferId(Long transferId) {
+    this.transferId = transferId;
+  }
+
+  public Long getRateVersion() {
+    return rateVersion;
+  }
+
+  public void setRateVersion(Long rateVersion) {
+    this.rateVersion = rateVersion;
+  }
+
+  public Instant getCreatedAt() {
+    return createdAt;
+  }
+
+  public void setCreatedAt(Instant createdAt) {
+    this.createdAt = createdAt;
+  }
+
+  public static class Key implements Serializable {
+    private Long id;
+    private Instant createdAt;
+
+    public Key() {}
+
+    public Key(Long id, Instant createdAt) {
+      this.id = id;
+      this.createdAt = createdAt;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      Key key = (Key) o;
+      return Objects.equals(id, key.id) && Objects.equals(createdAt, key.createdAt);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(id, createdAt);
+    }
+  }
+}
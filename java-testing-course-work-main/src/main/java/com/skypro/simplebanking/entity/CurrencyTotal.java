@@ -0,0 +1,71 @@
+package com.skypro.simplebanking.entity;
+
+import javax.persistence.*;
+
+@Entity
+@Table(
+    name = "currency_totals",
+    uniqueConstraints = @UniqueConstraint(columnNames = {"currency", "stripe"}))
+public class CurrencyTotal {
+  @Id
+  @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "currency-total-sequence")
+  @SequenceGenerator(
+      name = "currency-total-sequence",
+      sequenceName = "currency_total_sequence",
+      allocationSize = 1)
+  private Long id;
+  @Column(nullable = false)
+  private AccountCurrency currency;
+  private int stripe;
+  private long amount;
+  private long accounts;
+  private long changeCount;
+
+  public Long getId() {
+    return id;
+  }
+
+  public void setId(Long id) {
+    this.id = id;
+  }
+
+  public AccountCurrency getCurrency() {
+    return currency;
+  }
+
+  public void setCurrency(AccountCurrency currency) {
+    this.currency = currency;
+  }
+
+  public int getStripe() {
+    return stripe;
+  }
+
+  public void setStripe(int stripe) {
+    this.stripe = stripe;
+  }
+
+  public long getAmount() {
+    return amount;
+  }
+
+  public void setAmount(long amount) {
+    this.amount = amount;
+  }
+
+  public long getAccounts() {
+    return accounts;
+  }
+
+  public void setAccounts(long accounts) {
+    this.accounts = accounts;
+  }
+
+  public long getChangeCount() {
+    return changeCount;
+  }
+
+  public void setChangeCount(long changeCount) {
+    this.changeCount = changeCount;
+  }
+}
@@ -0,0 +1,63 @@
+package com.skypro.simplebanking.entity;
+
+import java.math.BigDecimal;
+import javax.persistence.*;
+
+@Entity
+@Table(
+    name = "exchange_rates",
+    uniqueConstraints =
+        @UniqueConstraint(columnNames = {"version", "source_currency", "target_currency"}))
+public class ExchangeRate {
+  @Id
+  @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "exchange-rate-sequence")
+  @SequenceGenerator(name = "exchange-rate-sequence", sequenceName = "exchange_rate_sequence")
+  private Long id;
+  private long version;
+  @Column(name = "source_currency", nullable = false)
+  private AccountCurrency sourceCurrency;
+  @Column(name = "target_currency", nullable = false)
+  private AccountCurrency targetCurrency;
+  @Column(nullable = false, precision = 24, scale = 12)
+  private BigDecimal rate;
+
+  public Long getId() {
+    return id;
+  }
+
+  public void setId(Long id) {
+    this.id = id;
+  }
+
+  public long getVersion() {
+    return version;
+  }
+
+  public void setVersion(long version) {
+    this.version = version;
+  }
+
+  public AccountCurrency getSourceCurrency() {
+    return sourceCurrency;
+  }
+
+  public void setSourceCurrency(AccountCurrency sourceCurrency) {
+    this.sourceCurrency = sourceCurrency;
+  }
+
+  public AccountCurrency getTargetCurrency() {
+    return targetCurrency;
+  }
+
+  public void setTargetCurrency(AccountCurrency targetCurrency) {
+    this.targetCurrency = targetCurrency;
+  }
+
+  public BigDecimal getRate() {
+    return rate;
+  }
+
+  public void setRate(BigDecimal rate) {
+    this.rate = rate;
+  }
+}
@@ -0,0 +1,97 @@
+package com.skypro.simplebanking.entity;
+
+import java.time.Instant;
+import javax.persistence.*;
+
+@Entity
+@Table(
+    name = "idempotency_records",
+    uniqueConstraints = @UniqueConstraint(columnNames = {"user_id", "idempotency_key"}),
+    indexes = @Index(columnList = "created_at"))
+public class IdempotencyRecord {
+  @Id
+  @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "idempotency-generator")
+  @SequenceGenerator(name = "idempotency-generator", sequenceName = "idempotency_sequence")
+  private Long id;
+  @Column(name = "user_id", nullable = false)
+  private long userId;
+  @Column(name = "idempotency_key", nullable = false)
+  private String idempotencyKey;
+  @Column(nullable = false)
+  private String fingerprint;
+  private int status;
+  private String contentType;
+  @Column(columnDefinition = "text")
+  private String body;
+  @Column(name = "created_at", nullable = false)
+  private Instant createdAt;
+
+  public Long getId() {
+    return id;
+  }
+
+  public void setId(Long id) {
+    this.id = id;
+  }
+
+  public long getUserId() {
+    return userId;
+  }
+
+  public void setUserId(long userId) {
+    this.userId = userId;
+  }
+
+  public String getIdempotencyKey() {
+    return idempotencyKey;
+  }
+
+  public void setIdempotencyKey(String idempotencyKey) {
+    this.idempotencyKey = idempotencyKey;
+  }
+
+  public String getFingerprint() {
+    return fingerprint;
+  }
+
+  public void setFingerprint(String fingerprint) {
+    this.fingerprint = fingerprint;
+  }
+
+  /** False while the request's change has committed but its response is not stored yet. */
+  public boolean hasResponse() {
+    return status != 0;
+  }
+
+  public int getStatus() {
+    return status;
+  }
+
+  public void setStatus(int status) {
+    this.status = status;
+  }
+
+  public String getContentType() {
+    return contentType;
+  }
+
+  public void setContentType(String contentType) {
+    this.contentType = contentType;
+  }
+
+  public String getBody() {
+    return body;
+  }
+
+  public void setBody(String body) {
+    this.body = body;
+  }
+
+  public Instant getCreatedAt() {
+    return createdAt;
+  }
+
+  public void setCreatedAt(Instant createdAt) {
+    this.createdAt = createdAt;
+  }
+}
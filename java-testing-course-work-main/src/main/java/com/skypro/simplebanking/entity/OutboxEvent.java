@@ -0,0 +1,113 @@
+package com.skypro.simplebanking.entity;
+
+import com.skypro.simplebanking.event.BalanceOperation;
+import java.time.Instant;
+import javax.persistence.*;
+
+@Entity
+@Table(name = "outbox_events")
+public class OutboxEvent {
+  @Id
+  @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "outbox-event-sequence")
+  @SequenceGenerator(
+      name = "outbox-event-sequence",
+      sequenceName = "outbox_event_sequence",
+      allocationSize = 1)
+  private Long id;
+  @Column(name = "account_id", nullable = false)
+  private long accountId;
+  @Column(name = "user_id", nullable = false)
+  private long userId;
+  @Column(nullable = false)
+  private AccountCurrency currency;
+  @Column(nullable = false)
+  private BalanceOperation operation;
+  private long delta;
+  private long balance;
+  @Column(name = "transfer_id")
+  private Long transferId;
+  @Column(name = "rate_version")
+  private Long rateVersion;
+  @Column(name = "created_at", nullable = false)
+  private Instant createdAt;
+
+  public Long getId() {
+    return id;
+  }
+
+  public void setId(Long id) {
+    this.id = id;
+  }
+
+  public long getAccountId() {
+    return accountId;
+  }
+
+  public void setAccountId(long accountId) {
+    this.accountId = accountId;
+  }
+
+  public long getUserId() {
+    return userId;
+  }
+
+  public void setUserId(long userId) {
+    this.userId = userId;
+  }
+
+  public AccountCurrency getCurrency() {
+    return currency;
+  }
+
+  public void setCurrency(AccountCurrency currency) {
+    this.currency = currency;
+  }
+
+  public BalanceOperation getOperation() {
+    return operation;
+  }
+
+  public void setOperation(BalanceOperation operation) {
+    this.operation = operation;
+  }
+
+  public long getDelta() {
+    return delta;
+  }
+
+  public void setDelta(long delta) {
+    this.delta = delta;
+  }
+
+  public long getBalance() {
+    return balance;
+  }
+
+  public void setBalance(long balance) {
+    this.balance = balance;
+  }
+
+  public Long getTransferId() {
+    return transferId;
+  }
+
+  public void setTransferId(Long transferId) {
+    this.transferId = transferId;
+  }
+
+  public Long getRateVersion() {
+    return rateVersion;
+  }
+
+  public void setRateVersion(Long rateVersion) {
+    this.rateVersion = rateVersion;
+  }
+
+  public Instant getCreatedAt() {
+    return createdAt;
+  }
+
+  public void setCreatedAt(Instant createdAt) {
+    this.createdAt = createdAt;
+  }
+}
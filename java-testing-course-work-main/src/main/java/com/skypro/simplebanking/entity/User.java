@@ -12,6 +12,7 @@ public class User {
   @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "user-generator")
   @SequenceGenerator(name = "user-generator", sequenceName = "user_sequence")
   private Long id;
+  @Column(unique = true)
   private String username;
   private String password;
   @OneToMany(cascade = CascadeType.ALL, mappedBy = "user")
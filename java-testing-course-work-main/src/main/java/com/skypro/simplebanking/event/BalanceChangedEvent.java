@@ -0,0 +1,89 @@
+package com.skypro.simplebanking.event;
+
+import com.skypro.simplebanking.entity.AccountCurrency;
+import java.time.Instant;
+import java.util.concurrent.ThreadLocalRandom;
+
+public class BalanceChangedEvent {
+  private final long accountId;
+  private final long userId;
+  private final AccountCurrency currency;
+  private final BalanceOperation operation;
+  private final long delta;
+  private final long balance;
+  private final long transferId;
+  private final long rateVersion;
+  private final Instant createdAt;
+
+  public BalanceChangedEvent(
+      long accountId,
+      long userId,
+      AccountCurrency currency,
+      BalanceOperation operation,
+      long delta,
+      long balance,
+      long transferId) {
+    this(accountId, userId, currency, operation, delta, balance, transferId, 0);
+  }
+
+  /** For transfer legs converted with the exchange rates of the given version. */
+  public BalanceChangedEvent(
+      long accountId,
+      long userId,
+      AccountCurrency currency,
+      BalanceOperation operation,
+      long delta,
+      long balance,
+      long transferId,
+      long rateVersion) {
+    this.accountId = accountId;
+    this.userId = userId;
+    this.currency = currency;
+    this.operation = operation;
+    this.delta = delta;
+    this.balance = balance;
+    this.transferId = transferId;
+    this.rateVersion = rateVersion;
+    this.createdAt = Instant.now();
+  }
+
+  public long getAccountId() {
+    return accountId;
+  }
+
+  public long getUserId() {
+    return userId;
+  }
+
+  public AccountCurrency getCurrency() {
+    return currency;
+  }
+
+  public BalanceOperation getOperation() {
+    return operation;
+  }
+
+  public long getDelta() {
+    return delta;
+  }
+
+  public long getBalance() {
+    return balance;
+  }
+
+  public long getTransferId() {
+    return transferId;
+  }
+
+  public long getRateVersion() {
+    return rateVersion;
+  }
+
+  public Instant getCreatedAt() {
+    return createdAt;
+  }
+
+  public static long newTransferId() {
+    return ThreadLocalRandom.current().nextLong(1, Long.MAX_VALUE);
+  }
+}
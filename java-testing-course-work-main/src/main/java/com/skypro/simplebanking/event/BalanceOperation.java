@@ -0,0 +1,9 @@
+package com.skypro.simplebanking.event;
+
+public enum BalanceOperation {
+  OPENING,
+  DEPOSIT,
+  WITHDRAWAL,
+  TRANSFER_DEBIT,
+  TRANSFER_CREDIT
+}
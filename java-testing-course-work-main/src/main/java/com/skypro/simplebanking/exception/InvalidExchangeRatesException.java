@@ -0,0 +1,7 @@
+package com.skypro.simplebanking.exception;
+
+public class InvalidExchangeRatesException extends RuntimeException {
+  public InvalidExchangeRatesException(String message) {
+    super(message);
+  }
+}
@@ -0,0 +1,7 @@
+package com.skypro.simplebanking.exception;
+
+public class InvalidSnapshotException extends RuntimeException {
+  public InvalidSnapshotException(String message) {
+    super(message);
+  }
+}
@@ -0,0 +1,99 @@
+package com.skypro.simplebanking.repository;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public class AccountBalanceStripeJdbcRepository {
+  private final JdbcTemplate jdbcTemplate;
+
+  public AccountBalanceStripeJdbcRepository(NamedParameterJdbcTemplate jdbcTemplate) {
+    this.jdbcTemplate = jdbcTemplate.getJdbcTemplate();
+  }
+
+  public List<Long> findSplitAccountIds() {
+    return jdbcTemplate.queryForList(
+        "select distinct account_id from account_balance_stripes order by account_id",
+        Long.class);
+  }
+
+  /** Inserts the missing stripe rows 0 to stripes - 1 of the account. */
+  public void createStripes(long accountId, int stripes) {
+    List<Object[]> rows = new ArrayList<>(stripes);
+    for (int stripe = 0; stripe < stripes; stripe++) {
+      rows.add(new Object[] {accountId, stripe, accountId, stripe});
+    }
+    jdbcTemplate.batchUpdate(
+        "insert into account_balance_stripes (id, account_id, stripe, amount)"
+            + " select nextval('account_balance_stripe_sequence'), ?, ?, 0 where not exists"
+            + " (select 1 from account_balance_stripes where account_id = ? and stripe = ?)",
+        rows);
+  }
+
+  /** Adds the amount to one stripe and returns false when the stripe does not exist. */
+  public boolean credit(long accountId, int stripe, long amount) {
+    return jdbcTemplate.update(
+            "update account_balance_stripes set amount = amount + ?"
+                + " where account_id = ? and stripe = ?",
+            amount,
+            accountId,
+            stripe)
+        > 0;
+  }
+
+  /** Returns the amount held in the stripes of the account, not yet folded into its row. */
+  public long pendingAmount(long accountId) {
+    return jdbcTemplate.queryForObject(
+        "select coalesce(sum(amount), 0) from account_balance_stripes where account_id = ?",
+        Long.class,
+        accountId);
+  }
+
+  /** Returns the amount of the account row plus its stripes. */
+  public long balance(long accountId) {
+    return jdbcTemplate.queryForObject(
+        "select a.amount + coalesce((select sum(s.amount) from account_balance_stripes s"
+            + " where s.account_id = a.id), 0) from accounts a where a.id = ?",
+        Long.class,
+        accountId);
+  }
+
+  /**
+   * Locks the account row and, when it holds less than {@code amount}, moves everything in the
+   * stripes into it. Returns the amount moved.
+   */
+  public long foldIfShort(long accountId, long amount) {
+    List<Long> current =
+        jdbcTemplate.queryForList(
+            "select amount from accounts where id = ? for update", Long.class, accountId);
+    if (current.isEmpty() || current.get(0) >= amount) {
+      return 0;
+    }
+    long pending =
+        jdbcTemplate
+            .queryForList(
+                "select amount from account_balance_stripes where account_id = ? for update",
+                Long.class,
+                accountId)
+            .stream()
+            .mapToLong(Long::longValue)
+            .sum();
+    if (pending != 0) {
+      jdbcTemplate.update(
+          "update account_balance_stripes set amount = 0 where account_id = ? and amount <> 0",
+          accountId);
+      jdbcTemplate.update(
+          "update accounts set amount = amount + ?, version = version + 1 where id = ?",
+          pending,
+          accountId);
+    }
+    return pending;
+  }
+
+  public void deleteStripes(long accountId) {
+    jdbcTemplate.update("delete from account_balance_stripes where account_id = ?", accountId);
+  }
+}
@@ -0,0 +1,178 @@
+package com.skypro.simplebanking.repository;
+
+import com.skypro.simplebanking.dto.CurrencyTotalDTO;
+import com.skypro.simplebanking.entity.AccountCurrency;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public class AccountJdbcRepository {
+  private static final String[] RETURNED_COLUMNS = {"id", "user_id", "account_currency", "amount"};
+
+  private final NamedParameterJdbcTemplate jdbcTemplate;
+
+  public AccountJdbcRepository(NamedParameterJdbcTemplate jdbcTemplate) {
+    this.jdbcTemplate = jdbcTemplate;
+  }
+
+  public List<AccountRow> lockAll(Collection<Long> accountIds) {
+    if (accountIds.isEmpty()) {
+      return List.of();
+    }
+    return jdbcTemplate.query(
+        "select id, user_id, account_currency, amount from accounts"
+            + " where id in (:ids) order by id for update",
+        Map.of("ids", accountIds),
+        AccountJdbcRepository::accountRow);
+  }
+
+  public List<AccountRow> findAll(Collection<Long> accountIds) {
+    return jdbcTemplate.query(
+        "select id, user_id, account_currency, amount from accounts where id in (:ids)",
+        Map.of("ids", accountIds),
+        AccountJdbcRepository::accountRow);
+  }
+
+  /**
+   * Debits the source account if it belongs to the given user, holds at least {@code amount} and
+   * the destination account exists and is owned by the given recipient. Returns the updated
+   * account, or empty when any of these conditions does not hold.
+   */
+  public Optional<AccountRow> debitIfAllowed(
+      long fromUserId, long fromAccountId, long toUserId, long toAccountId, long amount) {
+    return updateReturningRow(
+        "update accounts set amount = amount - :amount, version = version + 1"
+            + " where id = :fromAccountId and user_id = :fromUserId and amount >= :amount"
+            + " and exists (select 1 from accounts d"
+            + " where d.id = :toAccountId and d.user_id = :toUserId)",
+        new MapSqlParameterSource()
+            .addValue("amount", amount)
+            .addValue("fromAccountId", fromAccountId)
+            .addValue("fromUserId", fromUserId)
+            .addValue("toAccountId", toAccountId)
+            .addValue("toUserId", toUserId));
+  }
+
+  /** Credits the account if it belongs to the given user and returns the updated account. */
+  public Optional<AccountRow> credit(long userId, long accountId, long amount) {
+    return updateReturningRow(
+        "update accounts set amount = amount + :amount, version = version + 1"
+            + " where id = :accountId and user_id = :userId",
+        new MapSqlParameterSource()
+            .addValue("amount", amount)
+            .addValue("accountId", accountId)
+            .addValue("userId", userId));
+  }
+
+  // The updated row comes back with the update itself (RETURNING on PostgreSQL).
+  private Optional<AccountRow> updateReturningRow(String sql, MapSqlParameterSource parameters) {
+    KeyHolder keyHolder = new GeneratedKeyHolder();
+    int updated = jdbcTemplate.update(sql, parameters, keyHolder, RETURNED_COLUMNS);
+    if (updated == 0) {
+      return Optional.empty();
+    }
+    Map<String, Object> row = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+    row.putAll(keyHolder.getKeys());
+    return Optional.of(
+        new AccountRow(
+            ((Number) row.get("id")).longValue(),
+            ((Number) row.get("user_id")).longValue(),
+            AccountCurrency.values()[((Number) row.get("account_currency")).intValue()],
+            ((Number) row.get("amount")).longValue()));
+  }
+
+  private static AccountRow accountRow(ResultSet rs, int rowNum) throws SQLException {
+    return new AccountRow(
+        rs.getLong("id"),
+        rs.getLong("user_id"),
+        AccountCurrency.values()[rs.getInt("account_currency")],
+        rs.getLong("amount"));
+  }
+
+  public void updateAmounts(Map<Long, Long> amountsByAccountId) {
+    if (amountsByAccountId.isEmpty()) {
+      return;
+    }
+    jdbcTemplate
+        .getJdbcTemplate()
+        .batchUpdate(
+            "update accounts set amount = ?, version = version + 1 where id = ?",
+            amountsByAccountId.entrySet().stream()
+                .map(entry -> new Object[] {entry.getValue(), entry.getKey()})
+                .collect(Collectors.toList()));
+  }
+
+  /** Returns the smallest and largest account id, or empty when there are no accounts. */
+  public Optional<long[]> idRange() {
+    return jdbcTemplate
+        .getJdbcTemplate()
+        .query(
+            "select min(id), max(id) from accounts",
+            rs -> {
+              rs.next();
+              long min = rs.getLong(1);
+              return rs.wasNull() ? Optional.empty() : Optional.of(new long[] {min, rs.getLong(2)});
+            });
+  }
+
+  /**
+   * Sums balances, including split-balance stripes, and counts accounts per currency over the ids
+   * in [fromId, toId].
+   */
+  public List<CurrencyTotalDTO> totalsByCurrency(long fromId, long toId) {
+    return jdbcTemplate.query(
+        "select a.account_currency, sum(a.amount + coalesce(s.amount, 0)) as amount,"
+            + " count(*) as accounts from accounts a left join (select account_id,"
+            + " sum(amount) as amount from account_balance_stripes"
+            + " where account_id between :fromId and :toId group by account_id) s"
+            + " on s.account_id = a.id"
+            + " where a.id between :fromId and :toId group by a.account_currency",
+        Map.of("fromId", fromId, "toId", toId),
+        (rs, rowNum) ->
+            new CurrencyTotalDTO(
+                AccountCurrency.values()[rs.getInt("account_currency")],
+                rs.getLong("amount"),
+                rs.getLong("accounts")));
+  }
+
+  public static class AccountRow {
+    private final long id;
+    private final long userId;
+    private final AccountCurrency currency;
+    private final long amount;
+
+    public AccountRow(long id, long userId, AccountCurrency currency, long amount) {
+      this.id = id;
+      this.userId = userId;
+      this.currency = currency;
+      this.amount = amount;
+    }
+
+    public long getId() {
+      return id;
+    }
+
+    public long getUserId() {
+      return userId;
+    }
+
+    public AccountCurrency getCurrency() {
+      return currency;
+    }
+
+    public long getAmount() {
+      return amount;
+    }
+  }
+}
@@ -2,10 +2,18 @@ package com.skypro.simplebanking.repository;
 
 import com.skypro.simplebanking.entity.Account;
 import java.util.Optional;
+import javax.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 @Repository
 public interface AccountRepository extends JpaRepository<Account, Long> {
   Optional<Account> getAccountByUser_IdAndId(Long userId, Long accountId);
+
+  @Lock(LockModeType.PESSIMISTIC_WRITE)
+  @Query("select a from Account a where a.id = :id")
+  Optional<Account> findByIdForUpdate(@Param("id") Long id);
 }
@@ -0,0 +1,151 @@
+package com.skypro.simplebanking.repository;
+
+import com.skypro.simplebanking.dto.AccountTransactionDTO;
+import com.skypro.simplebanking.event.BalanceChangedEvent;
+import com.skypro.simplebanking.event.BalanceOperation;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.function.Consumer;
+import javax.sql.DataSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public class AccountTransactionJdbcRepository {
+  private static final String SELECT =
+      "select id, operation, delta, balance, transfer_id, rate_version, created_at"
+          + " from account_transactions"
+          + " where account_id = :accountId and (created_at, id) > (:afterCreatedAt, :afterId)";
+
+  private final NamedParameterJdbcTemplate jdbcTemplate;
+  private final NamedParameterJdbcTemplate streamingJdbcTemplate;
+
+  public AccountTransactionJdbcRepository(
+      NamedParameterJdbcTemplate jdbcTemplate,
+      DataSource dataSource,
+      @Value("${app.statement.fetch-size:500}") int fetchSize) {
+    this.jdbcTemplate = jdbcTemplate;
+    JdbcTemplate streamingTemplate = new JdbcTemplate(dataSource);
+    streamingTemplate.setFetchSize(fetchSize);
+    this.streamingJdbcTemplate = new NamedParameterJdbcTemplate(streamingTemplate);
+  }
+
+  public void insertAll(List<BalanceChangedEvent> events) {
+    jdbcTemplate
+        .getJdbcTemplate()
+        .batchUpdate(
+            "insert into account_transactions"
+                + " (id, account_id, operation, delta, balance, transfer_id, rate_version,"
+                + " created_at)"
+                + " values (nextval('account_transaction_sequence'), ?, ?, ?, ?, ?, ?, ?)",
+            events,
+            events.size(),
+            (ps, event) -> {
+              ps.setLong(1, event.getAccountId());
+              ps.setInt(2, event.getOperation().ordinal());
+              ps.setLong(3, event.getDelta());
+              ps.setLong(4, event.getBalance());
+              setNullableId(ps, 5, event.getTransferId());
+              setNullableId(ps, 6, event.getRateVersion());
+              ps.setTimestamp(7, Timestamp.from(event.getCreatedAt()));
+            });
+  }
+
+  /**
+   * Returns up to {@code limit} transactions of the account ordered by time, starting right after
+   * the given (created_at, id) position and ending before {@code to} when it is set.
+   */
+  public List<AccountTransactionDTO> findPage(
+      long accountId, Instant afterCreatedAt, long afterId, Instant to, int limit) {
+    return jdbcTemplate.query(
+        SELECT + upperBound(to) + " order by created_at, id limit :limit",
+        parameters(accountId, afterCreatedAt, afterId, to).addValue("limit", limit),
+        AccountTransactionJdbcRepository::transactionRow);
+  }
+
+  public void stream(
+      long accountId,
+      Instant afterCreatedAt,
+      Instant to,
+      Consumer<AccountTransactionDTO> consumer) {
+    streamingJdbcTemplate.query(
+        SELECT + upperBound(to) + " order by created_at, id",
+        parameters(accountId, afterCreatedAt, 0, to),
+        rs -> {
+          consumer.accept(transactionRow(rs, rs.getRow()));
+        });
+  }
+
+  /** Streams the given operations of all accounts made since {@code since}, oldest first. */
+  public void streamSince(
+      Instant since, Set<BalanceOperation> operations, TransactionConsumer consumer) {
+    streamingJdbcTemplate.query(
+        "select account_id, delta, created_at from account_transactions"
+            + " where created_at >= :since and operation in (:operations)"
+            + " order by created_at, id",
+        new MapSqlParameterSource()
+            .addValue("since", Timestamp.from(since))
+            .addValue(
+                "operations",
+                operations.stream().map(Enum::ordinal).collect(Collectors.toList())),
+        rs -> {
+          consumer.accept(
+              rs.getLong("account_id"),
+              rs.getLong("delta"),
+              rs.getTimestamp("created_at").toInstant());
+        });
+  }
+
+  private static void setNullableId(PreparedStatement ps, int index, long id)
+      throws SQLException {
+    if (id == 0) {
+      ps.setNull(index, Types.BIGINT);
+    } else {
+      ps.setLong(index, id);
+    }
+  }
+
+  private static String upperBound(Instant to) {
+    return to == null ? "" : " and created_at < :to";
+  }
+
+  private static MapSqlParameterSource parameters(
+      long accountId, Instant afterCreatedAt, long afterId, Instant to) {
+    MapSqlParameterSource parameters =
+        new MapSqlParameterSource()
+            .addValue("accountId", accountId)
+            .addValue("afterCreatedAt", Timestamp.from(afterCreatedAt))
+            .addValue("afterId", afterId);
+    if (to != null) {
+      parameters.addValue("to", Timestamp.from(to));
+    }
+    return parameters;
+  }
+
+  private static AccountTransactionDTO transactionRow(ResultSet rs, int rowNum)
+      throws SQLException {
+    return new AccountTransactionDTO(
+        rs.getLong("id"),
+        BalanceOperation.values()[rs.getInt("operation")],
+        rs.getLong("delta"),
+        rs.getLong("balance"),
+        rs.getObject("transfer_id", Long.class),
+        rs.getObject("rate_version", Long.class),
+        rs.getTimestamp("created_at").toInstant());
+  }
+
+  @FunctionalInterface
+  public interface TransactionConsumer {
+    void accept(long accountId, long delta, Instant createdAt);
+  }
+}
@@ -0,0 +1,97 @@
+package com.skypro.simplebanking.repository;
+
+import com.skypro.simplebanking.dto.CurrencyTotalDTO;
+import com.skypro.simplebanking.entity.AccountCurrency;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public class CurrencyTotalJdbcRepository {
+  private final NamedParameterJdbcTemplate jdbcTemplate;
+
+  public CurrencyTotalJdbcRepository(NamedParameterJdbcTemplate jdbcTemplate) {
+    this.jdbcTemplate = jdbcTemplate;
+  }
+
+  public boolean isEmpty() {
+    return jdbcTemplate
+        .getJdbcTemplate()
+        .query("select 1 from currency_totals limit 1", rs -> !rs.next());
+  }
+
+  /** Inserts the missing stripe rows, with the given starting totals for stripe 0. */
+  public void createStripes(int stripes, Map<AccountCurrency, CurrencyTotalDTO> initialTotals) {
+    List<Object[]> rows = new ArrayList<>();
+    for (AccountCurrency currency : AccountCurrency.values()) {
+      CurrencyTotalDTO initial = initialTotals.get(currency);
+      for (int stripe = 0; stripe < stripes; stripe++) {
+        boolean seeded = stripe == 0 && initial != null;
+        rows.add(
+            new Object[] {
+              currency.ordinal(),
+              stripe,
+              seeded ? initial.getAmount() : 0L,
+              seeded ? initial.getAccounts() : 0L,
+              currency.ordinal(),
+              stripe
+            });
+      }
+    }
+    jdbcTemplate
+        .getJdbcTemplate()
+        .batchUpdate(
+            "insert into currency_totals (id, currency, stripe, amount, accounts, change_count)"
+                + " select nextval('currency_total_sequence'), ?, ?, ?, ?, 0 where not exists"
+                + " (select 1 from currency_totals where currency = ? and stripe = ?)",
+            rows);
+  }
+
+  /**
+   * Adds the amount, account and change count changes to one stripe row per currency, in currency
+   * order.
+   */
+  public void add(int stripe, Map<AccountCurrency, long[]> changes) {
+    List<Object[]> rows = new ArrayList<>(changes.size());
+    changes.forEach(
+        (currency, change) ->
+            rows.add(new Object[] {change[0], change[1], change[2], currency.ordinal(), stripe}));
+    jdbcTemplate
+        .getJdbcTemplate()
+        .batchUpdate(
+            "update currency_totals set amount = amount + ?, accounts = accounts + ?,"
+                + " change_count = change_count + ? where currency = ? and stripe = ?",
+            rows);
+  }
+
+  public List<CurrencyTotalDTO> totals() {
+    return jdbcTemplate
+        .getJdbcTemplate()
+        .query(
+            "select currency, sum(amount) as amount, sum(accounts) as accounts"
+                + " from currency_totals group by currency order by currency",
+            (rs, rowNum) ->
+                new CurrencyTotalDTO(
+                    AccountCurrency.values()[rs.getInt("currency")],
+                    rs.getLong("amount"),
+                    rs.getLong("accounts")));
+  }
+
+  /** The number of balance changes ever added per currency, including ones that summed to 0. */
+  public Map<AccountCurrency, Long> changeCounts() {
+    Map<AccountCurrency, Long> counts = new EnumMap<>(AccountCurrency.class);
+    jdbcTemplate
+        .getJdbcTemplate()
+        .query(
+            "select currency, sum(change_count) as change_count from currency_totals"
+                + " group by currency",
+            rs -> {
+              counts.put(
+                  AccountCurrency.values()[rs.getInt("currency")], rs.getLong("change_count"));
+            });
+    return counts;
+  }
+}
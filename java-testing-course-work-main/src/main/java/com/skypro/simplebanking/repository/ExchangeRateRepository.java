@@ -0,0 +1,16 @@
+package com.skypro.simplebanking.repository;
+
+import com.skypro.simplebanking.entity.ExchangeRate;
+import java.util.List;
+import java.util.Optional;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface ExchangeRateRepository extends JpaRepository<ExchangeRate, Long> {
+  List<ExchangeRate> findByVersion(long version);
+
+  @Query("select max(r.version) from ExchangeRate r")
+  Optional<Long> findLatestVersion();
+}
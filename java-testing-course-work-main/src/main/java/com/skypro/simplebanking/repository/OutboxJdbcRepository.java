@@ -0,0 +1,100 @@
+package com.skypro.simplebanking.repository;
+
+import com.skypro.simplebanking.dto.OutboxEventDTO;
+import com.skypro.simplebanking.entity.AccountCurrency;
+import com.skypro.simplebanking.event.BalanceChangedEvent;
+import com.skypro.simplebanking.event.BalanceOperation;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public class OutboxJdbcRepository {
+  private final NamedParameterJdbcTemplate jdbcTemplate;
+
+  public OutboxJdbcRepository(NamedParameterJdbcTemplate jdbcTemplate) {
+    this.jdbcTemplate = jdbcTemplate;
+  }
+
+  public void insertAll(List<BalanceChangedEvent> events) {
+    jdbcTemplate
+        .getJdbcTemplate()
+        .batchUpdate(
+            "insert into outbox_events"
+                + " (id, account_id, user_id, currency, operation, delta, balance, transfer_id,"
+                + " rate_version, created_at)"
+                + " values (nextval('outbox_event_sequence'), ?, ?, ?, ?, ?, ?, ?, ?, ?)",
+            events,
+            events.size(),
+            (ps, event) -> {
+              ps.setLong(1, event.getAccountId());
+              ps.setLong(2, event.getUserId());
+              ps.setInt(3, event.getCurrency().ordinal());
+              ps.setInt(4, event.getOperation().ordinal());
+              ps.setLong(5, event.getDelta());
+              ps.setLong(6, event.getBalance());
+              setNullableId(ps, 7, event.getTransferId());
+              setNullableId(ps, 8, event.getRateVersion());
+              ps.setTimestamp(9, Timestamp.from(event.getCreatedAt()));
+            });
+  }
+
+  /** Returns the oldest undelivered events, in the order they were written. */
+  public List<OutboxEventDTO> findOldest(int limit) {
+    return jdbcTemplate.query(
+        "select id, account_id, user_id, currency, operation, delta, balance, transfer_id,"
+            + " rate_version, created_at from outbox_events order by id limit :limit",
+        Map.of("limit", limit),
+        OutboxJdbcRepository::eventRow);
+  }
+
+  public void deleteAll(Collection<Long> ids) {
+    jdbcTemplate.update("delete from outbox_events where id in (:ids)", Map.of("ids", ids));
+  }
+
+  public long count() {
+    return jdbcTemplate
+        .getJdbcTemplate()
+        .queryForObject("select count(*) from outbox_events", Long.class);
+  }
+
+  public Optional<Instant> oldestCreatedAt() {
+    Timestamp oldest =
+        jdbcTemplate
+            .getJdbcTemplate()
+            .queryForObject("select min(created_at) from outbox_events", Timestamp.class);
+    return Optional.ofNullable(oldest).map(Timestamp::toInstant);
+  }
+
+  private static void setNullableId(PreparedStatement ps, int index, long id)
+      throws SQLException {
+    if (id == 0) {
+      ps.setNull(index, Types.BIGINT);
+    } else {
+      ps.setLong(index, id);
+    }
+  }
+
+  private static OutboxEventDTO eventRow(ResultSet rs, int rowNum) throws SQLException {
+    return new OutboxEventDTO(
+        rs.getLong("id"),
+        rs.getLong("account_id"),
+        rs.getLong("user_id"),
+        AccountCurrency.values()[rs.getInt("currency")],
+        BalanceOperation.values()[rs.getInt("operation")],
+        rs.getLong("delta"),
+        rs.getLong("balance"),
+        rs.getObject("transfer_id", Long.class),
+        rs.getObject("rate_version", Long.class),
+        rs.getTimestamp("created_at").toInstant());
+  }
+}
@@ -0,0 +1,40 @@
+package com.skypro.simplebanking.repository;
+
+import java.util.function.Supplier;
+import org.springframework.stereotype.Component;
+
+/**
+ * Keeps reads on the primary database for work that cannot use a lagging replica. Read-only
+ * transactions of a thread go to a replica unless the thread is pinned here; without replicas
+ * every read uses the primary anyway.
+ */
+@Component
+public class PrimaryReads {
+  private final ThreadLocal<Boolean> pinned = new ThreadLocal<>();
+
+  /** Runs the work with the reads of the current thread on the primary. */
+  public <T> T call(Supplier<T> work) {
+    if (isPinned()) {
+      return work.get();
+    }
+    pin();
+    try {
+      return work.get();
+    } finally {
+      unpin();
+    }
+  }
+
+  /** Keeps the reads of the current thread on the primary until {@link #unpin()}. */
+  public void pin() {
+    pinned.set(Boolean.TRUE);
+  }
+
+  public void unpin() {
+    pinned.remove();
+  }
+
+  public boolean isPinned() {
+    return pinned.get() != null;
+  }
+}
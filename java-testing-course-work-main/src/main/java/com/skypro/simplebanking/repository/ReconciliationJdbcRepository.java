@@ -0,0 +1,179 @@
+package com.skypro.simplebanking.repository;
+
+import com.skypro.simplebanking.entity.AccountCurrency;
+import com.skypro.simplebanking.event.BalanceOperation;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.function.Consumer;
+import javax.sql.DataSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Reads for reconciling balances with account_transactions. Each method is a single statement, so
+ * it sees balances and movements from the same snapshot.
+ */
+@Repository
+public class ReconciliationJdbcRepository {
+  private final NamedParameterJdbcTemplate jdbcTemplate;
+
+  public ReconciliationJdbcRepository(
+      DataSource dataSource, @Value("${app.reconciliation.fetch-size:1000}") int fetchSize) {
+    JdbcTemplate streamingTemplate = new JdbcTemplate(dataSource);
+    streamingTemplate.setFetchSize(fetchSize);
+    this.jdbcTemplate = new NamedParameterJdbcTemplate(streamingTemplate);
+  }
+
+  /**
+   * Streams every account with an id in [fromId, toId] with its balance, including split-balance
+   * stripes, and the sum of its recorded movements.
+   */
+  public void streamBalances(long fromId, long toId, Consumer<BalanceRow> consumer) {
+    jdbcTemplate.query(
+        "select a.id, a.account_currency, a.amount + coalesce(s.amount, 0) as balance,"
+            + " coalesce(t.recorded, 0) as recorded from accounts a"
+            + " left join (select account_id, sum(amount) as amount from account_balance_stripes"
+            + " where account_id between :fromId and :toId group by account_id) s"
+            + " on s.account_id = a.id"
+            + " left join (select account_id, sum(delta) as recorded from account_transactions"
+            + " where account_id between :fromId and :toId group by account_id) t"
+            + " on t.account_id = a.id"
+            + " where a.id between :fromId and :toId",
+        new MapSqlParameterSource().addValue("fromId", fromId).addValue("toId", toId),
+        rs -> {
+          consumer.accept(
+              new BalanceRow(
+                  rs.getLong("id"),
+                  AccountCurrency.values()[rs.getInt("account_currency")],
+                  rs.getLong("balance"),
+                  rs.getLong("recorded")));
+        });
+  }
+
+  /** Streams the legs of every transfer with an id in [fromTransferId, toTransferId], summed. */
+  public void streamTransfers(
+      long fromTransferId, long toTransferId, Consumer<TransferRow> consumer) {
+    jdbcTemplate.query(
+        "select t.transfer_id, count(*) as legs,"
+            + " sum(case when t.operation = :debit then 1 else 0 end) as debits,"
+            + " max(case when t.operation = :debit then a.account_currency end) as debit_currency,"
+            + " max(case when t.operation = :credit then a.account_currency end)"
+            + " as credit_currency,"
+            + " sum(case when t.operation = :debit then -t.delta else 0 end) as debited,"
+            + " sum(case when t.operation = :credit then t.delta else 0 end) as credited"
+            + " from account_transactions t join accounts a on a.id = t.account_id"
+            + " where t.transfer_id between :fromTransferId and :toTransferId"
+            + " group by t.transfer_id",
+        new MapSqlParameterSource()
+            .addValue("debit", BalanceOperation.TRANSFER_DEBIT.ordinal())
+            .addValue("credit", BalanceOperation.TRANSFER_CREDIT.ordinal())
+            .addValue("fromTransferId", fromTransferId)
+            .addValue("toTransferId", toTransferId),
+        rs -> {
+          consumer.accept(
+              new TransferRow(
+                  rs.getLong("transfer_id"),
+                  rs.getInt("legs"),
+                  rs.getInt("debits"),
+                  currency(rs, "debit_currency"),
+                  currency(rs, "credit_currency"),
+                  rs.getLong("debited"),
+                  rs.getLong("credited")));
+        });
+  }
+
+  private static AccountCurrency currency(ResultSet rs, String column) throws SQLException {
+    int ordinal = rs.getInt(column);
+    return rs.wasNull() ? null : AccountCurrency.values()[ordinal];
+  }
+
+  public static class BalanceRow {
+    private final long accountId;
+    private final AccountCurrency currency;
+    private final long balance;
+    private final long recorded;
+
+    public BalanceRow(long accountId, AccountCurrency currency, long balance, long recorded) {
+      this.accountId = accountId;
+      this.currency = currency;
+      this.balance = balance;
+      this.recorded = recorded;
+    }
+
+    public long getAccountId() {
+      return accountId;
+    }
+
+    public AccountCurrency getCurrency() {
+      return currency;
+    }
+
+    public long getBalance() {
+      return balance;
+    }
+
+    public long getRecorded() {
+      return recorded;
+    }
+  }
+
+  public static class TransferRow {
+    private final long transferId;
+    private final int legs;
+    private final int debits;
+    private final AccountCurrency debitCurrency;
+    private final AccountCurrency creditCurrency;
+    private final long debited;
+    private final long credited;
+
+    public TransferRow(
+        long transferId,
+        int legs,
+        int debits,
+        AccountCurrency debitCurrency,
+        AccountCurrency creditCurrency,
+        long debited,
+        long credited) {
+      this.transferId = transferId;
+      this.legs = legs;
+      this.debits = debits;
+      this.debitCurrency = debitCurrency;
+      this.creditCurrency = creditCurrency;
+      this.debited = debited;
+      this.credited = credited;
+    }
+
+    public long getTransferId() {
+      return transferId;
+    }
+
+    public int getLegs() {
+      return legs;
+    }
+
+    public int getDebits() {
+      return debits;
+    }
+
+    /** Null when the transfer has no debit leg. */
+    public AccountCurrency getDebitCurrency() {
+      return debitCurrency;
+    }
+
+    /** Null when the transfer has no credit leg. */
+    public AccountCurrency getCreditCurrency() {
+      return creditCurrency;
+    }
+
+    public long getDebited() {
+      return debited;
+    }
+
+    public long getCredited() {
+      return credited;
+    }
+  }
+}
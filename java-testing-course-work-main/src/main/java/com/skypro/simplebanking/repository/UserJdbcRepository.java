@@ -0,0 +1,193 @@
+package com.skypro.simplebanking.repository;
+
+import com.skypro.simplebanking.entity.Account;
+import com.skypro.simplebanking.entity.AccountCurrency;
+import com.skypro.simplebanking.entity.User;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import javax.persistence.EntityManager;
+import javax.sql.DataSource;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.id.IdentifierGenerator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+/** Bulk reads and writes of users together with their accounts. */
+@Repository
+public class UserJdbcRepository {
+  private final NamedParameterJdbcTemplate jdbcTemplate;
+  private final JdbcTemplate streamingJdbcTemplate;
+  private final EntityManager entityManager;
+
+  public UserJdbcRepository(
+      NamedParameterJdbcTemplate jdbcTemplate,
+      DataSource dataSource,
+      EntityManager entityManager,
+      @Value("${app.snapshot.fetch-size:1000}") int fetchSize) {
+    this.jdbcTemplate = jdbcTemplate;
+    this.streamingJdbcTemplate = new JdbcTemplate(dataSource);
+    this.streamingJdbcTemplate.setFetchSize(fetchSize);
+    this.entityManager = entityManager;
+  }
+
+  /**
+   * Streams every user ordered by id, with its accounts and their full balances, through a
+   * forward-only cursor.
+   */
+  public void streamAll(Consumer<UserRecord> consumer) {
+    UserRecord[] current = new UserRecord[1];
+    streamingJdbcTemplate.query(
+        "select u.id as user_id, u.username, u.password, a.id as account_id,"
+            + " a.account_currency, a.amount + coalesce((select sum(s.amount)"
+            + " from account_balance_stripes s where s.account_id = a.id), 0) as amount"
+            + " from users u left join accounts a on a.user_id = u.id order by u.id, a.id",
+        rs -> {
+          long userId = rs.getLong("user_id");
+          if (current[0] == null || current[0].getId() != userId) {
+            if (current[0] != null) {
+              consumer.accept(current[0]);
+            }
+            current[0] =
+                new UserRecord(
+                    userId, rs.getString("username"), rs.getString("password"), new ArrayList<>());
+          }
+          long accountId = rs.getLong("account_id");
+          if (!rs.wasNull()) {
+            current[0]
+                .getAccounts()
+                .add(
+                    new AccountRecord(
+                        accountId,
+                        AccountCurrency.values()[rs.getInt("account_currency")],
+                        rs.getLong("amount")));
+          }
+        });
+    if (current[0] != null) {
+      consumer.accept(current[0]);
+    }
+  }
+
+  public Set<String> findExistingUsernames(Collection<String> usernames) {
+    if (usernames.isEmpty()) {
+      return Set.of();
+    }
+    return new HashSet<>(
+        jdbcTemplate.queryForList(
+            "select username from users where username in (:usernames)",
+            Map.of("usernames", usernames),
+            String.class));
+  }
+
+  /**
+   * Takes ids from the same pooled sequence generators that Hibernate uses for new users and
+   * accounts, so a database round trip reserves a whole range of them. Has to run in a
+   * transaction.
+   */
+  public long[] allocateUserIds(int count) {
+    return allocateIds(User.class, count);
+  }
+
+  public long[] allocateAccountIds(int count) {
+    return allocateIds(Account.class, count);
+  }
+
+  private long[] allocateIds(Class<?> entity, int count) {
+    SessionImplementor session = entityManager.unwrap(SessionImplementor.class);
+    IdentifierGenerator generator =
+        session.getFactory().getMetamodel().entityPersister(entity).getIdentifierGenerator();
+    long[] ids = new long[count];
+    for (int i = 0; i < count; i++) {
+      ids[i] = ((Number) generator.generate(session, null)).longValue();
+    }
+    return ids;
+  }
+
+  /** Inserts the users and their accounts with one batched statement for each table. */
+  public void insertAll(List<UserRecord> users) {
+    JdbcTemplate template = jdbcTemplate.getJdbcTemplate();
+    template.batchUpdate(
+        "insert into users (id, username, password) values (?, ?, ?)",
+        users,
+        users.size(),
+        (ps, user) -> {
+          ps.setLong(1, user.getId());
+          ps.setString(2, user.getUsername());
+          ps.setString(3, user.getPassword());
+        });
+    List<Object[]> accounts = new ArrayList<>();
+    for (UserRecord user : users) {
+      for (AccountRecord account : user.getAccounts()) {
+        accounts.add(
+            new Object[] {
+              account.getId(), user.getId(), account.getCurrency().ordinal(), account.getAmount()
+            });
+      }
+    }
+    template.batchUpdate(
+        "insert into accounts (id, user_id, account_currency, amount, version)"
+            + " values (?, ?, ?, ?, 0)",
+        accounts);
+  }
+
+  public static class UserRecord {
+    private final long id;
+    private final String username;
+    private final String password;
+    private final List<AccountRecord> accounts;
+
+    public UserRecord(long id, String username, String password, List<AccountRecord> accounts) {
+      this.id = id;
+      this.username = username;
+      this.password = password;
+      this.accounts = accounts;
+    }
+
+    public long getId() {
+      return id;
+    }
+
+    public String getUsername() {
+      return username;
+    }
+
+    /** The encoded password. */
+    public String getPassword() {
+      return password;
+    }
+
+    public List<AccountRecord> getAccounts() {
+      return accounts;
+    }
+  }
+
+  public static class AccountRecord {
+    private final long id;
+    private final AccountCurrency currency;
+    private final long amount;
+
+    public AccountRecord(long id, AccountCurrency currency, long amount) {
+      this.id = id;
+      this.currency = currency;
+      this.amount = amount;
+    }
+
+    public long getId() {
+      return id;
+    }
+
+    public AccountCurrency getCurrency() {
+      return currency;
+    }
+
+    public long getAmount() {
+      return amount;
+    }
+  }
+}
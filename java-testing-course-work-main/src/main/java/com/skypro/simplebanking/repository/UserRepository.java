@@ -1,11 +1,50 @@
 package com.skypro.simplebanking.repository;
 
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
+
+import com.skypro.simplebanking.dto.UserAccountRow;
 import com.skypro.simplebanking.entity.User;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
+import javax.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 @Repository
 public interface UserRepository extends JpaRepository<User, Long> {
   Optional<User> findByUsername(String username);
+
+  @Query("select u.id from User u where u.id > :afterId order by u.id")
+  List<Long> findIdsAfter(@Param("afterId") long afterId, Pageable pageable);
+
+  @Query(
+      "select new com.skypro.simplebanking.dto.UserAccountRow("
+          + "u.id, u.username, a.id, a.amount, a.accountCurrency)"
+          + " from User u left join u.accounts a"
+          + " where u.id > :afterId and u.id <= :lastId order by u.id, a.id")
+  List<UserAccountRow> findUserAccountRows(
+      @Param("afterId") long afterId, @Param("lastId") long lastId);
+
+  @Query(
+      "select new com.skypro.simplebanking.dto.UserAccountRow("
+          + "u.id, u.username, a.id, a.amount, a.accountCurrency)"
+          + " from User u left join u.accounts a where u.id = :id order by a.id")
+  List<UserAccountRow> findUserAccountRowsById(@Param("id") long id);
+
+  @QueryHints({
+    @QueryHint(name = HINT_FETCH_SIZE, value = "500"),
+    @QueryHint(name = HINT_READONLY, value = "true")
+  })
+  @Query(
+      "select new com.skypro.simplebanking.dto.UserAccountRow("
+          + "u.id, u.username, a.id, a.amount, a.accountCurrency)"
+          + " from User u left join u.accounts a"
+          + " where u.id > :afterId order by u.id, a.id")
+  Stream<UserAccountRow> streamUserAccountRows(@Param("afterId") long afterId);
 }
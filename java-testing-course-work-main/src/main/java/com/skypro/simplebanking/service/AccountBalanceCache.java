@@ -0,0 +1,117 @@
+package com.skypro.simplebanking.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.skypro.simplebanking.dto.AccountDTO;
+import com.skypro.simplebanking.event.BalanceChangedEvent;
+import com.skypro.simplebanking.repository.PrimaryReads;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Supplier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Read-through cache of account balances keyed by owner and account id. Entries are invalidated
+ * once the transaction of a balance change completes, whether it commits or rolls back. Reads
+ * inside a writing transaction bypass the cache, since they may see changes that are never
+ * committed.
+ *
+ * <p>Loads run without holding any cache lock: invalidation happens while the writer still holds
+ * its database connection, so it must never wait for a load that may itself be waiting for a
+ * connection. Instead every invalidation bumps a striped counter, and a load that overlapped an
+ * invalidation of its stripe removes the entry it has just put, so a balance read before a
+ * commit is never left behind.
+ *
+ * <p>Loads always read the primary: a balance read from a lagging replica would otherwise stay
+ * cached for the whole TTL after the change that invalidated it.
+ */
+@Component
+@ConditionalOnProperty(name = "app.account-cache.enabled", havingValue = "true")
+public class AccountBalanceCache {
+  private static final int STRIPES = 1024;
+
+  private final PrimaryReads primaryReads;
+  private final Cache<Key, AccountDTO> accounts;
+  private final AtomicLongArray invalidations = new AtomicLongArray(STRIPES);
+
+  public AccountBalanceCache(
+      PrimaryReads primaryReads,
+      MeterRegistry meterRegistry,
+      @Value("${app.account-cache.max-size:100000}") long maxSize,
+      @Value("${app.account-cache.ttl-seconds:60}") long ttlSeconds) {
+    this.primaryReads = primaryReads;
+    this.accounts =
+        Caffeine.newBuilder()
+            .maximumSize(maxSize)
+            .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+            .recordStats()
+            .build();
+    CaffeineCacheMetrics.monitor(meterRegistry, accounts, "account-balance");
+  }
+
+  public AccountDTO get(long userId, long accountId, Supplier<AccountDTO> loader) {
+    if (TransactionSynchronizationManager.isActualTransactionActive()
+        && !TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+      return loader.get();
+    }
+    Key key = new Key(userId, accountId);
+    AccountDTO cached = accounts.getIfPresent(key);
+    if (cached != null) {
+      return cached;
+    }
+    int stripe = key.stripe();
+    long invalidationsBefore = invalidations.get(stripe);
+    AccountDTO loaded = primaryReads.call(loader);
+    accounts.put(key, loaded);
+    if (invalidations.get(stripe) != invalidationsBefore) {
+      accounts.asMap().remove(key, loaded);
+    }
+    return loaded;
+  }
+
+  @TransactionalEventListener(phase = TransactionPhase.AFTER_COMPLETION, fallbackExecution = true)
+  public void onBalanceChanged(BalanceChangedEvent event) {
+    Key key = new Key(event.getUserId(), event.getAccountId());
+    invalidations.incrementAndGet(key.stripe());
+    accounts.invalidate(key);
+  }
+
+  private static final class Key {
+    private final long userId;
+    private final long accountId;
+
+    private Key(long userId, long accountId) {
+      this.userId = userId;
+      this.accountId = accountId;
+    }
+
+    private int stripe() {
+      return hashCode() & (STRIPES - 1);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      Key key = (Key) o;
+      return userId == key.userId && accountId == key.accountId;
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(userId, accountId);
+    }
+  }
+}
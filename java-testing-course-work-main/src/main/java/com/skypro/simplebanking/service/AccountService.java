@@ -1,25 +1,94 @@
 package com.skypro.simplebanking.service;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import com.skypro.simplebanking.dto.AccountDTO;
 import com.skypro.simplebanking.entity.Account;
 import com.skypro.simplebanking.entity.AccountCurrency;
 import com.skypro.simplebanking.entity.User;
+import com.skypro.simplebanking.event.BalanceChangedEvent;
+import com.skypro.simplebanking.event.BalanceOperation;
 import com.skypro.simplebanking.exception.AccountNotFoundException;
 import com.skypro.simplebanking.exception.InsufficientFundsException;
 import com.skypro.simplebanking.exception.InvalidAmountException;
-import com.skypro.simplebanking.exception.WrongCurrencyException;
+import com.skypro.simplebanking.repository.AccountJdbcRepository;
+import com.skypro.simplebanking.repository.AccountJdbcRepository.AccountRow;
 import com.skypro.simplebanking.repository.AccountRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import javax.persistence.EntityManager;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 @Service
 public class AccountService {
   private final AccountRepository accountRepository;
+  private final AccountJdbcRepository accountJdbcRepository;
+  private final LedgerEngine ledgerEngine;
+  private final AccountBalanceCache accountBalanceCache;
+  private final DepositBatcher depositBatcher;
+  private final IdempotencyService idempotencyService;
+  private final VelocityEngine velocityEngine;
+  private final ExchangeRateService exchangeRateService;
+  private final SplitBalanceService splitBalances;
+  private final EntityManager entityManager;
+  // Only the owner and currency of cached rows are used; neither ever changes.
+  private final Cache<Long, AccountRow> accountRows;
+  private final TransactionRetryTemplate retryTemplate;
+  private final TransactionTemplate readOnlyTransactionTemplate;
+  private final ApplicationEventPublisher eventPublisher;
+  private final Timer lockWait;
+  private final BankingMetrics metrics;
 
-  public AccountService(AccountRepository accountRepository) {
+  public AccountService(
+      AccountRepository accountRepository,
+      AccountJdbcRepository accountJdbcRepository,
+      ObjectProvider<LedgerEngine> ledgerEngine,
+      ObjectProvider<AccountBalanceCache> accountBalanceCache,
+      ObjectProvider<DepositBatcher> depositBatcher,
+      IdempotencyService idempotencyService,
+      ObjectProvider<VelocityEngine> velocityEngine,
+      ExchangeRateService exchangeRateService,
+      SplitBalanceService splitBalances,
+      EntityManager entityManager,
+      TransactionRetryTemplate retryTemplate,
+      PlatformTransactionManager transactionManager,
+      ApplicationEventPublisher eventPublisher,
+      MeterRegistry meterRegistry,
+      BankingMetrics metrics,
+      @Value("${app.transfer.currency-cache-size:100000}") long currencyCacheSize) {
     this.accountRepository = accountRepository;
+    this.accountJdbcRepository = accountJdbcRepository;
+    this.ledgerEngine = ledgerEngine.getIfAvailable();
+    this.accountBalanceCache = accountBalanceCache.getIfAvailable();
+    this.depositBatcher = depositBatcher.getIfAvailable();
+    this.idempotencyService = idempotencyService;
+    this.velocityEngine = velocityEngine.getIfAvailable();
+    this.exchangeRateService = exchangeRateService;
+    this.splitBalances = splitBalances;
+    this.entityManager = entityManager;
+    this.accountRows = Caffeine.newBuilder().maximumSize(currencyCacheSize).build();
+    this.retryTemplate = retryTemplate;
+    this.readOnlyTransactionTemplate = new TransactionTemplate(transactionManager);
+    this.readOnlyTransactionTemplate.setReadOnly(true);
+    this.eventPublisher = eventPublisher;
+    this.lockWait = meterRegistry.timer("banking.account.lock.wait");
+    this.metrics = metrics;
   }
 
   @Transactional(propagation = Propagation.MANDATORY)
@@ -32,15 +101,27 @@ public class AccountService {
       account.setAmount(1L);
       user.getAccounts().add(account);
       accountRepository.save(account);
+      publish(account, BalanceOperation.OPENING, account.getAmount(), 0);
     }
   }
 
-  @Transactional(readOnly = true)
   public AccountDTO getAccount(long userId, Long accountId) {
-    return accountRepository
-        .getAccountByUser_IdAndId(userId, accountId)
-        .map(AccountDTO::from)
-        .orElseThrow(AccountNotFoundException::new);
+    if (ledgerEngine != null) {
+      return ledgerEngine.getAccount(userId, accountId);
+    }
+    if (accountBalanceCache != null) {
+      return accountBalanceCache.get(userId, accountId, () -> loadAccount(userId, accountId));
+    }
+    return loadAccount(userId, accountId);
+  }
+
+  private AccountDTO loadAccount(long userId, Long accountId) {
+    return readOnlyTransactionTemplate.execute(
+        status ->
+            accountRepository
+                .getAccountByUser_IdAndId(userId, accountId)
+                .map(this::toDto)
+                .orElseThrow(AccountNotFoundException::new));
   }
 
   @Transactional
@@ -49,38 +130,371 @@ public class AccountService {
         accountRepository.findById(sourceAccount).orElseThrow(AccountNotFoundException::new);
     Account acc2 =
         accountRepository.findById(destinationAccount).orElseThrow(AccountNotFoundException::new);
-    if (!acc1.getAccountCurrency().equals(acc2.getAccountCurrency())){
-      throw new WrongCurrencyException();
-    }
+    exchangeRateService.current().rate(acc1.getAccountCurrency(), acc2.getAccountCurrency());
   }
 
-  @Transactional
   public AccountDTO depositToAccount(long userId, Long accountId, long amount) {
-    if (amount < 0) {
-      throw new InvalidAmountException();
+    long startNanos = System.nanoTime();
+    try {
+      return deposit(userId, accountId, amount);
+    } catch (RuntimeException e) {
+      metrics.deposit().rejected(e);
+      throw e;
+    } finally {
+      metrics.deposit().recordSince(startNanos);
     }
-    Account account =
-        accountRepository
-            .getAccountByUser_IdAndId(userId, accountId)
-            .orElseThrow(AccountNotFoundException::new);
-    account.setAmount(account.getAmount() + amount);
-    return AccountDTO.from(account);
   }
 
-  @Transactional
   public AccountDTO withdrawFromAccount(long id, Long accountId, long amount) {
+    long startNanos = System.nanoTime();
+    try {
+      VelocityEngine.Reservation reservation = reserveDebit(id, accountId, amount);
+      try {
+        return withdraw(id, accountId, amount);
+      } catch (RuntimeException e) {
+        if (reservation != null) {
+          reservation.cancel();
+        }
+        throw e;
+      }
+    } catch (RuntimeException e) {
+      metrics.withdraw().rejected(e);
+      throw e;
+    } finally {
+      metrics.withdraw().recordSince(startNanos);
+    }
+  }
+
+  private AccountDTO deposit(long userId, Long accountId, long amount) {
     if (amount < 0) {
       throw new InvalidAmountException();
     }
-    Account account =
-        accountRepository
-            .getAccountByUser_IdAndId(id, accountId)
-            .orElseThrow(AccountNotFoundException::new);
-    if (account.getAmount() < amount) {
-      throw new InsufficientFundsException(
-          "Cannot withdraw " + amount + " " + account.getAccountCurrency().name());
+    if (ledgerEngine != null) {
+      return ledgerEngine.deposit(userId, accountId, amount);
+    }
+    // Inside a caller's transaction the deposit has to be part of that transaction, and an
+    // idempotency key has to be stored by the transaction of this thread.
+    if (depositBatcher != null
+        && !TransactionSynchronizationManager.isActualTransactionActive()
+        && !idempotencyService.isPendingOnThisThread()) {
+      return depositBatcher.deposit(userId, accountId, amount);
+    }
+    return retryTemplate.execute(
+        () -> {
+          if (splitBalances.isSplit(accountId)) {
+            return depositToSplitAccount(userId, accountId, amount);
+          }
+          Account account =
+              accountRepository
+                  .getAccountByUser_IdAndId(userId, accountId)
+                  .orElseThrow(AccountNotFoundException::new);
+          account.setAmount(account.getAmount() + amount);
+          publish(account, BalanceOperation.DEPOSIT, amount, 0);
+          return AccountDTO.from(account);
+        });
+  }
+
+  // Neither reads nor locks the accounts row, unless the account has just stopped being split.
+  private AccountDTO depositToSplitAccount(long userId, long accountId, long amount) {
+    AccountRow account = cachedRow(accountId);
+    if (account.getUserId() != userId) {
+      throw new AccountNotFoundException();
+    }
+    if (!splitBalances.credit(accountId, amount)) {
+      accountJdbcRepository
+          .credit(userId, accountId, amount)
+          .orElseThrow(AccountNotFoundException::new);
+    }
+    long balance = splitBalances.balance(accountId);
+    publish(account, BalanceOperation.DEPOSIT, amount, balance, 0, 0);
+    return new AccountDTO(accountId, balance, account.getCurrency());
+  }
+
+  private AccountDTO withdraw(long id, Long accountId, long amount) {
+    if (ledgerEngine != null) {
+      return ledgerEngine.withdraw(id, accountId, amount);
+    }
+    return retryTemplate.execute(
+        () -> {
+          if (amount < 0) {
+            throw new InvalidAmountException();
+          }
+          Account account =
+              accountRepository
+                  .getAccountByUser_IdAndId(id, accountId)
+                  .orElseThrow(AccountNotFoundException::new);
+          foldIfShort(account, amount);
+          if (account.getAmount() < amount) {
+            throw new InsufficientFundsException(
+                "Cannot withdraw " + amount + " " + account.getAccountCurrency().name());
+          }
+          account.setAmount(account.getAmount() - amount);
+          publish(account, BalanceOperation.WITHDRAWAL, -amount, 0);
+          return toDto(account);
+        });
+  }
+
+  public void transfer(
+      long fromUserId, long fromAccountId, long toUserId, long toAccountId, long amount) {
+    retryTemplate.execute(
+        () -> {
+          boolean splitDestination =
+              fromAccountId != toAccountId && splitBalances.isSplit(toAccountId);
+          Account[] accounts = lockForTransfer(fromAccountId, toAccountId, !splitDestination);
+          Account source = accounts[0];
+          Account destination = accounts[1];
+          ExchangeRates.Rate rate =
+              exchangeRateService
+                  .current()
+                  .rate(source.getAccountCurrency(), destination.getAccountCurrency());
+          if (amount < 0) {
+            throw new InvalidAmountException();
+          }
+          if (source.getUser().getId() != fromUserId) {
+            throw new AccountNotFoundException();
+          }
+          foldIfShort(source, amount);
+          if (source.getAmount() < amount) {
+            throw new InsufficientFundsException(
+                "Cannot withdraw " + amount + " " + source.getAccountCurrency().name());
+          }
+          if (destination.getUser().getId() != toUserId) {
+            throw new AccountNotFoundException();
+          }
+          long credited = rate.convert(amount);
+          long transferId = BalanceChangedEvent.newTransferId();
+          source.setAmount(source.getAmount() - amount);
+          publish(source, BalanceOperation.TRANSFER_DEBIT, -amount, transferId, rate.getVersion());
+          if (!splitDestination || !splitBalances.credit(toAccountId, credited)) {
+            destination.setAmount(destination.getAmount() + credited);
+          }
+          publish(
+              destination,
+              BalanceOperation.TRANSFER_CREDIT,
+              credited,
+              transferId,
+              rate.getVersion());
+          return null;
+        });
+  }
+
+  /**
+   * Transfers without loading or locking the accounts up front: the debit is a single conditional
+   * UPDATE that only matches when every check passes, followed by the credit. The accounts are
+   * only read when the debit matched nothing, to report which check failed. Account currencies
+   * never change, so they are taken from a cache to pick the exchange rate.
+   */
+  public void transferConditionally(
+      long fromUserId, long fromAccountId, long toUserId, long toAccountId, long amount) {
+    retryTemplate.execute(
+        () -> {
+          ExchangeRates.Rate rate =
+              exchangeRateService
+                  .current()
+                  .rate(currencyOf(fromAccountId), currencyOf(toAccountId));
+          if (amount < 0) {
+            throw new InvalidAmountException();
+          }
+          // The debit below locks the source row first anyway, so folding it here adds no lock.
+          if (cachedRow(fromAccountId).getUserId() == fromUserId) {
+            splitBalances.prepareDebit(fromAccountId, amount);
+          }
+          Optional<AccountRow> source =
+              accountJdbcRepository.debitIfAllowed(
+                  fromUserId, fromAccountId, toUserId, toAccountId, amount);
+          if (source.isEmpty()) {
+            throw rejectionOf(fromUserId, fromAccountId, toUserId, toAccountId, amount);
+          }
+          long credited = rate.convert(amount);
+          boolean creditedToStripe =
+              fromAccountId != toAccountId && splitBalances.credit(toAccountId, credited);
+          AccountRow destination =
+              creditedToStripe
+                  ? cachedRow(toAccountId)
+                  : accountJdbcRepository
+                      .credit(toUserId, toAccountId, credited)
+                      .orElseThrow(AccountNotFoundException::new);
+          long transferId = BalanceChangedEvent.newTransferId();
+          publish(
+              source.get(),
+              BalanceOperation.TRANSFER_DEBIT,
+              -amount,
+              transferId,
+              rate.getVersion());
+          publish(
+              destination,
+              BalanceOperation.TRANSFER_CREDIT,
+              credited,
+              creditedToStripe
+                  ? splitBalances.balance(toAccountId)
+                  : splitBalances.balanceOf(toAccountId, destination.getAmount()),
+              transferId,
+              rate.getVersion());
+          return null;
+        });
+  }
+
+  /**
+   * Counts a debit from the user's account against the velocity limits, see {@link
+   * VelocityEngine#reserve}. Returns null when nothing was counted, because there are no limits
+   * or the debit is going to be refused anyway.
+   */
+  public VelocityEngine.Reservation reserveDebit(long userId, long accountId, long amount) {
+    if (velocityEngine == null || amount < 0) {
+      return null;
+    }
+    AccountRow account = findCachedRow(accountId);
+    if (account == null || account.getUserId() != userId) {
+      return null;
     }
-    account.setAmount(account.getAmount() - amount);
-    return AccountDTO.from(account);
+    return velocityEngine.reserve(accountId, amount);
+  }
+
+  // Folds the stripes of a split account that is short into its row, once the row is loaded and
+  // its owner checked, so the fold never takes a lock out of order.
+  private void foldIfShort(Account account, long amount) {
+    if (account.getAmount() < amount && splitBalances.isSplit(account.getId())) {
+      splitBalances.prepareDebit(account.getId(), amount);
+      entityManager.refresh(account);
+    }
+  }
+
+  private AccountCurrency currencyOf(long accountId) {
+    return cachedRow(accountId).getCurrency();
+  }
+
+  private AccountRow cachedRow(long accountId) {
+    AccountRow account = findCachedRow(accountId);
+    if (account == null) {
+      throw new AccountNotFoundException();
+    }
+    return account;
+  }
+
+  private AccountRow findCachedRow(long accountId) {
+    return accountRows.get(
+        accountId,
+        id -> accountJdbcRepository.findAll(List.of(id)).stream().findFirst().orElse(null));
+  }
+
+  // Repeats the remaining checks of transfer() in the same order. If they all pass now, the
+  // balance changed after the debit was attempted, which is reported like any other lost race.
+  private RuntimeException rejectionOf(
+      long fromUserId, long fromAccountId, long toUserId, long toAccountId, long amount) {
+    Map<Long, AccountRow> accounts =
+        accountJdbcRepository.findAll(List.of(fromAccountId, toAccountId)).stream()
+            .collect(Collectors.toMap(AccountRow::getId, Function.identity()));
+    AccountRow source = accounts.get(fromAccountId);
+    AccountRow destination = accounts.get(toAccountId);
+    if (source == null || destination == null) {
+      return new AccountNotFoundException();
+    }
+    if (source.getUserId() != fromUserId) {
+      return new AccountNotFoundException();
+    }
+    if (source.getAmount() < amount) {
+      return new InsufficientFundsException(
+          "Cannot withdraw " + amount + " " + source.getCurrency().name());
+    }
+    if (destination.getUserId() != toUserId) {
+      return new AccountNotFoundException();
+    }
+    return new OptimisticLockingFailureException("Account " + fromAccountId + " changed");
+  }
+
+  private AccountDTO toDto(Account account) {
+    return new AccountDTO(
+        account.getId(),
+        splitBalances.balanceOf(account.getId(), account.getAmount()),
+        account.getAccountCurrency());
+  }
+
+  private void publish(
+      AccountRow account,
+      BalanceOperation operation,
+      long delta,
+      long transferId,
+      long rateVersion) {
+    publish(
+        account,
+        operation,
+        delta,
+        splitBalances.balanceOf(account.getId(), account.getAmount()),
+        transferId,
+        rateVersion);
+  }
+
+  private void publish(
+      AccountRow account,
+      BalanceOperation operation,
+      long delta,
+      long balance,
+      long transferId,
+      long rateVersion) {
+    eventPublisher.publishEvent(
+        new BalanceChangedEvent(
+            account.getId(),
+            account.getUserId(),
+            account.getCurrency(),
+            operation,
+            delta,
+            balance,
+            transferId,
+            rateVersion));
+  }
+
+  // Rows are always locked lowest id first, so opposite-direction transfers cannot deadlock. The
+  // row of a split-balance destination is only read: its credit goes to a stripe.
+  private Account[] lockForTransfer(
+      long sourceAccountId, long destinationAccountId, boolean lockDestination) {
+    long startNanos = System.nanoTime();
+    try {
+      if (!lockDestination) {
+        return new Account[] {
+          lockAccount(sourceAccountId),
+          accountRepository
+              .findById(destinationAccountId)
+              .orElseThrow(AccountNotFoundException::new)
+        };
+      }
+      Account first = lockAccount(Math.min(sourceAccountId, destinationAccountId));
+      Account second =
+          sourceAccountId == destinationAccountId
+              ? first
+              : lockAccount(Math.max(sourceAccountId, destinationAccountId));
+      return sourceAccountId <= destinationAccountId
+          ? new Account[] {first, second}
+          : new Account[] {second, first};
+    } finally {
+      lockWait.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+  }
+
+  private void publish(Account account, BalanceOperation operation, long delta, long transferId) {
+    publish(account, operation, delta, transferId, 0);
+  }
+
+  private void publish(
+      Account account,
+      BalanceOperation operation,
+      long delta,
+      long transferId,
+      long rateVersion) {
+    eventPublisher.publishEvent(
+        new BalanceChangedEvent(
+            account.getId(),
+            account.getUser().getId(),
+            account.getAccountCurrency(),
+            operation,
+            delta,
+            splitBalances.balanceOf(account.getId(), account.getAmount()),
+            transferId,
+            rateVersion));
+  }
+
+  private Account lockAccount(long accountId) {
+    return accountRepository
+        .findByIdForUpdate(accountId)
+        .orElseThrow(AccountNotFoundException::new);
   }
 }
@@ -0,0 +1,135 @@
+package com.skypro.simplebanking.service;
+
+import com.skypro.simplebanking.dto.AccountTransactionDTO;
+import com.skypro.simplebanking.dto.StatementDTO;
+import com.skypro.simplebanking.entity.Account;
+import com.skypro.simplebanking.event.BalanceChangedEvent;
+import com.skypro.simplebanking.exception.AccountNotFoundException;
+import com.skypro.simplebanking.exception.InvalidStatementRequestException;
+import com.skypro.simplebanking.repository.AccountRepository;
+import com.skypro.simplebanking.repository.AccountTransactionJdbcRepository;
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Consumer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Records every balance change in the account_transactions table and serves account statements
+ * from it. Changes made in a transaction are buffered and inserted in one batch right before it
+ * commits, so the history is committed or rolled back together with the balances.
+ *
+ * <p>Statements are ordered by (created_at, id) and paged by keyset: the cursor of a page is the
+ * position of its last row, so every page is a range scan of the (account_id, created_at, id)
+ * index no matter how much history precedes it.
+ */
+@Service
+public class AccountStatementService {
+  private final AccountTransactionJdbcRepository transactionRepository;
+  private final TransactionBuffer<List<BalanceChangedEvent>> pendingEvents;
+  private final AccountRepository accountRepository;
+  private final int maxLimit;
+
+  public AccountStatementService(
+      AccountTransactionJdbcRepository transactionRepository,
+      AccountRepository accountRepository,
+      @Value("${app.statement.max-limit:1000}") int maxLimit) {
+    this.transactionRepository = transactionRepository;
+    this.pendingEvents = new TransactionBuffer<>(ArrayList::new, transactionRepository::insertAll);
+    this.accountRepository = accountRepository;
+    this.maxLimit = maxLimit;
+  }
+
+  @EventListener
+  public void onBalanceChanged(BalanceChangedEvent event) {
+    pendingEvents.add(events -> events.add(event));
+  }
+
+  @Transactional(readOnly = true)
+  public StatementDTO getStatement(
+      long userId, long accountId, Instant from, Instant to, String cursor, int limit) {
+    Account account = ownedAccount(userId, accountId);
+    Instant start = start(from, to);
+    Cursor after = cursor == null ? new Cursor(start, 0) : Cursor.decode(cursor);
+    int pageSize = Math.max(1, Math.min(limit, maxLimit));
+    List<AccountTransactionDTO> transactions =
+        transactionRepository.findPage(accountId, after.createdAt, after.id, to, pageSize + 1);
+    String nextCursor = null;
+    if (transactions.size() > pageSize) {
+      transactions = transactions.subList(0, pageSize);
+      AccountTransactionDTO last = transactions.get(pageSize - 1);
+      nextCursor = new Cursor(last.getCreatedAt(), last.getId()).encode();
+    }
+    return new StatementDTO(accountId, account.getAccountCurrency(), transactions, nextCursor);
+  }
+
+  @Transactional(readOnly = true)
+  public void checkStatementRequest(long userId, long accountId, Instant from, Instant to) {
+    ownedAccount(userId, accountId);
+    start(from, to);
+  }
+
+  @Transactional(readOnly = true)
+  public void streamStatement(
+      long userId,
+      long accountId,
+      Instant from,
+      Instant to,
+      Consumer<AccountTransactionDTO> consumer) {
+    ownedAccount(userId, accountId);
+    transactionRepository.stream(accountId, start(from, to), to, consumer);
+  }
+
+  private Account ownedAccount(long userId, long accountId) {
+    return accountRepository
+        .getAccountByUser_IdAndId(userId, accountId)
+        .orElseThrow(AccountNotFoundException::new);
+  }
+
+  private static Instant start(Instant from, Instant to) {
+    Instant start = from == null ? Instant.EPOCH : from;
+    if (to != null && !start.isBefore(to)) {
+      throw new InvalidStatementRequestException("from should be before to");
+    }
+    return start;
+  }
+
+  // Position of the last row of a page, passed to clients as an opaque token.
+  private static final class Cursor {
+    private final Instant createdAt;
+    private final long id;
+
+    private Cursor(Instant createdAt, long id) {
+      this.createdAt = createdAt;
+      this.id = id;
+    }
+
+    private String encode() {
+      String position = createdAt.getEpochSecond() + ":" + createdAt.getNano() + ":" + id;
+      return Base64.getUrlEncoder()
+          .withoutPadding()
+          .encodeToString(position.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static Cursor decode(String cursor) {
+      try {
+        String[] position =
+            new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split(":");
+        if (position.length == 3) {
+          return new Cursor(
+              Instant.ofEpochSecond(Long.parseLong(position[0]), Long.parseLong(position[1])),
+              Long.parseLong(position[2]));
+        }
+      } catch (IllegalArgumentException | DateTimeException e) {
+        // reported below like any other malformed cursor
+      }
+      throw new InvalidStatementRequestException("Invalid cursor");
+    }
+  }
+}
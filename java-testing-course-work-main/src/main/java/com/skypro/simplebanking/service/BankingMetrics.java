@@ -0,0 +1,83 @@
+package com.skypro.simplebanking.service;
+
+import com.skypro.simplebanking.exception.AccountNotFoundException;
+import com.skypro.simplebanking.exception.InsufficientFundsException;
+import com.skypro.simplebanking.exception.InvalidAmountException;
+import com.skypro.simplebanking.exception.WrongCurrencyException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.concurrent.TimeUnit;
+import org.springframework.stereotype.Component;
+
+/**
+ * Latency and rejection meters of the balance-changing operations. Every meter is registered up
+ * front, so recording is a plain field access without tag lookups or allocation.
+ */
+@Component
+public class BankingMetrics {
+  private final OperationMetrics deposit;
+  private final OperationMetrics withdraw;
+  private final OperationMetrics transfer;
+
+  public BankingMetrics(MeterRegistry meterRegistry) {
+    this.deposit = new OperationMetrics(meterRegistry, "deposit");
+    this.withdraw = new OperationMetrics(meterRegistry, "withdraw");
+    this.transfer = new OperationMetrics(meterRegistry, "transfer");
+  }
+
+  public OperationMetrics deposit() {
+    return deposit;
+  }
+
+  public OperationMetrics withdraw() {
+    return withdraw;
+  }
+
+  public OperationMetrics transfer() {
+    return transfer;
+  }
+
+  public static final class OperationMetrics {
+    private final Timer latency;
+    private final Counter insufficientFunds;
+    private final Counter wrongCurrency;
+    private final Counter accountNotFound;
+    private final Counter invalidAmount;
+
+    private OperationMetrics(MeterRegistry meterRegistry, String operation) {
+      this.latency =
+          Timer.builder("banking.operation.latency")
+              .tag("operation", operation)
+              .register(meterRegistry);
+      this.insufficientFunds = rejections(meterRegistry, operation, "insufficient_funds");
+      this.wrongCurrency = rejections(meterRegistry, operation, "wrong_currency");
+      this.accountNotFound = rejections(meterRegistry, operation, "account_not_found");
+      this.invalidAmount = rejections(meterRegistry, operation, "invalid_amount");
+    }
+
+    private static Counter rejections(
+        MeterRegistry meterRegistry, String operation, String reason) {
+      return Counter.builder("banking.operation.rejections")
+          .tag("operation", operation)
+          .tag("reason", reason)
+          .register(meterRegistry);
+    }
+
+    public void recordSince(long startNanos) {
+      latency.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void rejected(RuntimeException exception) {
+      if (exception instanceof InsufficientFundsException) {
+        insufficientFunds.increment();
+      } else if (exception instanceof WrongCurrencyException) {
+        wrongCurrency.increment();
+      } else if (exception instanceof AccountNotFoundException) {
+        accountNotFound.increment();
+      } else if (exception instanceof InvalidAmountException) {
+        invalidAmount.increment();
+      }
+    }
+  }
+}
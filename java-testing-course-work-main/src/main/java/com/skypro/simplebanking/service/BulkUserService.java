@@ -0,0 +1,222 @@
+package com.skypro.simplebanking.service;
+
+import com.skypro.simplebanking.dto.BulkCreateUserDTO;
+import com.skypro.simplebanking.dto.CreateUserRequest;
+import com.skypro.simplebanking.dto.CreateUserResultDTO;
+import com.skypro.simplebanking.entity.AccountCurrency;
+import com.skypro.simplebanking.event.BalanceChangedEvent;
+import com.skypro.simplebanking.event.BalanceOperation;
+import com.skypro.simplebanking.repository.UserJdbcRepository;
+import com.skypro.simplebanking.repository.UserJdbcRepository.AccountRecord;
+import com.skypro.simplebanking.repository.UserJdbcRepository.UserRecord;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * Creates many users with their default accounts at once. Taken usernames are found with one
+ * query, the passwords are hashed on a fixed pool of {@code app.user.bulk.hash-parallelism}
+ * threads outside any transaction, and the users and accounts are inserted with batched
+ * statements in one transaction, with ids from the pooled sequence generators.
+ *
+ * <p>The username check is not locked. A username taken by a concurrent request in the meantime
+ * fails the insert on the unique index; the usernames are then checked again, the newly taken ones
+ * reported like any other, and the remaining users inserted.
+ */
+@Service
+public class BulkUserService implements DisposableBean {
+  private final UserJdbcRepository userJdbcRepository;
+  private final PasswordEncoder passwordEncoder;
+  private final ApplicationEventPublisher eventPublisher;
+  private final TransactionTemplate transactionTemplate;
+  private final int maxSize;
+  private final int hashParallelism;
+  private final ExecutorService hasher;
+
+  public BulkUserService(
+      UserJdbcRepository userJdbcRepository,
+      PasswordEncoder passwordEncoder,
+      ApplicationEventPublisher eventPublisher,
+      PlatformTransactionManager transactionManager,
+      @Value("${app.user.bulk.max-size:10000}") int maxSize,
+      @Value("${app.user.bulk.hash-parallelism:4}") int hashParallelism) {
+    if (maxSize < 1 || hashParallelism < 1) {
+      throw new IllegalArgumentException(
+          "app.user.bulk.max-size and hash-parallelism should be positive");
+    }
+    this.userJdbcRepository = userJdbcRepository;
+    this.passwordEncoder = passwordEncoder;
+    this.eventPublisher = eventPublisher;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    this.maxSize = maxSize;
+    this.hashParallelism = hashParallelism;
+    this.hasher =
+        Executors.newFixedThreadPool(hashParallelism, r -> new Thread(r, "password-hasher"));
+  }
+
+  public BulkCreateUserDTO createUsers(List<CreateUserRequest> requests) {
+    if (requests.size() > maxSize) {
+      throw new ResponseStatusException(
+          HttpStatus.BAD_REQUEST, "Request should contain at most " + maxSize + " users");
+    }
+    String[] errors = new String[requests.size()];
+    Set<String> usernames = new HashSet<>();
+    for (int i = 0; i < requests.size(); i++) {
+      CreateUserRequest request = requests.get(i);
+      if (request == null
+          || request.getUsername() == null
+          || request.getUsername().isBlank()
+          || request.getPassword() == null) {
+        errors[i] = "Username and password are required";
+      } else if (!usernames.add(request.getUsername())) {
+        errors[i] = "Username appears earlier in the request";
+      }
+    }
+    Set<String> taken = userJdbcRepository.findExistingUsernames(usernames);
+    List<Integer> accepted = new ArrayList<>();
+    for (int i = 0; i < requests.size(); i++) {
+      if (errors[i] == null && taken.contains(requests.get(i).getUsername())) {
+        errors[i] = "User already exists";
+      } else if (errors[i] == null) {
+        accepted.add(i);
+      }
+    }
+    String[] encodedPasswords = encodeAll(requests, accepted);
+    List<UserRecord> users;
+    while (true) {
+      try {
+        users = insert(requests, accepted, encodedPasswords);
+        break;
+      } catch (DuplicateKeyException e) {
+        if (!rejectTaken(requests, accepted, errors)) {
+          throw e;
+        }
+      }
+    }
+    Long[] ids = new Long[requests.size()];
+    for (int i = 0; i < accepted.size(); i++) {
+      ids[accepted.get(i)] = users.get(i).getId();
+    }
+    List<CreateUserResultDTO> results = new ArrayList<>(requests.size());
+    for (int i = 0; i < requests.size(); i++) {
+      results.add(new CreateUserResultDTO(i, username(requests.get(i)), ids[i], errors[i]));
+    }
+    return new BulkCreateUserDTO(accepted.size(), results);
+  }
+
+  // Moves the accepted users whose username is taken by now to the rejected ones.
+  private boolean rejectTaken(
+      List<CreateUserRequest> requests, List<Integer> accepted, String[] errors) {
+    Set<String> taken =
+        userJdbcRepository.findExistingUsernames(
+            accepted.stream().map(i -> requests.get(i).getUsername()).collect(Collectors.toSet()));
+    return accepted.removeIf(
+        i -> {
+          if (!taken.contains(requests.get(i).getUsername())) {
+            return false;
+          }
+          errors[i] = "User already exists";
+          return true;
+        });
+  }
+
+  private static String username(CreateUserRequest request) {
+    return request == null ? null : request.getUsername();
+  }
+
+  // Hashes contiguous slices of the accepted passwords, one slice per pool thread, into an array
+  // indexed like the requests.
+  private String[] encodeAll(List<CreateUserRequest> requests, List<Integer> accepted) {
+    String[] encoded = new String[requests.size()];
+    int sliceSize = Math.max(1, (accepted.size() + hashParallelism - 1) / hashParallelism);
+    List<Callable<Void>> slices = new ArrayList<>();
+    for (int from = 0; from < accepted.size(); from += sliceSize) {
+      int start = from;
+      int end = Math.min(from + sliceSize, accepted.size());
+      slices.add(
+          () -> {
+            for (int i = start; i < end; i++) {
+              int index = accepted.get(i);
+              encoded[index] = passwordEncoder.encode(requests.get(index).getPassword());
+            }
+            return null;
+          });
+    }
+    try {
+      for (Future<Void> slice : hasher.invokeAll(slices)) {
+        slice.get();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while hashing passwords", e);
+    } catch (ExecutionException e) {
+      throw new IllegalStateException("Could not hash passwords", e.getCause());
+    }
+    return encoded;
+  }
+
+  private List<UserRecord> insert(
+      List<CreateUserRequest> requests, List<Integer> accepted, String[] encodedPasswords) {
+    if (accepted.isEmpty()) {
+      return List.of();
+    }
+    AccountCurrency[] currencies = AccountCurrency.values();
+    return transactionTemplate.execute(
+        status -> {
+          long[] userIds = userJdbcRepository.allocateUserIds(accepted.size());
+          long[] accountIds =
+              userJdbcRepository.allocateAccountIds(accepted.size() * currencies.length);
+          List<UserRecord> users = new ArrayList<>(accepted.size());
+          for (int i = 0; i < accepted.size(); i++) {
+            List<AccountRecord> accounts = new ArrayList<>(currencies.length);
+            for (int c = 0; c < currencies.length; c++) {
+              accounts.add(
+                  new AccountRecord(accountIds[i * currencies.length + c], currencies[c], 1L));
+            }
+            users.add(
+                new UserRecord(
+                    userIds[i],
+                    requests.get(accepted.get(i)).getUsername(),
+                    encodedPasswords[accepted.get(i)],
+                    accounts));
+          }
+          userJdbcRepository.insertAll(users);
+          for (UserRecord user : users) {
+            for (AccountRecord account : user.getAccounts()) {
+              eventPublisher.publishEvent(
+                  new BalanceChangedEvent(
+                      account.getId(),
+                      user.getId(),
+                      account.getCurrency(),
+                      BalanceOperation.OPENING,
+                      account.getAmount(),
+                      account.getAmount(),
+                      0));
+            }
+          }
+          return users;
+        });
+  }
+
+  @Override
+  public void destroy() {
+    hasher.shutdownNow();
+  }
+}
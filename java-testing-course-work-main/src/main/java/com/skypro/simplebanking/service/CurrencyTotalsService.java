@@ -0,0 +1,215 @@
+package com.skypro.simplebanking.service;
+
+import com.skypro.simplebanking.dto.CurrencyTotalDTO;
+import com.skypro.simplebanking.dto.CurrencyTotalsVerificationDTO;
+import com.skypro.simplebanking.entity.AccountCurrency;
+import com.skypro.simplebanking.event.BalanceChangedEvent;
+import com.skypro.simplebanking.event.BalanceOperation;
+import com.skypro.simplebanking.repository.AccountJdbcRepository;
+import com.skypro.simplebanking.repository.CurrencyTotalJdbcRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Maintains the total balance and number of accounts per currency in currency_totals, so
+ * reporting never scans the accounts table. Every currency has several stripe rows: a transaction
+ * adds its net changes to one randomly chosen stripe right before it commits, so concurrent
+ * deposits and withdrawals rarely wait for each other. A total is the sum over its stripes.
+ * Each stripe also counts the balance changes written to it, including transfers within one
+ * currency that leave the total unchanged.
+ *
+ * <p>A scheduled verifier recomputes the totals from the accounts table in parallel id-range
+ * chunks and reports any drift.
+ */
+@Service
+public class CurrencyTotalsService implements SmartInitializingSingleton, DisposableBean {
+  private static final Logger log = LoggerFactory.getLogger(CurrencyTotalsService.class);
+
+  private final CurrencyTotalJdbcRepository currencyTotalRepository;
+  private final TransactionBuffer<Map<AccountCurrency, long[]>> pendingChanges;
+  private final AccountJdbcRepository accountJdbcRepository;
+  private final TransactionTemplate transactionTemplate;
+  private final int stripes;
+  private final long chunkSize;
+  private final ExecutorService verifier;
+  private final Map<AccountCurrency, AtomicLong> amountDrift = new EnumMap<>(AccountCurrency.class);
+
+  public CurrencyTotalsService(
+      CurrencyTotalJdbcRepository currencyTotalRepository,
+      AccountJdbcRepository accountJdbcRepository,
+      PlatformTransactionManager transactionManager,
+      MeterRegistry meterRegistry,
+      @Value("${app.currency-totals.stripes:16}") int stripes,
+      @Value("${app.currency-totals.verify-chunk-size:10000}") long chunkSize,
+      @Value("${app.currency-totals.verify-parallelism:4}") int parallelism) {
+    if (stripes < 1 || chunkSize < 1 || parallelism < 1) {
+      throw new IllegalArgumentException(
+          "app.currency-totals.stripes, verify-chunk-size and verify-parallelism"
+              + " should be positive");
+    }
+    this.currencyTotalRepository = currencyTotalRepository;
+    // Transfers within one currency still count as changes, so the verifier sees them.
+    this.pendingChanges =
+        new TransactionBuffer<>(
+            () -> new EnumMap<>(AccountCurrency.class),
+            changes -> currencyTotalRepository.add(randomStripe(), changes));
+    this.accountJdbcRepository = accountJdbcRepository;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    this.stripes = stripes;
+    this.chunkSize = chunkSize;
+    this.verifier =
+        Executors.newFixedThreadPool(parallelism, r -> new Thread(r, "currency-totals-verifier"));
+    for (AccountCurrency currency : AccountCurrency.values()) {
+      AtomicLong drift = new AtomicLong();
+      amountDrift.put(currency, drift);
+      Gauge.builder("banking.currency.totals.drift", drift, AtomicLong::get)
+          .tag("currency", currency.name())
+          .register(meterRegistry);
+    }
+  }
+
+  // A database that predates the totals gets them computed once from the accounts.
+  @Override
+  public void afterSingletonsInstantiated() {
+    Map<AccountCurrency, CurrencyTotalDTO> initialTotals =
+        currencyTotalRepository.isEmpty() ? recompute() : Map.of();
+    transactionTemplate.executeWithoutResult(
+        status -> currencyTotalRepository.createStripes(stripes, initialTotals));
+  }
+
+  @EventListener
+  public void onBalanceChanged(BalanceChangedEvent event) {
+    long accounts = event.getOperation() == BalanceOperation.OPENING ? 1 : 0;
+    pendingChanges.add(
+        changes -> {
+          long[] change = changes.computeIfAbsent(event.getCurrency(), c -> new long[3]);
+          change[0] += event.getDelta();
+          change[1] += accounts;
+          change[2]++;
+        });
+  }
+
+  private int randomStripe() {
+    return ThreadLocalRandom.current().nextInt(stripes);
+  }
+
+  public List<CurrencyTotalDTO> getTotals() {
+    return currencyTotalRepository.totals();
+  }
+
+  /**
+   * Compares the maintained totals with totals recomputed from the accounts. The chunks are not
+   * read from a single snapshot, so the result is only conclusive if no balance change committed
+   * during the scan. That is checked with the change counts rather than the totals, which a
+   * transfer within one currency leaves as they were.
+   */
+  public CurrencyTotalsVerificationDTO verify() {
+    Map<AccountCurrency, Long> changesBefore = currencyTotalRepository.changeCounts();
+    Map<AccountCurrency, CurrencyTotalDTO> recomputed = recompute();
+    Map<AccountCurrency, CurrencyTotalDTO> after = byCurrency(currencyTotalRepository.totals());
+    boolean conclusive = changesBefore.equals(currencyTotalRepository.changeCounts());
+    List<CurrencyTotalDTO> drift = new ArrayList<>();
+    for (AccountCurrency currency : AccountCurrency.values()) {
+      CurrencyTotalDTO maintained = after.getOrDefault(currency, zero(currency));
+      CurrencyTotalDTO actual = recomputed.getOrDefault(currency, zero(currency));
+      if (!sameTotals(maintained, actual)) {
+        drift.add(
+            new CurrencyTotalDTO(
+                currency,
+                actual.getAmount() - maintained.getAmount(),
+                actual.getAccounts() - maintained.getAccounts()));
+      }
+    }
+    if (conclusive) {
+      amountDrift.values().forEach(value -> value.set(0));
+      drift.forEach(entry -> amountDrift.get(entry.getCurrency()).set(entry.getAmount()));
+    }
+    return new CurrencyTotalsVerificationDTO(Instant.now(), conclusive, drift);
+  }
+
+  @Scheduled(
+      initialDelayString = "${app.currency-totals.verify-interval-ms:3600000}",
+      fixedDelayString = "${app.currency-totals.verify-interval-ms:3600000}")
+  public void verifyPeriodically() {
+    CurrencyTotalsVerificationDTO verification = verify();
+    if (!verification.isConclusive()) {
+      log.info("Currency totals changed while verifying them, drift is not checked this time");
+    } else if (!verification.getDrift().isEmpty()) {
+      for (CurrencyTotalDTO drift : verification.getDrift()) {
+        log.warn(
+            "Currency totals of {} drifted from the accounts by {} amount and {} accounts",
+            drift.getCurrency(),
+            drift.getAmount(),
+            drift.getAccounts());
+      }
+    }
+  }
+
+  private Map<AccountCurrency, CurrencyTotalDTO> recompute() {
+    Optional<long[]> idRange = accountJdbcRepository.idRange();
+    if (idRange.isEmpty()) {
+      return Map.of();
+    }
+    long lastId = idRange.get()[1];
+    List<CompletableFuture<List<CurrencyTotalDTO>>> chunks = new ArrayList<>();
+    for (long fromId = idRange.get()[0]; fromId <= lastId; fromId += chunkSize) {
+      long chunkStart = fromId;
+      long chunkEnd = Math.min(fromId + chunkSize - 1, lastId);
+      chunks.add(
+          CompletableFuture.supplyAsync(
+              () -> accountJdbcRepository.totalsByCurrency(chunkStart, chunkEnd), verifier));
+    }
+    Map<AccountCurrency, long[]> sums = new EnumMap<>(AccountCurrency.class);
+    for (CompletableFuture<List<CurrencyTotalDTO>> chunk : chunks) {
+      for (CurrencyTotalDTO total : chunk.join()) {
+        long[] sum = sums.computeIfAbsent(total.getCurrency(), c -> new long[2]);
+        sum[0] += total.getAmount();
+        sum[1] += total.getAccounts();
+      }
+    }
+    Map<AccountCurrency, CurrencyTotalDTO> totals = new EnumMap<>(AccountCurrency.class);
+    sums.forEach(
+        (currency, sum) -> totals.put(currency, new CurrencyTotalDTO(currency, sum[0], sum[1])));
+    return totals;
+  }
+
+  private static Map<AccountCurrency, CurrencyTotalDTO> byCurrency(List<CurrencyTotalDTO> totals) {
+    Map<AccountCurrency, CurrencyTotalDTO> byCurrency = new EnumMap<>(AccountCurrency.class);
+    totals.forEach(total -> byCurrency.put(total.getCurrency(), total));
+    return byCurrency;
+  }
+
+  private static CurrencyTotalDTO zero(AccountCurrency currency) {
+    return new CurrencyTotalDTO(currency, 0, 0);
+  }
+
+  private static boolean sameTotals(CurrencyTotalDTO first, CurrencyTotalDTO second) {
+    return first.getAmount() == second.getAmount() && first.getAccounts() == second.getAccounts();
+  }
+
+  @Override
+  public void destroy() {
+    verifier.shutdownNow();
+  }
+}
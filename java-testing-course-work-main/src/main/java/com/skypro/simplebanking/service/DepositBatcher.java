@@ -0,0 +1,271 @@
+package com.skypro.simplebanking.service;
+
+import com.skypro.simplebanking.dto.AccountDTO;
+import com.skypro.simplebanking.event.BalanceChangedEvent;
+import com.skypro.simplebanking.event.BalanceOperation;
+import com.skypro.simplebanking.exception.AccountNotFoundException;
+import com.skypro.simplebanking.repository.AccountJdbcRepository;
+import com.skypro.simplebanking.repository.AccountJdbcRepository.AccountRow;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * Group commit for deposits. Callers queue their deposit and wait; a single worker takes up to
+ * {@code app.deposit.group-commit.max-batch} queued deposits, waiting at most {@code
+ * max-wait-micros} for more after the first, and applies them in one transaction. A caller gets
+ * its response only after that transaction has committed, so many deposits share one commit
+ * without weakening durability.
+ *
+ * <p>A deposit that fails its own checks fails alone; a batch whose transaction fails fails all
+ * of its deposits. A caller waits at most {@code timeout-ms} for its batch and then gets a 503.
+ * Such a deposit may still be applied, so retrying it is only safe with an idempotency key; group
+ * commit is therefore off unless {@code app.deposit.group-commit.enabled} is set.
+ */
+@Component
+@ConditionalOnProperty(name = "app.deposit.group-commit.enabled", havingValue = "true")
+public class DepositBatcher implements DisposableBean {
+  private static final Logger log = LoggerFactory.getLogger(DepositBatcher.class);
+
+  private final AccountJdbcRepository accountJdbcRepository;
+  private final SplitBalanceService splitBalances;
+  private final TransactionRetryTemplate retryTemplate;
+  private final ApplicationEventPublisher eventPublisher;
+  private final DistributionSummary batchSizes;
+  private final BlockingQueue<PendingDeposit> queue;
+  private final int maxBatch;
+  private final long maxWaitNanos;
+  private final long timeoutMillis;
+  private final ExecutorService worker;
+  private volatile boolean running = true;
+
+  public DepositBatcher(
+      AccountJdbcRepository accountJdbcRepository,
+      SplitBalanceService splitBalances,
+      TransactionRetryTemplate retryTemplate,
+      ApplicationEventPublisher eventPublisher,
+      MeterRegistry meterRegistry,
+      @Value("${app.deposit.group-commit.max-batch:64}") int maxBatch,
+      @Value("${app.deposit.group-commit.max-wait-micros:500}") long maxWaitMicros,
+      @Value("${app.deposit.group-commit.queue-size:10000}") int queueSize,
+      @Value("${app.deposit.group-commit.timeout-ms:10000}") long timeoutMillis) {
+    if (maxBatch < 1 || maxWaitMicros < 0 || queueSize < 1 || timeoutMillis < 1) {
+      throw new IllegalArgumentException(
+          "app.deposit.group-commit.max-batch, queue-size and timeout-ms should be positive"
+              + " and max-wait-micros should not be negative");
+    }
+    this.accountJdbcRepository = accountJdbcRepository;
+    this.splitBalances = splitBalances;
+    this.retryTemplate = retryTemplate;
+    this.eventPublisher = eventPublisher;
+    this.batchSizes = meterRegistry.summary("banking.deposit.batch.size");
+    this.queue = new LinkedBlockingQueue<>(queueSize);
+    this.maxBatch = maxBatch;
+    this.maxWaitNanos = TimeUnit.MICROSECONDS.toNanos(maxWaitMicros);
+    this.timeoutMillis = timeoutMillis;
+    this.worker = Executors.newSingleThreadExecutor(r -> new Thread(r, "deposit-group-commit"));
+    this.worker.execute(this::run);
+  }
+
+  /** Queues the deposit and returns the account once the batch holding it has committed. */
+  public AccountDTO deposit(long userId, long accountId, long amount) {
+    PendingDeposit deposit = new PendingDeposit(userId, accountId, amount);
+    try {
+      if (!running) {
+        throw shuttingDown();
+      }
+      queue.put(deposit);
+      // destroy() may have drained the queue just before the put.
+      if (!running && queue.remove(deposit)) {
+        throw shuttingDown();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw shuttingDown();
+    }
+    try {
+      return deposit.result.get(timeoutMillis, TimeUnit.MILLISECONDS);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      if (e.getCause() instanceof Error) {
+        throw (Error) e.getCause();
+      }
+      throw new IllegalStateException(e.getCause());
+    } catch (TimeoutException e) {
+      // A deposit the worker has already taken may still commit after the caller gave up.
+      throw new ResponseStatusException(
+          HttpStatus.SERVICE_UNAVAILABLE,
+          queue.remove(deposit)
+              ? "Deposit timed out before it was applied"
+              : "Deposit timed out and may still be applied");
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw shuttingDown();
+    }
+  }
+
+  private void run() {
+    List<PendingDeposit> batch = new ArrayList<>(maxBatch);
+    while (running) {
+      try {
+        batch.add(queue.take());
+        long deadline = System.nanoTime() + maxWaitNanos;
+        while (batch.size() < maxBatch) {
+          PendingDeposit next = queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+          if (next == null) {
+            break;
+          }
+          batch.add(next);
+        }
+        apply(batch);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        break;
+      } catch (Throwable e) {
+        // Only this batch fails; the worker keeps serving the queue.
+        log.error("Deposit batch of {} failed", batch.size(), e);
+        batch.forEach(deposit -> deposit.result.completeExceptionally(e));
+      }
+      batch.clear();
+    }
+    batch.forEach(deposit -> deposit.result.completeExceptionally(shuttingDown()));
+  }
+
+  private void apply(List<PendingDeposit> batch) {
+    batchSizes.record(batch.size());
+    Object[] outcomes;
+    try {
+      outcomes = retryTemplate.execute(() -> applyInTransaction(batch));
+    } catch (RuntimeException e) {
+      log.warn("Deposit batch of {} failed", batch.size(), e);
+      batch.forEach(deposit -> deposit.result.completeExceptionally(e));
+      return;
+    }
+    for (int i = 0; i < batch.size(); i++) {
+      if (outcomes[i] instanceof RuntimeException) {
+        batch.get(i).result.completeExceptionally((RuntimeException) outcomes[i]);
+      } else {
+        batch.get(i).result.complete((AccountDTO) outcomes[i]);
+      }
+    }
+  }
+
+  // Rows of ordinary accounts are locked and updated once each with the sum of their deposits;
+  // split-balance accounts get that sum added to a stripe instead. Returns the account or the
+  // exception of every deposit, in batch order.
+  private Object[] applyInTransaction(List<PendingDeposit> batch) {
+    Set<Long> rowAccountIds = new HashSet<>();
+    Set<Long> splitAccountIds = new HashSet<>();
+    for (PendingDeposit deposit : batch) {
+      (splitBalances.isSplit(deposit.accountId) ? splitAccountIds : rowAccountIds)
+          .add(deposit.accountId);
+    }
+    Map<Long, AccountRow> accounts = new HashMap<>();
+    accountJdbcRepository.lockAll(rowAccountIds).forEach(row -> accounts.put(row.getId(), row));
+    if (!splitAccountIds.isEmpty()) {
+      accountJdbcRepository.findAll(splitAccountIds).forEach(row -> accounts.put(row.getId(), row));
+    }
+
+    Object[] outcomes = new Object[batch.size()];
+    Map<Long, Long> totals = new HashMap<>();
+    for (int i = 0; i < batch.size(); i++) {
+      PendingDeposit deposit = batch.get(i);
+      AccountRow account = accounts.get(deposit.accountId);
+      if (account == null || account.getUserId() != deposit.userId) {
+        outcomes[i] = new AccountNotFoundException();
+      } else {
+        totals.merge(deposit.accountId, deposit.amount, Long::sum);
+      }
+    }
+
+    Map<Long, Long> balances = new HashMap<>();
+    Map<Long, Long> newAmounts = new HashMap<>();
+    totals.forEach(
+        (accountId, total) -> {
+          AccountRow account = accounts.get(accountId);
+          if (!splitAccountIds.contains(accountId)) {
+            balances.put(accountId, account.getAmount());
+            newAmounts.put(accountId, account.getAmount() + total);
+            return;
+          }
+          if (!splitBalances.credit(accountId, total)) {
+            accountJdbcRepository
+                .credit(account.getUserId(), accountId, total)
+                .orElseThrow(AccountNotFoundException::new);
+          }
+          balances.put(accountId, splitBalances.balance(accountId) - total);
+        });
+    accountJdbcRepository.updateAmounts(newAmounts);
+
+    for (int i = 0; i < batch.size(); i++) {
+      if (outcomes[i] != null) {
+        continue;
+      }
+      PendingDeposit deposit = batch.get(i);
+      AccountRow account = accounts.get(deposit.accountId);
+      long balance = balances.merge(deposit.accountId, deposit.amount, Long::sum);
+      eventPublisher.publishEvent(
+          new BalanceChangedEvent(
+              account.getId(),
+              account.getUserId(),
+              account.getCurrency(),
+              BalanceOperation.DEPOSIT,
+              deposit.amount,
+              balance,
+              0));
+      outcomes[i] = new AccountDTO(account.getId(), balance, account.getCurrency());
+    }
+    return outcomes;
+  }
+
+  private static ResponseStatusException shuttingDown() {
+    return new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Shutting down");
+  }
+
+  @Override
+  public void destroy() throws InterruptedException {
+    running = false;
+    worker.shutdownNow();
+    worker.awaitTermination(10, TimeUnit.SECONDS);
+    List<PendingDeposit> remaining = new ArrayList<>();
+    queue.drainTo(remaining);
+    remaining.forEach(deposit -> deposit.result.completeExceptionally(shuttingDown()));
+  }
+
+  private static final class PendingDeposit {
+    private final long userId;
+    private final long accountId;
+    private final long amount;
+    private final CompletableFuture<AccountDTO> result = new CompletableFuture<>();
+
+    private PendingDeposit(long userId, long accountId, long amount) {
+      this.userId = userId;
+      this.accountId = accountId;
+      this.amount = amount;
+    }
+  }
+}
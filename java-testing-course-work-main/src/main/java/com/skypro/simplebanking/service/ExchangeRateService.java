@@ -0,0 +1,226 @@
+package com.skypro.simplebanking.service;
+
+import com.skypro.simplebanking.dto.ExchangeRatesDTO;
+import com.skypro.simplebanking.entity.AccountCurrency;
+import com.skypro.simplebanking.entity.ExchangeRate;
+import com.skypro.simplebanking.exception.InvalidExchangeRatesException;
+import com.skypro.simplebanking.repository.ExchangeRateRepository;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicReference;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * Publishes exchange rates as immutable {@link ExchangeRates} snapshots behind an atomic
+ * reference. Transfers read the current snapshot without locking; publishing builds a new
+ * snapshot and swaps it in. Every published version is stored in exchange_rates, so the rates a
+ * recorded transfer was converted with can be looked up by its version.
+ *
+ * <p>The rate file is a properties file with a {@code version} and one {@code SOURCE.TARGET=rate}
+ * entry per convertible pair, e.g. {@code USD.EUR=0.92}.
+ */
+@Service
+public class ExchangeRateService implements SmartInitializingSingleton {
+  private static final int MAX_SCALE = 12;
+  private static final Logger log = LoggerFactory.getLogger(ExchangeRateService.class);
+
+  private final ExchangeRateRepository exchangeRateRepository;
+  private final TransactionTemplate transactionTemplate;
+  private final String ratesFile;
+  private final AtomicReference<ExchangeRates> current = new AtomicReference<>(ExchangeRates.NONE);
+
+  public ExchangeRateService(
+      ExchangeRateRepository exchangeRateRepository,
+      PlatformTransactionManager transactionManager,
+      @Value("${app.exchange.rates-file:}") String ratesFile) {
+    this.exchangeRateRepository = exchangeRateRepository;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    this.ratesFile = ratesFile;
+  }
+
+  public ExchangeRates current() {
+    return current.get();
+  }
+
+  // Starts from the latest stored version; a newer rate file is published on top of it.
+  @Override
+  public void afterSingletonsInstantiated() {
+    exchangeRateRepository
+        .findLatestVersion()
+        .ifPresent(version -> current.set(toExchangeRates(version, stored(version))));
+    if (StringUtils.hasText(ratesFile) && Files.exists(Paths.get(ratesFile))) {
+      ExchangeRatesDTO fromFile = read(Paths.get(ratesFile));
+      if (fromFile.getVersion() > current().getVersion()) {
+        publish(fromFile);
+      }
+    }
+  }
+
+  public ExchangeRatesDTO getCurrent() {
+    return toDto(current());
+  }
+
+  public ExchangeRatesDTO getVersion(long version) {
+    if (version == current().getVersion()) {
+      return getCurrent();
+    }
+    List<ExchangeRate> rates = stored(version);
+    if (rates.isEmpty()) {
+      throw new ResponseStatusException(
+          HttpStatus.NOT_FOUND, "Exchange rate version " + version + " not found");
+    }
+    return toDto(toExchangeRates(version, rates));
+  }
+
+  public ExchangeRatesDTO reloadFromFile() {
+    if (!StringUtils.hasText(ratesFile)) {
+      throw new InvalidExchangeRatesException("No exchange rate file is configured");
+    }
+    return publish(read(Paths.get(ratesFile)));
+  }
+
+  /**
+   * Stores and switches to the given rates. Versions only move forward; publishing the current
+   * version again with the same rates changes nothing.
+   */
+  public synchronized ExchangeRatesDTO publish(ExchangeRatesDTO rates) {
+    ExchangeRates snapshot = validated(rates);
+    ExchangeRates published = current.get();
+    if (snapshot.getVersion() == published.getVersion()
+        && snapshot.getRates().equals(published.getRates())) {
+      return toDto(published);
+    }
+    if (snapshot.getVersion() <= published.getVersion()) {
+      throw new InvalidExchangeRatesException(
+          "Version should be greater than " + published.getVersion());
+    }
+    transactionTemplate.executeWithoutResult(
+        status -> exchangeRateRepository.saveAll(toEntities(snapshot)));
+    current.set(snapshot);
+    log.info("Published exchange rates version {}", snapshot.getVersion());
+    return toDto(snapshot);
+  }
+
+  private List<ExchangeRate> stored(long version) {
+    return transactionTemplate.execute(status -> exchangeRateRepository.findByVersion(version));
+  }
+
+  private static ExchangeRates validated(ExchangeRatesDTO rates) {
+    if (rates.getVersion() <= 0) {
+      throw new InvalidExchangeRatesException("Version should be positive");
+    }
+    if (rates.getRates() == null) {
+      throw new InvalidExchangeRatesException("Rates should be present");
+    }
+    rates
+        .getRates()
+        .forEach(
+            (source, targets) ->
+                targets.forEach(
+                    (target, rate) -> {
+                      if (source == null || target == null || source == target) {
+                        throw new InvalidExchangeRatesException(
+                            "Rates should convert between two different currencies");
+                      }
+                      if (rate == null
+                          || rate.signum() <= 0
+                          || rate.stripTrailingZeros().scale() > MAX_SCALE) {
+                        throw new InvalidExchangeRatesException(
+                            "Rate "
+                                + source
+                                + "."
+                                + target
+                                + " should be positive with at most "
+                                + MAX_SCALE
+                                + " decimal places");
+                      }
+                    }));
+    return new ExchangeRates(rates.getVersion(), rates.getRates());
+  }
+
+  private static ExchangeRatesDTO read(Path file) {
+    Properties properties = new Properties();
+    try (Reader reader = Files.newBufferedReader(file)) {
+      properties.load(reader);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    Map<AccountCurrency, Map<AccountCurrency, BigDecimal>> rates =
+        new EnumMap<>(AccountCurrency.class);
+    long version = 0;
+    try {
+      for (String name : properties.stringPropertyNames()) {
+        String value = properties.getProperty(name).trim();
+        if (name.equals("version")) {
+          version = Long.parseLong(value);
+          continue;
+        }
+        String[] pair = name.split("\\.");
+        if (pair.length != 2) {
+          throw new InvalidExchangeRatesException("Expected SOURCE.TARGET but got " + name);
+        }
+        rates
+            .computeIfAbsent(
+                AccountCurrency.valueOf(pair[0]), c -> new EnumMap<>(AccountCurrency.class))
+            .put(AccountCurrency.valueOf(pair[1]), new BigDecimal(value));
+      }
+    } catch (NumberFormatException e) {
+      throw new InvalidExchangeRatesException("Invalid number in " + file);
+    } catch (IllegalArgumentException e) {
+      throw new InvalidExchangeRatesException("Invalid currency in " + file);
+    }
+    return new ExchangeRatesDTO(version, rates);
+  }
+
+  private static ExchangeRates toExchangeRates(long version, List<ExchangeRate> stored) {
+    Map<AccountCurrency, Map<AccountCurrency, BigDecimal>> rates =
+        new EnumMap<>(AccountCurrency.class);
+    for (ExchangeRate rate : stored) {
+      rates
+          .computeIfAbsent(rate.getSourceCurrency(), c -> new EnumMap<>(AccountCurrency.class))
+          .put(rate.getTargetCurrency(), rate.getRate());
+    }
+    return new ExchangeRates(version, rates);
+  }
+
+  private static List<ExchangeRate> toEntities(ExchangeRates snapshot) {
+    List<ExchangeRate> entities = new ArrayList<>();
+    snapshot
+        .getRates()
+        .forEach(
+            (source, targets) ->
+                targets.forEach(
+                    (target, rate) -> {
+                      ExchangeRate entity = new ExchangeRate();
+                      entity.setVersion(snapshot.getVersion());
+                      entity.setSourceCurrency(source);
+                      entity.setTargetCurrency(target);
+                      entity.setRate(rate);
+                      entities.add(entity);
+                    }));
+    return entities;
+  }
+
+  private static ExchangeRatesDTO toDto(ExchangeRates snapshot) {
+    return new ExchangeRatesDTO(snapshot.getVersion(), snapshot.getRates());
+  }
+}
@@ -0,0 +1,107 @@
+package com.skypro.simplebanking.service;
+
+import com.skypro.simplebanking.entity.AccountCurrency;
+import com.skypro.simplebanking.exception.InvalidAmountException;
+import com.skypro.simplebanking.exception.WrongCurrencyException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Immutable snapshot of exchange rates with the version it was published under. Snapshots are
+ * never modified, only replaced as a whole, so a transfer converts with one consistent version.
+ */
+public final class ExchangeRates {
+  private static final int CURRENCIES = AccountCurrency.values().length;
+
+  public static final ExchangeRates NONE = new ExchangeRates(0, Map.of());
+
+  private final long version;
+  private final Map<AccountCurrency, Map<AccountCurrency, BigDecimal>> rates;
+  private final Rate[] table = new Rate[CURRENCIES * CURRENCIES];
+
+  public ExchangeRates(long version, Map<AccountCurrency, Map<AccountCurrency, BigDecimal>> rates) {
+    this.version = version;
+    Map<AccountCurrency, Map<AccountCurrency, BigDecimal>> copy =
+        new EnumMap<>(AccountCurrency.class);
+    rates.forEach(
+        (source, targets) -> {
+          Map<AccountCurrency, BigDecimal> normalized = new EnumMap<>(AccountCurrency.class);
+          targets.forEach(
+              (target, rate) -> {
+                normalized.put(target, rate.stripTrailingZeros());
+                table[index(source, target)] = new Rate(version, rate);
+              });
+          if (!normalized.isEmpty()) {
+            copy.put(source, Collections.unmodifiableMap(normalized));
+          }
+        });
+    this.rates = Collections.unmodifiableMap(copy);
+    for (AccountCurrency currency : AccountCurrency.values()) {
+      table[index(currency, currency)] = Rate.IDENTITY;
+    }
+  }
+
+  public long getVersion() {
+    return version;
+  }
+
+  public Map<AccountCurrency, Map<AccountCurrency, BigDecimal>> getRates() {
+    return rates;
+  }
+
+  /** Returns the rate from source to target, or throws if the pair cannot be converted. */
+  public Rate rate(AccountCurrency source, AccountCurrency target) {
+    Rate rate = table[index(source, target)];
+    if (rate == null) {
+      throw new WrongCurrencyException();
+    }
+    return rate;
+  }
+
+  private static int index(AccountCurrency source, AccountCurrency target) {
+    return source.ordinal() * CURRENCIES + target.ordinal();
+  }
+
+  public static final class Rate {
+    private static final Rate IDENTITY = new Rate(0, BigDecimal.ONE);
+
+    private final long version;
+    private final BigDecimal value;
+
+    private Rate(long version, BigDecimal value) {
+      this.version = version;
+      this.value = value;
+    }
+
+    /** Version of the snapshot this rate belongs to, 0 when no conversion happens. */
+    public long getVersion() {
+      return version;
+    }
+
+    /**
+     * Converts a non-negative amount, rounding down. A positive amount that would convert to
+     * nothing, or to more than a balance can hold, is rejected.
+     */
+    public long convert(long amount) {
+      if (this == IDENTITY || amount == 0) {
+        return amount;
+      }
+      try {
+        long converted =
+            BigDecimal.valueOf(amount)
+                .multiply(value)
+                .setScale(0, RoundingMode.DOWN)
+                .longValueExact();
+        if (converted <= 0) {
+          throw new InvalidAmountException();
+        }
+        return converted;
+      } catch (ArithmeticException e) {
+        throw new InvalidAmountException();
+      }
+    }
+  }
+}
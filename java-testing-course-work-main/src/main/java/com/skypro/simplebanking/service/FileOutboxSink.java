@@ -0,0 +1,68 @@
+package com.skypro.simplebanking.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.skypro.simplebanking.dto.OutboxEventDTO;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/** Appends every event as a line of JSON to a local file, forced to disk after each batch. */
+@Component
+@ConditionalOnProperty(name = "app.outbox.sink", havingValue = "file", matchIfMissing = true)
+public class FileOutboxSink implements OutboxSink, DisposableBean {
+  private final ObjectMapper objectMapper;
+  private final Path path;
+  private FileChannel channel;
+
+  public FileOutboxSink(
+      ObjectMapper objectMapper,
+      @Value("${app.outbox.file.path:outbox/balance-events.jsonl}") String path) {
+    this.objectMapper = objectMapper;
+    this.path = Paths.get(path);
+  }
+
+  @Override
+  public synchronized void send(List<OutboxEventDTO> events) throws IOException {
+    ByteArrayOutputStream lines = new ByteArrayOutputStream();
+    for (OutboxEventDTO event : events) {
+      objectMapper.writeValue(lines, event);
+      lines.write('\n');
+    }
+    FileChannel output = channel();
+    ByteBuffer buffer = ByteBuffer.wrap(lines.toByteArray());
+    while (buffer.hasRemaining()) {
+      output.write(buffer);
+    }
+    output.force(false);
+  }
+
+  private FileChannel channel() throws IOException {
+    if (channel == null) {
+      Path parent = path.toAbsolutePath().getParent();
+      if (parent != null) {
+        Files.createDirectories(parent);
+      }
+      channel =
+          FileChannel.open(
+              path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+    return channel;
+  }
+
+  @Override
+  public synchronized void destroy() throws IOException {
+    if (channel != null) {
+      channel.close();
+    }
+  }
+}
@@ -0,0 +1,57 @@
+package com.skypro.simplebanking.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.skypro.simplebanking.dto.OutboxEventDTO;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.List;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Posts every batch as a JSON array to {@code app.outbox.http.url}, such as the REST endpoint of
+ * a message broker. Any response other than 2xx fails the batch.
+ */
+@Component
+@ConditionalOnProperty(name = "app.outbox.sink", havingValue = "http")
+public class HttpOutboxSink implements OutboxSink {
+  private final ObjectMapper objectMapper;
+  private final HttpClient client;
+  private final URI url;
+  private final Duration timeout;
+
+  public HttpOutboxSink(
+      ObjectMapper objectMapper,
+      @Value("${app.outbox.http.url}") String url,
+      @Value("${app.outbox.http.timeout-ms:5000}") long timeoutMs) {
+    this.objectMapper = objectMapper;
+    this.url = URI.create(url);
+    this.timeout = Duration.ofMillis(timeoutMs);
+    this.client = HttpClient.newBuilder().connectTimeout(timeout).build();
+  }
+
+  @Override
+  public void send(List<OutboxEventDTO> events) throws IOException {
+    HttpRequest request =
+        HttpRequest.newBuilder(url)
+            .timeout(timeout)
+            .header("Content-Type", "application/json")
+            .POST(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(events)))
+            .build();
+    HttpResponse<Void> response;
+    try {
+      response = client.send(request, HttpResponse.BodyHandlers.discarding());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while sending outbox events", e);
+    }
+    if (response.statusCode() / 100 != 2) {
+      throw new IOException("Outbox sink answered " + response.statusCode());
+    }
+  }
+}
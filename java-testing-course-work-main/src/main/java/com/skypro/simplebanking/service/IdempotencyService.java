@@ -0,0 +1,273 @@
+package com.skypro.simplebanking.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.skypro.simplebanking.entity.IdempotencyRecord;
+import com.skypro.simplebanking.event.BalanceChangedEvent;
+import com.skypro.simplebanking.exception.IdempotencyKeyInUseException;
+import com.skypro.simplebanking.repository.IdempotencyRecordRepository;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Remembers the outcome of requests sent with an {@code Idempotency-Key}. Outcomes are kept in a
+ * bounded, expiring in-memory cache in front of the {@code idempotency_records} table.
+ *
+ * <p>The key row is inserted by the first balance change of the request, inside the transaction
+ * that makes the change, so the key is stored if and only if the change commits. The unique
+ * constraint on (user_id, idempotency_key) makes a duplicate running on any instance fail instead
+ * of applying its change twice. The response is added to the row after the request completes; a
+ * row whose change committed but whose response was never added replays as an empty 200. Within
+ * an instance, a key that is being executed is also claimed in memory, so concurrent duplicates
+ * wait for the first attempt and replay its full response.
+ *
+ * <p>With the ledger engine, balance changes have no transaction, so the key row is inserted in
+ * its own transaction right after the first change.
+ */
+@Service
+public class IdempotencyService {
+  private static final Logger log = LoggerFactory.getLogger(IdempotencyService.class);
+
+  private final IdempotencyRecordRepository idempotencyRecordRepository;
+  private final TransactionTemplate transactionTemplate;
+  private final ThreadLocal<PendingKey> pendingKeys = new ThreadLocal<>();
+  private final Duration ttl;
+  private final long waitTimeoutMs;
+  private final Cache<Key, IdempotencyRecord> outcomes;
+  private final Map<Key, CompletableFuture<IdempotencyRecord>> inFlight =
+      new ConcurrentHashMap<>();
+
+  public IdempotencyService(
+      IdempotencyRecordRepository idempotencyRecordRepository,
+      PlatformTransactionManager transactionManager,
+      @Value("${app.idempotency.ttl-minutes:1440}") long ttlMinutes,
+      @Value("${app.idempotency.cache-size:10000}") long cacheSize,
+      @Value("${app.idempotency.wait-timeout-ms:10000}") long waitTimeoutMs) {
+    this.idempotencyRecordRepository = idempotencyRecordRepository;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    this.ttl = Duration.ofMinutes(ttlMinutes);
+    this.waitTimeoutMs = waitTimeoutMs;
+    this.outcomes = Caffeine.newBuilder().maximumSize(cacheSize).expireAfterWrite(ttl).build();
+  }
+
+  /**
+   * Returns the stored outcome for the key, waiting for an attempt that is still running. Returns
+   * null when there is none; the caller then owns the key and must call {@link #complete} on the
+   * same thread, and the first balance change it makes until then stores the key.
+   */
+  public IdempotencyRecord claim(long userId, String idempotencyKey, String fingerprint) {
+    Key key = new Key(userId, idempotencyKey);
+    while (true) {
+      CompletableFuture<IdempotencyRecord> attempt = new CompletableFuture<>();
+      CompletableFuture<IdempotencyRecord> running = inFlight.putIfAbsent(key, attempt);
+      if (running == null) {
+        IdempotencyRecord stored = find(key);
+        if (stored != null) {
+          inFlight.remove(key, attempt);
+          attempt.complete(stored);
+        } else {
+          pendingKeys.set(new PendingKey(userId, idempotencyKey, fingerprint));
+        }
+        return stored;
+      }
+      IdempotencyRecord outcome = await(running);
+      if (outcome != null) {
+        return outcome;
+      }
+      // The first attempt ended without an outcome worth keeping, so this one takes over.
+    }
+  }
+
+  /** True while this thread owns a key whose row has not been stored yet. */
+  public boolean isPendingOnThisThread() {
+    PendingKey pendingKey = pendingKeys.get();
+    return pendingKey != null && !pendingKey.stored;
+  }
+
+  @EventListener
+  public void onBalanceChanged(BalanceChangedEvent event) {
+    PendingKey pendingKey = pendingKeys.get();
+    if (pendingKey == null || pendingKey.stored) {
+      return;
+    }
+    if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+      transactionTemplate.executeWithoutResult(status -> insert(pendingKey));
+      pendingKey.stored = true;
+      return;
+    }
+    // Only the first change of each transaction inserts; a rolled back insert is retried by the
+    // next transaction of the request.
+    if (TransactionSynchronizationManager.hasResource(pendingKey)) {
+      return;
+    }
+    TransactionSynchronizationManager.bindResource(pendingKey, Boolean.TRUE);
+    TransactionSynchronizationManager.registerSynchronization(
+        new TransactionSynchronization() {
+          @Override
+          public void afterCommit() {
+            pendingKey.stored = true;
+          }
+
+          @Override
+          public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(pendingKey);
+          }
+        });
+    insert(pendingKey);
+  }
+
+  // A committed row of the same key means a duplicate got there first.
+  private void insert(PendingKey pendingKey) {
+    IdempotencyRecord record = new IdempotencyRecord();
+    record.setUserId(pendingKey.userId);
+    record.setIdempotencyKey(pendingKey.idempotencyKey);
+    record.setFingerprint(pendingKey.fingerprint);
+    record.setCreatedAt(Instant.now());
+    try {
+      idempotencyRecordRepository.saveAndFlush(record);
+    } catch (DataIntegrityViolationException e) {
+      throw new IdempotencyKeyInUseException();
+    }
+  }
+
+  /** Stores the outcome of an owned key, or only releases the key when outcome is null. */
+  public void complete(long userId, String idempotencyKey, IdempotencyRecord outcome) {
+    Key key = new Key(userId, idempotencyKey);
+    pendingKeys.remove();
+    try {
+      if (outcome != null) {
+        outcome.setUserId(userId);
+        outcome.setIdempotencyKey(idempotencyKey);
+        outcome.setCreatedAt(Instant.now());
+        save(outcome);
+        outcomes.put(key, outcome);
+      }
+    } finally {
+      CompletableFuture<IdempotencyRecord> attempt = inFlight.remove(key);
+      if (attempt != null) {
+        attempt.complete(outcome);
+      }
+    }
+  }
+
+  @Scheduled(fixedDelayString = "${app.idempotency.purge-interval-ms:600000}")
+  @Transactional
+  public void purgeExpired() {
+    int purged = idempotencyRecordRepository.deleteCreatedBefore(Instant.now().minus(ttl));
+    if (purged > 0) {
+      log.debug("Purged {} expired idempotency records", purged);
+    }
+  }
+
+  private IdempotencyRecord find(Key key) {
+    IdempotencyRecord cached = outcomes.getIfPresent(key);
+    if (cached != null) {
+      return cached;
+    }
+    IdempotencyRecord stored =
+        idempotencyRecordRepository
+            .findByUserIdAndIdempotencyKey(key.userId, key.idempotencyKey)
+            .filter(record -> record.getCreatedAt().isAfter(Instant.now().minus(ttl)))
+            .orElse(null);
+    if (stored != null && stored.hasResponse()) {
+      outcomes.put(key, stored);
+    }
+    return stored;
+  }
+
+  // Fills in the row the balance change inserted, or inserts one for a request that changed
+  // nothing. Another instance may have stored the same key first; its outcome is just as good.
+  private void save(IdempotencyRecord outcome) {
+    try {
+      transactionTemplate.executeWithoutResult(
+          status -> {
+            IdempotencyRecord stored =
+                idempotencyRecordRepository
+                    .findByUserIdAndIdempotencyKey(
+                        outcome.getUserId(), outcome.getIdempotencyKey())
+                    .orElse(null);
+            if (stored == null) {
+              idempotencyRecordRepository.save(outcome);
+            } else if (!stored.hasResponse()) {
+              stored.setStatus(outcome.getStatus());
+              stored.setContentType(outcome.getContentType());
+              stored.setBody(outcome.getBody());
+            }
+          });
+    } catch (DataIntegrityViolationException e) {
+      log.debug("Idempotency key {} was already stored", outcome.getIdempotencyKey());
+    }
+  }
+
+  private IdempotencyRecord await(CompletableFuture<IdempotencyRecord> running) {
+    try {
+      return running.get(waitTimeoutMs, TimeUnit.MILLISECONDS);
+    } catch (TimeoutException e) {
+      throw new IdempotencyKeyInUseException();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IdempotencyKeyInUseException();
+    } catch (ExecutionException e) {
+      return null;
+    }
+  }
+
+  private static final class PendingKey {
+    private final long userId;
+    private final String idempotencyKey;
+    private final String fingerprint;
+    private volatile boolean stored;
+
+    private PendingKey(long userId, String idempotencyKey, String fingerprint) {
+      this.userId = userId;
+      this.idempotencyKey = idempotencyKey;
+      this.fingerprint = fingerprint;
+    }
+  }
+
+  private static final class Key {
+    private final long userId;
+    private final String idempotencyKey;
+
+    private Key(long userId, String idempotencyKey) {
+      this.userId = userId;
+      this.idempotencyKey = idempotencyKey;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      Key key = (Key) o;
+      return userId == key.userId && idempotencyKey.equals(key.idempotencyKey);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(userId, idempotencyKey);
+    }
+  }
+}
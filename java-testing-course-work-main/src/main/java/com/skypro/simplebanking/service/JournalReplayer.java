@@ -0,0 +1,149 @@
+package com.skypro.simplebanking.service;
+
+import com.skypro.simplebanking.entity.AccountCurrency;
+import com.skypro.simplebanking.event.BalanceOperation;
+import com.skypro.simplebanking.repository.AccountBalanceStripeJdbcRepository;
+import com.skypro.simplebanking.repository.AccountJdbcRepository;
+import com.skypro.simplebanking.repository.CurrencyTotalJdbcRepository;
+import com.skypro.simplebanking.repository.ReconciliationJdbcRepository;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Paths;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Checks account balances against the transaction journal before the application starts serving
+ * requests. With {@code app.journal.verify-on-startup} every account whose balance differs from
+ * the sum of its journal records is reported; with {@code app.journal.replay-on-startup} its
+ * balance is also rewritten to that sum, since the journal holds every committed change.
+ *
+ * <p>Only accounts opened while the journal was on have their whole history in it; the others
+ * are skipped. Accounts in the journal but not in the database are reported, never recreated.
+ */
+@Component
+@ConditionalOnProperty(name = "app.journal.enabled", havingValue = "true")
+public class JournalReplayer implements SmartInitializingSingleton {
+  private static final Logger log = LoggerFactory.getLogger(JournalReplayer.class);
+  private static final int MAX_REPORTED = 100;
+
+  private final ReconciliationJdbcRepository reconciliationRepository;
+  private final AccountJdbcRepository accountJdbcRepository;
+  private final AccountBalanceStripeJdbcRepository stripeRepository;
+  private final CurrencyTotalJdbcRepository currencyTotalRepository;
+  private final TransactionTemplate transactionTemplate;
+  private final String directory;
+  private final boolean verify;
+  private final boolean replay;
+
+  public JournalReplayer(
+      ReconciliationJdbcRepository reconciliationRepository,
+      AccountJdbcRepository accountJdbcRepository,
+      AccountBalanceStripeJdbcRepository stripeRepository,
+      CurrencyTotalJdbcRepository currencyTotalRepository,
+      PlatformTransactionManager transactionManager,
+      @Value("${app.journal.directory:journal}") String directory,
+      @Value("${app.journal.verify-on-startup:false}") boolean verify,
+      @Value("${app.journal.replay-on-startup:false}") boolean replay) {
+    this.reconciliationRepository = reconciliationRepository;
+    this.accountJdbcRepository = accountJdbcRepository;
+    this.stripeRepository = stripeRepository;
+    this.currencyTotalRepository = currencyTotalRepository;
+    // Not read-only, so the balances come from the primary rather than a lagging replica.
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    this.directory = directory;
+    this.verify = verify;
+    this.replay = replay;
+  }
+
+  @Override
+  public void afterSingletonsInstantiated() {
+    if (verify || replay) {
+      run();
+    }
+  }
+
+  /** Compares, and with replay on rewrites, the balances of every journaled account. */
+  public void run() {
+    Map<Long, Long> journaled = new HashMap<>();
+    Set<Long> opened = new HashSet<>();
+    long[] records = {0};
+    try {
+      TransactionJournal.read(
+          Paths.get(directory),
+          record -> {
+            journaled.merge(record.getAccountId(), record.getDelta(), Long::sum);
+            if (record.getOperation() == BalanceOperation.OPENING) {
+              opened.add(record.getAccountId());
+            }
+            records[0]++;
+          });
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    long[] counts = {0, 0};
+    Set<Long> missing = new HashSet<>(opened);
+    Map<Long, Long> corrected = new HashMap<>();
+    Map<AccountCurrency, long[]> totalChanges = new EnumMap<>(AccountCurrency.class);
+    transactionTemplate.executeWithoutResult(
+        status -> {
+          // The balances include split-balance stripes, which the journal records like any
+          // credit.
+          reconciliationRepository.streamBalances(
+              0,
+              Long.MAX_VALUE,
+              row -> {
+                if (!missing.remove(row.getAccountId())) {
+                  return;
+                }
+                counts[0]++;
+                long expected = journaled.get(row.getAccountId());
+                if (row.getBalance() == expected) {
+                  return;
+                }
+                if (++counts[1] <= MAX_REPORTED) {
+                  log.warn(
+                      "Account {} has balance {} but its journal records sum to {}",
+                      row.getAccountId(),
+                      row.getBalance(),
+                      expected);
+                }
+                corrected.put(row.getAccountId(), expected);
+                long[] change = totalChanges.computeIfAbsent(row.getCurrency(), c -> new long[3]);
+                change[0] += expected - row.getBalance();
+                change[2]++;
+              });
+          if (replay && !corrected.isEmpty()) {
+            // Pending stripe credits are folded in first, so the rewritten row is the balance.
+            corrected.keySet().forEach(id -> stripeRepository.foldIfShort(id, Long.MAX_VALUE));
+            accountJdbcRepository.updateAmounts(corrected);
+            currencyTotalRepository.add(0, totalChanges);
+          }
+        });
+    // A reversed opening leaves an account that never committed, with a zero sum.
+    for (long accountId : missing) {
+      if (journaled.get(accountId) != 0 && ++counts[1] <= MAX_REPORTED) {
+        log.warn("Account {} is in the journal but not in the database", accountId);
+      }
+    }
+    log.info(
+        "Checked {} accounts against {} journal records, {} differ, {} rewritten;"
+            + " skipped {} accounts opened before the journal",
+        counts[0],
+        records[0],
+        counts[1],
+        replay ? corrected.size() : 0,
+        journaled.size() - opened.size());
+  }
+}
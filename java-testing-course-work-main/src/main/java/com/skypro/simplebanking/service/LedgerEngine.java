@@ -0,0 +1,338 @@
+package com.skypro.simplebanking.service;
+
+import com.skypro.simplebanking.dto.AccountDTO;
+import com.skypro.simplebanking.entity.Account;
+import com.skypro.simplebanking.entity.AccountCurrency;
+import com.skypro.simplebanking.event.BalanceChangedEvent;
+import com.skypro.simplebanking.event.BalanceOperation;
+import com.skypro.simplebanking.exception.AccountNotFoundException;
+import com.skypro.simplebanking.exception.InsufficientFundsException;
+import com.skypro.simplebanking.exception.InvalidAmountException;
+import com.skypro.simplebanking.repository.AccountRepository;
+import com.skypro.simplebanking.repository.PrimaryReads;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Keeps account balances in memory, partitioned by account id into single-writer shards. Every
+ * balance of a shard is only read and written by that shard's thread, so no locking is needed;
+ * changed balances are written back to the database asynchronously by a flusher thread.
+ */
+@Component
+@ConditionalOnProperty(name = "app.ledger.enabled", havingValue = "true")
+public class LedgerEngine implements DisposableBean {
+  private static final Logger log = LoggerFactory.getLogger(LedgerEngine.class);
+
+  private final AccountRepository accountRepository;
+  private final PrimaryReads primaryReads;
+  private final JdbcTemplate jdbcTemplate;
+  private final ApplicationEventPublisher eventPublisher;
+  private final ExchangeRateService exchangeRateService;
+  private final Shard[] shards;
+  private final Map<Long, AccountInfo> accountInfos = new ConcurrentHashMap<>();
+  private final ScheduledExecutorService flusher;
+
+  public LedgerEngine(
+      AccountRepository accountRepository,
+      PrimaryReads primaryReads,
+      JdbcTemplate jdbcTemplate,
+      ApplicationEventPublisher eventPublisher,
+      ExchangeRateService exchangeRateService,
+      @Value("${app.ledger.shards:8}") int shardCount,
+      @Value("${app.ledger.flush-interval-ms:50}") long flushIntervalMs) {
+    if (shardCount < 1) {
+      throw new IllegalArgumentException("app.ledger.shards should be positive");
+    }
+    this.accountRepository = accountRepository;
+    this.primaryReads = primaryReads;
+    this.jdbcTemplate = jdbcTemplate;
+    this.eventPublisher = eventPublisher;
+    this.exchangeRateService = exchangeRateService;
+    this.shards = new Shard[shardCount];
+    for (int i = 0; i < shardCount; i++) {
+      shards[i] = new Shard(i);
+    }
+    this.flusher = Executors.newSingleThreadScheduledExecutor(r -> new Thread(r, "ledger-flusher"));
+    flusher.scheduleWithFixedDelay(
+        this::flushSafely, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+  }
+
+  public AccountDTO getAccount(long userId, long accountId) {
+    AccountInfo info = ownedAccount(userId, accountId);
+    Shard shard = shardOf(accountId);
+    long amount = shard.call(() -> shard.balance(accountId).amount);
+    return new AccountDTO(accountId, amount, info.currency);
+  }
+
+  public AccountDTO deposit(long userId, long accountId, long amount) {
+    if (amount < 0) {
+      throw new InvalidAmountException();
+    }
+    AccountInfo info = ownedAccount(userId, accountId);
+    long balance = credit(accountId, amount);
+    publish(info, BalanceOperation.DEPOSIT, amount, balance, 0, 0);
+    return new AccountDTO(accountId, balance, info.currency);
+  }
+
+  public AccountDTO withdraw(long userId, long accountId, long amount) {
+    if (amount < 0) {
+      throw new InvalidAmountException();
+    }
+    AccountInfo info = ownedAccount(userId, accountId);
+    long balance = debit(info, amount);
+    publish(info, BalanceOperation.WITHDRAWAL, -amount, balance, 0, 0);
+    return new AccountDTO(accountId, balance, info.currency);
+  }
+
+  public void transfer(
+      long fromUserId, long fromAccountId, long toUserId, long toAccountId, long amount) {
+    AccountInfo source = accountInfo(fromAccountId);
+    AccountInfo destination = accountInfo(toAccountId);
+    ExchangeRates.Rate rate =
+        exchangeRateService.current().rate(source.currency, destination.currency);
+    if (amount < 0) {
+      throw new InvalidAmountException();
+    }
+    if (source.userId != fromUserId) {
+      throw new AccountNotFoundException();
+    }
+    // Loading the destination balance up front leaves only a rejected shard task that can fail
+    // the credit, in which case the debit is given back.
+    load(toAccountId);
+    long credited = rate.convert(amount);
+    long transferId = BalanceChangedEvent.newTransferId();
+    long sourceBalance =
+        debit(
+            source,
+            amount,
+            () -> {
+              if (destination.userId != toUserId) {
+                throw new AccountNotFoundException();
+              }
+            });
+    long destinationBalance;
+    try {
+      destinationBalance = credit(toAccountId, credited);
+    } catch (RuntimeException e) {
+      credit(source.id, amount);
+      throw e;
+    }
+    publish(
+        source,
+        BalanceOperation.TRANSFER_DEBIT,
+        -amount,
+        sourceBalance,
+        transferId,
+        rate.getVersion());
+    publish(
+        destination,
+        BalanceOperation.TRANSFER_CREDIT,
+        credited,
+        destinationBalance,
+        transferId,
+        rate.getVersion());
+  }
+
+  private void publish(
+      AccountInfo info,
+      BalanceOperation operation,
+      long delta,
+      long balance,
+      long transferId,
+      long rateVersion) {
+    eventPublisher.publishEvent(
+        new BalanceChangedEvent(
+            info.id,
+            info.userId,
+            info.currency,
+            operation,
+            delta,
+            balance,
+            transferId,
+            rateVersion));
+  }
+
+  private long debit(AccountInfo info, long amount) {
+    return debit(info, amount, () -> {});
+  }
+
+  // afterFundsCheck runs on the shard thread between the funds check and the debit, so checks
+  // can fail in the same order as in AccountService without the balance changing in between.
+  private long debit(AccountInfo info, long amount, Runnable afterFundsCheck) {
+    Shard shard = shardOf(info.id);
+    return shard.call(
+        () -> {
+          Balance balance = shard.balance(info.id);
+          if (balance.amount < amount) {
+            throw new InsufficientFundsException(
+                "Cannot withdraw " + amount + " " + info.currency.name());
+          }
+          afterFundsCheck.run();
+          balance.amount -= amount;
+          shard.dirty.put(info.id, balance.amount);
+          return balance.amount;
+        });
+  }
+
+  private long credit(long accountId, long amount) {
+    Shard shard = shardOf(accountId);
+    return shard.call(
+        () -> {
+          Balance balance = shard.balance(accountId);
+          balance.amount += amount;
+          shard.dirty.put(accountId, balance.amount);
+          return balance.amount;
+        });
+  }
+
+  private void load(long accountId) {
+    Shard shard = shardOf(accountId);
+    shard.call(() -> shard.balance(accountId));
+  }
+
+  private AccountInfo ownedAccount(long userId, long accountId) {
+    AccountInfo info = accountInfo(accountId);
+    if (info.userId != userId) {
+      throw new AccountNotFoundException();
+    }
+    return info;
+  }
+
+  // Owner and currency never change, so they can be cached outside of the shards.
+  private AccountInfo accountInfo(long accountId) {
+    AccountInfo info = accountInfos.get(accountId);
+    if (info != null) {
+      return info;
+    }
+    Account account = findOnPrimary(accountId);
+    info = new AccountInfo(account.getId(), account.getUser().getId(), account.getAccountCurrency());
+    accountInfos.putIfAbsent(accountId, info);
+    return info;
+  }
+
+  // A balance loaded from a lagging replica would be written back by the next flush.
+  private Account findOnPrimary(long accountId) {
+    return primaryReads.call(
+        () -> accountRepository.findById(accountId).orElseThrow(AccountNotFoundException::new));
+  }
+
+  private Shard shardOf(long accountId) {
+    return shards[Math.floorMod(accountId, shards.length)];
+  }
+
+  private void flushSafely() {
+    try {
+      flush();
+    } catch (RuntimeException e) {
+      log.error("Failed to flush ledger balances", e);
+    }
+  }
+
+  void flush() {
+    for (Shard shard : shards) {
+      List<Object[]> updates =
+          shard.call(
+              () -> {
+                List<Object[]> batch = new ArrayList<>(shard.dirty.size());
+                shard.dirty.forEach((id, amount) -> batch.add(new Object[] {amount, id}));
+                shard.dirty.clear();
+                return batch;
+              });
+      if (updates.isEmpty()) {
+        continue;
+      }
+      try {
+        jdbcTemplate.batchUpdate(
+            "update accounts set amount = ?, version = version + 1 where id = ?", updates);
+      } catch (RuntimeException e) {
+        // Balances changed again since the snapshot are already dirty with a newer amount.
+        shard.call(
+            () -> {
+              updates.forEach(
+                  update -> shard.dirty.putIfAbsent((Long) update[1], (Long) update[0]));
+              return null;
+            });
+        throw e;
+      }
+    }
+  }
+
+  @Override
+  public void destroy() throws InterruptedException {
+    flusher.shutdown();
+    flusher.awaitTermination(10, TimeUnit.SECONDS);
+    flush();
+    for (Shard shard : shards) {
+      shard.executor.shutdown();
+    }
+  }
+
+  private final class Shard {
+    private final ExecutorService executor;
+    private final Map<Long, Balance> balances = new HashMap<>();
+    private final Map<Long, Long> dirty = new HashMap<>();
+
+    private Shard(int index) {
+      this.executor =
+          Executors.newSingleThreadExecutor(r -> new Thread(r, "ledger-shard-" + index));
+    }
+
+    private Balance balance(long accountId) {
+      Balance balance = balances.get(accountId);
+      if (balance == null) {
+        balance = new Balance(findOnPrimary(accountId).getAmount());
+        balances.put(accountId, balance);
+      }
+      return balance;
+    }
+
+    private <T> T call(Supplier<T> task) {
+      try {
+        return CompletableFuture.supplyAsync(task, executor).join();
+      } catch (CompletionException e) {
+        if (e.getCause() instanceof RuntimeException) {
+          throw (RuntimeException) e.getCause();
+        }
+        throw e;
+      }
+    }
+  }
+
+  private static final class Balance {
+    private long amount;
+
+    private Balance(long amount) {
+      this.amount = amount;
+    }
+  }
+
+  private static final class AccountInfo {
+    private final long id;
+    private final long userId;
+    private final AccountCurrency currency;
+
+    private AccountInfo(long id, long userId, AccountCurrency currency) {
+      this.id = id;
+      this.userId = userId;
+      this.currency = currency;
+    }
+  }
+}
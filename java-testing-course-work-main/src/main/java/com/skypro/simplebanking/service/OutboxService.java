@@ -0,0 +1,141 @@
+package com.skypro.simplebanking.service;
+
+import com.skypro.simplebanking.dto.OutboxEventDTO;
+import com.skypro.simplebanking.event.BalanceChangedEvent;
+import com.skypro.simplebanking.repository.OutboxJdbcRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+/**
+ * Transactional outbox for balance changes. Every change is written to outbox_events right before
+ * its transaction commits, so an event exists exactly when its change does. A relay thread sends
+ * the oldest events to the configured {@link OutboxSink} in batches and deletes them once the
+ * sink has accepted them.
+ *
+ * <p>Delivery is at least once: a batch that fails, or whose delete is lost, is sent again. Events
+ * of one account reach the sink in the order they happened, because they are written while the
+ * account row is locked and relayed in id order; credits to split-balance accounts take no row
+ * lock and may be reordered among themselves.
+ */
+@Service
+@ConditionalOnProperty(name = "app.outbox.enabled", havingValue = "true")
+public class OutboxService implements SmartInitializingSingleton, DisposableBean {
+  private static final Logger log = LoggerFactory.getLogger(OutboxService.class);
+
+  private final OutboxJdbcRepository outboxRepository;
+  private final TransactionBuffer<List<BalanceChangedEvent>> pendingEvents;
+  private final OutboxSink sink;
+  private final int batchSize;
+  private final long relayIntervalMs;
+  private final ScheduledExecutorService relay;
+  private final AtomicLong pending = new AtomicLong();
+  private final AtomicLong lagMillis = new AtomicLong();
+  private final Counter delivered;
+  private final Counter failures;
+  private final Timer deliveryDelay;
+
+  public OutboxService(
+      OutboxJdbcRepository outboxRepository,
+      OutboxSink sink,
+      MeterRegistry meterRegistry,
+      @Value("${app.outbox.batch-size:500}") int batchSize,
+      @Value("${app.outbox.relay-interval-ms:100}") long relayIntervalMs) {
+    if (batchSize < 1 || relayIntervalMs < 1) {
+      throw new IllegalArgumentException(
+          "app.outbox.batch-size and relay-interval-ms should be positive");
+    }
+    this.outboxRepository = outboxRepository;
+    this.pendingEvents = new TransactionBuffer<>(ArrayList::new, outboxRepository::insertAll);
+    this.sink = sink;
+    this.batchSize = batchSize;
+    Gauge.builder("banking.outbox.pending", pending, AtomicLong::get).register(meterRegistry);
+    Gauge.builder("banking.outbox.lag.seconds", lagMillis, lag -> lag.get() / 1000.0)
+        .register(meterRegistry);
+    this.delivered = meterRegistry.counter("banking.outbox.delivered");
+    this.failures = meterRegistry.counter("banking.outbox.failures");
+    this.deliveryDelay = meterRegistry.timer("banking.outbox.delivery.delay");
+    this.relayIntervalMs = relayIntervalMs;
+    this.relay = Executors.newSingleThreadScheduledExecutor(r -> new Thread(r, "outbox-relay"));
+  }
+
+  @Override
+  public void afterSingletonsInstantiated() {
+    relay.scheduleWithFixedDelay(
+        this::relaySafely, relayIntervalMs, relayIntervalMs, TimeUnit.MILLISECONDS);
+  }
+
+  @EventListener
+  public void onBalanceChanged(BalanceChangedEvent event) {
+    pendingEvents.add(events -> events.add(event));
+  }
+
+  private void relaySafely() {
+    try {
+      relayPending();
+    } catch (RuntimeException e) {
+      log.warn("Outbox relay failed", e);
+    }
+  }
+
+  // Sends batches until the outbox is drained or the sink fails.
+  private void relayPending() {
+    try {
+      while (true) {
+        List<OutboxEventDTO> batch = outboxRepository.findOldest(batchSize);
+        if (batch.isEmpty()) {
+          break;
+        }
+        try {
+          sink.send(batch);
+        } catch (Exception e) {
+          failures.increment();
+          log.warn(
+              "Outbox sink refused {} events, retrying later: {}", batch.size(), e.toString());
+          break;
+        }
+        outboxRepository.deleteAll(
+            batch.stream().map(OutboxEventDTO::getId).collect(Collectors.toList()));
+        Instant now = Instant.now();
+        for (OutboxEventDTO event : batch) {
+          deliveryDelay.record(Duration.between(event.getCreatedAt(), now));
+        }
+        delivered.increment(batch.size());
+        if (batch.size() < batchSize) {
+          break;
+        }
+      }
+    } finally {
+      pending.set(outboxRepository.count());
+      lagMillis.set(
+          outboxRepository
+              .oldestCreatedAt()
+              .map(oldest -> Math.max(0, Duration.between(oldest, Instant.now()).toMillis()))
+              .orElse(0L));
+    }
+  }
+
+  @Override
+  public void destroy() throws InterruptedException {
+    relay.shutdown();
+    relay.awaitTermination(10, TimeUnit.SECONDS);
+  }
+}
@@ -0,0 +1,14 @@
+package com.skypro.simplebanking.service;
+
+import com.skypro.simplebanking.dto.OutboxEventDTO;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Destination of the outbox relay. A batch counts as delivered once {@link #send} returns; if it
+ * throws, the same events are sent again later, so receivers should ignore event ids they have
+ * already seen.
+ */
+public interface OutboxSink {
+  void send(List<OutboxEventDTO> events) throws IOException;
+}
@@ -0,0 +1,41 @@
+package com.skypro.simplebanking.service;
+
+import com.skypro.simplebanking.dto.OutboxEventDTO;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Hands events to in-process consumers through a bounded queue, for tests and local tooling. A
+ * batch that does not fit is refused as a whole and sent again later.
+ */
+@Component
+@ConditionalOnProperty(name = "app.outbox.sink", havingValue = "queue")
+public class QueueOutboxSink implements OutboxSink {
+  private final BlockingQueue<OutboxEventDTO> events;
+
+  public QueueOutboxSink(@Value("${app.outbox.queue.capacity:10000}") int capacity) {
+    this.events = new LinkedBlockingQueue<>(capacity);
+  }
+
+  @Override
+  public synchronized void send(List<OutboxEventDTO> batch) throws IOException {
+    if (events.remainingCapacity() < batch.size()) {
+      throw new IOException("Outbox queue is full");
+    }
+    events.addAll(batch);
+  }
+
+  public OutboxEventDTO poll(long timeout, TimeUnit unit) throws InterruptedException {
+    return events.poll(timeout, unit);
+  }
+
+  public int drainTo(List<OutboxEventDTO> consumer) {
+    return events.drainTo(consumer);
+  }
+}
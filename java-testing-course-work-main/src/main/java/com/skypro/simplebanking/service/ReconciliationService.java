@@ -0,0 +1,592 @@
+package com.skypro.simplebanking.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.skypro.simplebanking.dto.CurrencyReconciliationDTO;
+import com.skypro.simplebanking.dto.ReconciliationDTO;
+import com.skypro.simplebanking.dto.ReconciliationMismatchDTO;
+import com.skypro.simplebanking.entity.AccountCurrency;
+import com.skypro.simplebanking.repository.AccountJdbcRepository;
+import com.skypro.simplebanking.repository.ReconciliationJdbcRepository;
+import com.skypro.simplebanking.repository.ReconciliationJdbcRepository.TransferRow;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongConsumer;
+import java.util.stream.Collectors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * Reconciles every balance with the sum of its movements in account_transactions, and checks that
+ * every transfer has one debit and one credit leg that, within one currency, move the same amount.
+ *
+ * <p>Accounts are read in id-range chunks of {@code app.reconciliation.chunk-size} and transfers in
+ * {@code transfer-chunks} ranges of transfer ids. A fork/join pool of {@code parallelism} workers
+ * splits the ranges and reconciles each chunk in its own short read-only transaction, starting at
+ * most {@code max-chunks-per-second} chunks. Mismatches are appended to a report file as lines of
+ * JSON, and a checkpoint is written after every chunk, so a stopped or failed reconciliation can
+ * be resumed without repeating finished chunks. It runs nightly, resuming the last one if
+ * unfinished, and can be started from the admin API.
+ */
+@Service
+public class ReconciliationService implements DisposableBean {
+  private static final Logger log = LoggerFactory.getLogger(ReconciliationService.class);
+  private static final DateTimeFormatter REPORT_TIME =
+      DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss").withZone(ZoneOffset.UTC);
+
+  private final ReconciliationJdbcRepository reconciliationRepository;
+  private final AccountJdbcRepository accountJdbcRepository;
+  private final TransactionTemplate readOnlyTransactionTemplate;
+  private final ObjectMapper objectMapper;
+  private final Path reportDirectory;
+  private final Path checkpointPath;
+  private final long chunkSize;
+  private final int transferChunks;
+  private final long chunkIntervalNanos;
+  private final ForkJoinPool pool;
+  private final ExecutorService runner;
+  private final Counter balanceMismatches;
+  private final Counter transferMismatches;
+  private final Object lock = new Object();
+  private final Object throttleLock = new Object();
+  private Run current;
+  private long nextChunkNanos = Long.MIN_VALUE;
+  private volatile boolean stopping;
+
+  public ReconciliationService(
+      ReconciliationJdbcRepository reconciliationRepository,
+      AccountJdbcRepository accountJdbcRepository,
+      PlatformTransactionManager transactionManager,
+      ObjectMapper objectMapper,
+      MeterRegistry meterRegistry,
+      @Value("${app.reconciliation.report-directory:reconciliation}") String reportDirectory,
+      @Value("${app.reconciliation.checkpoint-path:reconciliation/checkpoint.json}")
+          String checkpointPath,
+      @Value("${app.reconciliation.chunk-size:10000}") long chunkSize,
+      @Value("${app.reconciliation.transfer-chunks:64}") int transferChunks,
+      @Value("${app.reconciliation.parallelism:4}") int parallelism,
+      @Value("${app.reconciliation.max-chunks-per-second:0}") double maxChunksPerSecond) {
+    if (chunkSize < 1 || parallelism < 1 || maxChunksPerSecond < 0) {
+      throw new IllegalArgumentException(
+          "app.reconciliation.chunk-size and parallelism should be positive"
+              + " and max-chunks-per-second should not be negative");
+    }
+    if (transferChunks < 1 || transferChunks > 65536) {
+      throw new IllegalArgumentException(
+          "app.reconciliation.transfer-chunks should be between 1 and 65536");
+    }
+    this.reconciliationRepository = reconciliationRepository;
+    this.accountJdbcRepository = accountJdbcRepository;
+    this.readOnlyTransactionTemplate = new TransactionTemplate(transactionManager);
+    this.readOnlyTransactionTemplate.setReadOnly(true);
+    this.objectMapper = objectMapper;
+    this.reportDirectory = Paths.get(reportDirectory);
+    this.checkpointPath = Paths.get(checkpointPath);
+    this.chunkSize = chunkSize;
+    this.transferChunks = transferChunks;
+    this.chunkIntervalNanos =
+        maxChunksPerSecond > 0 ? (long) (TimeUnit.SECONDS.toNanos(1) / maxChunksPerSecond) : 0;
+    this.pool =
+        new ForkJoinPool(
+            parallelism,
+            forkJoinPool -> {
+              ForkJoinWorkerThread thread =
+                  ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(forkJoinPool);
+              thread.setName("reconciliation-" + thread.getPoolIndex());
+              return thread;
+            },
+            null,
+            false);
+    this.runner = Executors.newSingleThreadExecutor(r -> new Thread(r, "reconciliation"));
+    this.balanceMismatches = mismatches(meterRegistry, "balance");
+    this.transferMismatches = mismatches(meterRegistry, "transfer");
+  }
+
+  private static Counter mismatches(MeterRegistry meterRegistry, String type) {
+    return Counter.builder("banking.reconciliation.mismatches")
+        .tag("type", type)
+        .register(meterRegistry);
+  }
+
+  public ReconciliationDTO getStatus() {
+    synchronized (lock) {
+      if (current == null) {
+        throw new ResponseStatusException(HttpStatus.NOT_FOUND, "No reconciliation has run yet");
+      }
+      return current.toDto();
+    }
+  }
+
+  /** Starts a new reconciliation in the background, dropping the checkpoint of any earlier one. */
+  public ReconciliationDTO start() {
+    return launch(false);
+  }
+
+  /** Continues the last unfinished reconciliation in the background from its checkpoint. */
+  public ReconciliationDTO resume() {
+    return launch(true);
+  }
+
+  @Scheduled(cron = "${app.reconciliation.cron:0 0 3 * * *}")
+  public void reconcileNightly() {
+    try {
+      launch(Files.exists(checkpointPath));
+    } catch (ResponseStatusException e) {
+      log.info("Nightly reconciliation skipped: {}", e.getReason());
+    }
+  }
+
+  private ReconciliationDTO launch(boolean resume) {
+    synchronized (lock) {
+      if (current != null && current.status.equals("running")) {
+        throw new ResponseStatusException(
+            HttpStatus.CONFLICT, "A reconciliation is already running");
+      }
+      Run run = new Run(resume ? readCheckpoint() : newCheckpoint());
+      writeCheckpoint(run.checkpoint);
+      current = run;
+      runner.execute(() -> execute(run));
+      return run.toDto();
+    }
+  }
+
+  private Checkpoint newCheckpoint() {
+    Checkpoint checkpoint = new Checkpoint();
+    checkpoint.startedAt = Instant.now();
+    checkpoint.report =
+        reportDirectory
+            .resolve("report-" + REPORT_TIME.format(checkpoint.startedAt) + ".jsonl")
+            .toString();
+    Optional<long[]> idRange = accountJdbcRepository.idRange();
+    checkpoint.firstAccountId = idRange.map(range -> range[0]).orElse(1L);
+    checkpoint.lastAccountId = idRange.map(range -> range[1]).orElse(0L);
+    checkpoint.chunkSize = chunkSize;
+    checkpoint.transferChunks = transferChunks;
+    return checkpoint;
+  }
+
+  private Checkpoint readCheckpoint() {
+    if (!Files.exists(checkpointPath)) {
+      throw new ResponseStatusException(
+          HttpStatus.NOT_FOUND, "There is no unfinished reconciliation to resume");
+    }
+    try {
+      return objectMapper.readValue(checkpointPath.toFile(), Checkpoint.class);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  // Replaces the checkpoint atomically, so a crash leaves either the old or the new one.
+  private void writeCheckpoint(Checkpoint checkpoint) {
+    try {
+      Path parent = checkpointPath.toAbsolutePath().getParent();
+      Files.createDirectories(parent);
+      Path temporary = parent.resolve(checkpointPath.getFileName() + ".tmp");
+      Files.write(temporary, objectMapper.writeValueAsBytes(checkpoint));
+      Files.move(
+          temporary,
+          checkpointPath,
+          StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private void execute(Run run) {
+    Checkpoint checkpoint = run.checkpoint;
+    try {
+      Path report = Paths.get(checkpoint.report);
+      Files.createDirectories(report.toAbsolutePath().getParent());
+      run.report =
+          FileChannel.open(
+              report,
+              StandardOpenOption.CREATE,
+              StandardOpenOption.WRITE,
+              StandardOpenOption.APPEND);
+      if (checkpoint.lastAccountId >= checkpoint.firstAccountId) {
+        pool.invoke(
+            new ChunkTask(
+                checkpoint.firstAccountId / checkpoint.chunkSize,
+                checkpoint.lastAccountId / checkpoint.chunkSize + 1,
+                chunk -> reconcileAccounts(run, chunk)));
+      }
+      pool.invoke(
+          new ChunkTask(0, checkpoint.transferChunks, index -> reconcileTransfers(run, index)));
+      synchronized (lock) {
+        run.finish("completed");
+        Files.deleteIfExists(checkpointPath);
+      }
+      logSummary(run);
+    } catch (IOException | RuntimeException e) {
+      synchronized (lock) {
+        run.finish(stopping ? "stopped" : "failed");
+      }
+      if (!stopping) {
+        log.warn("Reconciliation failed, it can be resumed from its checkpoint", e);
+      }
+    } finally {
+      closeReport(run);
+    }
+  }
+
+  private void reconcileAccounts(Run run, long chunk) {
+    Checkpoint checkpoint = run.checkpoint;
+    synchronized (lock) {
+      if (run.aborted || checkpoint.doneAccountChunks.contains(chunk)) {
+        return;
+      }
+    }
+    throttle();
+    long fromId = Math.max(chunk * checkpoint.chunkSize, checkpoint.firstAccountId);
+    long toId = Math.min((chunk + 1) * checkpoint.chunkSize - 1, checkpoint.lastAccountId);
+    ChunkResult result = new ChunkResult();
+    readOnlyTransactionTemplate.executeWithoutResult(
+        status ->
+            reconciliationRepository.streamBalances(
+                fromId,
+                toId,
+                row -> {
+                  Totals totals = result.totals(row.getCurrency());
+                  totals.accounts++;
+                  totals.balance += row.getBalance();
+                  totals.recorded += row.getRecorded();
+                  result.accounts++;
+                  if (row.getBalance() != row.getRecorded()) {
+                    result.balanceMismatches.add(
+                        ReconciliationMismatchDTO.balance(
+                            row.getAccountId(),
+                            row.getCurrency(),
+                            row.getRecorded(),
+                            row.getBalance()));
+                  }
+                }));
+    record(run, result, () -> checkpoint.doneAccountChunks.add(chunk));
+  }
+
+  private void reconcileTransfers(Run run, long index) {
+    Checkpoint checkpoint = run.checkpoint;
+    synchronized (lock) {
+      if (run.aborted || checkpoint.doneTransferChunks.contains((int) index)) {
+        return;
+      }
+    }
+    throttle();
+    // Transfer ids are random positive longs, so equal ranges hold similar numbers of transfers.
+    long width = Long.MAX_VALUE / checkpoint.transferChunks + 1;
+    long fromId = index * width;
+    long toId = index == checkpoint.transferChunks - 1 ? Long.MAX_VALUE : fromId + width - 1;
+    ChunkResult result = new ChunkResult();
+    readOnlyTransactionTemplate.executeWithoutResult(
+        status ->
+            reconciliationRepository.streamTransfers(
+                fromId, toId, row -> reconcileTransfer(row, result)));
+    record(run, result, () -> checkpoint.doneTransferChunks.add((int) index));
+  }
+
+  private static void reconcileTransfer(TransferRow row, ChunkResult result) {
+    AccountCurrency debitCurrency = row.getDebitCurrency();
+    AccountCurrency creditCurrency = row.getCreditCurrency();
+    if (row.getLegs() != 2 || row.getDebits() != 1) {
+      AccountCurrency currency = debitCurrency != null ? debitCurrency : creditCurrency;
+      if (currency != null) {
+        result.totals(currency).unbalancedTransfers++;
+      }
+      result.transferMismatches.add(
+          ReconciliationMismatchDTO.transfer(
+              row.getTransferId(),
+              currency,
+              row.getDebited(),
+              row.getCredited(),
+              "Transfer has " + row.getLegs() + " legs, " + row.getDebits() + " of them debits"));
+    } else if (debitCurrency == creditCurrency) {
+      Totals totals = result.totals(debitCurrency);
+      totals.transferred += row.getDebited();
+      if (row.getDebited() != row.getCredited()) {
+        totals.unbalancedTransfers++;
+        result.transferMismatches.add(
+            ReconciliationMismatchDTO.transfer(
+                row.getTransferId(),
+                debitCurrency,
+                row.getDebited(),
+                row.getCredited(),
+                "Transfer credits a different amount than it debits"));
+      }
+    } else {
+      result.totals(debitCurrency).convertedOut += row.getDebited();
+      result.totals(creditCurrency).convertedIn += row.getCredited();
+    }
+  }
+
+  // Appends the mismatches of a chunk to the report, then checkpoints the chunk as done. A crash
+  // in between reports the chunk twice once resumed.
+  private void record(Run run, ChunkResult result, Runnable markDone) {
+    synchronized (lock) {
+      if (run.aborted) {
+        return;
+      }
+      writeReport(run, result);
+      Checkpoint checkpoint = run.checkpoint;
+      checkpoint.accountsChecked += result.accounts;
+      checkpoint.balanceMismatches += result.balanceMismatches.size();
+      checkpoint.transferMismatches += result.transferMismatches.size();
+      result.totals.forEach(
+          (currency, totals) ->
+              checkpoint.currencies.computeIfAbsent(currency, c -> new Totals()).add(totals));
+      markDone.run();
+      writeCheckpoint(checkpoint);
+    }
+    balanceMismatches.increment(result.balanceMismatches.size());
+    transferMismatches.increment(result.transferMismatches.size());
+  }
+
+  private void writeReport(Run run, ChunkResult result) {
+    if (result.balanceMismatches.isEmpty() && result.transferMismatches.isEmpty()) {
+      return;
+    }
+    try {
+      ByteArrayOutputStream lines = new ByteArrayOutputStream();
+      for (ReconciliationMismatchDTO mismatch : result.balanceMismatches) {
+        objectMapper.writeValue(lines, mismatch);
+        lines.write('\n');
+      }
+      for (ReconciliationMismatchDTO mismatch : result.transferMismatches) {
+        objectMapper.writeValue(lines, mismatch);
+        lines.write('\n');
+      }
+      ByteBuffer buffer = ByteBuffer.wrap(lines.toByteArray());
+      while (buffer.hasRemaining()) {
+        run.report.write(buffer);
+      }
+      run.report.force(false);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  // Spaces the starts of chunks, across all workers, by at least chunkIntervalNanos.
+  private void throttle() {
+    if (chunkIntervalNanos == 0) {
+      return;
+    }
+    long now = System.nanoTime();
+    long start;
+    synchronized (throttleLock) {
+      start = Math.max(nextChunkNanos, now);
+      nextChunkNanos = start + chunkIntervalNanos;
+    }
+    if (start > now) {
+      try {
+        TimeUnit.NANOSECONDS.sleep(start - now);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException("Reconciliation was interrupted", e);
+      }
+    }
+  }
+
+  private void logSummary(Run run) {
+    ReconciliationDTO result = run.toDto();
+    log.info(
+        "Reconciliation checked {} accounts and found {} balance and {} transfer mismatches,"
+            + " see {}",
+        result.getAccountsChecked(),
+        result.getBalanceMismatches(),
+        result.getTransferMismatches(),
+        result.getReport());
+    for (CurrencyReconciliationDTO currency : result.getCurrencies()) {
+      if (!currency.isConserved()) {
+        log.warn(
+            "{} is not conserved: balances {}, recorded movements {}, {} unbalanced transfers",
+            currency.getCurrency(),
+            currency.getBalance(),
+            currency.getRecorded(),
+            currency.getUnbalancedTransfers());
+      }
+    }
+  }
+
+  private static void closeReport(Run run) {
+    if (run.report != null) {
+      try {
+        run.report.close();
+      } catch (IOException e) {
+        log.warn("Could not close reconciliation report {}", run.checkpoint.report, e);
+      }
+    }
+  }
+
+  @Override
+  public void destroy() throws InterruptedException {
+    stopping = true;
+    synchronized (lock) {
+      if (current != null) {
+        current.aborted = true;
+      }
+    }
+    pool.shutdownNow();
+    runner.shutdownNow();
+    runner.awaitTermination(10, TimeUnit.SECONDS);
+  }
+
+  // Splits [from, to) in halves down to single chunks.
+  private static final class ChunkTask extends RecursiveAction {
+    private final long from;
+    private final long to;
+    private final LongConsumer leaf;
+
+    private ChunkTask(long from, long to, LongConsumer leaf) {
+      this.from = from;
+      this.to = to;
+      this.leaf = leaf;
+    }
+
+    @Override
+    protected void compute() {
+      if (to - from == 1) {
+        leaf.accept(from);
+        return;
+      }
+      long middle = (from + to) >>> 1;
+      invokeAll(new ChunkTask(from, middle, leaf), new ChunkTask(middle, to, leaf));
+    }
+  }
+
+  private final class Run {
+    private final Checkpoint checkpoint;
+    private String status = "running";
+    private Instant finishedAt;
+    // Set once the run has ended; workers still busy with a chunk then drop its result.
+    private volatile boolean aborted;
+    private FileChannel report;
+
+    private Run(Checkpoint checkpoint) {
+      this.checkpoint = checkpoint;
+    }
+
+    private void finish(String status) {
+      this.status = status;
+      this.finishedAt = Instant.now();
+      this.aborted = true;
+    }
+
+    private ReconciliationDTO toDto() {
+      long accountChunks =
+          checkpoint.lastAccountId >= checkpoint.firstAccountId
+              ? checkpoint.lastAccountId / checkpoint.chunkSize
+                  - checkpoint.firstAccountId / checkpoint.chunkSize
+                  + 1
+              : 0;
+      List<CurrencyReconciliationDTO> currencies =
+          new TreeMap<>(checkpoint.currencies)
+              .entrySet().stream()
+                  .map(entry -> entry.getValue().toDto(entry.getKey()))
+                  .collect(Collectors.toList());
+      return new ReconciliationDTO(
+          status,
+          checkpoint.startedAt,
+          finishedAt,
+          checkpoint.report,
+          accountChunks + checkpoint.transferChunks,
+          checkpoint.doneAccountChunks.size() + checkpoint.doneTransferChunks.size(),
+          checkpoint.accountsChecked,
+          checkpoint.balanceMismatches,
+          checkpoint.transferMismatches,
+          currencies);
+    }
+  }
+
+  private static final class ChunkResult {
+    private final Map<AccountCurrency, Totals> totals = new EnumMap<>(AccountCurrency.class);
+    private final List<ReconciliationMismatchDTO> balanceMismatches = new ArrayList<>();
+    private final List<ReconciliationMismatchDTO> transferMismatches = new ArrayList<>();
+    private long accounts;
+
+    private Totals totals(AccountCurrency currency) {
+      return totals.computeIfAbsent(currency, c -> new Totals());
+    }
+  }
+
+  // The checkpoint file, written as JSON.
+  private static final class Checkpoint {
+    public Instant startedAt;
+    public String report;
+    public long firstAccountId;
+    public long lastAccountId;
+    public long chunkSize;
+    public int transferChunks;
+    public Set<Long> doneAccountChunks = new TreeSet<>();
+    public Set<Integer> doneTransferChunks = new TreeSet<>();
+    public long accountsChecked;
+    public long balanceMismatches;
+    public long transferMismatches;
+    public Map<AccountCurrency, Totals> currencies = new EnumMap<>(AccountCurrency.class);
+  }
+
+  private static final class Totals {
+    public long accounts;
+    public long balance;
+    public long recorded;
+    public long transferred;
+    public long unbalancedTransfers;
+    public long convertedOut;
+    public long convertedIn;
+
+    private void add(Totals other) {
+      accounts += other.accounts;
+      balance += other.balance;
+      recorded += other.recorded;
+      transferred += other.transferred;
+      unbalancedTransfers += other.unbalancedTransfers;
+      convertedOut += other.convertedOut;
+      convertedIn += other.convertedIn;
+    }
+
+    private CurrencyReconciliationDTO toDto(AccountCurrency currency) {
+      return new CurrencyReconciliationDTO(
+          currency,
+          accounts,
+          balance,
+          recorded,
+          transferred,
+          unbalancedTransfers,
+          convertedOut,
+          convertedIn);
+    }
+  }
+}
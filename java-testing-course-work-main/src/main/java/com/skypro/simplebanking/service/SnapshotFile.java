@@ -0,0 +1,226 @@
+package com.skypro.simplebanking.service;
+
+import com.skypro.simplebanking.entity.AccountCurrency;
+import com.skypro.simplebanking.exception.InvalidSnapshotException;
+import com.skypro.simplebanking.repository.UserJdbcRepository.AccountRecord;
+import com.skypro.simplebanking.repository.UserJdbcRepository.UserRecord;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.zip.CRC32C;
+
+/**
+ * Binary snapshot of users and their accounts.
+ *
+ * <p>Layout (big-endian): the magic {@code SBSNAP} and a version short, then blocks. A block is
+ * the length and CRC32C of its payload (ints), then the payload: whole records, so a record never
+ * spans two blocks. A user record is the tag {@code U}, the user id (long), the username and the
+ * encoded password (unsigned short length and UTF-8 bytes each), the number of accounts (unsigned
+ * byte) and per account its id (long), currency ordinal (byte) and amount (long). The last block
+ * holds just the end record: the tag {@code E} and the numbers of users and accounts (longs).
+ */
+final class SnapshotFile {
+  private static final byte[] MAGIC = "SBSNAP".getBytes(StandardCharsets.US_ASCII);
+  private static final short VERSION = 1;
+  private static final int BLOCK_HEADER_SIZE = 8;
+  private static final int MAX_PAYLOAD_SIZE = 1 << 20;
+  private static final byte USER = 'U';
+  private static final byte END = 'E';
+
+  private SnapshotFile() {}
+
+  static final class Writer implements Closeable {
+    private final FileChannel channel;
+    private final ByteBuffer block =
+        ByteBuffer.allocateDirect(BLOCK_HEADER_SIZE + MAX_PAYLOAD_SIZE);
+    private final CRC32C checksum = new CRC32C();
+    private long users;
+    private long accounts;
+
+    Writer(Path path) throws IOException {
+      this.channel =
+          FileChannel.open(
+              path,
+              StandardOpenOption.CREATE,
+              StandardOpenOption.TRUNCATE_EXISTING,
+              StandardOpenOption.WRITE);
+      ByteBuffer header = ByteBuffer.allocate(MAGIC.length + 2).put(MAGIC).putShort(VERSION);
+      writeFully(header.flip());
+      block.position(BLOCK_HEADER_SIZE);
+    }
+
+    void write(UserRecord user) throws IOException {
+      byte[] username = user.getUsername().getBytes(StandardCharsets.UTF_8);
+      byte[] password = user.getPassword().getBytes(StandardCharsets.UTF_8);
+      if (username.length > 0xFFFF
+          || password.length > 0xFFFF
+          || user.getAccounts().size() > 0xFF) {
+        throw new IllegalArgumentException("User " + user.getId() + " does not fit a snapshot");
+      }
+      int size = 1 + 8 + 2 + username.length + 2 + password.length + 1;
+      size += user.getAccounts().size() * (8 + 1 + 8);
+      if (block.remaining() < size) {
+        flushBlock();
+      }
+      block.put(USER).putLong(user.getId());
+      block.putShort((short) username.length).put(username);
+      block.putShort((short) password.length).put(password);
+      block.put((byte) user.getAccounts().size());
+      for (AccountRecord account : user.getAccounts()) {
+        block.putLong(account.getId());
+        block.put((byte) account.getCurrency().ordinal());
+        block.putLong(account.getAmount());
+      }
+      users++;
+      accounts += user.getAccounts().size();
+    }
+
+    /** Writes the end record and forces the file to disk. */
+    void finish() throws IOException {
+      flushBlock();
+      block.put(END).putLong(users).putLong(accounts);
+      flushBlock();
+      channel.force(true);
+    }
+
+    long getUsers() {
+      return users;
+    }
+
+    long getAccounts() {
+      return accounts;
+    }
+
+    private void flushBlock() throws IOException {
+      int payloadSize = block.position() - BLOCK_HEADER_SIZE;
+      if (payloadSize == 0) {
+        return;
+      }
+      checksum.reset();
+      checksum.update(block.duplicate().flip().position(BLOCK_HEADER_SIZE));
+      block.putInt(0, payloadSize).putInt(4, (int) checksum.getValue());
+      writeFully(block.flip());
+      block.clear().position(BLOCK_HEADER_SIZE);
+    }
+
+    private void writeFully(ByteBuffer buffer) throws IOException {
+      while (buffer.hasRemaining()) {
+        channel.write(buffer);
+      }
+    }
+
+    @Override
+    public void close() throws IOException {
+      channel.close();
+    }
+  }
+
+  /**
+   * Reads every user record of the snapshot in order. Throws {@link InvalidSnapshotException} at
+   * the first damaged block, and when the end record is missing or does not match the records
+   * read, so reading a file once without acting on its records verifies all of it.
+   */
+  static void read(Path path, Consumer<UserRecord> consumer) throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      ByteBuffer header = ByteBuffer.allocate(MAGIC.length + 2);
+      if (!readFully(channel, header) || !Arrays.equals(magic(header.flip()), MAGIC)) {
+        throw new InvalidSnapshotException("Not a snapshot file");
+      }
+      if (header.getShort() != VERSION) {
+        throw new InvalidSnapshotException("Unsupported snapshot version");
+      }
+      ByteBuffer blockHeader = ByteBuffer.allocate(BLOCK_HEADER_SIZE);
+      ByteBuffer payload = ByteBuffer.allocateDirect(MAX_PAYLOAD_SIZE);
+      CRC32C checksum = new CRC32C();
+      long users = 0;
+      long accounts = 0;
+      while (true) {
+        if (!readFully(channel, blockHeader.clear())) {
+          throw new InvalidSnapshotException("Snapshot ends without its end record");
+        }
+        int payloadSize = blockHeader.getInt(0);
+        if (payloadSize < 1 || payloadSize > MAX_PAYLOAD_SIZE) {
+          throw new InvalidSnapshotException("Snapshot block has an invalid length");
+        }
+        if (!readFully(channel, payload.clear().limit(payloadSize))) {
+          throw new InvalidSnapshotException("Snapshot is truncated");
+        }
+        payload.flip();
+        checksum.reset();
+        checksum.update(payload.duplicate());
+        if ((int) checksum.getValue() != blockHeader.getInt(4)) {
+          throw new InvalidSnapshotException("Snapshot block has a wrong checksum");
+        }
+        try {
+          while (payload.hasRemaining()) {
+            byte tag = payload.get();
+            if (tag == END) {
+              if (payload.getLong() != users || payload.getLong() != accounts) {
+                throw new InvalidSnapshotException(
+                    "Snapshot end record does not match its records");
+              }
+              if (payload.hasRemaining() || channel.position() != channel.size()) {
+                throw new InvalidSnapshotException("Snapshot has data after its end record");
+              }
+              return;
+            }
+            if (tag != USER) {
+              throw new InvalidSnapshotException("Snapshot has an unknown record");
+            }
+            UserRecord user = readUser(payload);
+            users++;
+            accounts += user.getAccounts().size();
+            consumer.accept(user);
+          }
+        } catch (BufferUnderflowException | ArrayIndexOutOfBoundsException e) {
+          throw new InvalidSnapshotException("Snapshot has a malformed record");
+        }
+      }
+    }
+  }
+
+  private static byte[] magic(ByteBuffer header) {
+    byte[] magic = new byte[MAGIC.length];
+    header.get(magic);
+    return magic;
+  }
+
+  private static UserRecord readUser(ByteBuffer payload) {
+    long id = payload.getLong();
+    String username = readString(payload);
+    String password = readString(payload);
+    int accountCount = Byte.toUnsignedInt(payload.get());
+    List<AccountRecord> accounts = new ArrayList<>(accountCount);
+    for (int i = 0; i < accountCount; i++) {
+      accounts.add(
+          new AccountRecord(
+              payload.getLong(), AccountCurrency.values()[payload.get()], payload.getLong()));
+    }
+    return new UserRecord(id, username, password, accounts);
+  }
+
+  private static String readString(ByteBuffer payload) {
+    byte[] bytes = new byte[Short.toUnsignedInt(payload.getShort())];
+    payload.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  // Returns false when the channel ends before the buffer is full.
+  private static boolean readFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+    while (buffer.hasRemaining()) {
+      if (channel.read(buffer) < 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
@@ -0,0 +1,208 @@
+package com.skypro.simplebanking.service;
+
+import com.skypro.simplebanking.dto.SnapshotDTO;
+import com.skypro.simplebanking.event.BalanceChangedEvent;
+import com.skypro.simplebanking.event.BalanceOperation;
+import com.skypro.simplebanking.exception.InvalidSnapshotException;
+import com.skypro.simplebanking.repository.UserJdbcRepository;
+import com.skypro.simplebanking.repository.UserJdbcRepository.AccountRecord;
+import com.skypro.simplebanking.repository.UserJdbcRepository.UserRecord;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * Exports every user and account into a {@link SnapshotFile} in {@code app.snapshot.directory},
+ * and imports such a file, for migrating and seeding environments without replaying the API.
+ *
+ * <p>An import first reads the whole file to verify it, then inserts {@code import-batch-size}
+ * users at a time with their accounts in one transaction, keeping their encoded passwords. Users
+ * and accounts get new ids from the pooled sequence generators; users whose username is already
+ * taken are skipped, so an import that failed halfway can simply be repeated. Every imported
+ * account is published as an opening balance change, like an account created through the API.
+ */
+@Service
+public class SnapshotService {
+  private static final Logger log = LoggerFactory.getLogger(SnapshotService.class);
+  private static final DateTimeFormatter FILE_TIME =
+      DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss").withZone(ZoneOffset.UTC);
+  private static final Pattern FILE_NAME = Pattern.compile("[A-Za-z0-9_-][A-Za-z0-9._-]*");
+
+  private final UserJdbcRepository userJdbcRepository;
+  private final TransactionTemplate transactionTemplate;
+  private final TransactionTemplate readOnlyTransactionTemplate;
+  private final ApplicationEventPublisher eventPublisher;
+  private final Path directory;
+  private final int importBatchSize;
+
+  public SnapshotService(
+      UserJdbcRepository userJdbcRepository,
+      PlatformTransactionManager transactionManager,
+      ApplicationEventPublisher eventPublisher,
+      @Value("${app.snapshot.directory:snapshots}") String directory,
+      @Value("${app.snapshot.import-batch-size:1000}") int importBatchSize) {
+    if (importBatchSize < 1) {
+      throw new IllegalArgumentException("app.snapshot.import-batch-size should be positive");
+    }
+    this.userJdbcRepository = userJdbcRepository;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    this.readOnlyTransactionTemplate = new TransactionTemplate(transactionManager);
+    this.readOnlyTransactionTemplate.setReadOnly(true);
+    this.eventPublisher = eventPublisher;
+    this.directory = Paths.get(directory);
+    this.importBatchSize = importBatchSize;
+  }
+
+  /** Writes a new snapshot, which only appears under its name once it is complete. */
+  public SnapshotDTO export() {
+    String name = "snapshot-" + FILE_TIME.format(Instant.now()) + ".bin";
+    Path file = directory.resolve(name);
+    Path temporary = directory.resolve(name + ".tmp");
+    try {
+      Files.createDirectories(directory);
+      long users;
+      long accounts;
+      try (SnapshotFile.Writer writer = new SnapshotFile.Writer(temporary)) {
+        readOnlyTransactionTemplate.executeWithoutResult(
+            status -> userJdbcRepository.streamAll(user -> write(writer, user)));
+        writer.finish();
+        users = writer.getUsers();
+        accounts = writer.getAccounts();
+      }
+      Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE);
+      log.info("Exported {} users and {} accounts to {}", users, accounts, file);
+      return new SnapshotDTO(name, Files.size(file), users, accounts, 0);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    } finally {
+      try {
+        Files.deleteIfExists(temporary);
+      } catch (IOException e) {
+        log.warn("Could not delete {}", temporary, e);
+      }
+    }
+  }
+
+  private static void write(SnapshotFile.Writer writer, UserRecord user) {
+    try {
+      writer.write(user);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  public SnapshotDTO importSnapshot(String name) {
+    if (!FILE_NAME.matcher(name).matches()) {
+      throw new InvalidSnapshotException("Invalid snapshot name");
+    }
+    Path file = directory.resolve(name);
+    try {
+      SnapshotFile.read(file, user -> {});
+      long[] totals = new long[3];
+      List<UserRecord> batch = new ArrayList<>(importBatchSize);
+      SnapshotFile.read(
+          file,
+          user -> {
+            batch.add(user);
+            if (batch.size() == importBatchSize) {
+              importBatch(batch, totals);
+              batch.clear();
+            }
+          });
+      if (!batch.isEmpty()) {
+        importBatch(batch, totals);
+      }
+      log.info(
+          "Imported {} users and {} accounts from {}, skipped {} users whose name was taken",
+          totals[0],
+          totals[1],
+          file,
+          totals[2]);
+      return new SnapshotDTO(name, Files.size(file), totals[0], totals[1], totals[2]);
+    } catch (NoSuchFileException e) {
+      throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Snapshot not found");
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  // Adds the numbers of imported users, imported accounts and skipped users to totals.
+  private void importBatch(List<UserRecord> batch, long[] totals) {
+    long[] counts =
+        transactionTemplate.execute(
+            status -> {
+              Set<String> taken =
+                  new HashSet<>(
+                      userJdbcRepository.findExistingUsernames(
+                          batch.stream().map(UserRecord::getUsername).collect(Collectors.toSet())));
+              List<UserRecord> fresh = new ArrayList<>(batch.size());
+              int accountCount = 0;
+              for (UserRecord user : batch) {
+                if (taken.add(user.getUsername())) {
+                  fresh.add(user);
+                  accountCount += user.getAccounts().size();
+                }
+              }
+              List<UserRecord> imported = withNewIds(fresh, accountCount);
+              userJdbcRepository.insertAll(imported);
+              for (UserRecord user : imported) {
+                for (AccountRecord account : user.getAccounts()) {
+                  eventPublisher.publishEvent(
+                      new BalanceChangedEvent(
+                          account.getId(),
+                          user.getId(),
+                          account.getCurrency(),
+                          BalanceOperation.OPENING,
+                          account.getAmount(),
+                          account.getAmount(),
+                          0));
+                }
+              }
+              return new long[] {fresh.size(), accountCount, batch.size() - fresh.size()};
+            });
+    for (int i = 0; i < totals.length; i++) {
+      totals[i] += counts[i];
+    }
+  }
+
+  private List<UserRecord> withNewIds(List<UserRecord> users, int accountCount) {
+    long[] userIds = userJdbcRepository.allocateUserIds(users.size());
+    long[] accountIds = userJdbcRepository.allocateAccountIds(accountCount);
+    List<UserRecord> renumbered = new ArrayList<>(users.size());
+    int nextAccount = 0;
+    for (int i = 0; i < users.size(); i++) {
+      UserRecord user = users.get(i);
+      List<AccountRecord> accounts = new ArrayList<>(user.getAccounts().size());
+      for (AccountRecord account : user.getAccounts()) {
+        accounts.add(
+            new AccountRecord(
+                accountIds[nextAccount++], account.getCurrency(), account.getAmount()));
+      }
+      renumbered.add(
+          new UserRecord(userIds[i], user.getUsername(), user.getPassword(), accounts));
+    }
+    return renumbered;
+  }
+}
@@ -0,0 +1,142 @@
+package com.skypro.simplebanking.service;
+
+import com.skypro.simplebanking.exception.AccountNotFoundException;
+import com.skypro.simplebanking.repository.AccountBalanceStripeJdbcRepository;
+import com.skypro.simplebanking.repository.AccountJdbcRepository;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Collectors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * Split-balance mode for hot accounts that receive many concurrent credits. The balance of such
+ * an account is its accounts row plus its rows in account_balance_stripes. Credits add to one
+ * randomly chosen stripe and never touch the accounts row, so they rarely wait for each other.
+ *
+ * <p>Debits still go to the accounts row, under its lock. A debit that finds the row short first
+ * folds the stripes into it, so the usual funds checks see the full balance; stripes only ever
+ * grow until folded, which keeps the row plus stripes from going below zero. A scheduled job also
+ * folds every split account periodically.
+ */
+@Service
+public class SplitBalanceService implements SmartInitializingSingleton {
+  private static final Logger log = LoggerFactory.getLogger(SplitBalanceService.class);
+
+  private final AccountBalanceStripeJdbcRepository stripeRepository;
+  private final AccountJdbcRepository accountJdbcRepository;
+  private final TransactionTemplate transactionTemplate;
+  private final Set<Long> splitAccountIds = ConcurrentHashMap.newKeySet();
+  private final int stripes;
+  private final boolean ledgerEnabled;
+
+  public SplitBalanceService(
+      AccountBalanceStripeJdbcRepository stripeRepository,
+      AccountJdbcRepository accountJdbcRepository,
+      PlatformTransactionManager transactionManager,
+      @Value("${app.split-balance.stripes:16}") int stripes,
+      @Value("${app.ledger.enabled:false}") boolean ledgerEnabled) {
+    if (stripes < 1) {
+      throw new IllegalArgumentException("app.split-balance.stripes should be positive");
+    }
+    this.stripeRepository = stripeRepository;
+    this.accountJdbcRepository = accountJdbcRepository;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    this.stripes = stripes;
+    this.ledgerEnabled = ledgerEnabled;
+  }
+
+  @Override
+  public void afterSingletonsInstantiated() {
+    List<Long> accountIds = stripeRepository.findSplitAccountIds();
+    transactionTemplate.executeWithoutResult(
+        status -> accountIds.forEach(id -> stripeRepository.createStripes(id, stripes)));
+    splitAccountIds.addAll(accountIds);
+    if (!accountIds.isEmpty()) {
+      log.info("{} accounts use split balances", accountIds.size());
+    }
+  }
+
+  public boolean isSplit(long accountId) {
+    return !splitAccountIds.isEmpty() && splitAccountIds.contains(accountId);
+  }
+
+  public List<Long> getSplitAccountIds() {
+    return splitAccountIds.stream().sorted().collect(Collectors.toList());
+  }
+
+  public void enable(long accountId) {
+    if (ledgerEnabled) {
+      throw new ResponseStatusException(
+          HttpStatus.BAD_REQUEST, "Split balances are not supported by the ledger engine");
+    }
+    transactionTemplate.executeWithoutResult(
+        status -> {
+          if (accountJdbcRepository.lockAll(List.of(accountId)).isEmpty()) {
+            throw new AccountNotFoundException();
+          }
+          stripeRepository.createStripes(accountId, stripes);
+        });
+    splitAccountIds.add(accountId);
+  }
+
+  // Credits that still picked a stripe after the account left the set find it deleted and fall
+  // back to the accounts row.
+  public void disable(long accountId) {
+    splitAccountIds.remove(accountId);
+    transactionTemplate.executeWithoutResult(
+        status -> {
+          stripeRepository.foldIfShort(accountId, Long.MAX_VALUE);
+          stripeRepository.deleteStripes(accountId);
+        });
+  }
+
+  /**
+   * Adds the amount to a random stripe of a split account. Returns false when the account has no
+   * stripes, in which case the caller credits the accounts row itself.
+   */
+  public boolean credit(long accountId, long amount) {
+    return isSplit(accountId)
+        && stripeRepository.credit(
+            accountId, ThreadLocalRandom.current().nextInt(stripes), amount);
+  }
+
+  /** Makes the accounts row of a split account hold at least {@code amount} if it can. */
+  public void prepareDebit(long accountId, long amount) {
+    if (isSplit(accountId)) {
+      stripeRepository.foldIfShort(accountId, amount);
+    }
+  }
+
+  /** Returns the full balance of an account whose accounts row holds {@code rowAmount}. */
+  public long balanceOf(long accountId, long rowAmount) {
+    return isSplit(accountId) ? rowAmount + stripeRepository.pendingAmount(accountId) : rowAmount;
+  }
+
+  public long balance(long accountId) {
+    return stripeRepository.balance(accountId);
+  }
+
+  @Scheduled(fixedDelayString = "${app.split-balance.fold-interval-ms:1000}")
+  public void foldAll() {
+    for (Long accountId : getSplitAccountIds()) {
+      try {
+        transactionTemplate.executeWithoutResult(
+            status -> stripeRepository.foldIfShort(accountId, Long.MAX_VALUE));
+      } catch (DataAccessException e) {
+        log.warn("Could not fold split balance of account {}", accountId, e);
+      }
+    }
+  }
+}
@@ -0,0 +1,208 @@
+package com.skypro.simplebanking.service;
+
+import com.skypro.simplebanking.dto.BankingUserDetails;
+import com.skypro.simplebanking.dto.TokenDTO;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * Issues and verifies short-lived HMAC-SHA256 signed tokens carrying the user id and role, so
+ * authenticated requests need neither BCrypt nor a database lookup.
+ *
+ * <p>A token is {@code base64url(payload).base64url(signature)} where the payload is {@code
+ * keyId:userId:admin:issuedAt:expiresAt:tokenId:username}, times in epoch millis. Tokens are
+ * signed with the active key and accepted with any configured key, so a key is rotated by adding
+ * the new one, making it active, and removing the old one once its tokens have expired.
+ * Revocations are kept in memory until the revoked tokens would have expired anyway.
+ *
+ * <p>Token authentication is off unless {@code app.security.token.enabled} is set, and then it
+ * needs keys: no key ships with the application, since anyone who knows one can forge tokens.
+ */
+@Service
+public class TokenService {
+  private static final String ALGORITHM = "HmacSHA256";
+  private static final int MIN_KEY_BYTES = 32;
+  private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+  private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+  private final boolean enabled;
+  private final Map<String, SigningKey> keys = new HashMap<>();
+  private final SigningKey activeKey;
+  private final Duration ttl;
+  private final Map<Long, Long> revokedTokens = new ConcurrentHashMap<>();
+  private final Map<Long, Long> revokedBefore = new ConcurrentHashMap<>();
+
+  public TokenService(
+      @Value("${app.security.token.enabled:false}") boolean enabled,
+      @Value("${app.security.token.keys:}") String keys,
+      @Value("${app.security.token.active-key:}") String activeKey,
+      @Value("${app.security.token.ttl-minutes:15}") long ttlMinutes) {
+    this.enabled = enabled;
+    this.ttl = Duration.ofMinutes(ttlMinutes);
+    if (!enabled) {
+      this.activeKey = null;
+      return;
+    }
+    if (keys.isBlank()) {
+      throw new IllegalArgumentException(
+          "app.security.token.keys should be set when app.security.token.enabled is true");
+    }
+    for (String entry : keys.split(",")) {
+      String[] parts = entry.trim().split(":", 2);
+      if (parts.length != 2 || parts[0].isEmpty() || parts[0].contains(":")) {
+        throw new IllegalArgumentException("app.security.token.keys should be id:base64 pairs");
+      }
+      byte[] secret = Base64.getDecoder().decode(parts[1]);
+      if (secret.length < MIN_KEY_BYTES) {
+        throw new IllegalArgumentException(
+            "Token key " + parts[0] + " should be at least " + MIN_KEY_BYTES + " bytes");
+      }
+      this.keys.put(parts[0], new SigningKey(parts[0], secret));
+    }
+    this.activeKey = this.keys.get(activeKey);
+    if (this.activeKey == null) {
+      throw new IllegalArgumentException("Active token key " + activeKey + " is not configured");
+    }
+  }
+
+  public TokenDTO issue(BankingUserDetails user) {
+    if (!enabled) {
+      throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Token authentication is disabled");
+    }
+    Instant issuedAt = Instant.now();
+    Instant expiresAt = issuedAt.plus(ttl);
+    long tokenId = ThreadLocalRandom.current().nextLong() & Long.MAX_VALUE;
+    String payload =
+        String.join(
+            ":",
+            activeKey.id,
+            Long.toString(user.getId()),
+            user.getAuthorities().stream().anyMatch(a -> a.getAuthority().equals("ROLE_ADMIN"))
+                ? "1"
+                : "0",
+            Long.toString(issuedAt.toEpochMilli()),
+            Long.toString(expiresAt.toEpochMilli()),
+            Long.toString(tokenId),
+            user.getUsername());
+    byte[] payloadBytes = payload.getBytes(StandardCharsets.UTF_8);
+    String token =
+        ENCODER.encodeToString(payloadBytes)
+            + "."
+            + ENCODER.encodeToString(activeKey.sign(payloadBytes));
+    return new TokenDTO(token, expiresAt);
+  }
+
+  public Optional<BankingUserDetails> verify(String token) {
+    return parse(token)
+        .filter(claims -> claims.expiresAt > System.currentTimeMillis())
+        .filter(claims -> !revokedTokens.containsKey(claims.tokenId))
+        .filter(claims -> claims.issuedAt > revokedBefore.getOrDefault(claims.userId, -1L))
+        .map(claims -> new BankingUserDetails(claims.userId, claims.username, "", claims.admin));
+  }
+
+  public void revoke(String token) {
+    parse(token).ifPresent(claims -> revokedTokens.put(claims.tokenId, claims.expiresAt));
+  }
+
+  /** Revokes every token issued to the user up to now. */
+  public void revokeAll(long userId) {
+    revokedBefore.put(userId, System.currentTimeMillis());
+  }
+
+  @Scheduled(fixedDelayString = "${app.security.token.purge-interval-ms:60000}")
+  public void purgeRevocations() {
+    long now = System.currentTimeMillis();
+    revokedTokens.values().removeIf(expiresAt -> expiresAt <= now);
+    revokedBefore.values().removeIf(before -> before + ttl.toMillis() <= now);
+  }
+
+  private Optional<Claims> parse(String token) {
+    int dot = token.indexOf('.');
+    if (dot < 0) {
+      return Optional.empty();
+    }
+    try {
+      byte[] payload = DECODER.decode(token.substring(0, dot));
+      byte[] signature = DECODER.decode(token.substring(dot + 1));
+      String[] fields = new String(payload, StandardCharsets.UTF_8).split(":", 7);
+      if (fields.length != 7) {
+        return Optional.empty();
+      }
+      SigningKey key = keys.get(fields[0]);
+      if (key == null || !MessageDigest.isEqual(key.sign(payload), signature)) {
+        return Optional.empty();
+      }
+      return Optional.of(
+          new Claims(
+              Long.parseLong(fields[1]),
+              fields[2].equals("1"),
+              Long.parseLong(fields[3]),
+              Long.parseLong(fields[4]),
+              Long.parseLong(fields[5]),
+              fields[6]));
+    } catch (IllegalArgumentException e) {
+      return Optional.empty();
+    }
+  }
+
+  private static final class SigningKey {
+    private final String id;
+    private final SecretKeySpec secret;
+    private final ThreadLocal<Mac> macs;
+
+    private SigningKey(String id, byte[] secret) {
+      this.id = id;
+      this.secret = new SecretKeySpec(secret, ALGORITHM);
+      this.macs = ThreadLocal.withInitial(this::newMac);
+    }
+
+    private byte[] sign(byte[] payload) {
+      return macs.get().doFinal(payload);
+    }
+
+    private Mac newMac() {
+      try {
+        Mac mac = Mac.getInstance(ALGORITHM);
+        mac.init(secret);
+        return mac;
+      } catch (GeneralSecurityException e) {
+        throw new IllegalStateException(e);
+      }
+    }
+  }
+
+  private static final class Claims {
+    private final long userId;
+    private final boolean admin;
+    private final long issuedAt;
+    private final long expiresAt;
+    private final long tokenId;
+    private final String username;
+
+    private Claims(
+        long userId, boolean admin, long issuedAt, long expiresAt, long tokenId, String username) {
+      this.userId = userId;
+      this.admin = admin;
+      this.issuedAt = issuedAt;
+      this.expiresAt = expiresAt;
+      this.tokenId = tokenId;
+      this.username = username;
+    }
+  }
+}
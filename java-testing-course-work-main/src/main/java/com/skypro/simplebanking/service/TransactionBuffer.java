@@ -0,0 +1,71 @@
+package com.skypro.simplebanking.service;
+
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Collects what a transaction has to write along with its balance changes and flushes it once,
+ * right before the transaction commits, so the extra writes commit or roll back with the
+ * changes. Outside of a transaction every addition is flushed on its own, right away.
+ */
+public class TransactionBuffer<B> {
+  private final Supplier<B> factory;
+  private final Consumer<B> flush;
+  private final Consumer<B> undo;
+
+  public TransactionBuffer(Supplier<B> factory, Consumer<B> flush) {
+    this(factory, flush, buffer -> {});
+  }
+
+  /**
+   * Like {@link #TransactionBuffer(Supplier, Consumer)}, with {@code undo} called when the
+   * transaction rolls back once the flush has started, for writes that the rollback does not take
+   * back.
+   */
+  public TransactionBuffer(Supplier<B> factory, Consumer<B> flush, Consumer<B> undo) {
+    this.factory = factory;
+    this.flush = flush;
+    this.undo = undo;
+  }
+
+  /** Applies the change to the buffer of the current transaction. */
+  public void add(Consumer<B> change) {
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      B buffer = factory.get();
+      change.accept(buffer);
+      flush.accept(buffer);
+      return;
+    }
+    change.accept(current());
+  }
+
+  @SuppressWarnings("unchecked")
+  private B current() {
+    B pending = (B) TransactionSynchronizationManager.getResource(this);
+    if (pending != null) {
+      return pending;
+    }
+    B buffer = factory.get();
+    boolean[] flushed = {false};
+    TransactionSynchronizationManager.bindResource(this, buffer);
+    TransactionSynchronizationManager.registerSynchronization(
+        new TransactionSynchronization() {
+          @Override
+          public void beforeCommit(boolean readOnly) {
+            flushed[0] = true;
+            flush.accept(buffer);
+          }
+
+          @Override
+          public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResource(TransactionBuffer.this);
+            if (flushed[0] && status == STATUS_ROLLED_BACK) {
+              undo.accept(buffer);
+            }
+          }
+        });
+    return buffer;
+  }
+}
@@ -0,0 +1,317 @@
+package com.skypro.simplebanking.service;
+
+import com.skypro.simplebanking.entity.AccountCurrency;
+import com.skypro.simplebanking.event.BalanceChangedEvent;
+import com.skypro.simplebanking.event.BalanceOperation;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Append-only log of every committed balance change. Records have a fixed size and are written
+ * into memory-mapped segment files; a background thread forces dirty segments to disk every few
+ * milliseconds, so all appends within that window share one fsync.
+ *
+ * <p>The changes of a transaction are appended right before it commits, and the commit waits
+ * until they are on disk, so the journal holds every committed change. When the commit fails
+ * after that, records with the opposite deltas are appended; a crash in between leaves the
+ * journal ahead of the database, which {@link JournalReplayer} repairs.
+ *
+ * <p>Record layout (48 bytes, big-endian): account id, delta, epoch millis, transfer id (longs),
+ * currency ordinal, operation ordinal (ints), CRC32C of the preceding 40 bytes, padding.
+ */
+@Component
+@ConditionalOnProperty(name = "app.journal.enabled", havingValue = "true")
+public class TransactionJournal implements DisposableBean {
+  private static final int RECORD_SIZE = 48;
+  private static final int CHECKSUMMED_SIZE = 40;
+  private static final String SEGMENT_PREFIX = "journal-";
+  private static final String SEGMENT_SUFFIX = ".log";
+  private static final Logger log = LoggerFactory.getLogger(TransactionJournal.class);
+
+  private final TransactionBuffer<List<BalanceChangedEvent>> pendingEvents =
+      new TransactionBuffer<>(
+          ArrayList::new,
+          events -> awaitDurable(appendAll(events, false)),
+          events -> appendAll(events, true));
+  private final Path directory;
+  private final int segmentSize;
+  private final long fsyncTimeoutNanos;
+  private final ScheduledExecutorService syncer;
+  private final CRC32C crc = new CRC32C();
+  private final ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE);
+  private final Object durableLock = new Object();
+  private MappedByteBuffer segment;
+  private long segmentIndex;
+  private long appended;
+  private boolean dirty;
+  // Number of records known to be on disk, guarded by durableLock.
+  private long durable;
+
+  public TransactionJournal(
+      @Value("${app.journal.directory:journal}") String directory,
+      @Value("${app.journal.segment-size-mb:64}") int segmentSizeMb,
+      @Value("${app.journal.fsync-interval-ms:2}") long fsyncIntervalMs,
+      @Value("${app.journal.fsync-timeout-ms:1000}") long fsyncTimeoutMs)
+      throws IOException {
+    // A segment is mapped as one buffer, which holds at most Integer.MAX_VALUE bytes.
+    long segmentBytes = segmentSizeMb * 1024L * 1024L;
+    if (segmentSizeMb < 1 || segmentBytes > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException(
+          "app.journal.segment-size-mb should be between 1 and " + Integer.MAX_VALUE / 1024 / 1024);
+    }
+    if (fsyncIntervalMs < 1 || fsyncTimeoutMs < 1) {
+      throw new IllegalArgumentException(
+          "app.journal.fsync-interval-ms and fsync-timeout-ms should be positive");
+    }
+    this.directory = Paths.get(directory);
+    this.segmentSize = (int) (segmentBytes / RECORD_SIZE * RECORD_SIZE);
+    this.fsyncTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(fsyncTimeoutMs);
+    Files.createDirectories(this.directory);
+    List<Path> segments = segments(this.directory);
+    if (segments.isEmpty()) {
+      openSegment(0);
+    } else {
+      Path last = segments.get(segments.size() - 1);
+      openSegment(segmentIndex(last));
+      segment.position(endOfRecords(segment));
+    }
+    this.syncer = Executors.newSingleThreadScheduledExecutor(r -> new Thread(r, "journal-fsync"));
+    syncer.scheduleWithFixedDelay(
+        this::syncSafely, fsyncIntervalMs, fsyncIntervalMs, TimeUnit.MILLISECONDS);
+  }
+
+  @EventListener
+  public void onBalanceChanged(BalanceChangedEvent event) {
+    pendingEvents.add(events -> events.add(event));
+  }
+
+  /**
+   * Appends the events, with their deltas negated when {@code reversed}, and returns the number
+   * of records that have to be on disk for them to be.
+   */
+  public synchronized long appendAll(List<BalanceChangedEvent> events, boolean reversed) {
+    for (BalanceChangedEvent event : events) {
+      if (segment.remaining() < RECORD_SIZE) {
+        segment.force();
+        openSegment(segmentIndex + 1);
+      }
+      record.clear();
+      record
+          .putLong(event.getAccountId())
+          .putLong(reversed ? -event.getDelta() : event.getDelta())
+          .putLong(event.getCreatedAt().toEpochMilli())
+          .putLong(event.getTransferId())
+          .putInt(event.getCurrency().ordinal())
+          .putInt(event.getOperation().ordinal());
+      crc.reset();
+      crc.update(record.array(), 0, CHECKSUMMED_SIZE);
+      record.putInt((int) crc.getValue()).putInt(0);
+      segment.put(record.array());
+      appended++;
+      dirty = true;
+    }
+    return appended;
+  }
+
+  /** Waits until the first {@code position} records are on disk. */
+  public void awaitDurable(long position) {
+    long deadline = System.nanoTime() + fsyncTimeoutNanos;
+    synchronized (durableLock) {
+      while (durable < position) {
+        long remaining = deadline - System.nanoTime();
+        if (remaining <= 0) {
+          throw new IllegalStateException("Transaction journal was not forced to disk in time");
+        }
+        try {
+          TimeUnit.NANOSECONDS.timedWait(durableLock, remaining);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new IllegalStateException("Interrupted while waiting for the transaction journal");
+        }
+      }
+    }
+  }
+
+  // Forcing happens outside of the lock so appenders never wait for the disk. Segments that
+  // filled up were forced when the next one was opened.
+  private void sync() {
+    MappedByteBuffer dirtySegment;
+    long position;
+    synchronized (this) {
+      if (!dirty) {
+        return;
+      }
+      dirty = false;
+      dirtySegment = segment;
+      position = appended;
+    }
+    try {
+      dirtySegment.force();
+    } catch (RuntimeException e) {
+      synchronized (this) {
+        dirty = true;
+      }
+      throw e;
+    }
+    synchronized (durableLock) {
+      durable = Math.max(durable, position);
+      durableLock.notifyAll();
+    }
+  }
+
+  private void syncSafely() {
+    try {
+      sync();
+    } catch (RuntimeException e) {
+      log.error("Failed to fsync transaction journal", e);
+    }
+  }
+
+  private void openSegment(long index) {
+    Path path =
+        directory.resolve(String.format("%s%012d%s", SEGMENT_PREFIX, index, SEGMENT_SUFFIX));
+    try (FileChannel channel =
+        FileChannel.open(
+            path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+      segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+      segmentIndex = index;
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  @Override
+  public void destroy() throws InterruptedException {
+    syncer.shutdown();
+    syncer.awaitTermination(1, TimeUnit.SECONDS);
+    sync();
+  }
+
+  /** Reads every valid record of the journal in {@code directory}, oldest first. */
+  public static void read(Path directory, Consumer<JournalRecord> consumer) throws IOException {
+    if (!Files.isDirectory(directory)) {
+      return;
+    }
+    for (Path path : segments(directory)) {
+      try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        int end = endOfRecords(buffer);
+        for (int position = 0; position < end; position += RECORD_SIZE) {
+          consumer.accept(
+              new JournalRecord(
+                  buffer.getLong(position),
+                  buffer.getLong(position + 8),
+                  buffer.getLong(position + 16),
+                  buffer.getLong(position + 24),
+                  AccountCurrency.values()[buffer.getInt(position + 32)],
+                  BalanceOperation.values()[buffer.getInt(position + 36)]));
+        }
+      }
+    }
+  }
+
+  // The first record whose checksum does not match marks the end of what was written.
+  private static int endOfRecords(ByteBuffer buffer) {
+    CRC32C checksum = new CRC32C();
+    byte[] bytes = new byte[CHECKSUMMED_SIZE];
+    int position = 0;
+    while (position + RECORD_SIZE <= buffer.limit()) {
+      buffer.get(position, bytes);
+      checksum.reset();
+      checksum.update(bytes);
+      int stored = buffer.getInt(position + CHECKSUMMED_SIZE);
+      if (stored != (int) checksum.getValue()) {
+        break;
+      }
+      position += RECORD_SIZE;
+    }
+    return position;
+  }
+
+  private static List<Path> segments(Path directory) throws IOException {
+    try (Stream<Path> files = Files.list(directory)) {
+      return files
+          .filter(path -> path.getFileName().toString().startsWith(SEGMENT_PREFIX))
+          .filter(path -> path.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+          .sorted()
+          .collect(Collectors.toList());
+    }
+  }
+
+  private static long segmentIndex(Path path) {
+    String name = path.getFileName().toString();
+    return Long.parseLong(
+        name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+  }
+
+  public static class JournalRecord {
+    private final long accountId;
+    private final long delta;
+    private final long timestamp;
+    private final long transferId;
+    private final AccountCurrency currency;
+    private final BalanceOperation operation;
+
+    public JournalRecord(
+        long accountId,
+        long delta,
+        long timestamp,
+        long transferId,
+        AccountCurrency currency,
+        BalanceOperation operation) {
+      this.accountId = accountId;
+      this.delta = delta;
+      this.timestamp = timestamp;
+      this.transferId = transferId;
+      this.currency = currency;
+      this.operation = operation;
+    }
+
+    public long getAccountId() {
+      return accountId;
+    }
+
+    public long getDelta() {
+      return delta;
+    }
+
+    public long getTimestamp() {
+      return timestamp;
+    }
+
+    public long getTransferId() {
+      return transferId;
+    }
+
+    public AccountCurrency getCurrency() {
+      return currency;
+    }
+
+    public BalanceOperation getOperation() {
+      return operation;
+    }
+  }
+}
@@ -0,0 +1,71 @@
+package com.skypro.simplebanking.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Runs a unit of work in its own transaction and retries it with bounded, jittered exponential
+ * backoff when it loses a concurrency conflict (optimistic version mismatch, lock timeout or
+ * deadlock).
+ */
+@Component
+public class TransactionRetryTemplate {
+  private final TransactionTemplate transactionTemplate;
+  private final int maxAttempts;
+  private final long initialBackoffMs;
+  private final long maxBackoffMs;
+  private final Counter retries;
+  private final Counter exhausted;
+
+  public TransactionRetryTemplate(
+      PlatformTransactionManager transactionManager,
+      MeterRegistry meterRegistry,
+      @Value("${app.retry.max-attempts:5}") int maxAttempts,
+      @Value("${app.retry.initial-backoff-ms:5}") long initialBackoffMs,
+      @Value("${app.retry.max-backoff-ms:200}") long maxBackoffMs) {
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    this.maxAttempts = Math.max(1, maxAttempts);
+    this.initialBackoffMs = initialBackoffMs;
+    this.maxBackoffMs = maxBackoffMs;
+    this.retries = meterRegistry.counter("banking.transaction.retries");
+    this.exhausted = meterRegistry.counter("banking.transaction.retries.exhausted");
+  }
+
+  public <T> T execute(Supplier<T> action) {
+    // A conflict marks an enclosing transaction rollback-only, so retrying inside it is useless.
+    if (TransactionSynchronizationManager.isActualTransactionActive()) {
+      return action.get();
+    }
+    long backoffMs = initialBackoffMs;
+    for (int attempt = 1; ; attempt++) {
+      try {
+        return transactionTemplate.execute(status -> action.get());
+      } catch (ConcurrencyFailureException e) {
+        if (attempt >= maxAttempts) {
+          exhausted.increment();
+          throw e;
+        }
+        retries.increment();
+        sleep(ThreadLocalRandom.current().nextLong(backoffMs / 2, backoffMs + 1), e);
+        backoffMs = Math.min(maxBackoffMs, backoffMs * 2);
+      }
+    }
+  }
+
+  private static void sleep(long millis, ConcurrencyFailureException cause) {
+    try {
+      Thread.sleep(millis);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw cause;
+    }
+  }
+}
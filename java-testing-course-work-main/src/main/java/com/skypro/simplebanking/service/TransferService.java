@@ -1,27 +1,328 @@
 package com.skypro.simplebanking.service;
 
+import com.skypro.simplebanking.dto.BatchTransferDTO;
 import com.skypro.simplebanking.dto.TransferRequest;
+import com.skypro.simplebanking.dto.TransferResultDTO;
+import com.skypro.simplebanking.event.BalanceChangedEvent;
+import com.skypro.simplebanking.event.BalanceOperation;
+import com.skypro.simplebanking.exception.AccountNotFoundException;
+import com.skypro.simplebanking.exception.InsufficientFundsException;
+import com.skypro.simplebanking.exception.InvalidAmountException;
+import com.skypro.simplebanking.exception.VelocityLimitExceededException;
+import com.skypro.simplebanking.exception.WrongCurrencyException;
+import com.skypro.simplebanking.repository.AccountJdbcRepository;
+import com.skypro.simplebanking.repository.AccountJdbcRepository.AccountRow;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.server.ResponseStatusException;
 
 @Service
 public class TransferService {
   private final AccountService accountService;
+  private final AccountJdbcRepository accountJdbcRepository;
+  private final TransactionRetryTemplate retryTemplate;
+  private final LedgerEngine ledgerEngine;
+  private final ExchangeRateService exchangeRateService;
+  private final SplitBalanceService splitBalances;
+  private final ApplicationEventPublisher eventPublisher;
+  private final BankingMetrics metrics;
+  private final int maxBatchSize;
+  private final boolean conditionalUpdates;
 
-  public TransferService(AccountService accountService) {
+  public TransferService(
+      AccountService accountService,
+      AccountJdbcRepository accountJdbcRepository,
+      TransactionRetryTemplate retryTemplate,
+      ObjectProvider<LedgerEngine> ledgerEngine,
+      ExchangeRateService exchangeRateService,
+      SplitBalanceService splitBalances,
+      ApplicationEventPublisher eventPublisher,
+      BankingMetrics metrics,
+      @Value("${app.transfer.batch.max-size:10000}") int maxBatchSize,
+      @Value("${app.transfer.mode:locking}") String mode) {
     this.accountService = accountService;
+    this.accountJdbcRepository = accountJdbcRepository;
+    this.retryTemplate = retryTemplate;
+    this.ledgerEngine = ledgerEngine.getIfAvailable();
+    this.exchangeRateService = exchangeRateService;
+    this.splitBalances = splitBalances;
+    this.eventPublisher = eventPublisher;
+    this.metrics = metrics;
+    this.maxBatchSize = maxBatchSize;
+    if (!mode.equals("locking") && !mode.equals("conditional-update")) {
+      throw new IllegalArgumentException(
+          "app.transfer.mode should be locking or conditional-update");
+    }
+    this.conditionalUpdates = mode.equals("conditional-update");
   }
 
-  @Transactional
   public void transfer(long id, @RequestBody TransferRequest transferRequest) {
-    accountService.validateCurrency(
-        transferRequest.getFromAccountId(), transferRequest.getToAccountId());
-    accountService.withdrawFromAccount(
-        id, transferRequest.getFromAccountId(), transferRequest.getAmount());
-    accountService.depositToAccount(
+    long startNanos = System.nanoTime();
+    try {
+      transferOne(id, transferRequest);
+    } catch (RuntimeException e) {
+      metrics.transfer().rejected(e);
+      throw e;
+    } finally {
+      metrics.transfer().recordSince(startNanos);
+    }
+  }
+
+  private void transferOne(long id, TransferRequest transferRequest) {
+    VelocityEngine.Reservation reservation =
+        accountService.reserveDebit(
+            id, transferRequest.getFromAccountId(), transferRequest.getAmount());
+    try {
+      applyOne(id, transferRequest);
+    } catch (RuntimeException e) {
+      if (reservation != null) {
+        reservation.cancel();
+      }
+      throw e;
+    }
+  }
+
+  private void applyOne(long id, TransferRequest transferRequest) {
+    if (ledgerEngine != null) {
+      ledgerEngine.transfer(
+          id,
+          transferRequest.getFromAccountId(),
+          transferRequest.getToUserId(),
+          transferRequest.getToAccountId(),
+          transferRequest.getAmount());
+      return;
+    }
+    if (conditionalUpdates) {
+      accountService.transferConditionally(
+          id,
+          transferRequest.getFromAccountId(),
+          transferRequest.getToUserId(),
+          transferRequest.getToAccountId(),
+          transferRequest.getAmount());
+      return;
+    }
+    accountService.transfer(
+        id,
+        transferRequest.getFromAccountId(),
         transferRequest.getToUserId(),
         transferRequest.getToAccountId(),
         transferRequest.getAmount());
   }
+
+  public BatchTransferDTO transferBatch(
+      long id, List<TransferRequest> transferRequests, boolean allOrNothing) {
+    if (transferRequests.size() > maxBatchSize) {
+      throw new ResponseStatusException(
+          HttpStatus.PAYLOAD_TOO_LARGE,
+          "Batch should contain at most " + maxBatchSize + " transfers");
+    }
+    if (ledgerEngine != null) {
+      return transferBatchInLedger(id, transferRequests, allOrNothing);
+    }
+    // Debits counted by an attempt that is retried or fails are taken back.
+    List<VelocityEngine.Reservation> reservations = new ArrayList<>();
+    try {
+      return retryTemplate.execute(
+          () -> {
+            cancelAll(reservations);
+            return transferBatchInDatabase(id, transferRequests, allOrNothing, reservations);
+          });
+    } catch (RuntimeException e) {
+      cancelAll(reservations);
+      throw e;
+    }
+  }
+
+  private BatchTransferDTO transferBatchInDatabase(
+      long id,
+      List<TransferRequest> transferRequests,
+      boolean allOrNothing,
+      List<VelocityEngine.Reservation> reservations) {
+    Set<Long> accountIds = new HashSet<>();
+    Map<Long, Long> debits = new HashMap<>();
+    for (TransferRequest transferRequest : transferRequests) {
+      accountIds.add(transferRequest.getFromAccountId());
+      accountIds.add(transferRequest.getToAccountId());
+      debits.merge(
+          transferRequest.getFromAccountId(), Math.max(0, transferRequest.getAmount()), Long::sum);
+    }
+    Map<Long, AccountRow> accounts =
+        accountJdbcRepository.lockAll(accountIds).stream()
+            .collect(Collectors.toMap(AccountRow::getId, Function.identity()));
+    foldShortSources(id, accounts, debits);
+    Map<Long, Long> balances = new HashMap<>();
+    ExchangeRates rates = exchangeRateService.current();
+    List<BalanceChangedEvent> events = new ArrayList<>();
+    List<TransferResultDTO> results = new ArrayList<>(transferRequests.size());
+    int appliedCount = 0;
+    for (int i = 0; i < transferRequests.size(); i++) {
+      try {
+        applyInMemory(
+            id, transferRequests.get(i), accounts, balances, rates, events, reservations);
+        results.add(new TransferResultDTO(i, true, null));
+        appliedCount++;
+      } catch (AccountNotFoundException
+          | WrongCurrencyException
+          | InvalidAmountException
+          | InsufficientFundsException
+          | VelocityLimitExceededException e) {
+        metrics.transfer().rejected(e);
+        results.add(new TransferResultDTO(i, false, describe(e)));
+      }
+    }
+    if (allOrNothing && appliedCount < transferRequests.size()) {
+      cancelAll(reservations);
+      return new BatchTransferDTO(0, notApplied(results));
+    }
+    accountJdbcRepository.updateAmounts(balances);
+    events.forEach(eventPublisher::publishEvent);
+    return new BatchTransferDTO(appliedCount, results);
+  }
+
+  // Like AccountService.foldIfShort: only split accounts of the caller that cannot cover what the
+  // batch debits from them are folded, under the row locks already held, and then re-read.
+  private void foldShortSources(long id, Map<Long, AccountRow> accounts, Map<Long, Long> debits) {
+    List<Long> folded = new ArrayList<>();
+    debits.forEach(
+        (accountId, amount) -> {
+          AccountRow source = accounts.get(accountId);
+          if (source != null
+              && source.getUserId() == id
+              && source.getAmount() < amount
+              && splitBalances.isSplit(accountId)) {
+            splitBalances.prepareDebit(accountId, amount);
+            folded.add(accountId);
+          }
+        });
+    if (!folded.isEmpty()) {
+      accountJdbcRepository.findAll(folded).forEach(row -> accounts.put(row.getId(), row));
+    }
+  }
+
+  // Mirrors the checks of AccountService.transfer, against balances already changed by
+  // earlier items of the batch. Nothing is changed unless every check passes, the velocity limits
+  // last. The whole batch converts with one exchange rate snapshot.
+  private void applyInMemory(
+      long id,
+      TransferRequest transferRequest,
+      Map<Long, AccountRow> accounts,
+      Map<Long, Long> balances,
+      ExchangeRates rates,
+      List<BalanceChangedEvent> events,
+      List<VelocityEngine.Reservation> reservations) {
+    AccountRow source = accounts.get(transferRequest.getFromAccountId());
+    AccountRow destination = accounts.get(transferRequest.getToAccountId());
+    if (source == null || destination == null) {
+      throw new AccountNotFoundException();
+    }
+    ExchangeRates.Rate rate = rates.rate(source.getCurrency(), destination.getCurrency());
+    long amount = transferRequest.getAmount();
+    if (amount < 0) {
+      throw new InvalidAmountException();
+    }
+    if (source.getUserId() != id) {
+      throw new AccountNotFoundException();
+    }
+    long sourceBalance = balances.getOrDefault(source.getId(), source.getAmount());
+    if (sourceBalance < amount) {
+      throw new InsufficientFundsException(
+          "Cannot withdraw " + amount + " " + source.getCurrency().name());
+    }
+    if (destination.getUserId() != transferRequest.getToUserId()) {
+      throw new AccountNotFoundException();
+    }
+    VelocityEngine.Reservation reservation =
+        accountService.reserveDebit(id, source.getId(), amount);
+    if (reservation != null) {
+      reservations.add(reservation);
+    }
+    long credited = rate.convert(amount);
+    balances.put(source.getId(), sourceBalance - amount);
+    long destinationBalance =
+        balances.getOrDefault(destination.getId(), destination.getAmount()) + credited;
+    balances.put(destination.getId(), destinationBalance);
+    long transferId = BalanceChangedEvent.newTransferId();
+    events.add(
+        new BalanceChangedEvent(
+            source.getId(),
+            source.getUserId(),
+            source.getCurrency(),
+            BalanceOperation.TRANSFER_DEBIT,
+            -amount,
+            sourceBalance - amount,
+            transferId,
+            rate.getVersion()));
+    events.add(
+        new BalanceChangedEvent(
+            destination.getId(),
+            destination.getUserId(),
+            destination.getCurrency(),
+            BalanceOperation.TRANSFER_CREDIT,
+            credited,
+            destinationBalance,
+            transferId,
+            rate.getVersion()));
+  }
+
+  private BatchTransferDTO transferBatchInLedger(
+      long id, List<TransferRequest> transferRequests, boolean allOrNothing) {
+    if (allOrNothing) {
+      throw new ResponseStatusException(
+          HttpStatus.BAD_REQUEST, "All-or-nothing batches are not supported by the ledger engine");
+    }
+    List<TransferResultDTO> results = new ArrayList<>(transferRequests.size());
+    int appliedCount = 0;
+    for (int i = 0; i < transferRequests.size(); i++) {
+      try {
+        transferOne(id, transferRequests.get(i));
+        results.add(new TransferResultDTO(i, true, null));
+        appliedCount++;
+      } catch (AccountNotFoundException
+          | WrongCurrencyException
+          | InvalidAmountException
+          | InsufficientFundsException
+          | VelocityLimitExceededException e) {
+        metrics.transfer().rejected(e);
+        results.add(new TransferResultDTO(i, false, describe(e)));
+      }
+    }
+    return new BatchTransferDTO(appliedCount, results);
+  }
+
+  private static void cancelAll(List<VelocityEngine.Reservation> reservations) {
+    reservations.forEach(VelocityEngine.Reservation::cancel);
+    reservations.clear();
+  }
+
+  private static List<TransferResultDTO> notApplied(List<TransferResultDTO> results) {
+    return results.stream()
+        .map(result -> new TransferResultDTO(result.getIndex(), false, result.getError()))
+        .collect(Collectors.toList());
+  }
+
+  private static String describe(RuntimeException exception) {
+    if (exception instanceof InsufficientFundsException
+        || exception instanceof VelocityLimitExceededException) {
+      return exception.getMessage();
+    }
+    if (exception instanceof WrongCurrencyException) {
+      return "Account currencies should be same";
+    }
+    if (exception instanceof InvalidAmountException) {
+      return "Amount should be more than 0";
+    }
+    return "Account not found";
+  }
 }
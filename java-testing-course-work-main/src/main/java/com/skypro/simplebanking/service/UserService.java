@@ -1,14 +1,24 @@
 package com.skypro.simplebanking.service;
 
+import com.skypro.simplebanking.dto.AccountDTO;
 import com.skypro.simplebanking.dto.BankingUserDetails;
+import com.skypro.simplebanking.dto.ListAccountDTO;
 import com.skypro.simplebanking.dto.ListUserDTO;
+import com.skypro.simplebanking.dto.UserAccountRow;
 import com.skypro.simplebanking.dto.UserDTO;
 import com.skypro.simplebanking.entity.User;
 import com.skypro.simplebanking.exception.UserAlreadyExistsException;
+import com.skypro.simplebanking.exception.UserNotFoundException;
 import com.skypro.simplebanking.repository.UserRepository;
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
-import java.util.stream.Collectors;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
@@ -20,15 +30,21 @@ import org.springframework.transaction.annotation.Transactional;
 public class UserService implements UserDetailsService {
   private final UserRepository userRepository;
   private final AccountService accountService;
+  private final SplitBalanceService splitBalances;
   private final PasswordEncoder passwordEncoder;
+  private final int maxListLimit;
 
   public UserService(
       UserRepository userRepository,
       AccountService accountService,
-      PasswordEncoder passwordEncoder) {
+      SplitBalanceService splitBalances,
+      PasswordEncoder passwordEncoder,
+      @Value("${app.user.list.max-limit:1000}") int maxListLimit) {
     this.userRepository = userRepository;
     this.accountService = accountService;
+    this.splitBalances = splitBalances;
     this.passwordEncoder = passwordEncoder;
+    this.maxListLimit = maxListLimit;
   }
 
   @Override
@@ -49,16 +65,72 @@ public class UserService implements UserDetailsService {
     User user = new User();
     user.setUsername(username);
     user.setPassword(passwordEncoder.encode(password));
-    userRepository.save(user);
+    try {
+      userRepository.saveAndFlush(user);
+    } catch (DataIntegrityViolationException e) {
+      // Taken by a concurrent request since the check above.
+      throw new UserAlreadyExistsException();
+    }
     accountService.createDefaultAccounts(user);
     return UserDTO.from(user);
   }
   @Transactional(readOnly = true)
   public UserDTO getUser(long id) {
-    return userRepository.findById(id).map(UserDTO::from).orElseThrow();
+    List<UserAccountRow> rows = userRepository.findUserAccountRowsById(id);
+    if (rows.isEmpty()) {
+      throw new UserNotFoundException();
+    }
+    List<AccountDTO> accounts = new ArrayList<>(rows.size());
+    for (UserAccountRow row : rows) {
+      if (row.getAccountId() != null) {
+        accounts.add(
+            new AccountDTO(
+                row.getAccountId(),
+                splitBalances.balanceOf(row.getAccountId(), row.getAmount()),
+                row.getCurrency()));
+      }
+    }
+    return new UserDTO(id, rows.get(0).getUsername(), accounts);
   }
   @Transactional(readOnly = true)
-  public List<ListUserDTO> listUsers() {
-    return userRepository.findAll().stream().map(ListUserDTO::from).collect(Collectors.toList());
+  public List<ListUserDTO> listUsers(long afterId, int limit) {
+    List<Long> ids =
+        userRepository.findIdsAfter(
+            afterId, PageRequest.of(0, Math.max(1, Math.min(limit, maxListLimit))));
+    if (ids.isEmpty()) {
+      return List.of();
+    }
+    List<ListUserDTO> users = new ArrayList<>(ids.size());
+    groupByUser(
+        userRepository.findUserAccountRows(afterId, ids.get(ids.size() - 1)).iterator(),
+        users::add);
+    return users;
+  }
+
+  @Transactional(readOnly = true)
+  public void streamUsers(long afterId, Consumer<ListUserDTO> consumer) {
+    try (Stream<UserAccountRow> rows = userRepository.streamUserAccountRows(afterId)) {
+      groupByUser(rows.iterator(), consumer);
+    }
+  }
+
+  // Rows are ordered by user id, so each user's accounts are adjacent.
+  private static void groupByUser(Iterator<UserAccountRow> rows, Consumer<ListUserDTO> consumer) {
+    UserAccountRow current = null;
+    List<ListAccountDTO> accounts = new ArrayList<>();
+    while (rows.hasNext()) {
+      UserAccountRow row = rows.next();
+      if (current != null && current.getUserId() != row.getUserId()) {
+        consumer.accept(new ListUserDTO(current.getUserId(), current.getUsername(), accounts));
+        accounts = new ArrayList<>();
+      }
+      current = row;
+      if (row.getAccountId() != null) {
+        accounts.add(new ListAccountDTO(row.getAccountId(), row.getCurrency()));
+      }
+    }
+    if (current != null) {
+      consumer.accept(new ListUserDTO(current.getUserId(), current.getUsername(), accounts));
+    }
   }
 }
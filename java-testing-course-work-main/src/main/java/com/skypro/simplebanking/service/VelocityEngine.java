@@ -0,0 +1,332 @@
+package com.skypro.simplebanking.service;
+
+import com.skypro.simplebanking.event.BalanceOperation;
+import com.skypro.simplebanking.exception.VelocityLimitExceededException;
+import com.skypro.simplebanking.repository.AccountTransactionJdbcRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Clock;
+import java.time.Instant;
+import java.util.EnumSet;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.env.Environment;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Velocity limits on debits. Every withdrawal and outgoing transfer is counted against its source
+ * account over the last minute, hour and day, and is refused with {@link
+ * VelocityLimitExceededException} once it would take the account over {@code
+ * app.velocity.<window>.max-amount} or {@code max-count}; 0 means no limit.
+ *
+ * <p>An account keeps a ring of time buckets per window: twelve 5-second buckets for the minute,
+ * twelve 5-minute buckets for the hour and 24 one-hour buckets for the day, so a window slides by
+ * one bucket at a time. The rings live in long-keyed hash maps split into lock shards, and accounts
+ * without debits for a day are dropped. The counts are kept in memory only and are rebuilt from
+ * account_transactions on startup.
+ */
+@Service
+@ConditionalOnProperty(name = "app.velocity.enabled", havingValue = "true")
+public class VelocityEngine implements SmartInitializingSingleton {
+  private static final Logger log = LoggerFactory.getLogger(VelocityEngine.class);
+  private static final int SHARDS = 64;
+  private static final int TOTAL_BUCKETS = 12 + 12 + 24;
+  private static final long DAY_MILLIS = TimeUnit.DAYS.toMillis(1);
+
+  private final AccountTransactionJdbcRepository transactionRepository;
+  private final TransactionTemplate readOnlyTransactionTemplate;
+  private final Clock clock;
+  private final long[] maxAmounts = new long[Window.values().length];
+  private final long[] maxCounts = new long[Window.values().length];
+  private final Counter[][] rejections = new Counter[Window.values().length][2];
+  private final Shard[] shards = new Shard[SHARDS];
+
+  public VelocityEngine(
+      AccountTransactionJdbcRepository transactionRepository,
+      PlatformTransactionManager transactionManager,
+      Environment environment,
+      MeterRegistry meterRegistry,
+      ObjectProvider<Clock> clock) {
+    this.transactionRepository = transactionRepository;
+    this.readOnlyTransactionTemplate = new TransactionTemplate(transactionManager);
+    this.readOnlyTransactionTemplate.setReadOnly(true);
+    this.clock = clock.getIfAvailable(Clock::systemUTC);
+    for (Window window : Window.values()) {
+      String prefix = "app.velocity." + window.key + ".";
+      maxAmounts[window.ordinal()] = environment.getProperty(prefix + "max-amount", Long.class, 0L);
+      maxCounts[window.ordinal()] = environment.getProperty(prefix + "max-count", Long.class, 0L);
+      if (maxAmounts[window.ordinal()] < 0 || maxCounts[window.ordinal()] < 0) {
+        throw new IllegalArgumentException(
+            prefix + "max-amount and max-count should not be negative");
+      }
+      rejections[window.ordinal()][0] = rejections(meterRegistry, window, "amount");
+      rejections[window.ordinal()][1] = rejections(meterRegistry, window, "count");
+    }
+    for (int i = 0; i < SHARDS; i++) {
+      shards[i] = new Shard();
+    }
+    Gauge.builder("banking.velocity.accounts", this, VelocityEngine::trackedAccounts)
+        .register(meterRegistry);
+  }
+
+  private static Counter rejections(MeterRegistry meterRegistry, Window window, String limit) {
+    return Counter.builder("banking.velocity.rejections")
+        .tag("window", window.key)
+        .tag("limit", limit)
+        .register(meterRegistry);
+  }
+
+  @Override
+  public void afterSingletonsInstantiated() {
+    long now = clock.millis();
+    long[] debits = new long[1];
+    readOnlyTransactionTemplate.executeWithoutResult(
+        status ->
+            transactionRepository.streamSince(
+                Instant.ofEpochMilli(now - DAY_MILLIS),
+                EnumSet.of(BalanceOperation.WITHDRAWAL, BalanceOperation.TRANSFER_DEBIT),
+                (accountId, delta, createdAt) -> {
+                  long time = createdAt.toEpochMilli();
+                  Shard shard = shardOf(accountId);
+                  synchronized (shard) {
+                    AccountBuckets buckets = shard.getOrCreate(accountId);
+                    buckets.add(time, -delta, 1);
+                    buckets.lastDebitMillis = Math.max(buckets.lastDebitMillis, time);
+                  }
+                  debits[0]++;
+                }));
+    log.info("Velocity limits rebuilt from {} debits of {} accounts", debits[0], trackedAccounts());
+  }
+
+  /**
+   * Counts a debit of {@code amount} from the account, or throws {@link
+   * VelocityLimitExceededException} without counting it if that would exceed a limit. The caller
+   * cancels the returned reservation when the debit does not happen after all.
+   */
+  public Reservation reserve(long accountId, long amount) {
+    long now = clock.millis();
+    long debited = Math.max(amount, 0);
+    Shard shard = shardOf(accountId);
+    synchronized (shard) {
+      AccountBuckets buckets = shard.getOrCreate(accountId);
+      for (Window window : Window.values()) {
+        checkLimits(window, buckets, now, debited);
+      }
+      buckets.add(now, debited, 1);
+      buckets.lastDebitMillis = now;
+    }
+    return new Reservation(accountId, debited, now);
+  }
+
+  private void checkLimits(Window window, AccountBuckets buckets, long now, long amount) {
+    long maxAmount = maxAmounts[window.ordinal()];
+    long maxCount = maxCounts[window.ordinal()];
+    if (maxAmount == 0 && maxCount == 0) {
+      return;
+    }
+    long current = now / window.bucketMillis;
+    long amountSum = 0;
+    long countSum = 0;
+    for (int slot = window.offset; slot < window.offset + window.buckets; slot++) {
+      if (buckets.epochs[slot] > current - window.buckets) {
+        amountSum += buckets.amounts[slot];
+        countSum += buckets.counts[slot];
+      }
+    }
+    if (maxAmount > 0 && amountSum + amount > maxAmount) {
+      rejections[window.ordinal()][0].increment();
+      throw new VelocityLimitExceededException(
+          "Cannot debit more than " + maxAmount + " per " + window.key);
+    }
+    if (maxCount > 0 && countSum + 1 > maxCount) {
+      rejections[window.ordinal()][1].increment();
+      throw new VelocityLimitExceededException(
+          "Cannot make more than " + maxCount + " debits per " + window.key);
+    }
+  }
+
+  private void cancel(Reservation reservation) {
+    Shard shard = shardOf(reservation.accountId);
+    synchronized (shard) {
+      AccountBuckets buckets = shard.map.get(reservation.accountId);
+      if (buckets != null) {
+        buckets.add(reservation.timeMillis, -reservation.amount, -1);
+      }
+    }
+  }
+
+  @Scheduled(fixedDelayString = "${app.velocity.sweep-interval-ms:600000}")
+  public void evictIdleAccounts() {
+    long idleSince = clock.millis() - DAY_MILLIS;
+    for (Shard shard : shards) {
+      synchronized (shard) {
+        shard.map.removeIf(buckets -> buckets.lastDebitMillis < idleSince);
+      }
+    }
+  }
+
+  private long trackedAccounts() {
+    long count = 0;
+    for (Shard shard : shards) {
+      synchronized (shard) {
+        count += shard.map.size;
+      }
+    }
+    return count;
+  }
+
+  private Shard shardOf(long accountId) {
+    return shards[(int) (accountId & (SHARDS - 1))];
+  }
+
+  /** A counted debit. */
+  public final class Reservation {
+    private final long accountId;
+    private final long amount;
+    private final long timeMillis;
+
+    private Reservation(long accountId, long amount, long timeMillis) {
+      this.accountId = accountId;
+      this.amount = amount;
+      this.timeMillis = timeMillis;
+    }
+
+    /** Takes the debit back out of the buckets it was counted in, if they are still current. */
+    public void cancel() {
+      VelocityEngine.this.cancel(this);
+    }
+  }
+
+  private enum Window {
+    MINUTE("minute", 12, TimeUnit.SECONDS.toMillis(5), 0),
+    HOUR("hour", 12, TimeUnit.MINUTES.toMillis(5), 12),
+    DAY("day", 24, TimeUnit.HOURS.toMillis(1), 24);
+
+    private final String key;
+    private final int buckets;
+    private final long bucketMillis;
+    private final int offset;
+
+    Window(String key, int buckets, long bucketMillis, int offset) {
+      this.key = key;
+      this.buckets = buckets;
+      this.bucketMillis = bucketMillis;
+      this.offset = offset;
+    }
+  }
+
+  // The rings of all windows side by side. A slot holds the debits of the bucket numbered by its
+  // epoch, time / bucketMillis, and is reused once that bucket has left the window.
+  private static final class AccountBuckets {
+    private final long[] epochs = new long[TOTAL_BUCKETS];
+    private final long[] amounts = new long[TOTAL_BUCKETS];
+    private final int[] counts = new int[TOTAL_BUCKETS];
+    private long lastDebitMillis;
+
+    private void add(long timeMillis, long amount, int count) {
+      for (Window window : Window.values()) {
+        long epoch = timeMillis / window.bucketMillis;
+        int slot = window.offset + (int) (epoch % window.buckets);
+        if (epochs[slot] > epoch) {
+          continue;
+        }
+        if (epochs[slot] < epoch) {
+          if (count < 0) {
+            continue;
+          }
+          epochs[slot] = epoch;
+          amounts[slot] = 0;
+          counts[slot] = 0;
+        }
+        amounts[slot] += amount;
+        counts[slot] += count;
+      }
+    }
+  }
+
+  private static final class Shard {
+    private final LongMap<AccountBuckets> map = new LongMap<>();
+
+    private AccountBuckets getOrCreate(long accountId) {
+      AccountBuckets buckets = map.get(accountId);
+      if (buckets == null) {
+        buckets = new AccountBuckets();
+        map.put(accountId, buckets);
+      }
+      return buckets;
+    }
+  }
+
+  // Open addressing with linear probing over primitive keys; an empty slot has a null value.
+  private static final class LongMap<V> {
+    private long[] keys = new long[16];
+    private Object[] values = new Object[16];
+    private int size;
+
+    @SuppressWarnings("unchecked")
+    private V get(long key) {
+      int mask = keys.length - 1;
+      for (int i = slotOf(key, mask); values[i] != null; i = (i + 1) & mask) {
+        if (keys[i] == key) {
+          return (V) values[i];
+        }
+      }
+      return null;
+    }
+
+    // The key must not be present yet.
+    private void put(long key, V value) {
+      if ((size + 1) * 4L > keys.length * 3L) {
+        rehash(keys.length * 2, v -> false);
+      }
+      insert(key, value);
+      size++;
+    }
+
+    private void removeIf(Predicate<V> filter) {
+      int capacity = 16;
+      while (capacity * 3L < size * 8L) {
+        capacity *= 2;
+      }
+      rehash(capacity, filter);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void rehash(int capacity, Predicate<V> filter) {
+      long[] oldKeys = keys;
+      Object[] oldValues = values;
+      keys = new long[capacity];
+      values = new Object[capacity];
+      size = 0;
+      for (int i = 0; i < oldKeys.length; i++) {
+        if (oldValues[i] != null && !filter.test((V) oldValues[i])) {
+          insert(oldKeys[i], oldValues[i]);
+          size++;
+        }
+      }
+    }
+
+    private void insert(long key, Object value) {
+      int mask = keys.length - 1;
+      int i = slotOf(key, mask);
+      while (values[i] != null) {
+        i = (i + 1) & mask;
+      }
+      keys[i] = key;
+      values[i] = value;
+    }
+
+    private static int slotOf(long key, int mask) {
+      return (int) ((key * 0x9E3779B97F4A7C15L) >>> 40) & mask;
+    }
+  }
+}
@@ -0,0 +1,134 @@
+package com.skypro.simplebanking.configuration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.skypro.simplebanking.dto.BankingUserDetails;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import javax.servlet.FilterChain;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+// Deposits refill one token every 200 ms and hold at most three.
+class RateLimitFilterTest {
+  private static final BankingUserDetails ALICE = new BankingUserDetails(1, "alice", "", false);
+  private static final BankingUserDetails BOB = new BankingUserDetails(2, "bob", "", false);
+  private static final BankingUserDetails ADMIN = new BankingUserDetails(3, "admin", "", true);
+
+  private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private final MockEnvironment environment =
+      new MockEnvironment()
+          .withProperty("app.rate-limit.deposit.capacity", "3")
+          .withProperty("app.rate-limit.deposit.refill-per-second", "5");
+
+  @AfterEach
+  void clearAuthentication() {
+    SecurityContextHolder.clearContext();
+  }
+
+  @Test
+  void burstUpToCapacityThenOneTokenPerInterval() throws Exception {
+    RateLimitFilter filter = filter(0);
+
+    for (int i = 0; i < 3; i++) {
+      assertThat(deposit(filter, ALICE).getStatus()).isEqualTo(200);
+    }
+    MockHttpServletResponse limited = deposit(filter, ALICE);
+    assertThat(limited.getStatus()).isEqualTo(429);
+    assertThat(limited.getHeader(HttpHeaders.RETRY_AFTER)).isEqualTo("1");
+    // Other users and other endpoint groups have buckets of their own.
+    assertThat(deposit(filter, BOB).getStatus()).isEqualTo(200);
+    assertThat(request(filter, ALICE, "POST", "/account/withdraw/1").getStatus()).isEqualTo(200);
+
+    Thread.sleep(300);
+    assertThat(deposit(filter, ALICE).getStatus()).isEqualTo(200);
+    assertThat(deposit(filter, ALICE).getStatus()).isEqualTo(429);
+    assertThat(rejections("deposit", "user_limit")).isEqualTo(2);
+  }
+
+  @Test
+  void adminsAreNotLimited() throws Exception {
+    RateLimitFilter filter = filter(0);
+
+    for (int i = 0; i < 10; i++) {
+      assertThat(deposit(filter, ADMIN).getStatus()).isEqualTo(200);
+    }
+    assertThat(rejections("deposit", "user_limit")).isZero();
+  }
+
+  @Test
+  void requestWithoutAFreeSlotIsShed() throws Exception {
+    RateLimitFilter filter = filter(1);
+    CountDownLatch entered = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    FilterChain blocking =
+        (request, response) -> {
+          entered.countDown();
+          try {
+            release.await();
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+        };
+    CompletableFuture<Void> slow =
+        CompletableFuture.runAsync(
+            () -> {
+              try {
+                filter.doFilter(
+                    new MockHttpServletRequest("GET", "/user/me"),
+                    new MockHttpServletResponse(),
+                    blocking);
+              } catch (Exception e) {
+                throw new IllegalStateException(e);
+              }
+            });
+    assertThat(entered.await(5, TimeUnit.SECONDS)).isTrue();
+
+    MockHttpServletResponse shed = request(filter, ALICE, "GET", "/user/me");
+    release.countDown();
+    slow.get(5, TimeUnit.SECONDS);
+
+    assertThat(shed.getStatus()).isEqualTo(503);
+    assertThat(shed.getHeader(HttpHeaders.RETRY_AFTER)).isEqualTo("1");
+    assertThat(rejections("default", "overloaded")).isEqualTo(1);
+    assertThat(request(filter, ALICE, "GET", "/user/me").getStatus()).isEqualTo(200);
+  }
+
+  private RateLimitFilter filter(int maxConcurrent) {
+    return new RateLimitFilter(environment, meterRegistry, 100, 10, maxConcurrent, 20);
+  }
+
+  private static MockHttpServletResponse deposit(RateLimitFilter filter, BankingUserDetails user)
+      throws Exception {
+    return request(filter, user, "POST", "/account/deposit/1");
+  }
+
+  private static MockHttpServletResponse request(
+      RateLimitFilter filter, BankingUserDetails user, String method, String path)
+      throws Exception {
+    SecurityContextHolder.getContext()
+        .setAuthentication(
+            new UsernamePasswordAuthenticationToken(user, null, user.getAuthorities()));
+    MockHttpServletRequest request = new MockHttpServletRequest(method, path);
+    request.setServletPath(path);
+    MockHttpServletResponse response = new MockHttpServletResponse();
+    filter.doFilter(request, response, new MockFilterChain());
+    return response;
+  }
+
+  private double rejections(String group, String reason) {
+    return meterRegistry
+        .counter("banking.ratelimit.rejections", "group", group, "reason", reason)
+        .count();
+  }
+}
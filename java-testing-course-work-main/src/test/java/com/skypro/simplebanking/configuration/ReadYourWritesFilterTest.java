@@ -0,0 +1,51 @@
+package com.skypro.simplebanking.configuration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.skypro.simplebanking.dto.BankingUserDetails;
+import com.skypro.simplebanking.repository.PrimaryReads;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+class ReadYourWritesFilterTest {
+  private static final BankingUserDetails ALICE = new BankingUserDetails(1, "alice", "", false);
+  private static final BankingUserDetails BOB = new BankingUserDetails(2, "bob", "", false);
+
+  private final PrimaryReads primaryReads = new PrimaryReads();
+  private final ReadYourWritesFilter filter = new ReadYourWritesFilter(primaryReads, 300, 100);
+
+  @AfterEach
+  void clearAuthentication() {
+    SecurityContextHolder.clearContext();
+  }
+
+  @Test
+  void readsStayOnThePrimaryForTheStickyWindowAfterAWrite() throws Exception {
+    assertThat(readsPrimary(ALICE, "GET")).isFalse();
+    assertThat(readsPrimary(ALICE, "POST")).isTrue();
+    assertThat(readsPrimary(ALICE, "GET")).isTrue();
+    assertThat(readsPrimary(BOB, "GET")).isFalse();
+    assertThat(primaryReads.isPinned()).isFalse();
+
+    Thread.sleep(400);
+    assertThat(readsPrimary(ALICE, "GET")).isFalse();
+  }
+
+  // Returns whether the request was served with its reads pinned to the primary.
+  private boolean readsPrimary(BankingUserDetails user, String method) throws Exception {
+    SecurityContextHolder.getContext()
+        .setAuthentication(
+            new UsernamePasswordAuthenticationToken(user, null, user.getAuthorities()));
+    AtomicBoolean pinned = new AtomicBoolean();
+    filter.doFilter(
+        new MockHttpServletRequest(method, "/account/1"),
+        new MockHttpServletResponse(),
+        (request, response) -> pinned.set(primaryReads.isPinned()));
+    return pinned.get();
+  }
+}
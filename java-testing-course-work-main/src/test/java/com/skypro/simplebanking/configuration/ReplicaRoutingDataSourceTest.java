@@ -0,0 +1,143 @@
+package com.skypro.simplebanking.configuration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.skypro.simplebanking.repository.PrimaryReads;
+import com.zaxxer.hikari.HikariDataSource;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+// Every replica reports the lag stored in its replica_lag table.
+class ReplicaRoutingDataSourceTest {
+  private static final String LAG_QUERY = "select seconds from replica_lag";
+
+  private final PrimaryReads primaryReads = new PrimaryReads();
+  private final List<HikariDataSource> replicas = new ArrayList<>();
+  private ReplicaRoutingDataSource routing;
+
+  @AfterEach
+  void close() throws Exception {
+    routing.destroy();
+  }
+
+  @Test
+  void readOnlyTransactionsAlternateBetweenReplicas() throws Exception {
+    routing = routing(false, 20);
+    awaitRoutes(routes -> routes.containsAll(List.of("replica-1", "replica-2")));
+
+    List<String> routes = routes(4);
+    assertThat(routes.get(0)).isNotEqualTo(routes.get(1));
+    assertThat(routes.subList(2, 4)).isEqualTo(routes.subList(0, 2));
+  }
+
+  @Test
+  void writesAndPinnedReadsUseThePrimary() throws Exception {
+    routing = routing(false, 20);
+    awaitRoutes(routes -> !routes.contains("primary"));
+
+    assertThat(routing.determineCurrentLookupKey()).isEqualTo("primary");
+    assertThat(primaryReads.call(() -> routes(4))).containsOnly("primary");
+    assertThat(routes(4)).doesNotContain("primary");
+  }
+
+  @Test
+  void laggingReplicasAreSkippedUntilTheyCatchUp() throws Exception {
+    routing = routing(false, 20);
+    awaitRoutes(routes -> routes.containsAll(List.of("replica-1", "replica-2")));
+
+    setLag(replicas.get(1), 5);
+    awaitRoutes(routes -> routes.stream().allMatch("replica-1"::equals));
+    setLag(replicas.get(0), 5);
+    awaitRoutes(routes -> routes.stream().allMatch("primary"::equals));
+    setLag(replicas.get(1), 0);
+    awaitRoutes(routes -> routes.stream().allMatch("replica-2"::equals));
+  }
+
+  @Test
+  void leastConnectionsPicksTheLeastBusyReplica() throws Exception {
+    routing = routing(true, TimeUnit.HOURS.toMillis(1));
+    awaitRoutes(routes -> !routes.contains("primary"));
+    // The first lag check may still be returning its connections.
+    Thread.sleep(100);
+
+    try (Connection busy = replicas.get(0).getConnection()) {
+      assertThat(routes(4)).containsOnly("replica-2");
+      try (Connection first = replicas.get(1).getConnection();
+          Connection second = replicas.get(1).getConnection()) {
+        assertThat(routes(4)).containsOnly("replica-1");
+      }
+    }
+  }
+
+  private ReplicaRoutingDataSource routing(boolean leastConnections, long lagCheckIntervalMs)
+      throws Exception {
+    for (int i = 1; i <= 2; i++) {
+      HikariDataSource replica = dataSource("replica-" + i);
+      try (Connection connection = replica.getConnection();
+          Statement statement = connection.createStatement()) {
+        statement.execute("create table replica_lag (seconds double)");
+        statement.execute("insert into replica_lag values (0)");
+      }
+      replicas.add(replica);
+    }
+    ReplicaRoutingDataSource dataSource =
+        new ReplicaRoutingDataSource(
+            dataSource("primary"),
+            replicas,
+            primaryReads,
+            leastConnections,
+            LAG_QUERY,
+            1000,
+            lagCheckIntervalMs);
+    dataSource.afterSingletonsInstantiated();
+    return dataSource;
+  }
+
+  private static HikariDataSource dataSource(String poolName) {
+    HikariDataSource dataSource = new HikariDataSource();
+    dataSource.setPoolName(poolName);
+    dataSource.setJdbcUrl("jdbc:h2:mem:" + poolName + "-" + UUID.randomUUID());
+    dataSource.setUsername("sa");
+    dataSource.setPassword("");
+    dataSource.setMaximumPoolSize(4);
+    return dataSource;
+  }
+
+  private static void setLag(HikariDataSource replica, double seconds) throws Exception {
+    try (Connection connection = replica.getConnection();
+        Statement statement = connection.createStatement()) {
+      statement.execute("update replica_lag set seconds = " + seconds);
+    }
+  }
+
+  private void awaitRoutes(Predicate<List<String>> condition) throws InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+    List<String> routes = routes(4);
+    while (!condition.test(routes) && System.nanoTime() < deadline) {
+      Thread.sleep(20);
+      routes = routes(4);
+    }
+    assertThat(condition.test(routes)).as("routes %s", routes).isTrue();
+  }
+
+  private List<String> routes(int count) {
+    List<String> routes = new ArrayList<>(count);
+    TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+    try {
+      for (int i = 0; i < count; i++) {
+        routes.add((String) routing.determineCurrentLookupKey());
+      }
+    } finally {
+      TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+    }
+    return routes;
+  }
+}
@@ -0,0 +1,145 @@
+package com.skypro.simplebanking.controller;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.skypro.simplebanking.dto.BankingUserDetails;
+import com.skypro.simplebanking.dto.UserDTO;
+import com.skypro.simplebanking.service.AccountService;
+import com.skypro.simplebanking.service.UserService;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@TestPropertySource(properties = "app.deposit.group-commit.enabled=false")
+@AutoConfigureMockMvc
+class AccountControllerTest {
+  @Autowired private MockMvc mockMvc;
+  @Autowired private ObjectMapper objectMapper;
+  @Autowired private UserService userService;
+  @Autowired private AccountService accountService;
+
+  @Test
+  void statementPagesFollowTheirCursors() throws Exception {
+    UserDTO alice = userWithDeposits(10, 20, 30, 40);
+    long aliceUsd = alice.getAccounts().get(0).getId();
+
+    List<Long> amounts = new ArrayList<>();
+    List<Integer> pageSizes = new ArrayList<>();
+    String cursor = null;
+    do {
+      MockHttpServletRequestBuilder request = statement(alice, aliceUsd).param("limit", "2");
+      if (cursor != null) {
+        request.param("cursor", cursor);
+      }
+      JsonNode page = json(mockMvc.perform(request).andExpect(status().isOk()).andReturn());
+      page.get("transactions").forEach(row -> amounts.add(row.get("amount").asLong()));
+      pageSizes.add(page.get("transactions").size());
+      cursor = page.get("nextCursor").isNull() ? null : page.get("nextCursor").asText();
+    } while (cursor != null);
+
+    assertThat(pageSizes).containsExactly(2, 2, 1);
+    assertThat(amounts).containsExactly(1L, 10L, 20L, 30L, 40L);
+  }
+
+  @Test
+  void statementRejectsMalformedRequests() throws Exception {
+    UserDTO alice = userWithDeposits();
+    long aliceUsd = alice.getAccounts().get(0).getId();
+
+    mockMvc
+        .perform(statement(alice, aliceUsd).param("cursor", "not-a-cursor"))
+        .andExpect(status().isBadRequest())
+        .andExpect(content().string("Invalid cursor"));
+    mockMvc
+        .perform(
+            statement(alice, aliceUsd)
+                .param("from", "2026-01-02T00:00:00Z")
+                .param("to", "2026-01-01T00:00:00Z"))
+        .andExpect(status().isBadRequest())
+        .andExpect(content().string("from should be before to"));
+    mockMvc
+        .perform(
+            statement(alice, aliceUsd)
+                .param("stream", "true")
+                .param("from", "2026-01-01T00:00:00Z")
+                .param("to", "2026-01-01T00:00:00Z"))
+        .andExpect(status().isBadRequest());
+  }
+
+  @Test
+  void statementOfSomeoneElsesAccountIsNotFound() throws Exception {
+    UserDTO alice = userWithDeposits();
+    UserDTO bob = userWithDeposits();
+
+    mockMvc
+        .perform(statement(bob, alice.getAccounts().get(0).getId()))
+        .andExpect(status().isNotFound());
+  }
+
+  @Test
+  void streamedStatementHoldsTheWholeRange() throws Exception {
+    UserDTO alice = userWithDeposits(10, 20, 30);
+    long aliceUsd = alice.getAccounts().get(0).getId();
+
+    MvcResult started =
+        mockMvc
+            .perform(statement(alice, aliceUsd).param("stream", "true"))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+    mockMvc
+        .perform(asyncDispatch(started))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.length()").value(4))
+        .andExpect(jsonPath("$[3].amount").value(30))
+        .andExpect(jsonPath("$[3].balance").value(61));
+
+    // Nothing happened before the opening deposit.
+    MvcResult empty =
+        mockMvc
+            .perform(
+                statement(alice, aliceUsd)
+                    .param("stream", "true")
+                    .param("to", "2000-01-01T00:00:00Z"))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+    mockMvc.perform(asyncDispatch(empty)).andExpect(jsonPath("$.length()").value(0));
+  }
+
+  private UserDTO userWithDeposits(long... amounts) {
+    UserDTO user = userService.createUser("alice-" + UUID.randomUUID(), "password");
+    long accountId = user.getAccounts().get(0).getId();
+    for (long amount : amounts) {
+      accountService.depositToAccount(user.getId(), accountId, amount);
+    }
+    return user;
+  }
+
+  private static MockHttpServletRequestBuilder statement(UserDTO user, long accountId) {
+    return get("/account/{id}/statement", accountId)
+        .with(user(new BankingUserDetails(user.getId(), user.getUsername(), "", false)));
+  }
+
+  private JsonNode json(MvcResult result) throws Exception {
+    return objectMapper.readTree(result.getResponse().getContentAsString());
+  }
+}
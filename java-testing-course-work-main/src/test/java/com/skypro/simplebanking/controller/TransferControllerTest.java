@@ -0,0 +1,118 @@
+package com.skypro.simplebanking.controller;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.skypro.simplebanking.dto.BankingUserDetails;
+import com.skypro.simplebanking.dto.UserDTO;
+import com.skypro.simplebanking.service.AccountService;
+import com.skypro.simplebanking.service.UserService;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@TestPropertySource(
+    properties = {
+      "app.deposit.group-commit.enabled=false",
+      "app.transfer.batch.max-size=4",
+      "app.velocity.enabled=true",
+      "app.velocity.minute.max-amount=100"
+    })
+@AutoConfigureMockMvc
+class TransferControllerTest {
+  @Autowired private MockMvc mockMvc;
+  @Autowired private UserService userService;
+  @Autowired private AccountService accountService;
+
+  @Test
+  void batchReportsTheOutcomeOfEveryTransfer() throws Exception {
+    UserDTO alice = userService.createUser("alice-" + UUID.randomUUID(), "password");
+    UserDTO bob = userService.createUser("bob-" + UUID.randomUUID(), "password");
+    long aliceUsd = alice.getAccounts().get(0).getId();
+    long bobUsd = bob.getAccounts().get(0).getId();
+    accountService.depositToAccount(alice.getId(), aliceUsd, 99);
+
+    transferBatch(
+            alice,
+            false,
+            transfer(aliceUsd, bob.getId(), bobUsd, 30),
+            transfer(aliceUsd, bob.getId(), -1, 10),
+            transfer(aliceUsd, bob.getId(), bobUsd, 80),
+            transfer(aliceUsd, bob.getId(), bobUsd, -5))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.appliedCount").value(1))
+        .andExpect(jsonPath("$.results[0].applied").value(true))
+        .andExpect(jsonPath("$.results[1].error").value("Account not found"))
+        .andExpect(jsonPath("$.results[2].error").value("Cannot withdraw 80 USD"))
+        .andExpect(jsonPath("$.results[3].error").value("Amount should be more than 0"));
+
+    assertThat(accountService.getAccount(alice.getId(), aliceUsd).getAmount()).isEqualTo(70);
+    assertThat(accountService.getAccount(bob.getId(), bobUsd).getAmount()).isEqualTo(31);
+  }
+
+  @Test
+  void allOrNothingBatchAppliesNothingAndReleasesItsVelocity() throws Exception {
+    UserDTO alice = userService.createUser("alice-" + UUID.randomUUID(), "password");
+    UserDTO bob = userService.createUser("bob-" + UUID.randomUUID(), "password");
+    long aliceUsd = alice.getAccounts().get(0).getId();
+    long bobUsd = bob.getAccounts().get(0).getId();
+    accountService.depositToAccount(alice.getId(), aliceUsd, 199);
+
+    transferBatch(
+            alice,
+            true,
+            transfer(aliceUsd, bob.getId(), bobUsd, 60),
+            transfer(aliceUsd, bob.getId(), bobUsd, 500))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.appliedCount").value(0))
+        .andExpect(jsonPath("$.results[0].applied").value(false))
+        .andExpect(jsonPath("$.results[1].error").value("Cannot withdraw 500 USD"));
+    assertThat(accountService.getAccount(alice.getId(), aliceUsd).getAmount()).isEqualTo(200);
+    assertThat(accountService.getAccount(bob.getId(), bobUsd).getAmount()).isEqualTo(1);
+
+    // The 60 counted by the rejected batch would push this over the minute limit of 100.
+    transferBatch(alice, true, transfer(aliceUsd, bob.getId(), bobUsd, 100))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.appliedCount").value(1));
+    assertThat(accountService.getAccount(bob.getId(), bobUsd).getAmount()).isEqualTo(101);
+  }
+
+  @Test
+  void batchLargerThanTheMaximumIsRejected() throws Exception {
+    UserDTO alice = userService.createUser("alice-" + UUID.randomUUID(), "password");
+    long aliceUsd = alice.getAccounts().get(0).getId();
+    String item = transfer(aliceUsd, alice.getId(), aliceUsd, 1);
+
+    transferBatch(alice, false, item, item, item, item, item)
+        .andExpect(status().isPayloadTooLarge());
+    assertThat(accountService.getAccount(alice.getId(), aliceUsd).getAmount()).isEqualTo(1);
+  }
+
+  private ResultActions transferBatch(UserDTO user, boolean allOrNothing, String... transfers)
+      throws Exception {
+    return mockMvc.perform(
+        post("/transfer/batch")
+            .param("allOrNothing", String.valueOf(allOrNothing))
+            .contentType(MediaType.APPLICATION_JSON)
+            .content("[" + String.join(",", transfers) + "]")
+            .with(user(new BankingUserDetails(user.getId(), user.getUsername(), "", false))));
+  }
+
+  private static String transfer(long fromAccountId, long toUserId, long toAccountId, long amount) {
+    return String.format(
+        "{\"fromAccountId\":%d,\"toUserId\":%d,\"toAccountId\":%d,\"amount\":%d}",
+        fromAccountId, toUserId, toAccountId, amount);
+  }
+}
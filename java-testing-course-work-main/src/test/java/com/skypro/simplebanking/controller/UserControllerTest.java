@@ -0,0 +1,76 @@
+package com.skypro.simplebanking.controller;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.skypro.simplebanking.dto.BankingUserDetails;
+import com.skypro.simplebanking.dto.UserDTO;
+import com.skypro.simplebanking.entity.User;
+import com.skypro.simplebanking.repository.UserRepository;
+import com.skypro.simplebanking.service.UserService;
+import java.util.UUID;
+import javax.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@TestPropertySource(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@AutoConfigureMockMvc
+class UserControllerTest {
+
+  @Autowired private MockMvc mockMvc;
+  @Autowired private UserService userService;
+  @Autowired private UserRepository userRepository;
+  @Autowired private EntityManagerFactory entityManagerFactory;
+
+  @Test
+  void getMyProfileRunsSingleStatement() throws Exception {
+    UserDTO created = userService.createUser("profile-user", "password");
+    Statistics statistics =
+        entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    statistics.clear();
+
+    mockMvc
+        .perform(
+            get("/user/me")
+                .with(user(new BankingUserDetails(created.getId(), "profile-user", "", false))))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.username").value("profile-user"))
+        .andExpect(jsonPath("$.accounts.length()").value(3));
+
+    assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+  }
+
+  @Test
+  void getMyProfileOfMissingUserIsNotFound() throws Exception {
+    mockMvc
+        .perform(get("/user/me").with(user(new BankingUserDetails(-42, "missing", "", false))))
+        .andExpect(status().isNotFound());
+  }
+
+  @Test
+  void listWithoutParametersReturnsTheFirstPage() throws Exception {
+    for (int i = 0; i < 101; i++) {
+      User user = new User();
+      user.setUsername("listed-" + UUID.randomUUID());
+      user.setPassword("");
+      userRepository.save(user);
+    }
+
+    mockMvc
+        .perform(get("/user/list").with(user(new BankingUserDetails(1, "lister", "", false))))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.length()").value(100));
+  }
+}
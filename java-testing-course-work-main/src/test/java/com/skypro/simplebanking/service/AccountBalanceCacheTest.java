@@ -0,0 +1,111 @@
+package com.skypro.simplebanking.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.skypro.simplebanking.dto.UserDTO;
+import com.skypro.simplebanking.repository.AccountRepository;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@TestPropertySource(
+    properties = {
+      "app.deposit.group-commit.enabled=false",
+      "app.replicas.enabled=true",
+      "app.replicas.lag-query=select 0",
+      "app.replicas.lag-check-interval-ms=50"
+    })
+class AccountBalanceCacheTest {
+  private static final String PRIMARY = "primary-" + UUID.randomUUID();
+  private static final String REPLICA = "replica-" + UUID.randomUUID();
+
+  @Autowired private UserService userService;
+  @Autowired private AccountService accountService;
+  @Autowired private AccountRepository accountRepository;
+  @Autowired private PlatformTransactionManager transactionManager;
+
+  @DynamicPropertySource
+  static void databases(DynamicPropertyRegistry registry) {
+    registry.add("spring.datasource.url", () -> h2Url(PRIMARY));
+    registry.add("app.replicas.urls", () -> h2Url(REPLICA));
+  }
+
+  @Test
+  void loadsReadThePrimaryWhileAReplicaLags() throws Exception {
+    UserDTO alice = userService.createUser("alice-" + UUID.randomUUID(), "password");
+    long aliceUsd = alice.getAccounts().get(0).getId();
+    // The replica stands in for one that has not replayed the deposit below yet.
+    copyDatabase(PRIMARY, REPLICA);
+    accountService.depositToAccount(alice.getId(), aliceUsd, 100);
+
+    TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+    readOnly.setReadOnly(true);
+    // Read-only transactions use the replica once its lag has been checked.
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+    long replicaAmount;
+    do {
+      Thread.sleep(50);
+      replicaAmount =
+          readOnly.execute(
+              status ->
+                  accountRepository
+                      .getAccountByUser_IdAndId(alice.getId(), aliceUsd)
+                      .orElseThrow()
+                      .getAmount());
+    } while (replicaAmount != 1 && System.nanoTime() < deadline);
+    assertThat(replicaAmount).isEqualTo(1);
+    assertThat(accountService.getAccount(alice.getId(), aliceUsd).getAmount()).isEqualTo(101);
+    assertThat(accountService.getAccount(alice.getId(), aliceUsd).getAmount()).isEqualTo(101);
+  }
+
+  @Test
+  void completedChangesEvictTheCachedBalance() {
+    UserDTO alice = userService.createUser("alice-" + UUID.randomUUID(), "password");
+    long aliceUsd = alice.getAccounts().get(0).getId();
+    assertThat(accountService.getAccount(alice.getId(), aliceUsd).getAmount()).isEqualTo(1);
+
+    accountService.depositToAccount(alice.getId(), aliceUsd, 100);
+    // A read inside the transaction caches a balance that is never committed.
+    new TransactionTemplate(transactionManager)
+        .executeWithoutResult(
+            status -> {
+              accountService.depositToAccount(alice.getId(), aliceUsd, 50);
+              assertThat(accountService.getAccount(alice.getId(), aliceUsd).getAmount())
+                  .isEqualTo(151);
+              status.setRollbackOnly();
+            });
+    assertThat(accountService.getAccount(alice.getId(), aliceUsd).getAmount()).isEqualTo(101);
+  }
+
+  private static String h2Url(String database) {
+    return "jdbc:h2:mem:" + database + ";MODE=PostgreSQL;DB_CLOSE_DELAY=-1";
+  }
+
+  private static void copyDatabase(String from, String to) throws Exception {
+    Path script = Files.createTempFile("simplebanking-replica", ".sql");
+    try (Connection source = DriverManager.getConnection(h2Url(from), "sa", "");
+        Statement statement = source.createStatement()) {
+      statement.execute("script to '" + script + "'");
+    }
+    try (Connection target = DriverManager.getConnection(h2Url(to), "sa", "");
+        Statement statement = target.createStatement()) {
+      statement.execute("runscript from '" + script + "'");
+    }
+    Files.delete(script);
+  }
+}
@@ -0,0 +1,140 @@
+package com.skypro.simplebanking.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doCallRealMethod;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import com.skypro.simplebanking.dto.UserDTO;
+import com.skypro.simplebanking.exception.AccountNotFoundException;
+import com.skypro.simplebanking.exception.InsufficientFundsException;
+import com.skypro.simplebanking.exception.InvalidAmountException;
+import com.skypro.simplebanking.repository.AccountJdbcRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@TestPropertySource(properties = "app.deposit.group-commit.enabled=false")
+class AccountServiceTest {
+  private static final int THREADS = 8;
+  private static final int TRANSFERS_PER_THREAD = 25;
+
+  @Autowired private UserService userService;
+  @Autowired private AccountService accountService;
+  @Autowired private MeterRegistry meterRegistry;
+  @SpyBean private AccountJdbcRepository accountJdbcRepository;
+
+  @Test
+  void oppositeTransfersNeitherDeadlockNorLoseUpdates() throws Exception {
+    UserDTO alice = userService.createUser("alice-" + UUID.randomUUID(), "password");
+    UserDTO bob = userService.createUser("bob-" + UUID.randomUUID(), "password");
+    long aliceUsd = alice.getAccounts().get(0).getId();
+    long bobUsd = bob.getAccounts().get(0).getId();
+    accountService.depositToAccount(alice.getId(), aliceUsd, 999);
+    accountService.depositToAccount(bob.getId(), bobUsd, 999);
+
+    // Even threads send alice's money to bob, odd ones bob's to alice, in different amounts.
+    ExecutorService threads = Executors.newFixedThreadPool(THREADS);
+    List<Future<?>> results = new ArrayList<>();
+    for (int i = 0; i < THREADS; i++) {
+      boolean fromAlice = i % 2 == 0;
+      results.add(
+          threads.submit(
+              () -> {
+                for (int j = 0; j < TRANSFERS_PER_THREAD; j++) {
+                  if (fromAlice) {
+                    accountService.transfer(alice.getId(), aliceUsd, bob.getId(), bobUsd, 2);
+                  } else {
+                    accountService.transfer(bob.getId(), bobUsd, alice.getId(), aliceUsd, 1);
+                  }
+                }
+              }));
+    }
+    try {
+      for (Future<?> result : results) {
+        result.get();
+      }
+    } finally {
+      threads.shutdownNow();
+    }
+
+    long transfersEachWay = THREADS / 2 * TRANSFERS_PER_THREAD;
+    assertThat(accountService.getAccount(alice.getId(), aliceUsd).getAmount())
+        .isEqualTo(1000 - transfersEachWay);
+    assertThat(accountService.getAccount(bob.getId(), bobUsd).getAmount())
+        .isEqualTo(1000 + transfersEachWay);
+  }
+
+  @Test
+  void conditionalTransferExplainsWhyNothingWasDebited() {
+    UserDTO alice = userService.createUser("alice-" + UUID.randomUUID(), "password");
+    UserDTO bob = userService.createUser("bob-" + UUID.randomUUID(), "password");
+    long aliceUsd = alice.getAccounts().get(0).getId();
+    long bobUsd = bob.getAccounts().get(0).getId();
+    accountService.depositToAccount(alice.getId(), aliceUsd, 99);
+
+    assertThatThrownBy(() -> transferConditionally(alice, aliceUsd, bob, bobUsd, -1))
+        .isInstanceOf(InvalidAmountException.class);
+    // Source owned by someone else.
+    assertThatThrownBy(() -> transferConditionally(bob, aliceUsd, bob, bobUsd, 10))
+        .isInstanceOf(AccountNotFoundException.class);
+    assertThatThrownBy(() -> transferConditionally(alice, aliceUsd, bob, bobUsd, 1000))
+        .isInstanceOf(InsufficientFundsException.class)
+        .hasMessage("Cannot withdraw 1000 USD");
+    // Destination owned by someone else.
+    assertThatThrownBy(() -> transferConditionally(alice, aliceUsd, alice, bobUsd, 10))
+        .isInstanceOf(AccountNotFoundException.class);
+    assertThatThrownBy(() -> transferConditionally(alice, aliceUsd, bob, -1, 10))
+        .isInstanceOf(AccountNotFoundException.class);
+
+    assertThat(accountService.getAccount(alice.getId(), aliceUsd).getAmount()).isEqualTo(100);
+    assertThat(accountService.getAccount(bob.getId(), bobUsd).getAmount()).isEqualTo(1);
+  }
+
+  @Test
+  void conditionalTransferRetriesWhenTheSourceChangedUnderIt() {
+    UserDTO alice = userService.createUser("alice-" + UUID.randomUUID(), "password");
+    UserDTO bob = userService.createUser("bob-" + UUID.randomUUID(), "password");
+    long aliceUsd = alice.getAccounts().get(0).getId();
+    long bobUsd = bob.getAccounts().get(0).getId();
+    accountService.depositToAccount(alice.getId(), aliceUsd, 99);
+    double retriesBefore = meterRegistry.counter("banking.transaction.retries").count();
+    // The first debit matches no row although every condition holds when checked afterwards,
+    // as if a concurrent change had slipped in between.
+    doReturn(Optional.empty())
+        .doCallRealMethod()
+        .when(accountJdbcRepository)
+        .debitIfAllowed(anyLong(), anyLong(), anyLong(), anyLong(), anyLong());
+
+    transferConditionally(alice, aliceUsd, bob, bobUsd, 30);
+
+    verify(accountJdbcRepository, times(2))
+        .debitIfAllowed(alice.getId(), aliceUsd, bob.getId(), bobUsd, 30);
+    assertThat(meterRegistry.counter("banking.transaction.retries").count())
+        .isEqualTo(retriesBefore + 1);
+    assertThat(accountService.getAccount(alice.getId(), aliceUsd).getAmount()).isEqualTo(70);
+    assertThat(accountService.getAccount(bob.getId(), bobUsd).getAmount()).isEqualTo(31);
+  }
+
+  private void transferConditionally(
+      UserDTO from, long fromAccountId, UserDTO to, long toAccountId, long amount) {
+    accountService.transferConditionally(
+        from.getId(), fromAccountId, to.getId(), toAccountId, amount);
+  }
+}
@@ -0,0 +1,118 @@
+package com.skypro.simplebanking.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+
+import com.skypro.simplebanking.dto.AccountDTO;
+import com.skypro.simplebanking.dto.BulkCreateUserDTO;
+import com.skypro.simplebanking.dto.CreateUserRequest;
+import com.skypro.simplebanking.dto.CreateUserResultDTO;
+import com.skypro.simplebanking.repository.UserJdbcRepository;
+import com.skypro.simplebanking.repository.UserRepository;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.test.context.ActiveProfiles;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class BulkUserServiceTest {
+  @Autowired private BulkUserService bulkUserService;
+  @Autowired private UserService userService;
+  @Autowired private UserRepository userRepository;
+  @SpyBean private UserJdbcRepository userJdbcRepository;
+
+  @Test
+  void everyUserGetsItsOwnOutcome() {
+    String prefix = UUID.randomUUID() + "-";
+    userService.createUser(prefix + "taken", "password");
+    List<CreateUserRequest> requests = new ArrayList<>();
+    requests.add(request(prefix + "alice", "password"));
+    requests.add(request(prefix + "taken", "password"));
+    requests.add(request(prefix + "alice", "other"));
+    requests.add(request(" ", "password"));
+    requests.add(request(prefix + "bob", null));
+    requests.add(null);
+    requests.add(request(prefix + "carol", "password"));
+
+    BulkCreateUserDTO result = bulkUserService.createUsers(requests);
+
+    assertThat(result.getCreatedCount()).isEqualTo(2);
+    assertThat(result.getResults().stream().map(CreateUserResultDTO::getIndex))
+        .containsExactly(0, 1, 2, 3, 4, 5, 6);
+    assertThat(result.getResults().stream().map(CreateUserResultDTO::getError))
+        .containsExactly(
+            null,
+            "User already exists",
+            "Username appears earlier in the request",
+            "Username and password are required",
+            "Username and password are required",
+            "Username and password are required",
+            null);
+    assertCreated(result.getResults().get(0), prefix + "alice");
+    assertCreated(result.getResults().get(6), prefix + "carol");
+    assertThat(
+            result.getResults().subList(1, 6).stream()
+                .map(CreateUserResultDTO::getId)
+                .collect(Collectors.toList()))
+        .containsOnlyNulls();
+    assertThat(userRepository.findByUsername(prefix + "bob")).isEmpty();
+  }
+
+  @Test
+  void usernameTakenAfterTheCheckIsReportedForItsUserOnly() {
+    String prefix = UUID.randomUUID() + "-";
+    // Another request takes bob's username right after the batch has checked it.
+    doAnswer(
+            invocation -> {
+              Object taken = invocation.callRealMethod();
+              userService.createUser(prefix + "bob", "password");
+              return taken;
+            })
+        .doCallRealMethod()
+        .when(userJdbcRepository)
+        .findExistingUsernames(any());
+
+    BulkCreateUserDTO result =
+        bulkUserService.createUsers(
+            Arrays.asList(
+                request(prefix + "alice", "password"),
+                request(prefix + "bob", "password"),
+                request(prefix + "carol", "password")));
+
+    assertThat(result.getCreatedCount()).isEqualTo(2);
+    assertCreated(result.getResults().get(0), prefix + "alice");
+    assertThat(result.getResults().get(1).getId()).isNull();
+    assertThat(result.getResults().get(1).getError()).isEqualTo("User already exists");
+    assertCreated(result.getResults().get(2), prefix + "carol");
+    assertThat(userRepository.findAll())
+        .filteredOn(user -> user.getUsername().equals(prefix + "bob"))
+        .hasSize(1);
+  }
+
+  private void assertCreated(CreateUserResultDTO result, String username) {
+    assertThat(result.getError()).isNull();
+    assertThat(result.getUsername()).isEqualTo(username);
+    assertThat(userRepository.findByUsername(username).orElseThrow().getId())
+        .isEqualTo(result.getId());
+    assertThat(
+            userService.getUser(result.getId()).getAccounts().stream()
+                .map(AccountDTO::getAmount)
+                .collect(Collectors.toList()))
+        .containsExactly(1L, 1L, 1L);
+  }
+
+  private static CreateUserRequest request(String username, String password) {
+    CreateUserRequest request = new CreateUserRequest();
+    request.setUsername(username);
+    request.setPassword(password);
+    return request;
+  }
+}
@@ -0,0 +1,47 @@
+package com.skypro.simplebanking.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.skypro.simplebanking.dto.CurrencyTotalsVerificationDTO;
+import com.skypro.simplebanking.dto.TransferRequest;
+import com.skypro.simplebanking.dto.UserDTO;
+import com.skypro.simplebanking.entity.AccountCurrency;
+import com.skypro.simplebanking.repository.CurrencyTotalJdbcRepository;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class CurrencyTotalsServiceTest {
+  @Autowired private UserService userService;
+  @Autowired private AccountService accountService;
+  @Autowired private TransferService transferService;
+  @Autowired private CurrencyTotalsService currencyTotalsService;
+  @Autowired private CurrencyTotalJdbcRepository currencyTotalRepository;
+
+  @Test
+  void transferWithinOneCurrencyCountsAsAChange() {
+    UserDTO alice = userService.createUser("alice-" + UUID.randomUUID(), "password");
+    UserDTO bob = userService.createUser("bob-" + UUID.randomUUID(), "password");
+    long aliceUsd = alice.getAccounts().get(0).getId();
+    long bobUsd = bob.getAccounts().get(0).getId();
+    accountService.depositToAccount(alice.getId(), aliceUsd, 100);
+    long changesBefore = currencyTotalRepository.changeCounts().get(AccountCurrency.USD);
+
+    TransferRequest request = new TransferRequest();
+    request.setFromAccountId(aliceUsd);
+    request.setToUserId(bob.getId());
+    request.setToAccountId(bobUsd);
+    request.setAmount(30);
+    transferService.transfer(alice.getId(), request);
+
+    assertThat(currencyTotalRepository.changeCounts().get(AccountCurrency.USD))
+        .isGreaterThan(changesBefore);
+    CurrencyTotalsVerificationDTO verification = currencyTotalsService.verify();
+    assertThat(verification.isConclusive()).isTrue();
+    assertThat(verification.getDrift()).isEmpty();
+  }
+}
@@ -0,0 +1,97 @@
+package com.skypro.simplebanking.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.skypro.simplebanking.dto.UserDTO;
+import com.skypro.simplebanking.exception.AccountNotFoundException;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.web.server.ResponseStatusException;
+
+class DepositBatcherTest {
+
+  // Batches wait long enough for all concurrent deposits to join them.
+  @Nested
+  @SpringBootTest
+  @ActiveProfiles("test")
+  @TestPropertySource(
+      properties = {
+        "app.deposit.group-commit.enabled=true",
+        "app.deposit.group-commit.max-wait-micros=200000"
+      })
+  class Batching {
+    @Autowired private UserService userService;
+    @Autowired private AccountService accountService;
+    @Autowired private MeterRegistry meterRegistry;
+
+    @Test
+    void depositThatFailsItsChecksFailsAloneInItsBatch() {
+      UserDTO alice = userService.createUser("alice-" + UUID.randomUUID(), "password");
+      UserDTO bob = userService.createUser("bob-" + UUID.randomUUID(), "password");
+      long aliceUsd = alice.getAccounts().get(0).getId();
+      ExecutorService callers = Executors.newFixedThreadPool(21);
+      try {
+        List<CompletableFuture<Long>> deposits = new ArrayList<>();
+        for (int i = 1; i <= 20; i++) {
+          long amount = i;
+          deposits.add(
+              CompletableFuture.supplyAsync(
+                  () ->
+                      accountService.depositToAccount(alice.getId(), aliceUsd, amount).getAmount(),
+                  callers));
+        }
+        CompletableFuture<Long> intruder =
+            CompletableFuture.supplyAsync(
+                () -> accountService.depositToAccount(bob.getId(), aliceUsd, 1000).getAmount(),
+                callers);
+
+        assertThatThrownBy(intruder::join).hasCauseInstanceOf(AccountNotFoundException.class);
+        deposits.forEach(CompletableFuture::join);
+      } finally {
+        callers.shutdownNow();
+      }
+
+      assertThat(accountService.getAccount(alice.getId(), aliceUsd).getAmount()).isEqualTo(211);
+      assertThat(meterRegistry.summary("banking.deposit.batch.size").max()).isGreaterThan(1);
+    }
+  }
+
+  // The worker waits two seconds for a second deposit that never comes.
+  @Nested
+  @SpringBootTest
+  @ActiveProfiles("test")
+  @TestPropertySource(
+      properties = {
+        "app.deposit.group-commit.enabled=true",
+        "app.deposit.group-commit.max-wait-micros=2000000",
+        "app.deposit.group-commit.timeout-ms=100"
+      })
+  class Timeout {
+    @Autowired private UserService userService;
+    @Autowired private AccountService accountService;
+
+    @Test
+    void callerStopsWaitingForASlowBatch() {
+      UserDTO alice = userService.createUser("alice-" + UUID.randomUUID(), "password");
+      long aliceUsd = alice.getAccounts().get(0).getId();
+
+      assertThatThrownBy(() -> accountService.depositToAccount(alice.getId(), aliceUsd, 5))
+          .isInstanceOfSatisfying(
+              ResponseStatusException.class,
+              e -> assertThat(e.getStatus()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE));
+    }
+  }
+}
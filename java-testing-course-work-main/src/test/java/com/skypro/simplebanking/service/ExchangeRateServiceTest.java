@@ -0,0 +1,139 @@
+package com.skypro.simplebanking.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.skypro.simplebanking.dto.AccountTransactionDTO;
+import com.skypro.simplebanking.dto.ExchangeRatesDTO;
+import com.skypro.simplebanking.dto.UserDTO;
+import com.skypro.simplebanking.entity.AccountCurrency;
+import com.skypro.simplebanking.exception.InvalidExchangeRatesException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.TestPropertySource;
+
+// Tests share the published version, so each one publishes on top of whatever is current.
+@SpringBootTest
+@ActiveProfiles("test")
+@TestPropertySource(properties = "app.deposit.group-commit.enabled=false")
+class ExchangeRateServiceTest {
+  private static final Path RATES_FILE = ratesFile();
+
+  @Autowired private ExchangeRateService exchangeRateService;
+  @Autowired private UserService userService;
+  @Autowired private AccountService accountService;
+  @Autowired private AccountStatementService statementService;
+
+  @DynamicPropertySource
+  static void rates(DynamicPropertyRegistry registry) {
+    registry.add("app.exchange.rates-file", RATES_FILE::toString);
+  }
+
+  @Test
+  void versionsOnlyMoveForward() {
+    long current = exchangeRateService.current().getVersion();
+    ExchangeRatesDTO next = usdToEur(current + 1, "0.9");
+    exchangeRateService.publish(next);
+
+    // The same version with the same rates is accepted again, but changes nothing.
+    assertThat(exchangeRateService.publish(usdToEur(current + 1, "0.90")).getVersion())
+        .isEqualTo(current + 1);
+    assertThatThrownBy(() -> exchangeRateService.publish(usdToEur(current + 1, "0.8")))
+        .isInstanceOf(InvalidExchangeRatesException.class);
+    assertThatThrownBy(() -> exchangeRateService.publish(usdToEur(current, "0.9")))
+        .isInstanceOf(InvalidExchangeRatesException.class);
+    assertThat(exchangeRateService.current().getVersion()).isEqualTo(current + 1);
+    assertThat(exchangeRateService.getVersion(current + 1).getRates())
+        .isEqualTo(Map.of(AccountCurrency.USD, Map.of(AccountCurrency.EUR, new BigDecimal("0.9"))));
+  }
+
+  @Test
+  void invalidRatesAreRejected() {
+    long next = exchangeRateService.current().getVersion() + 1;
+
+    assertThatThrownBy(() -> exchangeRateService.publish(usdToEur(next, "0")))
+        .isInstanceOf(InvalidExchangeRatesException.class);
+    assertThatThrownBy(() -> exchangeRateService.publish(usdToEur(next, "0.0000000000001")))
+        .isInstanceOf(InvalidExchangeRatesException.class);
+    assertThatThrownBy(
+            () ->
+                exchangeRateService.publish(
+                    new ExchangeRatesDTO(
+                        next,
+                        Map.of(AccountCurrency.USD, Map.of(AccountCurrency.USD, BigDecimal.ONE)))))
+        .isInstanceOf(InvalidExchangeRatesException.class);
+    assertThat(exchangeRateService.current().getVersion()).isEqualTo(next - 1);
+  }
+
+  @Test
+  void reloadPublishesTheRateFile() throws IOException {
+    long next = exchangeRateService.current().getVersion() + 1;
+    Files.writeString(RATES_FILE, "version=" + next + "\nEUR.RUB=98.5\nRUB.EUR=0.0101\n");
+
+    ExchangeRatesDTO reloaded = exchangeRateService.reloadFromFile();
+
+    assertThat(reloaded.getVersion()).isEqualTo(next);
+    assertThat(reloaded.getRates().get(AccountCurrency.EUR))
+        .containsEntry(AccountCurrency.RUB, new BigDecimal("98.5"));
+    assertThat(exchangeRateService.current().getVersion()).isEqualTo(next);
+
+    Files.writeString(RATES_FILE, "version=" + next + "\nEUR.XYZ=1\n");
+    assertThatThrownBy(() -> exchangeRateService.reloadFromFile())
+        .isInstanceOf(InvalidExchangeRatesException.class);
+    assertThat(exchangeRateService.current().getVersion()).isEqualTo(next);
+  }
+
+  @Test
+  void transferRecordsTheRateVersionItWasConvertedWith() {
+    UserDTO alice = userService.createUser("alice-" + UUID.randomUUID(), "password");
+    UserDTO bob = userService.createUser("bob-" + UUID.randomUUID(), "password");
+    long aliceUsd = alice.getAccounts().get(0).getId();
+    long bobEur = bob.getAccounts().get(1).getId();
+    long version = exchangeRateService.current().getVersion() + 1;
+    exchangeRateService.publish(usdToEur(version, "0.5"));
+    accountService.depositToAccount(alice.getId(), aliceUsd, 100);
+
+    accountService.transfer(alice.getId(), aliceUsd, bob.getId(), bobEur, 31);
+
+    AccountTransactionDTO debit = last(alice.getId(), aliceUsd);
+    AccountTransactionDTO credit = last(bob.getId(), bobEur);
+    assertThat(debit.getAmount()).isEqualTo(-31);
+    assertThat(credit.getAmount()).isEqualTo(15);
+    assertThat(debit.getRateVersion()).isEqualTo(version);
+    assertThat(credit.getRateVersion()).isEqualTo(version);
+  }
+
+  private AccountTransactionDTO last(long userId, long accountId) {
+    List<AccountTransactionDTO> transactions =
+        statementService.getStatement(userId, accountId, null, null, null, 100).getTransactions();
+    return transactions.get(transactions.size() - 1);
+  }
+
+  private static ExchangeRatesDTO usdToEur(long version, String rate) {
+    return new ExchangeRatesDTO(
+        version, Map.of(AccountCurrency.USD, Map.of(AccountCurrency.EUR, new BigDecimal(rate))));
+  }
+
+  private static Path ratesFile() {
+    try {
+      Path file = Files.createTempFile("simplebanking-rates", ".properties");
+      Files.writeString(file, "version=1\nUSD.EUR=0.92\n");
+      file.toFile().deleteOnExit();
+      return file;
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+}
@@ -0,0 +1,66 @@
+package com.skypro.simplebanking.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.skypro.simplebanking.entity.AccountCurrency;
+import com.skypro.simplebanking.exception.InvalidAmountException;
+import com.skypro.simplebanking.exception.WrongCurrencyException;
+import java.math.BigDecimal;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+class ExchangeRatesTest {
+  private final ExchangeRates rates =
+      new ExchangeRates(
+          7,
+          Map.of(
+              AccountCurrency.USD, Map.of(AccountCurrency.EUR, new BigDecimal("0.92")),
+              AccountCurrency.RUB, Map.of(AccountCurrency.USD, new BigDecimal("0.011"))));
+
+  @Test
+  void conversionRoundsDown() {
+    ExchangeRates.Rate usdToEur = rates.rate(AccountCurrency.USD, AccountCurrency.EUR);
+
+    assertThat(usdToEur.convert(100)).isEqualTo(92);
+    assertThat(usdToEur.convert(99)).isEqualTo(91);
+    assertThat(usdToEur.convert(0)).isZero();
+    assertThat(usdToEur.getVersion()).isEqualTo(7);
+  }
+
+  @Test
+  void amountThatConvertsToNothingIsRejected() {
+    ExchangeRates.Rate rubToUsd = rates.rate(AccountCurrency.RUB, AccountCurrency.USD);
+
+    assertThat(rubToUsd.convert(100)).isEqualTo(1);
+    assertThatThrownBy(() -> rubToUsd.convert(90)).isInstanceOf(InvalidAmountException.class);
+  }
+
+  @Test
+  void amountThatOverflowsABalanceIsRejected() {
+    Map<AccountCurrency, BigDecimal> tenfold = Map.of(AccountCurrency.USD, BigDecimal.TEN);
+    ExchangeRates.Rate eurToUsd =
+        new ExchangeRates(1, Map.of(AccountCurrency.EUR, tenfold))
+            .rate(AccountCurrency.EUR, AccountCurrency.USD);
+
+    assertThat(eurToUsd.convert(Long.MAX_VALUE / 10)).isEqualTo(Long.MAX_VALUE / 10 * 10);
+    assertThatThrownBy(() -> eurToUsd.convert(Long.MAX_VALUE / 5))
+        .isInstanceOf(InvalidAmountException.class);
+  }
+
+  @Test
+  void sameCurrencyConvertsUnchangedWithoutAVersion() {
+    ExchangeRates.Rate identity = rates.rate(AccountCurrency.EUR, AccountCurrency.EUR);
+
+    assertThat(identity.convert(Long.MAX_VALUE)).isEqualTo(Long.MAX_VALUE);
+    assertThat(identity.getVersion()).isZero();
+  }
+
+  @Test
+  void pairWithoutARateCannotBeConverted() {
+    assertThatThrownBy(() -> rates.rate(AccountCurrency.EUR, AccountCurrency.USD))
+        .isInstanceOf(WrongCurrencyException.class);
+    assertThatThrownBy(() -> ExchangeRates.NONE.rate(AccountCurrency.USD, AccountCurrency.EUR))
+        .isInstanceOf(WrongCurrencyException.class);
+  }
+}
@@ -0,0 +1,134 @@
+package com.skypro.simplebanking.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.skypro.simplebanking.SimpleBankingApplication;
+import com.skypro.simplebanking.dto.UserDTO;
+import com.skypro.simplebanking.entity.IdempotencyRecord;
+import com.skypro.simplebanking.exception.AccountNotFoundException;
+import com.skypro.simplebanking.exception.IdempotencyKeyInUseException;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+/** Two instances sharing one database, as behind a load balancer. */
+@SpringBootTest
+@ActiveProfiles("test")
+class IdempotencyServiceTest {
+  private static final String DATABASE_URL =
+      "jdbc:h2:mem:idempotency-" + UUID.randomUUID() + ";MODE=PostgreSQL;DB_CLOSE_DELAY=-1";
+  private static ConfigurableApplicationContext second;
+  private static ExecutorService secondThread;
+
+  @Autowired private UserService userService;
+  @Autowired private AccountService accountService;
+  @Autowired private IdempotencyService keys;
+
+  @DynamicPropertySource
+  static void database(DynamicPropertyRegistry registry) {
+    registry.add("spring.datasource.url", () -> DATABASE_URL);
+  }
+
+  // Started once this test's context has created the schema.
+  @BeforeEach
+  void startSecondInstance() {
+    if (second == null) {
+      second =
+          new SpringApplicationBuilder(SimpleBankingApplication.class)
+              .profiles("test")
+              .run(
+                  "--spring.datasource.url=" + DATABASE_URL,
+                  "--spring.jpa.hibernate.ddl-auto=none",
+                  "--server.port=0");
+      secondThread = Executors.newSingleThreadExecutor();
+    }
+  }
+
+  @AfterAll
+  static void stopSecondInstance() {
+    if (second != null) {
+      secondThread.shutdownNow();
+      second.close();
+    }
+  }
+
+  @Test
+  void keyCommittedWithTheChangeIsFoundByAnotherInstance() {
+    UserDTO user = userService.createUser("committed-" + UUID.randomUUID(), "password");
+    long accountId = user.getAccounts().get(0).getId();
+
+    assertThat(keys.claim(user.getId(), "key", "fingerprint")).isNull();
+    accountService.depositToAccount(user.getId(), accountId, 100);
+    // The first instance stops here, before it stores the response.
+    IdempotencyRecord stored =
+        second.getBean(IdempotencyService.class).claim(user.getId(), "key", "fingerprint");
+
+    assertThat(stored).isNotNull();
+    assertThat(stored.getFingerprint()).isEqualTo("fingerprint");
+    assertThat(stored.hasResponse()).isFalse();
+    keys.complete(user.getId(), "key", null);
+  }
+
+  @Test
+  void keyIsNotStoredWhenTheChangeFails() {
+    UserDTO user = userService.createUser("failed-" + UUID.randomUUID(), "password");
+
+    assertThat(keys.claim(user.getId(), "key", "fingerprint")).isNull();
+    assertThatThrownBy(
+            () -> accountService.depositToAccount(user.getId(), -1L, 100))
+        .isInstanceOf(AccountNotFoundException.class);
+    keys.complete(user.getId(), "key", null);
+
+    IdempotencyService otherKeys = second.getBean(IdempotencyService.class);
+    assertThat(otherKeys.claim(user.getId(), "key", "fingerprint")).isNull();
+    otherKeys.complete(user.getId(), "key", null);
+  }
+
+  @Test
+  void duplicateOnAnotherInstanceFailsInsteadOfApplyingTwice() {
+    UserDTO user = userService.createUser("duplicate-" + UUID.randomUUID(), "password");
+    long accountId = user.getAccounts().get(0).getId();
+    IdempotencyService secondKeys = second.getBean(IdempotencyService.class);
+
+    // Both instances claim the key before either has changed anything.
+    assertThat(
+            CompletableFuture.supplyAsync(
+                    () -> secondKeys.claim(user.getId(), "key", "fingerprint"), secondThread)
+                .join())
+        .isNull();
+    assertThat(keys.claim(user.getId(), "key", "fingerprint")).isNull();
+    accountService.depositToAccount(user.getId(), accountId, 100);
+    keys.complete(user.getId(), "key", null);
+
+    assertThatThrownBy(
+            () ->
+                CompletableFuture.runAsync(
+                        () -> {
+                          try {
+                            second
+                                .getBean(AccountService.class)
+                                .depositToAccount(user.getId(), accountId, 100);
+                          } finally {
+                            secondKeys.complete(user.getId(), "key", null);
+                          }
+                        },
+                        secondThread)
+                    .join())
+        .hasCauseInstanceOf(IdempotencyKeyInUseException.class);
+    assertThat(
+            accountService.getAccount(user.getId(), accountId).getAmount())
+        .isEqualTo(101);
+  }
+}
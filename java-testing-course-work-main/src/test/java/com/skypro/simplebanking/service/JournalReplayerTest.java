@@ -0,0 +1,56 @@
+package com.skypro.simplebanking.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.skypro.simplebanking.dto.UserDTO;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.TestPropertySource;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@TestPropertySource(
+    properties = {
+      "app.deposit.group-commit.enabled=false",
+      "app.journal.enabled=true",
+      "app.journal.replay-on-startup=true"
+    })
+class JournalReplayerTest {
+  @Autowired private UserService userService;
+  @Autowired private AccountService accountService;
+  @Autowired private JournalReplayer journalReplayer;
+  @Autowired private JdbcTemplate jdbcTemplate;
+
+  @DynamicPropertySource
+  static void journalDirectory(DynamicPropertyRegistry registry) throws Exception {
+    Path directory = Files.createTempDirectory("simplebanking-journal");
+    registry.add("app.journal.directory", directory::toString);
+  }
+
+  @Test
+  void replayRestoresBalancesLostByTheDatabase() {
+    UserDTO alice = userService.createUser("alice-" + UUID.randomUUID(), "password");
+    long aliceUsd = alice.getAccounts().get(0).getId();
+    accountService.depositToAccount(alice.getId(), aliceUsd, 100);
+    accountService.withdrawFromAccount(alice.getId(), aliceUsd, 30);
+    // Stands in for a database restored from a backup taken before the withdrawal.
+    jdbcTemplate.update("update accounts set amount = 101 where id = ?", aliceUsd);
+
+    journalReplayer.run();
+
+    assertThat(amount(aliceUsd)).isEqualTo(71);
+  }
+
+  private long amount(long accountId) {
+    return jdbcTemplate.queryForObject(
+        "select amount from accounts where id = ?", Long.class, accountId);
+  }
+}
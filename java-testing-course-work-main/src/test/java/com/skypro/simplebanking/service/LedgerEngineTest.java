@@ -0,0 +1,198 @@
+package com.skypro.simplebanking.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.skypro.simplebanking.dto.AccountDTO;
+import com.skypro.simplebanking.dto.TransferRequest;
+import com.skypro.simplebanking.dto.UserDTO;
+import com.skypro.simplebanking.repository.AccountRepository;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/** The same transfers fail and succeed alike with and without the ledger engine. */
+class LedgerEngineTest {
+  private static final List<String> EXPECTED_OUTCOMES =
+      List.of(
+          "InvalidAmountException",
+          "AccountNotFoundException",
+          "InsufficientFundsException: Cannot withdraw 1000 USD",
+          "AccountNotFoundException",
+          "AccountNotFoundException",
+          "applied",
+          "71",
+          "1",
+          "1",
+          "31",
+          "1",
+          "1");
+
+  @Nested
+  @SpringBootTest
+  @ActiveProfiles("test")
+  @TestPropertySource(properties = "app.ledger.enabled=false")
+  class DatabasePath {
+    @Autowired private UserService userService;
+    @Autowired private AccountService accountService;
+    @Autowired private TransferService transferService;
+
+    @Test
+    void transfersFailAndSucceedAsExpected() {
+      assertThat(runScenario(userService, accountService, transferService))
+          .isEqualTo(EXPECTED_OUTCOMES);
+    }
+  }
+
+  @Nested
+  @SpringBootTest
+  @ActiveProfiles("test")
+  @TestPropertySource(properties = "app.ledger.enabled=true")
+  class Ledger {
+    @Autowired private UserService userService;
+    @Autowired private AccountService accountService;
+    @Autowired private TransferService transferService;
+
+    @Test
+    void transfersFailAndSucceedLikeTheDatabasePath() {
+      assertThat(runScenario(userService, accountService, transferService))
+          .isEqualTo(EXPECTED_OUTCOMES);
+    }
+  }
+
+  // The replica is a copy that has missed a change made on the primary.
+  @Nested
+  @SpringBootTest
+  @ActiveProfiles("test")
+  @TestPropertySource(
+      properties = {
+        "app.ledger.enabled=true",
+        "app.replicas.enabled=true",
+        "app.replicas.lag-query=select 0",
+        "app.replicas.lag-check-interval-ms=50"
+      })
+  class LedgerWithReplicas {
+    private static final String PRIMARY = "primary-" + UUID.randomUUID();
+    private static final String REPLICA = "replica-" + UUID.randomUUID();
+
+    @Autowired private UserService userService;
+    @Autowired private AccountService accountService;
+    @Autowired private AccountRepository accountRepository;
+    @Autowired private JdbcTemplate jdbcTemplate;
+    @Autowired private PlatformTransactionManager transactionManager;
+
+    @DynamicPropertySource
+    static void databases(DynamicPropertyRegistry registry) {
+      registry.add("spring.datasource.url", () -> h2Url(PRIMARY));
+      registry.add("app.replicas.urls", () -> h2Url(REPLICA));
+    }
+
+    @Test
+    void balancesAreLoadedFromThePrimary() throws Exception {
+      UserDTO alice = userService.createUser("alice-" + UUID.randomUUID(), "password");
+      long aliceUsd = alice.getAccounts().get(0).getId();
+      copyDatabase(PRIMARY, REPLICA);
+      jdbcTemplate.update("update accounts set amount = 101 where id = ?", aliceUsd);
+
+      TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+      readOnly.setReadOnly(true);
+      long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+      long replicaAmount;
+      do {
+        Thread.sleep(50);
+        replicaAmount =
+            readOnly.execute(
+                status -> accountRepository.findById(aliceUsd).orElseThrow().getAmount());
+      } while (replicaAmount != 1 && System.nanoTime() < deadline);
+      assertThat(replicaAmount).isEqualTo(1);
+
+      assertThat(accountService.getAccount(alice.getId(), aliceUsd).getAmount()).isEqualTo(101);
+      accountService.depositToAccount(alice.getId(), aliceUsd, 10);
+      assertThat(accountService.getAccount(alice.getId(), aliceUsd).getAmount()).isEqualTo(111);
+    }
+  }
+
+  private static String h2Url(String database) {
+    return "jdbc:h2:mem:" + database + ";MODE=PostgreSQL;DB_CLOSE_DELAY=-1";
+  }
+
+  private static void copyDatabase(String from, String to) throws Exception {
+    Path script = Files.createTempFile("simplebanking-replica", ".sql");
+    try (Connection source = DriverManager.getConnection(h2Url(from), "sa", "");
+        Statement statement = source.createStatement()) {
+      statement.execute("script to '" + script + "'");
+    }
+    try (Connection target = DriverManager.getConnection(h2Url(to), "sa", "");
+        Statement statement = target.createStatement()) {
+      statement.execute("runscript from '" + script + "'");
+    }
+    Files.delete(script);
+  }
+
+  // Returns the outcome of every transfer followed by every balance.
+  private static List<String> runScenario(
+      UserService userService, AccountService accountService, TransferService transferService) {
+    UserDTO alice = userService.createUser("alice-" + UUID.randomUUID(), "password");
+    UserDTO bob = userService.createUser("bob-" + UUID.randomUUID(), "password");
+    long aliceUsd = alice.getAccounts().get(0).getId();
+    long bobUsd = bob.getAccounts().get(0).getId();
+    accountService.depositToAccount(alice.getId(), aliceUsd, 100);
+
+    List<String> outcomes = new ArrayList<>();
+    // Negative amount.
+    outcomes.add(transfer(transferService, alice.getId(), aliceUsd, bob.getId(), bobUsd, -1));
+    // Source owned by someone else.
+    outcomes.add(transfer(transferService, bob.getId(), aliceUsd, bob.getId(), bobUsd, 10));
+    // Insufficient funds and a wrong destination owner: the funds check comes first.
+    outcomes.add(transfer(transferService, alice.getId(), aliceUsd, alice.getId(), bobUsd, 1000));
+    // Only a wrong destination owner.
+    outcomes.add(transfer(transferService, alice.getId(), aliceUsd, alice.getId(), bobUsd, 10));
+    // Missing destination.
+    outcomes.add(transfer(transferService, alice.getId(), aliceUsd, bob.getId(), -1, 10));
+    outcomes.add(transfer(transferService, alice.getId(), aliceUsd, bob.getId(), bobUsd, 30));
+    for (UserDTO user : List.of(alice, bob)) {
+      for (AccountDTO account : user.getAccounts()) {
+        outcomes.add(
+            String.valueOf(accountService.getAccount(user.getId(), account.getId()).getAmount()));
+      }
+    }
+    return outcomes;
+  }
+
+  private static String transfer(
+      TransferService transferService,
+      long fromUserId,
+      long fromAccountId,
+      long toUserId,
+      long toAccountId,
+      long amount) {
+    TransferRequest request = new TransferRequest();
+    request.setFromAccountId(fromAccountId);
+    request.setToUserId(toUserId);
+    request.setToAccountId(toAccountId);
+    request.setAmount(amount);
+    try {
+      transferService.transfer(fromUserId, request);
+      return "applied";
+    } catch (RuntimeException e) {
+      String name = e.getClass().getSimpleName();
+      return e.getMessage() == null ? name : name + ": " + e.getMessage();
+    }
+  }
+}
@@ -0,0 +1,174 @@
+package com.skypro.simplebanking.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.skypro.simplebanking.dto.OutboxEventDTO;
+import com.skypro.simplebanking.dto.UserDTO;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@TestPropertySource(
+    properties = {
+      "app.deposit.group-commit.enabled=false",
+      "app.outbox.enabled=true",
+      "app.outbox.sink=recording",
+      "app.outbox.batch-size=3",
+      "app.outbox.relay-interval-ms=20"
+    })
+class OutboxServiceTest {
+  @Autowired private UserService userService;
+  @Autowired private AccountService accountService;
+  @Autowired private RecordingSink sink;
+
+  @AfterEach
+  void recover() {
+    sink.failing = false;
+  }
+
+  @Test
+  void relaySendsBatchesOfAtMostTheBatchSize() throws Exception {
+    sink.failing = true;
+    UserDTO alice = userService.createUser("alice-" + UUID.randomUUID(), "password");
+    long aliceUsd = alice.getAccounts().get(0).getId();
+    for (int i = 1; i <= 4; i++) {
+      accountService.depositToAccount(alice.getId(), aliceUsd, i);
+    }
+    sink.failing = false;
+
+    // Three openings and four deposits.
+    await(() -> sink.deliveredFor(alice.getId()).size() == 7);
+    assertThat(sink.batchSizes()).allMatch(size -> size <= 3).contains(3);
+  }
+
+  @Test
+  void eventsRefusedBySinkAreSentAgain() throws Exception {
+    sink.failing = true;
+    UserDTO alice = userService.createUser("alice-" + UUID.randomUUID(), "password");
+    await(() -> !sink.refusedFor(alice.getId()).isEmpty());
+    Set<Long> refused =
+        sink.refusedFor(alice.getId()).stream()
+            .map(OutboxEventDTO::getId)
+            .collect(Collectors.toSet());
+
+    sink.failing = false;
+    await(() -> sink.deliveredFor(alice.getId()).size() == 3);
+    assertThat(sink.deliveredFor(alice.getId()))
+        .extracting(OutboxEventDTO::getId)
+        .containsAll(refused);
+  }
+
+  @Test
+  void eventsOfOneAccountArriveInTheOrderTheyHappened() throws Exception {
+    UserDTO alice = userService.createUser("alice-" + UUID.randomUUID(), "password");
+    UserDTO bob = userService.createUser("bob-" + UUID.randomUUID(), "password");
+    long aliceUsd = alice.getAccounts().get(0).getId();
+    long bobUsd = bob.getAccounts().get(0).getId();
+    accountService.depositToAccount(alice.getId(), aliceUsd, 39);
+    ExecutorService callers = Executors.newFixedThreadPool(4);
+    try {
+      List<CompletableFuture<?>> transfers = new ArrayList<>();
+      for (int i = 0; i < 40; i++) {
+        transfers.add(
+            CompletableFuture.runAsync(
+                () -> accountService.transfer(alice.getId(), aliceUsd, bob.getId(), bobUsd, 1),
+                callers));
+      }
+      transfers.forEach(CompletableFuture::join);
+    } finally {
+      callers.shutdownNow();
+    }
+
+    // Every balance is that after the change, so each account's events are in order exactly
+    // when their balances rise or fall steadily.
+    await(() -> sink.deliveredFor(bob.getId()).size() == 43);
+    assertThat(balances(sink.deliveredFor(alice.getId()), aliceUsd))
+        .containsExactlyElementsOf(openedThen(40, 0));
+    assertThat(balances(sink.deliveredFor(bob.getId()), bobUsd))
+        .containsExactlyElementsOf(openedThen(2, 41));
+  }
+
+  private static List<Long> balances(List<OutboxEventDTO> events, long accountId) {
+    return events.stream()
+        .filter(event -> event.getAccountId() == accountId)
+        .map(OutboxEventDTO::getBalance)
+        .collect(Collectors.toList());
+  }
+
+  // The opening balance of 1, then every balance from first to last.
+  private static List<Long> openedThen(long first, long last) {
+    List<Long> balances = new ArrayList<>(List.of(1L));
+    long step = first <= last ? 1 : -1;
+    for (long balance = first; balance != last + step; balance += step) {
+      balances.add(balance);
+    }
+    return balances;
+  }
+
+  private static void await(BooleanSupplier condition) throws InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+    while (!condition.getAsBoolean()) {
+      assertThat(System.nanoTime()).as("waited for the outbox relay").isLessThan(deadline);
+      Thread.sleep(20);
+    }
+  }
+
+  // Records every batch it is given, and refuses them while failing.
+  static class RecordingSink implements OutboxSink {
+    private final List<List<OutboxEventDTO>> delivered = new ArrayList<>();
+    private final List<OutboxEventDTO> refused = new ArrayList<>();
+    volatile boolean failing;
+
+    @Override
+    public synchronized void send(List<OutboxEventDTO> events) throws IOException {
+      if (failing) {
+        refused.addAll(events);
+        throw new IOException("Sink is down");
+      }
+      delivered.add(List.copyOf(events));
+    }
+
+    synchronized List<OutboxEventDTO> deliveredFor(long userId) {
+      return delivered.stream()
+          .flatMap(List::stream)
+          .filter(event -> event.getUserId() == userId)
+          .collect(Collectors.toList());
+    }
+
+    synchronized List<OutboxEventDTO> refusedFor(long userId) {
+      return refused.stream()
+          .filter(event -> event.getUserId() == userId)
+          .collect(Collectors.toList());
+    }
+
+    synchronized List<Integer> batchSizes() {
+      return delivered.stream().map(List::size).collect(Collectors.toList());
+    }
+  }
+
+  @TestConfiguration
+  static class SinkConfiguration {
+    @Bean
+    RecordingSink recordingSink() {
+      return new RecordingSink();
+    }
+  }
+}
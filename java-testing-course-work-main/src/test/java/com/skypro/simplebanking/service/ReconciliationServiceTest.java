@@ -0,0 +1,168 @@
+package com.skypro.simplebanking.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.skypro.simplebanking.dto.ReconciliationDTO;
+import com.skypro.simplebanking.dto.UserDTO;
+import com.skypro.simplebanking.repository.ReconciliationJdbcRepository;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.TestPropertySource;
+
+// One account chunk and eight transfer chunks, started at most 20 a second.
+@SpringBootTest
+@ActiveProfiles("test")
+@TestPropertySource(
+    properties = {
+      "app.reconciliation.chunk-size=1000000",
+      "app.reconciliation.transfer-chunks=8",
+      "app.reconciliation.parallelism=2",
+      "app.reconciliation.max-chunks-per-second=20"
+    })
+class ReconciliationServiceTest {
+  private static final Path DIRECTORY = directory();
+  private static final Path CHECKPOINT = DIRECTORY.resolve("checkpoint.json");
+
+  @Autowired private ReconciliationService reconciliationService;
+  @Autowired private UserService userService;
+  @Autowired private AccountService accountService;
+  @Autowired private JdbcTemplate jdbcTemplate;
+  @Autowired private ObjectMapper objectMapper;
+  @SpyBean private ReconciliationJdbcRepository reconciliationRepository;
+
+  @DynamicPropertySource
+  static void files(DynamicPropertyRegistry registry) {
+    registry.add("app.reconciliation.report-directory", DIRECTORY::toString);
+    registry.add("app.reconciliation.checkpoint-path", CHECKPOINT::toString);
+  }
+
+  @Test
+  void reportsBalancesAndTransfersThatDoNotAddUp() throws Exception {
+    UserDTO alice = userService.createUser("alice-" + UUID.randomUUID(), "password");
+    UserDTO bob = userService.createUser("bob-" + UUID.randomUUID(), "password");
+    long aliceUsd = alice.getAccounts().get(0).getId();
+    long aliceEur = alice.getAccounts().get(1).getId();
+    long bobUsd = bob.getAccounts().get(0).getId();
+    accountService.depositToAccount(alice.getId(), aliceUsd, 100);
+    accountService.transfer(alice.getId(), aliceUsd, bob.getId(), bobUsd, 30);
+    jdbcTemplate.update("update accounts set amount = amount + 5 where id = ?", aliceEur);
+    jdbcTemplate.update(
+        "update account_transactions set delta = delta - 1"
+            + " where account_id = ? and transfer_id is not null",
+        bobUsd);
+
+    ReconciliationDTO result = await(reconciliationService.start());
+
+    assertThat(result.getStatus()).isEqualTo("completed");
+    assertThat(result.getChunksDone()).isEqualTo(result.getChunks());
+    List<JsonNode> mismatches = report(result);
+    assertThat(mismatches)
+        .filteredOn(m -> m.path("accountId").asLong() == aliceEur)
+        .singleElement()
+        .satisfies(
+            m -> {
+              assertThat(m.get("type").asText()).isEqualTo("balance");
+              assertThat(m.get("expected").asLong()).isEqualTo(1);
+              assertThat(m.get("actual").asLong()).isEqualTo(6);
+            });
+    assertThat(mismatches)
+        .filteredOn(m -> m.path("accountId").asLong() == bobUsd)
+        .singleElement()
+        .satisfies(m -> assertThat(m.get("expected").asLong()).isEqualTo(30));
+    assertThat(mismatches)
+        .filteredOn(m -> m.get("type").asText().equals("transfer"))
+        .anySatisfy(
+            m -> {
+              assertThat(m.get("expected").asLong()).isEqualTo(30);
+              assertThat(m.get("actual").asLong()).isEqualTo(29);
+            });
+    assertThat(mismatches).noneMatch(m -> m.path("accountId").asLong() == aliceUsd);
+  }
+
+  @Test
+  void resumesAFailedRunWithoutRepeatingFinishedChunks() throws Exception {
+    userService.createUser("alice-" + UUID.randomUUID(), "password");
+    doThrow(new DataAccessResourceFailureException("Connection lost"))
+        .doCallRealMethod()
+        .when(reconciliationRepository)
+        .streamTransfers(anyLong(), anyLong(), any());
+
+    ReconciliationDTO failed = await(reconciliationService.start());
+    assertThat(failed.getStatus()).isEqualTo("failed");
+    assertThat(failed.getChunksDone()).isLessThan(failed.getChunks());
+    assertThat(CHECKPOINT).exists();
+
+    ReconciliationDTO resumed = await(reconciliationService.resume());
+
+    assertThat(resumed.getStatus()).isEqualTo("completed");
+    assertThat(resumed.getStartedAt()).isEqualTo(failed.getStartedAt());
+    assertThat(resumed.getReport()).isEqualTo(failed.getReport());
+    assertThat(resumed.getChunksDone()).isEqualTo(resumed.getChunks());
+    assertThat(CHECKPOINT).doesNotExist();
+    // The only account chunk finished before the failure, so it is neither read nor counted again.
+    verify(reconciliationRepository, times(1)).streamBalances(anyLong(), anyLong(), any());
+    assertThat(resumed.getAccountsChecked())
+        .isEqualTo(jdbcTemplate.queryForObject("select count(*) from accounts", Long.class));
+  }
+
+  @Test
+  void chunksStartNoFasterThanTheConfiguredRate() throws Exception {
+    long startNanos = System.nanoTime();
+    ReconciliationDTO result = await(reconciliationService.start());
+    long elapsedNanos = System.nanoTime() - startNanos;
+
+    assertThat(result.getStatus()).isEqualTo("completed");
+    // Nine chunks are eight intervals of 50 ms apart.
+    assertThat(elapsedNanos).isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(400));
+  }
+
+  private ReconciliationDTO await(ReconciliationDTO started) throws InterruptedException {
+    assertThat(started.getStatus()).isEqualTo("running");
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+    ReconciliationDTO status = reconciliationService.getStatus();
+    while (status.getStatus().equals("running") && System.nanoTime() < deadline) {
+      Thread.sleep(20);
+      status = reconciliationService.getStatus();
+    }
+    return status;
+  }
+
+  private List<JsonNode> report(ReconciliationDTO result) throws IOException {
+    List<JsonNode> mismatches = new ArrayList<>();
+    for (String line : Files.readAllLines(Paths.get(result.getReport()))) {
+      mismatches.add(objectMapper.readTree(line));
+    }
+    return mismatches;
+  }
+
+  private static Path directory() {
+    try {
+      return Files.createTempDirectory("simplebanking-reconciliation");
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+}
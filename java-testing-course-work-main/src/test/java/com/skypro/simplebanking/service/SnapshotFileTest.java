@@ -0,0 +1,100 @@
+package com.skypro.simplebanking.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.skypro.simplebanking.entity.AccountCurrency;
+import com.skypro.simplebanking.exception.InvalidSnapshotException;
+import com.skypro.simplebanking.repository.UserJdbcRepository.AccountRecord;
+import com.skypro.simplebanking.repository.UserJdbcRepository.UserRecord;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class SnapshotFileTest {
+  // The magic, the version and the header of the first block come before any payload.
+  private static final int FIRST_PAYLOAD = 6 + 2 + 8;
+
+  @TempDir Path directory;
+
+  @Test
+  void readsBackWhatWasWritten() throws IOException {
+    Path file = directory.resolve("snapshot.bin");
+    // Enough users to fill several blocks of 1 MB.
+    List<UserRecord> written = new ArrayList<>();
+    for (int i = 0; i < 20_000; i++) {
+      written.add(user(i));
+    }
+    write(file, written);
+
+    List<UserRecord> read = new ArrayList<>();
+    SnapshotFile.read(file, read::add);
+
+    assertThat(read).hasSize(written.size());
+    assertThat(read)
+        .usingRecursiveFieldByFieldElementComparator()
+        .containsExactlyElementsOf(written);
+  }
+
+  @Test
+  void damagedBlockIsRejected() throws IOException {
+    Path file = directory.resolve("snapshot.bin");
+    write(file, List.of(user(1), user(2)));
+    byte[] bytes = Files.readAllBytes(file);
+    bytes[FIRST_PAYLOAD + 12] ^= 1;
+    Files.write(file, bytes);
+
+    assertThatThrownBy(() -> SnapshotFile.read(file, user -> {}))
+        .isInstanceOf(InvalidSnapshotException.class)
+        .hasMessage("Snapshot block has a wrong checksum");
+  }
+
+  @Test
+  void incompleteFilesAreRejected() throws IOException {
+    Path file = directory.resolve("snapshot.bin");
+    write(file, List.of(user(1), user(2)));
+    byte[] bytes = Files.readAllBytes(file);
+    // The end record is a block of its own: a header and 17 bytes of payload.
+    Path withoutEnd = directory.resolve("without-end.bin");
+    Files.write(withoutEnd, Arrays.copyOf(bytes, bytes.length - 8 - 17));
+    Path truncated = directory.resolve("truncated.bin");
+    Files.write(truncated, Arrays.copyOf(bytes, FIRST_PAYLOAD + 4));
+    Path notASnapshot = directory.resolve("other.bin");
+    Files.writeString(notASnapshot, "user,password");
+
+    assertThatThrownBy(() -> SnapshotFile.read(withoutEnd, user -> {}))
+        .isInstanceOf(InvalidSnapshotException.class)
+        .hasMessage("Snapshot ends without its end record");
+    assertThatThrownBy(() -> SnapshotFile.read(truncated, user -> {}))
+        .isInstanceOf(InvalidSnapshotException.class)
+        .hasMessage("Snapshot is truncated");
+    assertThatThrownBy(() -> SnapshotFile.read(notASnapshot, user -> {}))
+        .isInstanceOf(InvalidSnapshotException.class)
+        .hasMessage("Not a snapshot file");
+  }
+
+  private static UserRecord user(long id) {
+    return new UserRecord(
+        id,
+        "user-" + id,
+        "{bcrypt}$2a$10$" + id,
+        List.of(
+            new AccountRecord(id * 3, AccountCurrency.USD, id),
+            new AccountRecord(id * 3 + 1, AccountCurrency.EUR, 1),
+            new AccountRecord(id * 3 + 2, AccountCurrency.RUB, Long.MAX_VALUE - id)));
+  }
+
+  private static void write(Path file, List<UserRecord> users) throws IOException {
+    try (SnapshotFile.Writer writer = new SnapshotFile.Writer(file)) {
+      for (UserRecord user : users) {
+        writer.write(user);
+      }
+      writer.finish();
+    }
+  }
+}
@@ -0,0 +1,121 @@
+package com.skypro.simplebanking.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.skypro.simplebanking.dto.AccountDTO;
+import com.skypro.simplebanking.dto.AccountTransactionDTO;
+import com.skypro.simplebanking.dto.SnapshotDTO;
+import com.skypro.simplebanking.dto.UserDTO;
+import com.skypro.simplebanking.entity.User;
+import com.skypro.simplebanking.exception.InvalidSnapshotException;
+import com.skypro.simplebanking.repository.UserRepository;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.web.server.ResponseStatusException;
+
+// Imports run in batches of two users, so a snapshot of three takes more than one.
+@SpringBootTest
+@ActiveProfiles("test")
+@TestPropertySource(properties = "app.snapshot.import-batch-size=2")
+class SnapshotServiceTest {
+  private static final Path DIRECTORY = directory();
+
+  @Autowired private SnapshotService snapshotService;
+  @Autowired private UserService userService;
+  @Autowired private AccountService accountService;
+  @Autowired private AccountStatementService statementService;
+  @Autowired private UserRepository userRepository;
+  @Autowired private JdbcTemplate jdbcTemplate;
+
+  @DynamicPropertySource
+  static void snapshots(DynamicPropertyRegistry registry) {
+    registry.add("app.snapshot.directory", DIRECTORY::toString);
+  }
+
+  @Test
+  void importRestoresAnExportedSnapshot() throws IOException {
+    String prefix = UUID.randomUUID() + "-";
+    for (int i = 1; i <= 3; i++) {
+      UserDTO user = userService.createUser(prefix + i, "password");
+      long usd = user.getAccounts().get(0).getId();
+      accountService.depositToAccount(user.getId(), usd, 10 * i);
+    }
+    String firstPassword = userRepository.findByUsername(prefix + 1).orElseThrow().getPassword();
+
+    SnapshotDTO exported = snapshotService.export();
+    assertThat(exported.getUsers()).isEqualTo(3);
+    assertThat(exported.getAccounts()).isEqualTo(9);
+    // Renamed, the exported users no longer take their usernames.
+    jdbcTemplate.update("update users set username = username || '-old'");
+    Path damaged = DIRECTORY.resolve("damaged.bin");
+    byte[] bytes = Files.readAllBytes(DIRECTORY.resolve(exported.getFile()));
+    bytes[bytes.length / 2] ^= 1;
+    Files.write(damaged, bytes);
+
+    // The whole file is verified before the first user is imported.
+    assertThatThrownBy(() -> snapshotService.importSnapshot("damaged.bin"))
+        .isInstanceOf(InvalidSnapshotException.class)
+        .hasMessage("Snapshot block has a wrong checksum");
+    assertThat(userRepository.count()).isEqualTo(3);
+    SnapshotDTO imported = snapshotService.importSnapshot(exported.getFile());
+
+    assertThat(imported.getUsers()).isEqualTo(3);
+    assertThat(imported.getAccounts()).isEqualTo(9);
+    assertThat(imported.getSkippedUsers()).isZero();
+    User first = userRepository.findByUsername(prefix + 1).orElseThrow();
+    assertThat(first.getPassword()).isEqualTo(firstPassword);
+    for (int i = 1; i <= 3; i++) {
+      long expected = 10L * i + 1;
+      User restored = userRepository.findByUsername(prefix + i).orElseThrow();
+      List<AccountDTO> accounts = userService.getUser(restored.getId()).getAccounts();
+      assertThat(accounts.stream().map(AccountDTO::getAmount).collect(Collectors.toList()))
+          .containsExactly(expected, 1L, 1L);
+      List<AccountTransactionDTO> statement =
+          statementService
+              .getStatement(restored.getId(), accounts.get(0).getId(), null, null, null, 10)
+              .getTransactions();
+      assertThat(statement)
+          .singleElement()
+          .satisfies(transaction -> assertThat(transaction.getAmount()).isEqualTo(expected));
+    }
+
+    // Repeating the import skips every user whose username is now taken.
+    SnapshotDTO repeated = snapshotService.importSnapshot(exported.getFile());
+    assertThat(repeated.getUsers()).isZero();
+    assertThat(repeated.getSkippedUsers()).isEqualTo(3);
+    assertThat(userRepository.count()).isEqualTo(6);
+  }
+
+  @Test
+  void onlySnapshotsInTheDirectoryCanBeImported() {
+    assertThatThrownBy(() -> snapshotService.importSnapshot("../snapshot.bin"))
+        .isInstanceOf(InvalidSnapshotException.class);
+    assertThatThrownBy(() -> snapshotService.importSnapshot("missing.bin"))
+        .isInstanceOfSatisfying(
+            ResponseStatusException.class,
+            e -> assertThat(e.getStatus()).isEqualTo(HttpStatus.NOT_FOUND));
+  }
+
+  private static Path directory() {
+    try {
+      return Files.createTempDirectory("simplebanking-snapshots");
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+}
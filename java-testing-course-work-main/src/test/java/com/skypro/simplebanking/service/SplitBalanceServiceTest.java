@@ -0,0 +1,152 @@
+package com.skypro.simplebanking.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.skypro.simplebanking.dto.BatchTransferDTO;
+import com.skypro.simplebanking.dto.TransferRequest;
+import com.skypro.simplebanking.dto.UserDTO;
+import com.skypro.simplebanking.exception.AccountNotFoundException;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+// The periodic fold is kept out of the way, so only debits fold.
+@SpringBootTest
+@ActiveProfiles("test")
+@TestPropertySource(
+    properties = {
+      "app.deposit.group-commit.enabled=false",
+      "app.split-balance.fold-interval-ms=3600000"
+    })
+class SplitBalanceServiceTest {
+  @Autowired private UserService userService;
+  @Autowired private AccountService accountService;
+  @Autowired private TransferService transferService;
+  @Autowired private SplitBalanceService splitBalances;
+
+  @Test
+  void debitsFoldTheStripesOfTheirOwnSourceOnly() {
+    UserDTO alice = userService.createUser("alice-" + UUID.randomUUID(), "password");
+    UserDTO bob = userService.createUser("bob-" + UUID.randomUUID(), "password");
+    long aliceUsd = alice.getAccounts().get(0).getId();
+    long bobUsd = bob.getAccounts().get(0).getId();
+    accountService.depositToAccount(alice.getId(), aliceUsd, 10);
+    splitBalances.enable(aliceUsd);
+    accountService.depositToAccount(alice.getId(), aliceUsd, 90);
+    accountService.depositToAccount(alice.getId(), aliceUsd, 100);
+
+    // Bob does not own the account, so nothing is folded for him.
+    assertThatThrownBy(() -> accountService.transfer(bob.getId(), aliceUsd, 0, bobUsd, 50))
+        .isInstanceOf(AccountNotFoundException.class);
+    assertThatThrownBy(
+            () -> accountService.transferConditionally(bob.getId(), aliceUsd, 0, bobUsd, 50))
+        .isInstanceOf(AccountNotFoundException.class);
+    assertThat(pending(aliceUsd)).isEqualTo(190);
+
+    accountService.transfer(alice.getId(), aliceUsd, bob.getId(), bobUsd, 50);
+    assertThat(pending(aliceUsd)).isZero();
+    accountService.depositToAccount(alice.getId(), aliceUsd, 100);
+    accountService.transferConditionally(alice.getId(), aliceUsd, bob.getId(), bobUsd, 200);
+    accountService.depositToAccount(alice.getId(), aliceUsd, 30);
+    accountService.withdrawFromAccount(alice.getId(), aliceUsd, 40);
+
+    assertThat(accountService.getAccount(alice.getId(), aliceUsd).getAmount()).isEqualTo(41);
+    assertThat(accountService.getAccount(bob.getId(), bobUsd).getAmount()).isEqualTo(251);
+  }
+
+  @Test
+  void batchesFoldOnlyTheSplitSourcesOfTheirCaller() {
+    UserDTO alice = userService.createUser("alice-" + UUID.randomUUID(), "password");
+    UserDTO bob = userService.createUser("bob-" + UUID.randomUUID(), "password");
+    long aliceUsd = alice.getAccounts().get(0).getId();
+    long bobUsd = bob.getAccounts().get(0).getId();
+    splitBalances.enable(aliceUsd);
+    accountService.depositToAccount(alice.getId(), aliceUsd, 100);
+
+    BatchTransferDTO intruder =
+        transferService.transferBatch(
+            bob.getId(), List.of(request(alice.getId(), aliceUsd, bob.getId(), bobUsd, 50)), false);
+    assertThat(intruder.getAppliedCount()).isZero();
+    assertThat(pending(aliceUsd)).isEqualTo(100);
+
+    BatchTransferDTO batch =
+        transferService.transferBatch(
+            alice.getId(),
+            List.of(
+                request(alice.getId(), aliceUsd, bob.getId(), bobUsd, 60),
+                request(alice.getId(), aliceUsd, bob.getId(), bobUsd, 40)),
+            true);
+    assertThat(batch.getAppliedCount()).isEqualTo(2);
+    assertThat(pending(aliceUsd)).isZero();
+    assertThat(accountService.getAccount(alice.getId(), aliceUsd).getAmount()).isEqualTo(1);
+    assertThat(accountService.getAccount(bob.getId(), bobUsd).getAmount()).isEqualTo(101);
+  }
+
+  // Alice's batches lock both rows while Bob's transfers credit her stripes without locking her
+  // row, and both sides have to fold to cover their debits.
+  @Test
+  void batchesRunAlongsideTransfersIntoSplitAccounts() throws Exception {
+    UserDTO alice = userService.createUser("alice-" + UUID.randomUUID(), "password");
+    UserDTO bob = userService.createUser("bob-" + UUID.randomUUID(), "password");
+    long aliceUsd = alice.getAccounts().get(0).getId();
+    long bobUsd = bob.getAccounts().get(0).getId();
+    splitBalances.enable(aliceUsd);
+    splitBalances.enable(bobUsd);
+    accountService.depositToAccount(alice.getId(), aliceUsd, 200);
+    accountService.depositToAccount(bob.getId(), bobUsd, 200);
+    List<TransferRequest> batch =
+        List.of(
+            request(alice.getId(), aliceUsd, bob.getId(), bobUsd, 1),
+            request(alice.getId(), aliceUsd, bob.getId(), bobUsd, 1));
+
+    ExecutorService callers = Executors.newFixedThreadPool(2);
+    try {
+      Future<?> batches =
+          callers.submit(
+              () -> {
+                for (int i = 0; i < 50; i++) {
+                  BatchTransferDTO result =
+                      transferService.transferBatch(alice.getId(), batch, true);
+                  assertThat(result.getAppliedCount()).isEqualTo(2);
+                }
+              });
+      Future<?> transfers =
+          callers.submit(
+              () -> {
+                for (int i = 0; i < 50; i++) {
+                  accountService.transfer(bob.getId(), bobUsd, alice.getId(), aliceUsd, 2);
+                }
+              });
+      batches.get(60, TimeUnit.SECONDS);
+      transfers.get(60, TimeUnit.SECONDS);
+    } finally {
+      callers.shutdownNow();
+    }
+
+    assertThat(accountService.getAccount(alice.getId(), aliceUsd).getAmount()).isEqualTo(201);
+    assertThat(accountService.getAccount(bob.getId(), bobUsd).getAmount()).isEqualTo(201);
+  }
+
+  private static TransferRequest request(
+      long fromUserId, long fromAccountId, long toUserId, long toAccountId, long amount) {
+    TransferRequest request = new TransferRequest();
+    request.setFromAccountId(fromAccountId);
+    request.setToUserId(toUserId);
+    request.setToAccountId(toAccountId);
+    request.setAmount(amount);
+    return request;
+  }
+
+  private long pending(long accountId) {
+    return splitBalances.balanceOf(accountId, 0);
+  }
+}
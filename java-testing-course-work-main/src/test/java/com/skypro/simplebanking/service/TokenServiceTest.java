@@ -0,0 +1,87 @@
+package com.skypro.simplebanking.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.skypro.simplebanking.dto.BankingUserDetails;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.server.ResponseStatusException;
+
+class TokenServiceTest {
+  private static final String OLD_KEY = "old:" + "A".repeat(44);
+  private static final String NEW_KEY = "new:" + "B".repeat(44);
+  private static final BankingUserDetails USER = new BankingUserDetails(7, "alice", "", false);
+
+  @Test
+  void verifiesItsOwnTokens() {
+    TokenService tokens = new TokenService(true, OLD_KEY, "old", 15);
+
+    BankingUserDetails verified = tokens.verify(tokens.issue(USER).getToken()).orElseThrow();
+
+    assertThat(verified.getId()).isEqualTo(7);
+    assertThat(verified.getUsername()).isEqualTo("alice");
+    assertThat(verified.getAuthorities()).extracting("authority").containsExactly("ROLE_USER");
+  }
+
+  @Test
+  void rejectsTamperedAndForeignTokens() {
+    TokenService tokens = new TokenService(true, OLD_KEY, "old", 15);
+    String token = tokens.issue(USER).getToken();
+    String admin = tokens.issue(new BankingUserDetails(7, "alice", "", true)).getToken();
+    String forgedPayload = admin.substring(0, admin.indexOf('.'));
+    String forged = forgedPayload + token.substring(token.indexOf('.'));
+    TokenService otherKeys = new TokenService(true, "old:" + "C".repeat(44), "old", 15);
+
+    assertThat(tokens.verify(forged)).isEmpty();
+    assertThat(tokens.verify(token.substring(0, token.length() - 2))).isEmpty();
+    assertThat(tokens.verify("garbage")).isEmpty();
+    assertThat(otherKeys.verify(token)).isEmpty();
+  }
+
+  @Test
+  void rejectsExpiredTokens() {
+    TokenService tokens = new TokenService(true, OLD_KEY, "old", 0);
+
+    assertThat(tokens.verify(tokens.issue(USER).getToken())).isEmpty();
+  }
+
+  @Test
+  void acceptsTokensOfEveryConfiguredKeyDuringRotation() {
+    String oldToken = new TokenService(true, OLD_KEY, "old", 15).issue(USER).getToken();
+    TokenService rotating = new TokenService(true, OLD_KEY + "," + NEW_KEY, "new", 15);
+    TokenService rotated = new TokenService(true, NEW_KEY, "new", 15);
+    String newToken = rotating.issue(USER).getToken();
+
+    assertThat(rotating.verify(oldToken)).isPresent();
+    assertThat(rotated.verify(newToken)).isPresent();
+    assertThat(rotated.verify(oldToken)).isEmpty();
+  }
+
+  @Test
+  void rejectsRevokedTokens() throws InterruptedException {
+    TokenService tokens = new TokenService(true, OLD_KEY, "old", 15);
+    String revoked = tokens.issue(USER).getToken();
+    String kept = tokens.issue(USER).getToken();
+
+    tokens.revoke(revoked);
+
+    assertThat(tokens.verify(revoked)).isEmpty();
+    assertThat(tokens.verify(kept)).isPresent();
+
+    tokens.revokeAll(USER.getId());
+    Thread.sleep(2);
+    String issuedAfter = tokens.issue(USER).getToken();
+
+    assertThat(tokens.verify(kept)).isEmpty();
+    assertThat(tokens.verify(issuedAfter)).isPresent();
+  }
+
+  @Test
+  void requiresKeysOnlyWhenEnabled() {
+    TokenService disabled = new TokenService(false, "", "", 15);
+
+    assertThatThrownBy(() -> disabled.issue(USER)).isInstanceOf(ResponseStatusException.class);
+    assertThatThrownBy(() -> new TokenService(true, "", "", 15))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+}
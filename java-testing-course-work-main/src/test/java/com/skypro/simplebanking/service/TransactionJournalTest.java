@@ -0,0 +1,121 @@
+package com.skypro.simplebanking.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.skypro.simplebanking.entity.AccountCurrency;
+import com.skypro.simplebanking.event.BalanceChangedEvent;
+import com.skypro.simplebanking.event.BalanceOperation;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+class TransactionJournalTest {
+  // Records of 48 bytes that fit into a segment of one megabyte.
+  private static final int RECORDS_PER_SEGMENT = 1024 * 1024 / 48;
+
+  @TempDir Path directory;
+
+  @Test
+  void readingStopsAtTheFirstRecordWithABadChecksum() throws Exception {
+    TransactionJournal journal = open();
+    journal.awaitDurable(
+        journal.appendAll(List.of(change(1, 10), change(2, 20), change(3, 30)), false));
+    journal.destroy();
+
+    try (RandomAccessFile file = new RandomAccessFile(segments().get(0).toFile(), "rw")) {
+      file.seek(48 + 8);
+      file.write(0x7f);
+    }
+
+    assertThat(deltas()).containsExactly(10L);
+  }
+
+  @Test
+  void fullSegmentsRollOverToTheNextFile() throws Exception {
+    TransactionJournal journal = open();
+    List<BalanceChangedEvent> events = new ArrayList<>();
+    for (int i = 1; i <= RECORDS_PER_SEGMENT + 2; i++) {
+      events.add(change(i, i));
+    }
+    journal.awaitDurable(journal.appendAll(events, false));
+    journal.destroy();
+
+    assertThat(segments()).hasSize(2);
+    List<Long> deltas = deltas();
+    assertThat(deltas).hasSize(RECORDS_PER_SEGMENT + 2);
+    assertThat(deltas.get(RECORDS_PER_SEGMENT + 1)).isEqualTo(RECORDS_PER_SEGMENT + 2);
+  }
+
+  @Test
+  void reopenedJournalAppendsAfterItsLastRecord() throws Exception {
+    TransactionJournal journal = open();
+    journal.awaitDurable(journal.appendAll(List.of(change(1, 10), change(1, 20)), false));
+    journal.destroy();
+
+    TransactionJournal reopened = open();
+    reopened.awaitDurable(reopened.appendAll(List.of(change(1, 30)), false));
+    reopened.destroy();
+
+    assertThat(deltas()).containsExactly(10L, 20L, 30L);
+  }
+
+  @Test
+  void changesOfARolledBackTransactionAreReversed() throws Exception {
+    TransactionJournal journal = open();
+    TransactionSynchronizationManager.initSynchronization();
+    try {
+      journal.onBalanceChanged(change(1, 10));
+      journal.onBalanceChanged(change(2, -10));
+      assertThat(deltas()).isEmpty();
+
+      List<TransactionSynchronization> synchronizations =
+          TransactionSynchronizationManager.getSynchronizations();
+      synchronizations.forEach(synchronization -> synchronization.beforeCommit(false));
+      assertThat(deltas()).containsExactly(10L, -10L);
+      synchronizations.forEach(
+          synchronization ->
+              synchronization.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+    } finally {
+      TransactionSynchronizationManager.clearSynchronization();
+    }
+    journal.destroy();
+
+    assertThat(deltas()).containsExactly(10L, -10L, -10L, 10L);
+  }
+
+  @Test
+  void segmentsLargerThanOneBufferAreRejected() {
+    assertThatThrownBy(() -> new TransactionJournal(directory.toString(), 4096, 2, 1000))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+
+  private TransactionJournal open() throws Exception {
+    return new TransactionJournal(directory.toString(), 1, 1, 1000);
+  }
+
+  private List<Path> segments() throws Exception {
+    try (Stream<Path> files = Files.list(directory)) {
+      return files.sorted().collect(Collectors.toList());
+    }
+  }
+
+  private List<Long> deltas() throws Exception {
+    List<Long> deltas = new ArrayList<>();
+    TransactionJournal.read(directory, record -> deltas.add(record.getDelta()));
+    return deltas;
+  }
+
+  private static BalanceChangedEvent change(long accountId, long delta) {
+    return new BalanceChangedEvent(
+        accountId, 1, AccountCurrency.USD, BalanceOperation.DEPOSIT, delta, delta, 0);
+  }
+}
@@ -0,0 +1,68 @@
+package com.skypro.simplebanking.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+class TransactionRetryTemplateTest {
+  private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private final TransactionRetryTemplate retryTemplate =
+      new TransactionRetryTemplate(mock(PlatformTransactionManager.class), meterRegistry, 3, 1, 2);
+
+  @Test
+  void retriesConflictsUntilTheWorkSucceeds() {
+    AtomicInteger attempts = new AtomicInteger();
+
+    String result =
+        retryTemplate.execute(
+            () -> {
+              if (attempts.incrementAndGet() < 3) {
+                throw new CannotAcquireLockException("deadlock");
+              }
+              return "done";
+            });
+
+    assertThat(result).isEqualTo("done");
+    assertThat(meterRegistry.counter("banking.transaction.retries").count()).isEqualTo(2);
+  }
+
+  @Test
+  void givesUpAfterTheMaximumNumberOfAttempts() {
+    AtomicInteger attempts = new AtomicInteger();
+
+    assertThatThrownBy(
+            () ->
+                retryTemplate.execute(
+                    () -> {
+                      attempts.incrementAndGet();
+                      throw new OptimisticLockingFailureException("changed");
+                    }))
+        .isInstanceOf(OptimisticLockingFailureException.class);
+    assertThat(attempts).hasValue(3);
+    assertThat(meterRegistry.counter("banking.transaction.retries.exhausted").count())
+        .isEqualTo(1);
+  }
+
+  @Test
+  void doesNotRetryOtherFailures() {
+    AtomicInteger attempts = new AtomicInteger();
+
+    assertThatThrownBy(
+            () ->
+                retryTemplate.execute(
+                    () -> {
+                      attempts.incrementAndGet();
+                      throw new IllegalStateException("broken");
+                    }))
+        .isInstanceOf(IllegalStateException.class);
+    assertThat(attempts).hasValue(1);
+  }
+}
@@ -0,0 +1,130 @@
+package com.skypro.simplebanking.service;
+
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+import com.skypro.simplebanking.exception.VelocityLimitExceededException;
+import com.skypro.simplebanking.repository.AccountTransactionJdbcRepository;
+import com.skypro.simplebanking.repository.AccountTransactionJdbcRepository.TransactionConsumer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.transaction.PlatformTransactionManager;
+
+class VelocityEngineTest {
+  private static final Instant START = Instant.parse("2026-01-01T12:00:00Z");
+
+  private final MutableClock clock = new MutableClock(START);
+  private final AccountTransactionJdbcRepository transactions =
+      mock(AccountTransactionJdbcRepository.class);
+
+  @Test
+  void debitsLeaveTheMinuteWindowAfterAMinute() {
+    VelocityEngine velocity = start("app.velocity.minute.max-count", "2");
+    velocity.reserve(1, 10);
+    velocity.reserve(1, 10);
+
+    clock.advance(Duration.ofSeconds(55));
+    assertThatThrownBy(() -> velocity.reserve(1, 10))
+        .isInstanceOf(VelocityLimitExceededException.class);
+    assertThatCode(() -> velocity.reserve(2, 10)).doesNotThrowAnyException();
+
+    clock.advance(Duration.ofSeconds(5));
+    assertThatCode(() -> velocity.reserve(1, 10)).doesNotThrowAnyException();
+  }
+
+  @Test
+  void cancelTakesBackOnlyWhatIsStillInTheWindow() {
+    VelocityEngine velocity = start("app.velocity.minute.max-amount", "100");
+    VelocityEngine.Reservation early = velocity.reserve(1, 80);
+    assertThatThrownBy(() -> velocity.reserve(1, 30))
+        .isInstanceOf(VelocityLimitExceededException.class);
+    early.cancel();
+    velocity.reserve(1, 30);
+
+    VelocityEngine.Reservation expired = velocity.reserve(1, 70);
+    clock.advance(Duration.ofMinutes(1));
+    velocity.reserve(1, 50);
+    // Its bucket has been reused for the debit above, which has to stay counted.
+    expired.cancel();
+    assertThatThrownBy(() -> velocity.reserve(1, 60))
+        .isInstanceOf(VelocityLimitExceededException.class);
+  }
+
+  @Test
+  void rebuildsTheWindowsFromTheLastDayOfDebits() {
+    doAnswer(
+            invocation -> {
+              TransactionConsumer consumer = invocation.getArgument(2);
+              consumer.accept(1, -400, START.minus(Duration.ofHours(2)));
+              consumer.accept(2, -250, START.minus(Duration.ofSeconds(10)));
+              return null;
+            })
+        .when(transactions)
+        .streamSince(any(), any(), any());
+    VelocityEngine velocity =
+        start("app.velocity.minute.max-amount", "300", "app.velocity.day.max-amount", "500");
+
+    assertThatThrownBy(() -> velocity.reserve(1, 200))
+        .isInstanceOf(VelocityLimitExceededException.class)
+        .hasMessage("Cannot debit more than 500 per day");
+    velocity.reserve(1, 100);
+    assertThatThrownBy(() -> velocity.reserve(2, 60))
+        .isInstanceOf(VelocityLimitExceededException.class)
+        .hasMessage("Cannot debit more than 300 per minute");
+    velocity.reserve(2, 50);
+  }
+
+  private VelocityEngine start(String... properties) {
+    MockEnvironment environment = new MockEnvironment();
+    for (int i = 0; i < properties.length; i += 2) {
+      environment.setProperty(properties[i], properties[i + 1]);
+    }
+    VelocityEngine velocity =
+        new VelocityEngine(
+            transactions,
+            mock(PlatformTransactionManager.class),
+            environment,
+            new SimpleMeterRegistry(),
+            new StaticListableBeanFactory(Map.of("clock", clock)).getBeanProvider(Clock.class));
+    velocity.afterSingletonsInstantiated();
+    return velocity;
+  }
+
+  private static final class MutableClock extends Clock {
+    private Instant now;
+
+    private MutableClock(Instant now) {
+      this.now = now;
+    }
+
+    private void advance(Duration duration) {
+      now = now.plus(duration);
+    }
+
+    @Override
+    public Instant instant() {
+      return now;
+    }
+
+    @Override
+    public ZoneId getZone() {
+      return ZoneOffset.UTC;
+    }
+
+    @Override
+    public Clock withZone(ZoneId zone) {
+      throw new UnsupportedOperationException();
+    }
+  }
+}